@@ -0,0 +1,68 @@
+package com.itau.case_pix.DTO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.servico.DadosBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Construção dos DTOs de resposta a partir da entidade e serialização com a mesma base de
+// configuração do ObjectMapper que o Spring Boot usa nos controladores
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MapeamentoRespostaChavePixBenchmark {
+
+    private ObjectMapper objectMapper;
+    private EntidadeChavePix chavePix;
+    private RespostaConsultaChavePixDTO respostaConsulta;
+    private RespostaInclusaoChavePixDTO respostaInclusao;
+
+    @Setup
+    public void preparar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        chavePix = DadosBenchmark.chaveNormalizada("email");
+        respostaConsulta = new RespostaConsultaChavePixDTO(chavePix);
+        respostaInclusao = new RespostaInclusaoChavePixDTO(chavePix);
+    }
+
+    @Benchmark
+    public RespostaConsultaChavePixDTO construirRespostaConsulta() {
+        return new RespostaConsultaChavePixDTO(chavePix);
+    }
+
+    @Benchmark
+    public RespostaInclusaoChavePixDTO construirRespostaInclusao() {
+        return new RespostaInclusaoChavePixDTO(chavePix);
+    }
+
+    @Benchmark
+    public byte[] serializarRespostaConsulta() throws Exception {
+        return objectMapper.writeValueAsBytes(respostaConsulta);
+    }
+
+    @Benchmark
+    public byte[] serializarRespostaInclusao() throws Exception {
+        return objectMapper.writeValueAsBytes(respostaInclusao);
+    }
+
+    // Caminho completo de uma consulta: entidade -> DTO -> JSON
+    @Benchmark
+    public byte[] mapearESerializarConsulta() throws Exception {
+        return objectMapper.writeValueAsBytes(new RespostaConsultaChavePixDTO(chavePix));
+    }
+}
@@ -0,0 +1,19 @@
+package com.itau.case_pix;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Ponto de entrada do benchmarks.jar: aceita as opções de linha de comando do JMH e sempre
+// acrescenta o profiler de GC, para que cada resultado traga a taxa de alocação (gc.alloc.rate.norm)
+public class ExecutorBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
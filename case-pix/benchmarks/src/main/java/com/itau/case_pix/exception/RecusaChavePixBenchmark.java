@@ -0,0 +1,113 @@
+package com.itau.case_pix.exception;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.servico.DadosBenchmark;
+import com.itau.case_pix.servico.ServicoImplementacaoChavePix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Custo do caminho de recusa: IllegalArgumentException com stack trace roteada pela mensagem (como o
+// controlador fazia) contra ExcecaoChavePix sem stack trace roteada pelo código. "profundidade" simula
+// a pilha da thread da requisição abaixo do tratador (Tomcat, filtros, DispatcherServlet)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RecusaChavePixBenchmark {
+
+    private static final String MENSAGEM = "Dados da chave PIX inválidos";
+    private static final int QUADROS_ATE_RECUSA = 8;
+
+    @Param({ "16", "128" })
+    private int profundidade;
+
+    private ServicoImplementacaoChavePix servico;
+
+    @Setup
+    public void preparar() {
+        servico = DadosBenchmark.servico();
+    }
+
+    @Benchmark
+    public int excecaoComMensagem() {
+        return pilhaComMensagem(profundidade);
+    }
+
+    @Benchmark
+    public int excecaoTipada() {
+        return pilhaTipada(profundidade);
+    }
+
+    // Recusa real do serviço (dados inválidos), sem acesso ao banco
+    @Benchmark
+    public int servicoDadosInvalidos() {
+        try {
+            servico.incluirChave(new EntidadeChavePix(null, "cpf", "123", "fisica", "corrente", 1234, 12345678,
+                    "Maria", "da Silva Santos"));
+            return 201;
+        } catch (ExcecaoChavePix e) {
+            return e.getCodigo().getStatus().value();
+        }
+    }
+
+    // Quadros abaixo do tratador (entram no stack trace, mas não são desempilhados)
+    private static int pilhaComMensagem(int profundidade) {
+        if (profundidade > 0) {
+            return pilhaComMensagem(profundidade - 1) + 1;
+        }
+        try {
+            return lancarComMensagem(QUADROS_ATE_RECUSA);
+        } catch (IllegalArgumentException e) {
+            return statusPorMensagem(e.getMessage());
+        }
+    }
+
+    private static int pilhaTipada(int profundidade) {
+        if (profundidade > 0) {
+            return pilhaTipada(profundidade - 1) + 1;
+        }
+        try {
+            return lancarTipada(QUADROS_ATE_RECUSA);
+        } catch (ExcecaoChavePix e) {
+            return e.getCodigo().getStatus().value();
+        }
+    }
+
+    // Quadros entre o tratador e o ponto de recusa (proxies, controlador, serviço)
+    private static int lancarComMensagem(int quadros) {
+        if (quadros == 0) {
+            throw new IllegalArgumentException(MENSAGEM);
+        }
+        return lancarComMensagem(quadros - 1) + 1;
+    }
+
+    private static int lancarTipada(int quadros) {
+        if (quadros == 0) {
+            throw new ExcecaoChavePix(CodigoErroChavePix.DADOS_INVALIDOS, MENSAGEM);
+        }
+        return lancarTipada(quadros - 1) + 1;
+    }
+
+    // Roteamento anterior do ControladorChavePix
+    private static int statusPorMensagem(String mensagem) {
+        if (mensagem.contains("não encontrada")) {
+            return 404;
+        } else if (mensagem.contains("já está inativada")) {
+            return 422;
+        }
+        return 422;
+    }
+}
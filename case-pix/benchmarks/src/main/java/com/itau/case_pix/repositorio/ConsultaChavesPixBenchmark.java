@@ -0,0 +1,110 @@
+package com.itau.case_pix.repositorio;
+
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.servico.ServicoChavePix;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Página de chaves ativas pelo caminho antigo (entidades gerenciadas numa transação de leitura e escrita,
+// convertidas em DTO) e pela projeção em transação somente leitura, com o contexto Spring sobre H2 em memória
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsultaChavesPixBenchmark {
+
+    private static final int QUANTIDADE_CHAVES = 5000;
+    private static final int TAMANHO_LOTE = 1000;
+
+    private static final String CONSULTA_ENTIDADES = "SELECT c FROM EntidadeChavePix c "
+            + "WHERE c.dataHoraInativacaoChave IS NULL ORDER BY c.dataHoraInclusaoChave, c.id";
+    private static final LocalDateTime DATA_INICIAL = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final UUID ID_INICIAL = new UUID(0L, 0L);
+
+    @Param({ "100", "1000" })
+    private int limite;
+
+    private ConfigurableApplicationContext contexto;
+    private RepositorioChavePix repositorioChavePix;
+    private EntityManager entityManager;
+    private TransactionTemplate leituraEscrita;
+    private TransactionTemplate somenteLeitura;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = ContextoBenchmark.iniciar("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        repositorioChavePix = contexto.getBean(RepositorioChavePix.class);
+        entityManager = contexto.getBean(EntityManager.class);
+        PlatformTransactionManager gerenciadorTransacoes = contexto.getBean(PlatformTransactionManager.class);
+        leituraEscrita = new TransactionTemplate(gerenciadorTransacoes);
+        somenteLeitura = new TransactionTemplate(gerenciadorTransacoes);
+        somenteLeitura.setReadOnly(true);
+
+        // Uma chave por conta, para não esbarrar no limite de chaves por conta
+        ServicoChavePix servicoChavePix = contexto.getBean(ServicoChavePix.class);
+        for (int inicio = 0; inicio < QUANTIDADE_CHAVES; inicio += TAMANHO_LOTE) {
+            List<EntidadeChavePix> lote = new ArrayList<>();
+            for (int i = inicio; i < inicio + TAMANHO_LOTE; i++) {
+                lote.add(new EntidadeChavePix(null, "email", "chave" + i + "@benchmark.com", "fisica", "corrente",
+                        1 + i / 10000, 10000 + i, "Correntista", "Benchmark"));
+            }
+            servicoChavePix.incluirChavesEmLote(lote);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    // Caminho anterior: entidades com snapshot para dirty checking e flush automático no commit
+    @Benchmark
+    public List<RespostaConsultaChavePixDTO> entidadesLeituraEscrita() {
+        return leituraEscrita.execute(status -> paginaDeEntidades());
+    }
+
+    // Separa o ganho da transação somente leitura (sem snapshot nem flush) do ganho da projeção
+    @Benchmark
+    public List<RespostaConsultaChavePixDTO> entidadesSomenteLeitura() {
+        return somenteLeitura.execute(status -> paginaDeEntidades());
+    }
+
+    @Benchmark
+    public List<RespostaConsultaChavePixDTO> projecaoSomenteLeitura() {
+        return somenteLeitura.execute(status -> repositorioChavePix.findAtivasApos(DATA_INICIAL, ID_INICIAL,
+                Limit.of(limite)));
+    }
+
+    private List<RespostaConsultaChavePixDTO> paginaDeEntidades() {
+        return entityManager.createQuery(CONSULTA_ENTIDADES, EntidadeChavePix.class)
+                .setMaxResults(limite)
+                .getResultList().stream()
+                .map(RespostaConsultaChavePixDTO::new)
+                .toList();
+    }
+}
@@ -0,0 +1,28 @@
+package com.itau.case_pix.repositorio;
+
+import com.itau.case_pix.CasePixApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Contexto da aplicação sem servidor web para os benchmarks de banco. O log detalhado de SQL do
+// application.properties é desligado, senão cada comando escreveria no console dentro da medição
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {
+    }
+
+    static ConfigurableApplicationContext iniciar(String urlBanco) {
+        // Como argumentos de linha de comando, que têm precedência sobre o application.properties
+        return new SpringApplicationBuilder(CasePixApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + urlBanco,
+                        "--case-pix.cache.segundo-nivel.habilitado=false",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.level.org.springframework.jdbc.core=WARN",
+                        "--logging.level.com.zaxxer.hikari=WARN");
+    }
+}
@@ -0,0 +1,112 @@
+package com.itau.case_pix.repositorio;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.servico.GeradorIdChavePix;
+import com.itau.case_pix.servico.GeradorUuidAleatorio;
+import com.itau.case_pix.servico.GeradorUuidV7;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Inclusão de lotes de chaves com id UUID v4 (aleatório) e v7 (ordenado pelo tempo), em H2 com arquivo.
+// O H2 2.x não informa o tamanho de cada índice; o contador auxiliar bytesPorChave traz o tamanho do arquivo do
+// banco por chave incluída, medido no fim de cada iteração após o checkpoint e antes de qualquer compactação
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InclusaoChavesPixBenchmark {
+
+    private static final int TAMANHO_LOTE = 1000;
+    private static final int TAMANHO_BATCH_JDBC = 50;
+
+    @Param({ "4", "7" })
+    private int versao;
+
+    private Path diretorio;
+    private ConfigurableApplicationContext contexto;
+    private EntityManager entityManager;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transacao;
+    private GeradorIdChavePix gerador;
+    private long sequencia;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        diretorio = Files.createTempDirectory("case-pix-inclusao");
+        contexto = ContextoBenchmark.iniciar("jdbc:h2:file:" + diretorio.resolve("chaves"));
+        entityManager = contexto.getBean(EntityManager.class);
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        transacao = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        gerador = versao == 7 ? new GeradorUuidV7() : new GeradorUuidAleatorio();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() throws IOException {
+        contexto.close();
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    // Contador auxiliar reportado pelo JMH ao lado do tempo médio
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class TamanhoArquivo {
+        public double bytesPorChave;
+
+        // Fora da medição: o checkpoint roda no encerramento da iteração
+        @TearDown(Level.Iteration)
+        public void medir(InclusaoChavesPixBenchmark benchmark) throws IOException {
+            Long chaves = benchmark.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pix_itau_db", Long.class);
+            benchmark.jdbcTemplate.execute("CHECKPOINT SYNC");
+            bytesPorChave = (double) Files.size(benchmark.diretorio.resolve("chaves.mv.db")) / chaves;
+        }
+    }
+
+    // Um lote por operação, com os INSERTs agrupados em batch JDBC como na inclusão em lote do serviço
+    @Benchmark
+    public void incluirLote(TamanhoArquivo tamanho) {
+        transacao.executeWithoutResult(status -> {
+            LocalDateTime agora = LocalDateTime.now();
+            for (int i = 0; i < TAMANHO_LOTE; i++) {
+                long n = sequencia++;
+                EntidadeChavePix chave = new EntidadeChavePix(gerador.gerar(), "email",
+                        "chave" + n + "@benchmark.com", "fisica", "corrente", 1 + (int) (n / 100000),
+                        10000 + (int) (n % 100000), "Correntista", "Benchmark");
+                chave.setDataHoraInclusaoChave(agora);
+                entityManager.persist(chave);
+                if ((i + 1) % TAMANHO_BATCH_JDBC == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.repositorio.RepositorioChavePix;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+
+// Monta o serviço fora do Spring para os benchmarks sem banco, informando por nome só as dependências que o
+// caminho medido usa. As demais ficam nulas e o validador e as métricas (em registro em memória) têm padrão.
+// Sem contexto Spring não há proxy transacional, então a medição não inclui abertura de transação
+public final class ConstrutorServicoBenchmark {
+
+    private RepositorioChavePix repositorioChavePix;
+    private DiretorioChavesPix diretorioChavesPix;
+    private ContadorChavesConta contadorChavesConta;
+    private ValidadorValorChavePix validadorValorChavePix = new ValidadorValorChavePix();
+    private FiltroChavesPix filtroChavesPix;
+    private IndiceNomeCorrentista indiceNomeCorrentista;
+    private EstatisticasChavePix estatisticasChavePix;
+    private GeradorIdChavePix geradorIdChavePix;
+    private MetricasChavePix metricasChavePix = new MetricasChavePix(new SimpleMeterRegistry());
+    private ApplicationEventPublisher publicadorEventos;
+    private EntityManager entityManager;
+    private int tamanhoMaximoLote = 1000;
+    private int tamanhoBatchJdbc = 50;
+
+    public ConstrutorServicoBenchmark repositorio(RepositorioChavePix repositorioChavePix) {
+        this.repositorioChavePix = repositorioChavePix;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark diretorio(DiretorioChavesPix diretorioChavesPix) {
+        this.diretorioChavesPix = diretorioChavesPix;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark contador(ContadorChavesConta contadorChavesConta) {
+        this.contadorChavesConta = contadorChavesConta;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark validador(ValidadorValorChavePix validadorValorChavePix) {
+        this.validadorValorChavePix = validadorValorChavePix;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark filtro(FiltroChavesPix filtroChavesPix) {
+        this.filtroChavesPix = filtroChavesPix;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark indiceNomes(IndiceNomeCorrentista indiceNomeCorrentista) {
+        this.indiceNomeCorrentista = indiceNomeCorrentista;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark estatisticas(EstatisticasChavePix estatisticasChavePix) {
+        this.estatisticasChavePix = estatisticasChavePix;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark geradorId(GeradorIdChavePix geradorIdChavePix) {
+        this.geradorIdChavePix = geradorIdChavePix;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark metricas(MetricasChavePix metricasChavePix) {
+        this.metricasChavePix = metricasChavePix;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark publicadorEventos(ApplicationEventPublisher publicadorEventos) {
+        this.publicadorEventos = publicadorEventos;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark entityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark tamanhoMaximoLote(int tamanhoMaximoLote) {
+        this.tamanhoMaximoLote = tamanhoMaximoLote;
+        return this;
+    }
+
+    public ConstrutorServicoBenchmark tamanhoBatchJdbc(int tamanhoBatchJdbc) {
+        this.tamanhoBatchJdbc = tamanhoBatchJdbc;
+        return this;
+    }
+
+    public ServicoImplementacaoChavePix construir() {
+        return new ServicoImplementacaoChavePix(repositorioChavePix, diretorioChavesPix, contadorChavesConta,
+                validadorValorChavePix, filtroChavesPix, indiceNomeCorrentista, estatisticasChavePix,
+                geradorIdChavePix, metricasChavePix, publicadorEventos, entityManager, tamanhoMaximoLote,
+                tamanhoBatchJdbc);
+    }
+}
@@ -0,0 +1,37 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Serviço e chaves válidas de cada tipo para os benchmarks. Validação, normalização e recusa por dados
+// inválidos só usam o validador e as métricas de recusa, os padrões do ConstrutorServicoBenchmark
+public final class DadosBenchmark {
+
+    private DadosBenchmark() {
+    }
+
+    public static ServicoImplementacaoChavePix servico() {
+        return new ConstrutorServicoBenchmark().construir();
+    }
+
+    public static EntidadeChavePix chaveNormalizada(String tipoChave) {
+        EntidadeChavePix chavePix = new EntidadeChavePix(UUID.fromString("3f2c1a9e-8b7d-4c6e-9f01-23456789abcd"),
+                tipoChave, valorValido(tipoChave), "fisica", "corrente", 1234, 12345678, "Maria",
+                "da Silva Santos");
+        chavePix.setDataHoraInclusaoChave(LocalDateTime.of(2025, 5, 17, 10, 30, 15));
+        return chavePix;
+    }
+
+    private static String valorValido(String tipoChave) {
+        return switch (tipoChave) {
+            case "celular" -> "+5511987654321";
+            case "email" -> "maria.silva@exemplo.com.br";
+            case "cpf" -> "11144477735";
+            case "cnpj" -> "11222333000181";
+            case "aleatoria" -> "a1B2c3D4e5F6g7H8i9J0k1L2m3N4o5P6q7R8";
+            default -> throw new IllegalArgumentException("Tipo de chave desconhecido: " + tipoChave);
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// normalizarDados altera a entidade, então cada invocação restaura os valores como chegam na requisição
+// (o custo dos setters entra na medição e é desprezível perto do toLowerCase/replace)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class NormalizacaoChavePixBenchmark {
+
+    // Valores já normalizados e com acentuação/caixa alta, como podem chegar na requisição
+    @Param({ "normalizado", "acentuado" })
+    private String entrada;
+
+    private ServicoImplementacaoChavePix servico;
+    private EntidadeChavePix chavePix;
+    private String tipoChave;
+    private String tipoPessoa;
+    private String tipoConta;
+
+    @Setup
+    public void preparar() {
+        servico = DadosBenchmark.servico();
+        chavePix = DadosBenchmark.chaveNormalizada("email");
+        boolean acentuado = "acentuado".equals(entrada);
+        tipoChave = acentuado ? "E-MAIL" : "email";
+        tipoPessoa = acentuado ? "Física" : "fisica";
+        tipoConta = acentuado ? "POUPANÇA" : "poupanca";
+    }
+
+    @Benchmark
+    public EntidadeChavePix normalizarDados() {
+        chavePix.setTipoChave(tipoChave);
+        chavePix.setTipoPessoa(tipoPessoa);
+        chavePix.setTipoConta(tipoConta);
+        servico.normalizarDados(chavePix);
+        return chavePix;
+    }
+}
@@ -0,0 +1,50 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Validação completa da chave e validação apenas do valor, para cada tipo de chave
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ValidacaoChavePixBenchmark {
+
+    @Param({ "celular", "email", "cpf", "cnpj", "aleatoria" })
+    private String tipoChave;
+
+    private ServicoImplementacaoChavePix servico;
+    private EntidadeChavePix chavePix;
+    private String valorChave;
+
+    @Setup
+    public void preparar() {
+        servico = DadosBenchmark.servico();
+        chavePix = DadosBenchmark.chaveNormalizada(tipoChave);
+        valorChave = chavePix.getValorChave();
+    }
+
+    @Benchmark
+    public boolean validarChave() {
+        return servico.validarChave(chavePix);
+    }
+
+    @Benchmark
+    public boolean validarValorChave() {
+        return servico.validarValorChave(tipoChave, valorChave);
+    }
+}
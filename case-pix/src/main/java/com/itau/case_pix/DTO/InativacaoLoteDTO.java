@@ -0,0 +1,35 @@
+package com.itau.case_pix.DTO;
+
+import java.util.List;
+import java.util.UUID;
+
+public class InativacaoLoteDTO {
+    private List<UUID> ids;
+    private Integer numeroAgencia;
+    private Integer numeroConta;
+
+    // Getters e Setters
+    public List<UUID> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<UUID> ids) {
+        this.ids = ids;
+    }
+
+    public Integer getNumeroAgencia() {
+        return numeroAgencia;
+    }
+
+    public void setNumeroAgencia(Integer numeroAgencia) {
+        this.numeroAgencia = numeroAgencia;
+    }
+
+    public Integer getNumeroConta() {
+        return numeroConta;
+    }
+
+    public void setNumeroConta(Integer numeroConta) {
+        this.numeroConta = numeroConta;
+    }
+}
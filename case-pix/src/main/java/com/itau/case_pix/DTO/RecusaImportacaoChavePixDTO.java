@@ -0,0 +1,28 @@
+package com.itau.case_pix.DTO;
+
+public class RecusaImportacaoChavePixDTO {
+    // Índice da chave no arquivo, que pode passar de Integer.MAX_VALUE
+    private long indice;
+    private String mensagem;
+
+    public RecusaImportacaoChavePixDTO(long indice, String mensagem) {
+        this.indice = indice;
+        this.mensagem = mensagem;
+    }
+
+    public long getIndice() {
+        return indice;
+    }
+
+    public void setIndice(long indice) {
+        this.indice = indice;
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+
+    public void setMensagem(String mensagem) {
+        this.mensagem = mensagem;
+    }
+}
@@ -41,6 +41,24 @@ public class RespostaConsultaChavePixDTO {
 
     }
 
+    // Construtor usado pelas consultas de projeção do repositório (SELECT new ...), sem carregar a entidade
+    public RespostaConsultaChavePixDTO(UUID id, String tipoChave, String valorChave, String tipoPessoa,
+            String tipoConta, Integer numeroAgencia, Integer numeroConta, String nomeCorrentista,
+            String sobrenomeCorrentista, LocalDateTime dataHoraInclusaoChave, LocalDateTime dataHoraInativacaoChave) {
+        this.id = id;
+        this.tipoChave = tipoChave;
+        this.valorChave = valorChave;
+        this.tipoPessoa = tipoPessoa;
+        this.tipoConta = tipoConta;
+        this.numeroAgencia = numeroAgencia;
+        this.numeroConta = numeroConta;
+        this.nomeCorrentista = nomeCorrentista;
+        this.sobrenomeCorrentista = sobrenomeCorrentista;
+        this.dataHoraInclusaoChave = dataHoraInclusaoChave;
+        this.dataHoraInativacaoChave = dataHoraInativacaoChave;
+        this.ativa = dataHoraInativacaoChave == null;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -0,0 +1,73 @@
+package com.itau.case_pix.DTO;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+public class RespostaEstatisticasChavePixDTO {
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime dataHoraReconciliacao;
+    private Contagem total;
+    private Map<String, Contagem> porTipoChave;
+    private Map<String, Contagem> porTipoPessoa;
+    private Map<Integer, Contagem> porAgencia;
+
+    public static class Contagem {
+        private final long ativas;
+        private final long inativas;
+
+        public Contagem(long ativas, long inativas) {
+            this.ativas = ativas;
+            this.inativas = inativas;
+        }
+
+        public long getAtivas() {
+            return ativas;
+        }
+
+        public long getInativas() {
+            return inativas;
+        }
+    }
+
+    public LocalDateTime getDataHoraReconciliacao() {
+        return dataHoraReconciliacao;
+    }
+
+    public void setDataHoraReconciliacao(LocalDateTime dataHoraReconciliacao) {
+        this.dataHoraReconciliacao = dataHoraReconciliacao;
+    }
+
+    public Contagem getTotal() {
+        return total;
+    }
+
+    public void setTotal(Contagem total) {
+        this.total = total;
+    }
+
+    public Map<String, Contagem> getPorTipoChave() {
+        return porTipoChave;
+    }
+
+    public void setPorTipoChave(Map<String, Contagem> porTipoChave) {
+        this.porTipoChave = porTipoChave;
+    }
+
+    public Map<String, Contagem> getPorTipoPessoa() {
+        return porTipoPessoa;
+    }
+
+    public void setPorTipoPessoa(Map<String, Contagem> porTipoPessoa) {
+        this.porTipoPessoa = porTipoPessoa;
+    }
+
+    public Map<Integer, Contagem> getPorAgencia() {
+        return porAgencia;
+    }
+
+    public void setPorAgencia(Map<Integer, Contagem> porAgencia) {
+        this.porAgencia = porAgencia;
+    }
+}
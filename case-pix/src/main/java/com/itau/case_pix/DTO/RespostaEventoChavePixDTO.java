@@ -0,0 +1,51 @@
+package com.itau.case_pix.DTO;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+public class RespostaEventoChavePixDTO {
+    private final long posicao;
+    private final long sequencia;
+    private final UUID idChave;
+    private final String operacao;
+    private final Set<String> camposAlterados;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSSSS")
+    private final LocalDateTime dataHoraEvento;
+
+    public RespostaEventoChavePixDTO(long posicao, long sequencia, UUID idChave, String operacao,
+            Set<String> camposAlterados, LocalDateTime dataHoraEvento) {
+        this.posicao = posicao;
+        this.sequencia = sequencia;
+        this.idChave = idChave;
+        this.operacao = operacao;
+        this.camposAlterados = camposAlterados;
+        this.dataHoraEvento = dataHoraEvento;
+    }
+
+    public long getPosicao() {
+        return posicao;
+    }
+
+    public long getSequencia() {
+        return sequencia;
+    }
+
+    public UUID getIdChave() {
+        return idChave;
+    }
+
+    public String getOperacao() {
+        return operacao;
+    }
+
+    public Set<String> getCamposAlterados() {
+        return camposAlterados;
+    }
+
+    public LocalDateTime getDataHoraEvento() {
+        return dataHoraEvento;
+    }
+}
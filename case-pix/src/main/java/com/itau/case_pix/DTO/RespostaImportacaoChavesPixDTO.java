@@ -0,0 +1,44 @@
+package com.itau.case_pix.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RespostaImportacaoChavesPixDTO {
+    private long lidas;
+    private long importadas;
+    private long recusadas;
+    // As 100 primeiras recusas do arquivo, em ordem de índice
+    private List<RecusaImportacaoChavePixDTO> recusas = new ArrayList<>();
+
+    public long getLidas() {
+        return lidas;
+    }
+
+    public void setLidas(long lidas) {
+        this.lidas = lidas;
+    }
+
+    public long getImportadas() {
+        return importadas;
+    }
+
+    public void setImportadas(long importadas) {
+        this.importadas = importadas;
+    }
+
+    public long getRecusadas() {
+        return recusadas;
+    }
+
+    public void setRecusadas(long recusadas) {
+        this.recusadas = recusadas;
+    }
+
+    public List<RecusaImportacaoChavePixDTO> getRecusas() {
+        return recusas;
+    }
+
+    public void setRecusas(List<RecusaImportacaoChavePixDTO> recusas) {
+        this.recusas = recusas;
+    }
+}
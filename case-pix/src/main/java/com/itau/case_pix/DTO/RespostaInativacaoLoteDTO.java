@@ -0,0 +1,60 @@
+package com.itau.case_pix.DTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RespostaInativacaoLoteDTO {
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime dataHoraInativacaoChave;
+    private List<UUID> inativadas = new ArrayList<>();
+    private List<UUID> jaInativadas = new ArrayList<>();
+    private List<UUID> naoEncontradas = new ArrayList<>();
+
+    public RespostaInativacaoLoteDTO(LocalDateTime dataHoraInativacaoChave) {
+        this.dataHoraInativacaoChave = dataHoraInativacaoChave;
+    }
+
+    @JsonIgnore
+    public boolean isVazia() {
+        return inativadas.isEmpty() && jaInativadas.isEmpty() && naoEncontradas.isEmpty();
+    }
+
+    public LocalDateTime getDataHoraInativacaoChave() {
+        return dataHoraInativacaoChave;
+    }
+
+    public void setDataHoraInativacaoChave(LocalDateTime dataHoraInativacaoChave) {
+        this.dataHoraInativacaoChave = dataHoraInativacaoChave;
+    }
+
+    public List<UUID> getInativadas() {
+        return inativadas;
+    }
+
+    public void setInativadas(List<UUID> inativadas) {
+        this.inativadas = inativadas;
+    }
+
+    public List<UUID> getJaInativadas() {
+        return jaInativadas;
+    }
+
+    public void setJaInativadas(List<UUID> jaInativadas) {
+        this.jaInativadas = jaInativadas;
+    }
+
+    public List<UUID> getNaoEncontradas() {
+        return naoEncontradas;
+    }
+
+    public void setNaoEncontradas(List<UUID> naoEncontradas) {
+        this.naoEncontradas = naoEncontradas;
+    }
+}
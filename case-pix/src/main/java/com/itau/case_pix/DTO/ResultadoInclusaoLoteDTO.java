@@ -0,0 +1,55 @@
+package com.itau.case_pix.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultadoInclusaoLoteDTO {
+    private int indice;
+    private boolean incluida;
+    private RespostaInclusaoChavePixDTO chave;
+    private String mensagem;
+
+    public ResultadoInclusaoLoteDTO(int indice, RespostaInclusaoChavePixDTO chave) {
+        this.indice = indice;
+        this.incluida = true;
+        this.chave = chave;
+    }
+
+    public ResultadoInclusaoLoteDTO(int indice, String mensagem) {
+        this.indice = indice;
+        this.incluida = false;
+        this.mensagem = mensagem;
+    }
+
+    public int getIndice() {
+        return indice;
+    }
+
+    public void setIndice(int indice) {
+        this.indice = indice;
+    }
+
+    public boolean isIncluida() {
+        return incluida;
+    }
+
+    public void setIncluida(boolean incluida) {
+        this.incluida = incluida;
+    }
+
+    public RespostaInclusaoChavePixDTO getChave() {
+        return chave;
+    }
+
+    public void setChave(RespostaInclusaoChavePixDTO chave) {
+        this.chave = chave;
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+
+    public void setMensagem(String mensagem) {
+        this.mensagem = mensagem;
+    }
+}
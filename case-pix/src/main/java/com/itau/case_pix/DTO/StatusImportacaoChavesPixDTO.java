@@ -0,0 +1,111 @@
+package com.itau.case_pix.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StatusImportacaoChavesPixDTO {
+    private UUID id;
+    private String formato;
+    // EM_ANDAMENTO, CONCLUIDA ou FALHOU
+    private String estado;
+    private long linhasProcessadas;
+    private long importadas;
+    // Chaves do arquivo já gravadas na mesma conta (por exemplo, o bloco refeito depois de uma retomada)
+    private long jaExistentes;
+    private long recusadas;
+    private double linhasPorSegundo;
+    private LocalDateTime dataHoraCriacao;
+    private LocalDateTime dataHoraConclusao;
+    private String mensagemErro;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getFormato() {
+        return formato;
+    }
+
+    public void setFormato(String formato) {
+        this.formato = formato;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public long getLinhasProcessadas() {
+        return linhasProcessadas;
+    }
+
+    public void setLinhasProcessadas(long linhasProcessadas) {
+        this.linhasProcessadas = linhasProcessadas;
+    }
+
+    public long getImportadas() {
+        return importadas;
+    }
+
+    public void setImportadas(long importadas) {
+        this.importadas = importadas;
+    }
+
+    public long getJaExistentes() {
+        return jaExistentes;
+    }
+
+    public void setJaExistentes(long jaExistentes) {
+        this.jaExistentes = jaExistentes;
+    }
+
+    public long getRecusadas() {
+        return recusadas;
+    }
+
+    public void setRecusadas(long recusadas) {
+        this.recusadas = recusadas;
+    }
+
+    public double getLinhasPorSegundo() {
+        return linhasPorSegundo;
+    }
+
+    public void setLinhasPorSegundo(double linhasPorSegundo) {
+        this.linhasPorSegundo = linhasPorSegundo;
+    }
+
+    public LocalDateTime getDataHoraCriacao() {
+        return dataHoraCriacao;
+    }
+
+    public void setDataHoraCriacao(LocalDateTime dataHoraCriacao) {
+        this.dataHoraCriacao = dataHoraCriacao;
+    }
+
+    public LocalDateTime getDataHoraConclusao() {
+        return dataHoraConclusao;
+    }
+
+    public void setDataHoraConclusao(LocalDateTime dataHoraConclusao) {
+        this.dataHoraConclusao = dataHoraConclusao;
+    }
+
+    public String getMensagemErro() {
+        return mensagemErro;
+    }
+
+    public void setMensagemErro(String mensagemErro) {
+        this.mensagemErro = mensagemErro;
+    }
+}
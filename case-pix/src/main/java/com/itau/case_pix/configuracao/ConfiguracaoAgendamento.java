@@ -0,0 +1,11 @@
+package com.itau.case_pix.configuracao;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Tarefas periódicas (reconstrução do filtro de chaves, reconciliação das estatísticas, relay do outbox,
+// limpeza das reservas do índice global com shards)
+@Configuration
+@EnableScheduling
+public class ConfiguracaoAgendamento {
+}
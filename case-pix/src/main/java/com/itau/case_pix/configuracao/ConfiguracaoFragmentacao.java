@@ -0,0 +1,88 @@
+package com.itau.case_pix.configuracao;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Base de chaves dividida em shards por agência (case-pix.shards.urls, um banco por URL): cada shard com o seu
+// pool Hikari, com as propriedades de spring.datasource e spring.datasource.hikari, e o DataSource usado pelo
+// JPA e pelo JdbcTemplate escolhe o shard da thread a cada transação. Sem a propriedade, vale o DataSource
+// único configurado pelo Spring Boot. Não se combina com a réplica de leitura
+@Configuration
+@ConditionalOnProperty("case-pix.shards.urls")
+public class ConfiguracaoFragmentacao {
+
+    // O shard 0 é migrado pelo Flyway do Spring Boot, pelo DataSource primário; os demais, aqui
+    @Bean(destroyMethod = "close")
+    public FontesDadosShards fontesDadosShards(DataSourceProperties propriedades, Environment ambiente,
+            ObjectProvider<MeterRegistry> registro, @Value("${case-pix.shards.urls}") List<String> urls,
+            @Value("${spring.flyway.locations:classpath:db/migration/{vendor}}") String locais) {
+        if (ambiente.containsProperty("case-pix.replica.url")) {
+            throw new IllegalStateException("case-pix.shards.urls e case-pix.replica.url não podem ser usadas juntas");
+        }
+        // Com o EntityManager aberto por toda a requisição, a primeira conexão obtida (de um shard qualquer) seria
+        // reaproveitada pelas transações seguintes, inclusive as de outros shards
+        if (ambiente.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            throw new IllegalStateException("case-pix.shards.urls exige spring.jpa.open-in-view=false");
+        }
+        Binder binder = Binder.get(ambiente);
+        List<HikariDataSource> fontesDados = new ArrayList<>();
+        for (int shard = 0; shard < urls.size(); shard++) {
+            String url = urls.get(shard).trim();
+            HikariDataSource fonteDados = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(url).build();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(fonteDados));
+            fonteDados.setPoolName("shard" + shard);
+            registro.ifAvailable(r -> fonteDados.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r)));
+            fontesDados.add(fonteDados);
+            if (shard > 0) {
+                String banco = DatabaseDriver.fromJdbcUrl(url).getId();
+                Flyway.configure().dataSource(fonteDados).locations(locais.replace("{vendor}", banco).split(","))
+                        .load().migrate();
+            }
+        }
+        return new FontesDadosShards(fontesDados);
+    }
+
+    @Bean
+    @Primary
+    public DataSource fonteDados(FontesDadosShards shards) {
+        Map<Object, Object> destinos = new HashMap<>();
+        for (int shard = 0; shard < shards.quantidade(); shard++) {
+            destinos.put(shard, shards.shard(shard));
+        }
+        FonteDadosFragmentada fragmentada = new FonteDadosFragmentada();
+        fragmentada.setTargetDataSources(destinos);
+        fragmentada.setDefaultTargetDataSource(shards.shard(0));
+        fragmentada.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(fragmentada);
+    }
+
+    // O cache de consultas guarda os ids resultantes por texto e parâmetros da consulta, sem saber de qual
+    // shard vieram; o cache de entidades continua valendo (os ids são únicos entre os shards)
+    @Bean
+    public HibernatePropertiesCustomizer desabilitarCacheConsultas() {
+        return propriedades -> propriedades.put(AvailableSettings.USE_QUERY_CACHE, "false");
+    }
+}
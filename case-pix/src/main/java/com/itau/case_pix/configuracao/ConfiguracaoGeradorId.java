@@ -0,0 +1,22 @@
+package com.itau.case_pix.configuracao;
+
+import com.itau.case_pix.servico.GeradorIdChavePix;
+import com.itau.case_pix.servico.GeradorUuidAleatorio;
+import com.itau.case_pix.servico.GeradorUuidV7;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ConfiguracaoGeradorId {
+
+    // 7 (padrão): ordenado pelo tempo; 4: aleatório, como antes
+    @Bean
+    public GeradorIdChavePix geradorIdChavePix(@Value("${case-pix.id.versao:7}") int versao) {
+        return switch (versao) {
+            case 7 -> new GeradorUuidV7();
+            case 4 -> new GeradorUuidAleatorio();
+            default -> throw new IllegalArgumentException("Versão de UUID não suportada: " + versao);
+        };
+    }
+}
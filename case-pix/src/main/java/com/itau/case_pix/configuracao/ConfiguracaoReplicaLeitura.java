@@ -0,0 +1,71 @@
+package com.itau.case_pix.configuracao;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Réplica de leitura (case-pix.replica.*): cada banco com o seu pool Hikari, e o DataSource usado pelo JPA e
+// pelo JdbcTemplate escolhe entre os dois a cada transação. Sem case-pix.replica.url, vale o DataSource único
+// configurado pelo Spring Boot. As migrações rodam só na primária; a réplica recebe o esquema pela replicação
+// (ou, em ambiente local, por case-pix.replica.migrar-esquema=true)
+@Configuration
+@ConditionalOnProperty("case-pix.replica.url")
+public class ConfiguracaoReplicaLeitura {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource fonteDadosPrimaria(DataSourceProperties propriedades) {
+        HikariDataSource fonteDados = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        fonteDados.setPoolName("primaria");
+        return fonteDados;
+    }
+
+    // Propriedades de conexão em case-pix.replica.* e do pool em case-pix.replica.hikari.*, como as de
+    // spring.datasource; ligadas aqui para não criar um segundo bean DataSourceProperties
+    @Bean
+    public HikariDataSource fonteDadosReplica(Environment ambiente,
+            @Value("${case-pix.replica.migrar-esquema:false}") boolean migrarEsquema,
+            @Value("${spring.flyway.locations:classpath:db/migration/{vendor}}") String locais) throws Exception {
+        Binder binder = Binder.get(ambiente);
+        DataSourceProperties propriedades = binder.bind("case-pix.replica", DataSourceProperties.class).get();
+        propriedades.setBeanClassLoader(getClass().getClassLoader());
+        propriedades.afterPropertiesSet();
+        HikariDataSource fonteDados = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("case-pix.replica.hikari", Bindable.ofInstance(fonteDados));
+        fonteDados.setPoolName("replica");
+        if (migrarEsquema) {
+            String banco = DatabaseDriver.fromJdbcUrl(propriedades.getUrl()).getId();
+            Flyway.configure().dataSource(fonteDados).locations(locais.replace("{vendor}", banco).split(","))
+                    .load().migrate();
+        }
+        return fonteDados;
+    }
+
+    @Bean
+    @Primary
+    public DataSource fonteDados(@Qualifier("fonteDadosPrimaria") DataSource primaria,
+            @Qualifier("fonteDadosReplica") DataSource replica) {
+        FonteDadosRoteada roteada = new FonteDadosRoteada();
+        roteada.setTargetDataSources(Map.of(FonteDadosRoteada.PRIMARIA, primaria, FonteDadosRoteada.REPLICA, replica));
+        roteada.setDefaultTargetDataSource(primaria);
+        roteada.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(roteada);
+    }
+}
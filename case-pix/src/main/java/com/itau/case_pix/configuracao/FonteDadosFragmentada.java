@@ -0,0 +1,14 @@
+package com.itau.case_pix.configuracao;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// Escolhe o pool da conexão pelo shard da thread (RoteamentoShard). Fica atrás de um
+// LazyConnectionDataSourceProxy pelo mesmo motivo da FonteDadosRoteada: o Hibernate pede a conexão ao
+// iniciar a transação, e o banco só deve ser escolhido na primeira consulta
+class FonteDadosFragmentada extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return RoteamentoShard.atual();
+    }
+}
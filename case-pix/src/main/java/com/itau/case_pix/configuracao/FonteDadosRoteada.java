@@ -0,0 +1,21 @@
+package com.itau.case_pix.configuracao;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Escolhe o pool da conexão pela transação corrente: somente leitura vai para a réplica, o resto para a
+// primária. Precisa ficar atrás de um LazyConnectionDataSourceProxy, porque o Hibernate pede a conexão ao
+// iniciar a transação, antes de o Spring marcar a transação como somente leitura
+class FonteDadosRoteada extends AbstractRoutingDataSource {
+
+    static final String PRIMARIA = "primaria";
+    static final String REPLICA = "replica";
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !RoteamentoLeitura.primariaForcada()) {
+            return REPLICA;
+        }
+        return PRIMARIA;
+    }
+}
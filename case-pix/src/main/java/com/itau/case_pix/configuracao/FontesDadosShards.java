@@ -0,0 +1,30 @@
+package com.itau.case_pix.configuracao;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Pools Hikari dos shards, na ordem de case-pix.shards.urls. O índice global de unicidade usa o shard 0
+// diretamente, sem passar pelo roteamento da thread
+public class FontesDadosShards implements AutoCloseable {
+
+    private final List<HikariDataSource> fontesDados;
+
+    FontesDadosShards(List<HikariDataSource> fontesDados) {
+        this.fontesDados = List.copyOf(fontesDados);
+    }
+
+    public DataSource shard(int shard) {
+        return fontesDados.get(shard);
+    }
+
+    public int quantidade() {
+        return fontesDados.size();
+    }
+
+    @Override
+    public void close() {
+        fontesDados.forEach(HikariDataSource::close);
+    }
+}
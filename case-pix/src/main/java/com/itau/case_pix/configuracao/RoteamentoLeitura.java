@@ -0,0 +1,41 @@
+package com.itau.case_pix.configuracao;
+
+// Com a réplica de leitura habilitada, transações somente leitura vão para a réplica. Dentro de um escopo
+// aberto por naPrimaria() (ou numa requisição com X-Leitura-Consistente: true) elas ficam na primária e
+// enxergam as escritas já confirmadas, sem o atraso de replicação
+public final class RoteamentoLeitura {
+
+    private static final ThreadLocal<Boolean> PRIMARIA_FORCADA = new ThreadLocal<>();
+
+    // Fechar o escopo restaura o roteamento anterior (escopos podem ser aninhados)
+    public interface Escopo extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private RoteamentoLeitura() {
+    }
+
+    public static boolean primariaForcada() {
+        return Boolean.TRUE.equals(PRIMARIA_FORCADA.get());
+    }
+
+    // Reabre em outra thread (tarefas assíncronas) o roteamento capturado com primariaForcada() na thread de origem
+    public static Escopo restaurar(boolean primariaForcada) {
+        return primariaForcada ? naPrimaria() : () -> {
+        };
+    }
+
+    // Deve ser aberto antes da transação, que escolhe o banco na primeira consulta
+    public static Escopo naPrimaria() {
+        Boolean anterior = PRIMARIA_FORCADA.get();
+        PRIMARIA_FORCADA.set(Boolean.TRUE);
+        return () -> {
+            if (anterior == null) {
+                PRIMARIA_FORCADA.remove();
+            } else {
+                PRIMARIA_FORCADA.set(anterior);
+            }
+        };
+    }
+}
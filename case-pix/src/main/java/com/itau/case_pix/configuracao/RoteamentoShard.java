@@ -0,0 +1,35 @@
+package com.itau.case_pix.configuracao;
+
+// Com a base dividida em shards (case-pix.shards.urls), indica em qual shard rodam as transações da thread.
+// Fora de um escopo aberto por no(shard), o acesso vai para o shard 0
+public final class RoteamentoShard {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    // Fechar o escopo restaura o shard anterior (escopos podem ser aninhados)
+    public interface Escopo extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private RoteamentoShard() {
+    }
+
+    public static int atual() {
+        Integer shard = SHARD.get();
+        return shard != null ? shard : 0;
+    }
+
+    // Deve ser aberto antes da transação, que escolhe o banco na primeira consulta
+    public static Escopo no(int shard) {
+        Integer anterior = SHARD.get();
+        SHARD.set(shard);
+        return () -> {
+            if (anterior == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(anterior);
+            }
+        };
+    }
+}
@@ -1,141 +1,177 @@
 package com.itau.case_pix.controlador;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.itau.case_pix.configuracao.RoteamentoLeitura;
 import com.itau.case_pix.DTO.*;
 import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.servico.ArquivoBinarioChavesPix;
+import com.itau.case_pix.servico.FeedEventosChavePix;
+import com.itau.case_pix.servico.ImportacaoArquivoChavesPix;
+import com.itau.case_pix.servico.JobImportacaoChavesPix;
+import com.itau.case_pix.servico.PaginacaoChavesPix;
 import com.itau.case_pix.servico.ServicoChavePix;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Window;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/chaves-pix" )
 public class ControladorChavePix {
 
+    public static final String CABECALHO_PROXIMO_CURSOR = "X-Proximo-Cursor";
+
     private final ServicoChavePix servicoChavePix;
+    private final PaginacaoChavesPix paginacao;
+    private final FeedEventosChavePix feedEventos;
+    private final ArquivoBinarioChavesPix arquivoBinario;
+    private final ImportacaoArquivoChavesPix importacaoArquivo;
+    private final ObjectMapper objectMapper;
+    private final Duration timeoutExportacao;
 
     @Autowired
-    public ControladorChavePix(ServicoChavePix servicoChavePix) {
+    public ControladorChavePix(ServicoChavePix servicoChavePix, PaginacaoChavesPix paginacao,
+            FeedEventosChavePix feedEventos, ArquivoBinarioChavesPix arquivoBinario,
+            ImportacaoArquivoChavesPix importacaoArquivo, ObjectMapper objectMapper,
+            @Value("${case-pix.exportacao.timeout:PT1H}") Duration timeoutExportacao) {
         this.servicoChavePix = servicoChavePix;
+        this.paginacao = paginacao;
+        this.feedEventos = feedEventos;
+        this.arquivoBinario = arquivoBinario;
+        this.importacaoArquivo = importacaoArquivo;
+        this.objectMapper = objectMapper;
+        this.timeoutExportacao = timeoutExportacao;
     }
 
     // Método para inclusão de chave
     @PostMapping
     public ResponseEntity<?> incluirChave(@RequestBody EntidadeChavePix chavePix) {
-        try {
-            EntidadeChavePix novaChave = servicoChavePix.incluirChave(chavePix);
-            RespostaInclusaoChavePixDTO resposta = new RespostaInclusaoChavePixDTO(novaChave);
-            return ResponseEntity.status(HttpStatus.CREATED).body(resposta);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao incluir chave PIX: " + e.getMessage());
-        }
+        EntidadeChavePix novaChave = servicoChavePix.incluirChave(chavePix);
+        RespostaInclusaoChavePixDTO resposta = new RespostaInclusaoChavePixDTO(novaChave);
+        return ResponseEntity.status(HttpStatus.CREATED).body(resposta);
+    }
+
+    // Método para inclusão de chaves em lote (resultado individual por item)
+    @PostMapping("/lote")
+    public ResponseEntity<?> incluirChavesEmLote(@RequestBody List<EntidadeChavePix> chaves) {
+        List<ResultadoInclusaoLoteDTO> resultados = servicoChavePix.incluirChavesEmLote(chaves);
+        return ResponseEntity.ok(resultados);
     }
 
     // Método para alteração de chave
     @PutMapping("/{id}")
     public ResponseEntity<?> alterarChave(@PathVariable UUID id, @RequestBody AlteracaoChavePixDTO alteracaoDTO) {
-        try {
-            EntidadeChavePix chaveAlterada = servicoChavePix.alterarChave(id, alteracaoDTO);
-            RespostaAlteracaoChavePixDTO resposta = new RespostaAlteracaoChavePixDTO(chaveAlterada);
-            return ResponseEntity.ok(resposta);
-        } catch (IllegalArgumentException e) {
-            if (e.getMessage().contains("não encontrada")) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            } else {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
-            }
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao alterar chave PIX: " + e.getMessage());
-        }
+        EntidadeChavePix chaveAlterada = servicoChavePix.alterarChave(id, alteracaoDTO);
+        RespostaAlteracaoChavePixDTO resposta = new RespostaAlteracaoChavePixDTO(chaveAlterada);
+        return ResponseEntity.ok(resposta);
     }
 
     // Método para inativação de chave
     @DeleteMapping("/{id}")
     public ResponseEntity<?> inativarChave(@PathVariable UUID id) {
-        try {
-            EntidadeChavePix chaveInativada = servicoChavePix.inativarChave(id);
-            RespostaInativacaoChavePixDTO resposta = new RespostaInativacaoChavePixDTO(chaveInativada);
-            return ResponseEntity.ok(resposta);
-        } catch (IllegalArgumentException e) {
-            if (e.getMessage().contains("não encontrada")) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-            } else if (e.getMessage().contains("já está inativada")) {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
-            } else {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
-            }
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao inativar chave PIX: " + e.getMessage());
+        EntidadeChavePix chaveInativada = servicoChavePix.inativarChave(id);
+        RespostaInativacaoChavePixDTO resposta = new RespostaInativacaoChavePixDTO(chaveInativada);
+        return ResponseEntity.ok(resposta);
+    }
+
+    // Método para inativação em lote, por lista de ids ou por agência e conta
+    @PostMapping("/lote/inativacao")
+    public ResponseEntity<?> inativarChavesEmLote(@RequestBody InativacaoLoteDTO inativacaoDTO) {
+        boolean porIds = inativacaoDTO.getIds() != null && !inativacaoDTO.getIds().isEmpty();
+        boolean porConta = inativacaoDTO.getNumeroAgencia() != null && inativacaoDTO.getNumeroConta() != null;
+        if (porIds == porConta) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body("Informe a lista de ids ou a agência e conta das chaves PIX a inativar");
+        }
+
+        RespostaInativacaoLoteDTO resposta = porIds
+                ? servicoChavePix.inativarChavesEmLote(inativacaoDTO.getIds())
+                : servicoChavePix.inativarChavesDaConta(inativacaoDTO.getNumeroAgencia(),
+                        inativacaoDTO.getNumeroConta());
+
+        if (porConta && resposta.isVazia()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Nenhuma chave PIX encontrada para agência " + inativacaoDTO.getNumeroAgencia()
+                            + " e conta " + inativacaoDTO.getNumeroConta());
         }
+        return ResponseEntity.ok(resposta);
     }
 
     // Método para buscar por ID
     @GetMapping("/{id}")
     public ResponseEntity<?> buscarPorId(@PathVariable UUID id) {
-        try {
-            Optional<EntidadeChavePix> chavePix = servicoChavePix.buscarPorId(id);
-            if (chavePix.isPresent()) {
-                // Verificar se a chave está inativa
-                if (chavePix.get().getDataHoraInativacaoChave() != null) {
-                    // Retornar erro 422 com mensagem de texto simples
-                    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                        .body("Esta chave PIX está inativada desde " + 
-                              chavePix.get().getDataHoraInativacaoChave());
-                }
-                
-                // Se a chave estiver ativa, retornar normalmente
-                RespostaConsultaChavePixDTO resposta = new RespostaConsultaChavePixDTO(chavePix.get());
-                return ResponseEntity.ok(resposta);
-            } else {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Chave PIX não encontrada");
+        Optional<EntidadeChavePix> chavePix = servicoChavePix.buscarPorId(id);
+        if (chavePix.isPresent()) {
+            // Verificar se a chave está inativa
+            if (chavePix.get().getDataHoraInativacaoChave() != null) {
+                // Retornar erro 422 com mensagem de texto simples
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body("Esta chave PIX está inativada desde " + 
+                          chavePix.get().getDataHoraInativacaoChave());
             }
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao buscar chave PIX: " + e.getMessage());
+            
+            // Se a chave estiver ativa, retornar normalmente
+            RespostaConsultaChavePixDTO resposta = new RespostaConsultaChavePixDTO(chavePix.get());
+            return ResponseEntity.ok(resposta);
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Chave PIX não encontrada");
+        }
+    }
+
+    // Método para buscar chave ativa pelo valor (diretório em memória)
+    @GetMapping("/valor/{tipoChave}/{valorChave}")
+    public ResponseEntity<?> buscarPorValorChave(@PathVariable String tipoChave, @PathVariable String valorChave) {
+        Optional<RespostaConsultaChavePixDTO> resposta = servicoChavePix.buscarPorValorChave(tipoChave, valorChave);
+        if (resposta.isPresent()) {
+            return ResponseEntity.ok(resposta.get());
         }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Chave PIX não encontrada");
     }
 
-    // Método para buscar por tipo de chave
+    // Método para buscar por tipo de chave (paginado por cursor)
     @GetMapping("/tipo/{tipoChave}")
-    public ResponseEntity<?> buscarPorTipoChave(@PathVariable String tipoChave) {
-        try {
-            List<EntidadeChavePix> chaves = servicoChavePix.buscarPorTipoChave(tipoChave);
-            if (chaves.isEmpty()) {
+    public ResponseEntity<?> buscarPorTipoChave(@PathVariable String tipoChave,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String cursor) {
+        Window<RespostaConsultaChavePixDTO> chavesAtivas = servicoChavePix.buscarPorTipoChave(tipoChave,
+                paginacao.posicao(cursor), paginacao.limite(limite));
+
+        if (chavesAtivas.isEmpty() && cursor == null) {
+            if (!servicoChavePix.existeChaveComTipo(tipoChave)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body("Nenhuma chave PIX encontrada para o tipo: " + tipoChave);
             }
-            
-            // Filtrar apenas chaves ativas
-            List<EntidadeChavePix> chavesAtivas = chaves.stream()
-                    .filter(chave -> chave.getDataHoraInativacaoChave() == null)
-                    .collect(Collectors.toList());
-            
-            if (chavesAtivas.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                        .body("Todas as chaves PIX encontradas para o tipo " + tipoChave + " estão inativadas");
-            }
-            
-            List<RespostaConsultaChavePixDTO> respostas = chavesAtivas.stream()
-                    .map(chave -> new RespostaConsultaChavePixDTO(chave))
-                    .collect(Collectors.toList());
-                    
-            return ResponseEntity.ok(respostas);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao buscar chaves PIX por tipo: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body("Todas as chaves PIX encontradas para o tipo " + tipoChave + " estão inativadas");
         }
+
+        return respostaPaginada(chavesAtivas);
     }
 
     // Método para buscar por agência e conta
@@ -143,137 +179,219 @@ public class ControladorChavePix {
     public ResponseEntity<?> buscarPorAgenciaConta(
             @RequestParam Integer agencia,
             @RequestParam Integer conta) {
-        try {
-            List<EntidadeChavePix> chaves = servicoChavePix.buscarPorAgenciaConta(agencia, conta);
-            if (chaves.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body("Nenhuma chave PIX encontrada para agência " + agencia + " e conta " + conta);
-            }
-            
-            // Filtrar apenas chaves ativas
-            List<EntidadeChavePix> chavesAtivas = chaves.stream()
-                    .filter(chave -> chave.getDataHoraInativacaoChave() == null)
-                    .collect(Collectors.toList());
-            
-            if (chavesAtivas.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                        .body("Todas as chaves PIX encontradas para agência " + agencia + " e conta " + conta + " estão inativadas");
-            }
-            
-            List<RespostaConsultaChavePixDTO> respostas = chavesAtivas.stream()
-                    .map(chave -> new RespostaConsultaChavePixDTO(chave))
-                    .collect(Collectors.toList());
-                    
-            return ResponseEntity.ok(respostas);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao buscar chaves PIX por agência e conta: " + e.getMessage());
+        List<EntidadeChavePix> chaves = servicoChavePix.buscarPorAgenciaConta(agencia, conta);
+        if (chaves.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Nenhuma chave PIX encontrada para agência " + agencia + " e conta " + conta);
+        }
+        
+        // Filtrar apenas chaves ativas
+        List<EntidadeChavePix> chavesAtivas = chaves.stream()
+                .filter(chave -> chave.getDataHoraInativacaoChave() == null)
+                .collect(Collectors.toList());
+        
+        if (chavesAtivas.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body("Todas as chaves PIX encontradas para agência " + agencia + " e conta " + conta + " estão inativadas");
         }
+        
+        List<RespostaConsultaChavePixDTO> respostas = chavesAtivas.stream()
+                .map(chave -> new RespostaConsultaChavePixDTO(chave))
+                .collect(Collectors.toList());
+                
+        return ResponseEntity.ok(respostas);
     }
 
-    // Método para buscar por nome do correntista
+    // Método para buscar por nome do correntista (paginado por cursor)
     @GetMapping("/correntista/{nome}")
-    public ResponseEntity<?> buscarPorNomeCorrentista(@PathVariable String nome) {
-        try {
-            List<EntidadeChavePix> chaves = servicoChavePix.buscarPorNomeCorrentista(nome);
-            if (chaves.isEmpty()) {
+    public ResponseEntity<?> buscarPorNomeCorrentista(@PathVariable String nome,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String cursor) {
+        Window<RespostaConsultaChavePixDTO> chavesAtivas = servicoChavePix.buscarPorNomeCorrentista(nome,
+                paginacao.posicao(cursor), paginacao.limite(limite));
+
+        if (chavesAtivas.isEmpty() && cursor == null) {
+            if (!servicoChavePix.existeChaveComNome(nome)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body("Nenhuma chave PIX encontrada para o correntista: " + nome);
             }
-            
-            // Filtrar apenas chaves ativas
-            List<EntidadeChavePix> chavesAtivas = chaves.stream()
-                    .filter(chave -> chave.getDataHoraInativacaoChave() == null)
-                    .collect(Collectors.toList());
-            
-            if (chavesAtivas.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                        .body("Todas as chaves PIX encontradas para o correntista " + nome + " estão inativadas");
-            }
-            
-            List<RespostaConsultaChavePixDTO> respostas = chavesAtivas.stream()
-                    .map(chave -> new RespostaConsultaChavePixDTO(chave))
-                    .collect(Collectors.toList());
-                    
-            return ResponseEntity.ok(respostas);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao buscar chaves PIX por nome do correntista: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body("Todas as chaves PIX encontradas para o correntista " + nome + " estão inativadas");
         }
+
+        return respostaPaginada(chavesAtivas);
     }
 
-    // Método para buscar por data de inclusão
+    // Método para buscar por data de inclusão (paginado por cursor)
     @GetMapping("/data")
     public ResponseEntity<?> buscarPorDataInclusao(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim) {
-        try {
-            List<EntidadeChavePix> chaves = servicoChavePix.buscarPorDataInclusao(inicio, fim);
-            if (chaves.isEmpty()) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String cursor) {
+        Window<RespostaConsultaChavePixDTO> chavesAtivas = servicoChavePix.buscarPorDataInclusao(inicio, fim,
+                paginacao.posicao(cursor), paginacao.limite(limite));
+
+        if (chavesAtivas.isEmpty() && cursor == null) {
+            if (!servicoChavePix.existeChaveNoPeriodo(inicio, fim)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body("Nenhuma chave PIX encontrada no período especificado");
             }
-            
-            // Filtrar apenas chaves ativas
-            List<EntidadeChavePix> chavesAtivas = chaves.stream()
-                    .filter(chave -> chave.getDataHoraInativacaoChave() == null)
-                    .collect(Collectors.toList());
-            
-            if (chavesAtivas.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                        .body("Todas as chaves PIX encontradas no período especificado estão inativadas");
-            }
-            
-            List<RespostaConsultaChavePixDTO> respostas = chavesAtivas.stream()
-                    .map(chave -> new RespostaConsultaChavePixDTO(chave))
-                    .collect(Collectors.toList());
-                    
-            return ResponseEntity.ok(respostas);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao buscar chaves PIX por data de inclusão: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body("Todas as chaves PIX encontradas no período especificado estão inativadas");
         }
+
+        return respostaPaginada(chavesAtivas);
     }
 
-    // Método para buscar chaves ativas
+    // Método para buscar chaves ativas (paginado por cursor)
     @GetMapping("/ativas")
-    public ResponseEntity<?> buscarChavesAtivas() {
-        try {
-            List<EntidadeChavePix> chaves = servicoChavePix.buscarChavesAtivas();
-            if (chaves.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body("Nenhuma chave PIX ativa encontrada");
-            }
-            
-            List<RespostaConsultaChavePixDTO> respostas = chaves.stream()
-                    .map(chave -> new RespostaConsultaChavePixDTO(chave))
-                    .collect(Collectors.toList());
-                    
-            return ResponseEntity.ok(respostas);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao buscar chaves PIX ativas: " + e.getMessage());
+    public ResponseEntity<?> buscarChavesAtivas(
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String cursor) {
+        Window<RespostaConsultaChavePixDTO> chaves = servicoChavePix.buscarChavesAtivas(paginacao.posicao(cursor),
+                paginacao.limite(limite));
+        if (chaves.isEmpty() && cursor == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Nenhuma chave PIX ativa encontrada");
         }
+
+        return respostaPaginada(chaves);
+    }
+
+    // Método para exportar todas as chaves ativas em NDJSON (Accept: application/x-ndjson)
+    @GetMapping(value = "/ativas", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportarChavesAtivas(HttpServletResponse resposta) {
+        return exportacao(resposta, MediaType.APPLICATION_NDJSON,
+                saida -> escreverNdjson(saida, servicoChavePix::percorrerChavesAtivas));
     }
 
-    // Método para buscar chaves inativas
+    // Método para buscar chaves inativas (paginado por cursor)
     @GetMapping("/inativas")
-    public ResponseEntity<?> buscarChavesInativas() {
-        try {
-            List<EntidadeChavePix> chaves = servicoChavePix.buscarChavesInativas();
-            if (chaves.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body("Nenhuma chave PIX inativa encontrada");
+    public ResponseEntity<?> buscarChavesInativas(
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(required = false) String cursor) {
+        Window<RespostaConsultaChavePixDTO> chaves = servicoChavePix.buscarChavesInativas(paginacao.posicao(cursor),
+                paginacao.limite(limite));
+        if (chaves.isEmpty() && cursor == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Nenhuma chave PIX inativa encontrada");
+        }
+
+        return respostaPaginada(chaves);
+    }
+
+    // Método para exportar todas as chaves inativas em NDJSON (Accept: application/x-ndjson)
+    @GetMapping(value = "/inativas", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportarChavesInativas(HttpServletResponse resposta) {
+        return exportacao(resposta, MediaType.APPLICATION_NDJSON,
+                saida -> escreverNdjson(saida, servicoChavePix::percorrerChavesInativas));
+    }
+
+    // Método para exportar a base inteira (ativas e inativas) no formato binário compacto
+    @GetMapping(value = "/exportacao", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public WebAsyncTask<Void> exportarBase(HttpServletResponse resposta) {
+        resposta.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=chaves-pix.cpxb");
+        return exportacao(resposta, MediaType.APPLICATION_OCTET_STREAM, arquivoBinario::exportar);
+    }
+
+    // Método para importar uma exportação binária, mantendo ids e datas (resultado com as recusas)
+    @PostMapping(value = "/importacao", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<RespostaImportacaoChavesPixDTO> importarBase(InputStream corpo) throws IOException {
+        return ResponseEntity.ok(arquivoBinario.importar(corpo));
+    }
+
+    // Método para criar um job de importação de arquivo CSV (com cabeçalho) ou NDJSON de outra instituição; o
+    // arquivo é processado em segundo plano e o andamento é consultado pelo id do job
+    @PostMapping(value = "/importacoes", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<StatusImportacaoChavesPixDTO> criarImportacao(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType tipoConteudo, InputStream corpo) throws IOException {
+        JobImportacaoChavesPix.Formato formato = MediaType.APPLICATION_NDJSON.isCompatibleWith(tipoConteudo)
+                ? JobImportacaoChavesPix.Formato.NDJSON : JobImportacaoChavesPix.Formato.CSV;
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importacaoArquivo.criar(corpo, formato));
+    }
+
+    // Método para consultar o andamento de um job de importação (linhas por segundo, importadas e recusadas)
+    @GetMapping("/importacoes/{id}")
+    public ResponseEntity<StatusImportacaoChavesPixDTO> consultarImportacao(@PathVariable UUID id) {
+        return ResponseEntity.ok(importacaoArquivo.consultar(id));
+    }
+
+    // Método para baixar as recusas de um job de importação (linha, motivo e conteúdo original)
+    @GetMapping(value = "/importacoes/{id}/recusas", produces = "text/csv")
+    public WebAsyncTask<Void> consultarRecusasImportacao(@PathVariable UUID id, HttpServletResponse resposta) {
+        Path recusas = importacaoArquivo.arquivoRecusas(id);
+        return exportacao(resposta, MediaType.parseMediaType("text/csv"), saida -> Files.copy(recusas, saida));
+    }
+
+    // Método para retomar um job de importação que falhou, a partir do último bloco concluído
+    @PostMapping("/importacoes/{id}/retomada")
+    public ResponseEntity<StatusImportacaoChavesPixDTO> retomarImportacao(@PathVariable UUID id) throws IOException {
+        return ResponseEntity.ok(importacaoArquivo.retomar(id));
+    }
+
+    // Método para consultar a quantidade de chaves por tipo, tipo de pessoa e agência (contadores em memória)
+    @GetMapping("/estatisticas")
+    public ResponseEntity<RespostaEstatisticasChavePixDTO> consultarEstatisticas() {
+        return ResponseEntity.ok(servicoChavePix.consultarEstatisticas());
+    }
+
+    // Método para acompanhar as mudanças de chaves de forma incremental: eventos com posição maior que "apos"
+    @GetMapping("/eventos")
+    public ResponseEntity<?> consultarEventos(
+            @RequestParam(defaultValue = "0") long apos,
+            @RequestParam(required = false) Integer limite) {
+        long primeiraDisponivel = feedEventos.primeiraPosicaoDisponivel();
+        if (apos + 1 < primeiraDisponivel) {
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body("Eventos anteriores à posição " + primeiraDisponivel
+                            + " não estão mais disponíveis; recomece pela listagem de chaves");
+        }
+        List<RespostaEventoChavePixDTO> eventos = feedEventos.consultar(apos, paginacao.limite(limite));
+        return ResponseEntity.ok(eventos);
+    }
+
+    // Escreve uma linha JSON por chave diretamente na resposta, sem acumular a lista em memória
+    // Exportações longas rodam fora da thread da requisição com um timeout próprio, sem mudar o timeout
+    // assíncrono padrão das demais requisições. A leitura consistente da requisição acompanha a tarefa
+    private WebAsyncTask<Void> exportacao(HttpServletResponse resposta, MediaType tipo, StreamingResponseBody corpo) {
+        boolean primariaForcada = RoteamentoLeitura.primariaForcada();
+        return new WebAsyncTask<>(timeoutExportacao.toMillis(), () -> {
+            try (RoteamentoLeitura.Escopo escopo = RoteamentoLeitura.restaurar(primariaForcada)) {
+                resposta.setContentType(tipo.toString());
+                corpo.writeTo(resposta.getOutputStream());
+                resposta.flushBuffer();
+                return null;
             }
-            
-            List<RespostaConsultaChavePixDTO> respostas = chaves.stream()
-                    .map(chave -> new RespostaConsultaChavePixDTO(chave))
-                    .collect(Collectors.toList());
-                    
+        });
+    }
+
+    private void escreverNdjson(OutputStream saida, Consumer<Consumer<RespostaConsultaChavePixDTO>> leitura)
+            throws IOException {
+        ObjectWriter escritor = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+            gerador.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            leitura.accept(chave -> {
+                try {
+                    escritor.writeValue(gerador, chave);
+                    gerador.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // Monta a resposta de uma página; o cursor da próxima página vai no cabeçalho X-Proximo-Cursor
+    private ResponseEntity<List<RespostaConsultaChavePixDTO>> respostaPaginada(
+            Window<RespostaConsultaChavePixDTO> pagina) {
+        List<RespostaConsultaChavePixDTO> respostas = pagina.getContent();
+
+        String proximoCursor = paginacao.proximoCursor(pagina);
+        if (proximoCursor == null) {
             return ResponseEntity.ok(respostas);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Erro ao buscar chaves PIX inativas: " + e.getMessage());
         }
+        return ResponseEntity.ok().header(CABECALHO_PROXIMO_CURSOR, proximoCursor).body(respostas);
     }
+
 }
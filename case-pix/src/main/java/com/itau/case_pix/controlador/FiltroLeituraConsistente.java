@@ -0,0 +1,31 @@
+package com.itau.case_pix.controlador;
+
+import com.itau.case_pix.configuracao.RoteamentoLeitura;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Leitura das próprias escritas: com "X-Leitura-Consistente: true", as consultas da requisição vão para a
+// primária mesmo com a réplica de leitura habilitada
+@Component
+public class FiltroLeituraConsistente extends OncePerRequestFilter {
+
+    public static final String CABECALHO_LEITURA_CONSISTENTE = "X-Leitura-Consistente";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest requisicao, HttpServletResponse resposta, FilterChain cadeia)
+            throws ServletException, IOException {
+        if (!Boolean.parseBoolean(requisicao.getHeader(CABECALHO_LEITURA_CONSISTENTE))) {
+            cadeia.doFilter(requisicao, resposta);
+            return;
+        }
+        try (RoteamentoLeitura.Escopo escopo = RoteamentoLeitura.naPrimaria()) {
+            cadeia.doFilter(requisicao, resposta);
+        }
+    }
+}
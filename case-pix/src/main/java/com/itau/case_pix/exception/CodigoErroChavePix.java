@@ -0,0 +1,29 @@
+package com.itau.case_pix.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Motivos de recusa das operações sobre chaves PIX e o status HTTP de cada um
+public enum CodigoErroChavePix {
+
+    DADOS_INVALIDOS(HttpStatus.UNPROCESSABLE_ENTITY),
+    CHAVE_DUPLICADA(HttpStatus.UNPROCESSABLE_ENTITY),
+    TIPO_PESSOA_DIVERGENTE(HttpStatus.UNPROCESSABLE_ENTITY),
+    LIMITE_EXCEDIDO(HttpStatus.UNPROCESSABLE_ENTITY),
+    CHAVE_INATIVA(HttpStatus.UNPROCESSABLE_ENTITY),
+    CHAVE_NAO_ENCONTRADA(HttpStatus.NOT_FOUND),
+    NENHUMA_ALTERACAO(HttpStatus.UNPROCESSABLE_ENTITY),
+    LOTE_EXCEDIDO(HttpStatus.UNPROCESSABLE_ENTITY),
+    PAGINACAO_INVALIDA(HttpStatus.UNPROCESSABLE_ENTITY),
+    ARQUIVO_INVALIDO(HttpStatus.UNPROCESSABLE_ENTITY),
+    IMPORTACAO_NAO_ENCONTRADA(HttpStatus.NOT_FOUND);
+
+    private final HttpStatus status;
+
+    CodigoErroChavePix(HttpStatus status) {
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
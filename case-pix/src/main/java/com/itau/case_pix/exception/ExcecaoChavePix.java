@@ -0,0 +1,17 @@
+package com.itau.case_pix.exception;
+
+// Recusa de regra de negócio. Sem stack trace nem supressão: é uma resposta esperada, não um defeito,
+// e sob tráfego abusivo a maior parte das requisições termina aqui
+public class ExcecaoChavePix extends RuntimeException {
+
+    private final CodigoErroChavePix codigo;
+
+    public ExcecaoChavePix(CodigoErroChavePix codigo, String mensagem) {
+        super(mensagem, null, false, false);
+        this.codigo = codigo;
+    }
+
+    public CodigoErroChavePix getCodigo() {
+        return codigo;
+    }
+}
@@ -1,5 +1,7 @@
 package com.itau.case_pix.exception;
 
+import com.itau.case_pix.servico.MetricasChavePix;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -11,9 +13,19 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final MetricasChavePix metricasChavePix;
+
+    @Autowired
+    public GlobalExceptionHandler(MetricasChavePix metricasChavePix) {
+        this.metricasChavePix = metricasChavePix;
+    }
+
     // Manipula erros de validação do Bean Validation (@NotNull, @Pattern, etc. )
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Object> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        // Recusas do Bean Validation não chegam ao serviço, então são contadas aqui
+        metricasChavePix.registrarRecusa(CodigoErroChavePix.DADOS_INVALIDOS);
+
         // Em vez de retornar um mapa complexo, vamos pegar apenas o primeiro erro
         // para manter a resposta simples como você deseja
         String mensagemErro = "Erro de validação";
@@ -27,6 +39,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(mensagemErro);
     }
 
+    // Recusas de regra de negócio: o status vem do código do erro, sem inspecionar a mensagem
+    @ExceptionHandler(ExcecaoChavePix.class)
+    public ResponseEntity<Object> handleExcecaoChavePix(ExcecaoChavePix ex) {
+        return ResponseEntity.status(ex.getCodigo().getStatus()).body(ex.getMessage());
+    }
+
     // Manipula exceções lançadas manualmente no código (IllegalArgumentException)
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Object> handleIllegalArgumentException(IllegalArgumentException ex) {
@@ -46,6 +64,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException ex) {
+        metricasChavePix.registrarRecusa(CodigoErroChavePix.DADOS_INVALIDOS);
         String mensagem = "Erro de formato: verifique se os campos numéricos contêm apenas números.";
 
         if (ex.getMessage().contains("NumberFormatException")) {
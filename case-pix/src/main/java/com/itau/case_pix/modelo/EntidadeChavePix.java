@@ -1,14 +1,25 @@
 package com.itau.case_pix.modelo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import java.text.Normalizer;
 import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
 @Table(name = "PixItauDb")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "chavesPix")
 public class EntidadeChavePix {
 
+    // Qualificado: o @Pattern do Bean Validation já ocupa o nome Pattern neste arquivo
+    private static final java.util.regex.Pattern MARCAS_DIACRITICAS = java.util.regex.Pattern.compile("\\p{M}+");
+    private static final java.util.regex.Pattern ESPACOS = java.util.regex.Pattern.compile("\\s+");
+
     @Id
     @Column(name = "id", columnDefinition = "RAW(16)")
     private UUID id;
@@ -54,6 +65,11 @@ public class EntidadeChavePix {
     @Column(name = "sobrenome_correntista", length = 45)
     private String sobrenomeCorrentista;
 
+    // Mantido pelo setter do nome; base da busca por nome (IndiceNomeCorrentista)
+    @JsonIgnore
+    @Column(name = "nome_normalizado", length = 60)
+    private String nomeNormalizado;
+
     @Column(name = "data_hora_inclusao_chave")
     private LocalDateTime dataHoraInclusaoChave;
 
@@ -75,6 +91,7 @@ public class EntidadeChavePix {
         this.numeroAgencia = numeroAgencia;
         this.numeroConta = numeroConta;
         this.nomeCorrentista = nomeCorrentista;
+        this.nomeNormalizado = normalizarNome(nomeCorrentista);
         this.sobrenomeCorrentista = sobrenomeCorrentista;
         this.dataHoraInclusaoChave = LocalDateTime.now();
     }
@@ -142,6 +159,11 @@ public class EntidadeChavePix {
 
     public void setNomeCorrentista(String nomeCorrentista) {
         this.nomeCorrentista = nomeCorrentista;
+        this.nomeNormalizado = normalizarNome(nomeCorrentista);
+    }
+
+    public String getNomeNormalizado() {
+        return nomeNormalizado;
     }
 
     public String getSobrenomeCorrentista() {
@@ -168,6 +190,15 @@ public class EntidadeChavePix {
         this.dataHoraInativacaoChave = dataHoraInativacaoChave;
     }
 
+    // Maiúsculas, sem acentos e com espaços simples entre as palavras: "  José  da Conceição" -> "JOSE DA CONCEICAO"
+    public static String normalizarNome(String nome) {
+        if (nome == null) {
+            return null;
+        }
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(nome, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACOS.matcher(semAcentos.toUpperCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+
     // Método para inativar a chave
     public void inativar() {
         this.dataHoraInativacaoChave = LocalDateTime.now();
@@ -0,0 +1,65 @@
+package com.itau.case_pix.modelo;
+
+import jakarta.persistence.*;
+
+// Contador de chaves por conta: tipo de pessoa da conta e quantidade de chaves cadastradas e ativas.
+// Mantido na mesma transação das inclusões, alterações e inativações de chaves PIX
+@Entity
+@Table(name = "ContaChavePix")
+@IdClass(IdContaChavePix.class)
+public class EntidadeContaChavePix {
+
+    @Id
+    @Column(name = "numero_agencia")
+    private Integer numeroAgencia;
+
+    @Id
+    @Column(name = "numero_conta")
+    private Integer numeroConta;
+
+    @Column(name = "tipo_pessoa", length = 8, nullable = false)
+    private String tipoPessoa;
+
+    // Todas as chaves da conta, inclusive inativas (definem o tipo de pessoa da conta)
+    @Column(name = "quantidade_chaves", nullable = false)
+    private int quantidadeChaves;
+
+    @Column(name = "quantidade_ativas", nullable = false)
+    private int quantidadeAtivas;
+
+    // Construtores
+    public EntidadeContaChavePix() {
+    }
+
+    public EntidadeContaChavePix(Integer numeroAgencia, Integer numeroConta, String tipoPessoa) {
+        this.numeroAgencia = numeroAgencia;
+        this.numeroConta = numeroConta;
+        this.tipoPessoa = tipoPessoa;
+    }
+
+    // Uma conta sem chaves ainda não tem tipo de pessoa definido
+    public boolean possuiOutroTipoPessoa(String tipoPessoa) {
+        return quantidadeChaves > 0 && !this.tipoPessoa.equals(tipoPessoa);
+    }
+
+    // Getters
+    public Integer getNumeroAgencia() {
+        return numeroAgencia;
+    }
+
+    public Integer getNumeroConta() {
+        return numeroConta;
+    }
+
+    public String getTipoPessoa() {
+        return tipoPessoa;
+    }
+
+    public int getQuantidadeChaves() {
+        return quantidadeChaves;
+    }
+
+    public int getQuantidadeAtivas() {
+        return quantidadeAtivas;
+    }
+}
@@ -0,0 +1,53 @@
+package com.itau.case_pix.modelo;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Objects;
+
+// Chave composta (agência, conta) de EntidadeContaChavePix, ordenada por agência e depois por conta
+public class IdContaChavePix implements Serializable, Comparable<IdContaChavePix> {
+
+    private static final Comparator<IdContaChavePix> ORDEM = Comparator
+            .comparing(IdContaChavePix::getNumeroAgencia)
+            .thenComparing(IdContaChavePix::getNumeroConta);
+
+    private Integer numeroAgencia;
+    private Integer numeroConta;
+
+    public IdContaChavePix() {
+    }
+
+    public IdContaChavePix(Integer numeroAgencia, Integer numeroConta) {
+        this.numeroAgencia = numeroAgencia;
+        this.numeroConta = numeroConta;
+    }
+
+    public Integer getNumeroAgencia() {
+        return numeroAgencia;
+    }
+
+    public Integer getNumeroConta() {
+        return numeroConta;
+    }
+
+    @Override
+    public int compareTo(IdContaChavePix outra) {
+        return ORDEM.compare(this, outra);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdContaChavePix outro)) {
+            return false;
+        }
+        return Objects.equals(numeroAgencia, outro.numeroAgencia) && Objects.equals(numeroConta, outro.numeroConta);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(numeroAgencia, numeroConta);
+    }
+}
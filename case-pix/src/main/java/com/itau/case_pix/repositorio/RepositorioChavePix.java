@@ -1,27 +1,52 @@
 package com.itau.case_pix.repositorio;
 
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
 import com.itau.case_pix.modelo.EntidadeChavePix;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface RepositorioChavePix extends JpaRepository<EntidadeChavePix, UUID>{
 
     // Buscar por tipo de chave
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "chavesPixConsultas") })
     List<EntidadeChavePix> findByTipoChave(String tipoChave);
     
     // Buscar por agência e conta
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "chavesPixConsultas") })
     List<EntidadeChavePix> findByNumeroAgenciaAndNumeroConta(Integer numeroAgencia, Integer numeroConta);
     
-    // Buscar por nome do correntista (usando LIKE para busca parcial)
-    @Query("SELECT c FROM EntidadeChavePix c WHERE UPPER(c.nomeCorrentista) LIKE UPPER(CONCAT('%', :nome, '%'))")
-    List<EntidadeChavePix> findByNomeCorrentista(@Param("nome") String nome);
+    // Busca por nome: percorre um trigrama do índice de nomes a partir do cursor (chave primária
+    // trigrama, id) e confirma cada candidata pelo nome normalizado. Paginada por id
+    @Query(value = "SELECT c.* FROM nome_trigrama_chave_pix t JOIN pix_itau_db c ON c.id = t.id "
+            + "WHERE t.trigrama = :trigrama AND t.id > :id AND c.nome_normalizado LIKE :padrao ESCAPE '\\' "
+            + "AND c.data_hora_inativacao_chave IS NULL ORDER BY t.id", nativeQuery = true)
+    List<EntidadeChavePix> findAtivasPorNomeApos(@Param("trigrama") String trigrama, @Param("padrao") String padrao,
+            @Param("id") UUID id, Limit limite);
+
+    @Query(value = "SELECT c.* FROM nome_trigrama_chave_pix t JOIN pix_itau_db c ON c.id = t.id "
+            + "WHERE t.trigrama = :trigrama AND c.nome_normalizado LIKE :padrao ESCAPE '\\'", nativeQuery = true)
+    List<EntidadeChavePix> findPorNome(@Param("trigrama") String trigrama, @Param("padrao") String padrao,
+            Limit limite);
     
     // Buscar por data de inclusão (intervalo)
     List<EntidadeChavePix> findByDataHoraInclusaoChaveBetween(LocalDateTime inicio, LocalDateTime fim);
@@ -34,13 +59,93 @@ public interface RepositorioChavePix extends JpaRepository<EntidadeChavePix, UUI
     @Query("SELECT c FROM EntidadeChavePix c WHERE c.dataHoraInativacaoChave IS NOT NULL")
     List<EntidadeChavePix> findAllInativas();
     
-    // Verificar se existe chave com mesmo valor
-    boolean existsByTipoChaveAndValorChave(String tipoChave, String valorChave);
-    
-    // Verifica se existe alguma chave para a conta com um tipoPessoa DIFERENTE do informado
-    boolean existsByNumeroAgenciaAndNumeroContaAndTipoPessoaNot(Integer numeroAgencia, Integer numeroConta, String tipoPessoa);
+    // Projeção das listagens: o DTO de resposta é montado na própria consulta, sem entidade gerenciada,
+    // snapshot para dirty checking nem passagem pelo cache de segundo nível
+    String PROJECAO_CONSULTA = "SELECT new com.itau.case_pix.DTO.RespostaConsultaChavePixDTO(c.id, c.tipoChave, "
+            + "c.valorChave, c.tipoPessoa, c.tipoConta, c.numeroAgencia, c.numeroConta, c.nomeCorrentista, "
+            + "c.sobrenomeCorrentista, c.dataHoraInclusaoChave, c.dataHoraInativacaoChave) FROM EntidadeChavePix c ";
+
+    // Listagens paginadas por keyset em (dataHoraInclusaoChave, id). O predicado redundante
+    // "dataHoraInclusaoChave >= :data" permite ao banco percorrer o índice a partir do cursor
+    @Query(PROJECAO_CONSULTA + "WHERE c.dataHoraInativacaoChave IS NULL "
+            + "AND c.dataHoraInclusaoChave >= :data AND (c.dataHoraInclusaoChave > :data OR c.id > :id) "
+            + "ORDER BY c.dataHoraInclusaoChave, c.id")
+    List<RespostaConsultaChavePixDTO> findAtivasApos(@Param("data") LocalDateTime data, @Param("id") UUID id, Limit limite);
+
+    @Query(PROJECAO_CONSULTA + "WHERE c.dataHoraInativacaoChave IS NOT NULL "
+            + "AND c.dataHoraInclusaoChave >= :data AND (c.dataHoraInclusaoChave > :data OR c.id > :id) "
+            + "ORDER BY c.dataHoraInclusaoChave, c.id")
+    List<RespostaConsultaChavePixDTO> findInativasApos(@Param("data") LocalDateTime data, @Param("id") UUID id, Limit limite);
+
+    @Query(PROJECAO_CONSULTA + "WHERE c.tipoChave = :tipoChave AND c.dataHoraInativacaoChave IS NULL "
+            + "AND c.dataHoraInclusaoChave >= :data AND (c.dataHoraInclusaoChave > :data OR c.id > :id) "
+            + "ORDER BY c.dataHoraInclusaoChave, c.id")
+    List<RespostaConsultaChavePixDTO> findAtivasPorTipoApos(@Param("tipoChave") String tipoChave,
+            @Param("data") LocalDateTime data, @Param("id") UUID id, Limit limite);
+
+    @Query(PROJECAO_CONSULTA + "WHERE c.dataHoraInclusaoChave BETWEEN :inicio AND :fim "
+            + "AND c.dataHoraInativacaoChave IS NULL "
+            + "AND c.dataHoraInclusaoChave >= :data AND (c.dataHoraInclusaoChave > :data OR c.id > :id) "
+            + "ORDER BY c.dataHoraInclusaoChave, c.id")
+    List<RespostaConsultaChavePixDTO> findAtivasPorPeriodoApos(@Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim, @Param("data") LocalDateTime data, @Param("id") UUID id, Limit limite);
+
+    boolean existsByTipoChave(String tipoChave);
+
+    boolean existsByDataHoraInclusaoChaveBetween(LocalDateTime inicio, LocalDateTime fim);
+
+    // Leitura em fluxo para exportação: projeção com fetch size fixo, nada fica no contexto de persistência
+    @Query(PROJECAO_CONSULTA + "WHERE c.dataHoraInativacaoChave IS NULL ORDER BY c.dataHoraInclusaoChave, c.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<RespostaConsultaChavePixDTO> streamAllAtivas();
+
+    @Query(PROJECAO_CONSULTA + "WHERE c.dataHoraInativacaoChave IS NOT NULL ORDER BY c.dataHoraInclusaoChave, c.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<RespostaConsultaChavePixDTO> streamAllInativas();
+
+    // Ativas e inativas em uma só consulta, para a exportação ser um retrato único da base
+    @Query(PROJECAO_CONSULTA + "ORDER BY c.dataHoraInclusaoChave, c.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<RespostaConsultaChavePixDTO> streamAllChaves();
+
+    // Carga do filtro de chaves: apenas (tipo, valor) de todas as chaves, ativas e inativas
+    @Query("SELECT c.tipoChave, c.valorChave FROM EntidadeChavePix c")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE") })
+    Stream<Object[]> streamTiposEValores();
+
+    // Reconciliação das estatísticas: quantidade de chaves por (tipo de chave, tipo de pessoa, agência)
+    @Query("SELECT c.tipoChave, c.tipoPessoa, c.numeroAgencia, COUNT(c) FROM EntidadeChavePix c "
+            + "WHERE c.dataHoraInativacaoChave IS NULL GROUP BY c.tipoChave, c.tipoPessoa, c.numeroAgencia")
+    List<Object[]> contarAtivasPorGrupo();
+
+    @Query("SELECT c.tipoChave, c.tipoPessoa, c.numeroAgencia, COUNT(c) FROM EntidadeChavePix c "
+            + "WHERE c.dataHoraInativacaoChave IS NOT NULL GROUP BY c.tipoChave, c.tipoPessoa, c.numeroAgencia")
+    List<Object[]> contarInativasPorGrupo();
+
+    // Inclusão em lote: valores já cadastrados para o tipo de chave (usa o índice único tipo/valor)
+    @Query("SELECT c.valorChave FROM EntidadeChavePix c WHERE c.tipoChave = :tipoChave AND c.valorChave IN :valores")
+    List<String> findValoresExistentes(@Param("tipoChave") String tipoChave, @Param("valores") Collection<String> valores);
+
+    // Inativação em lote: um único UPDATE marca todas as chaves ainda ativas com o mesmo instante
+    // Leitura com trava das linhas antes da inativação em lote, sempre na ordem do id para que lotes concorrentes
+    // com ids em comum não se bloqueiem mutuamente
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM EntidadeChavePix c WHERE c.id IN :ids ORDER BY c.id")
+    List<EntidadeChavePix> travarPorIds(@Param("ids") Collection<UUID> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM EntidadeChavePix c WHERE c.numeroAgencia = :agencia AND c.numeroConta = :conta ORDER BY c.id")
+    List<EntidadeChavePix> travarPorAgenciaConta(@Param("agencia") Integer agencia, @Param("conta") Integer conta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EntidadeChavePix c SET c.dataHoraInativacaoChave = :agora WHERE c.id IN :ids AND c.dataHoraInativacaoChave IS NULL")
+    int inativarPorIds(@Param("ids") Collection<UUID> ids, @Param("agora") LocalDateTime agora);
 
-    // Contar chaves ativas por agência e conta
-    @Query("SELECT COUNT(c) FROM EntidadeChavePix c WHERE c.numeroAgencia = :agencia AND c.numeroConta = :conta AND c.dataHoraInativacaoChave IS NULL")
-    long countChavesAtivasByAgenciaConta(@Param("agencia") Integer agencia, @Param("conta") Integer conta);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EntidadeChavePix c SET c.dataHoraInativacaoChave = :agora WHERE c.numeroAgencia = :agencia AND c.numeroConta = :conta AND c.dataHoraInativacaoChave IS NULL")
+    int inativarPorAgenciaConta(@Param("agencia") Integer agencia, @Param("conta") Integer conta,
+            @Param("agora") LocalDateTime agora);
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.itau.case_pix.repositorio;
+
+import com.itau.case_pix.modelo.EntidadeContaChavePix;
+import com.itau.case_pix.modelo.IdContaChavePix;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RepositorioContaChavePix extends JpaRepository<EntidadeContaChavePix, IdContaChavePix> {
+
+    // Incremento condicional: só altera a linha se o tipo de pessoa for compatível e o limite comportar
+    // as novas chaves. O UPDATE bloqueia a linha, então inclusões concorrentes na mesma conta são serializadas
+    @Modifying
+    @Query("UPDATE EntidadeContaChavePix c SET c.quantidadeChaves = c.quantidadeChaves + :quantidade, "
+            + "c.quantidadeAtivas = c.quantidadeAtivas + :quantidade, c.tipoPessoa = :tipoPessoa "
+            + "WHERE c.numeroAgencia = :agencia AND c.numeroConta = :conta "
+            + "AND (c.tipoPessoa = :tipoPessoa OR c.quantidadeChaves = 0) "
+            + "AND c.quantidadeAtivas + :quantidade <= :limite")
+    int incrementar(@Param("agencia") Integer agencia, @Param("conta") Integer conta,
+            @Param("tipoPessoa") String tipoPessoa, @Param("quantidade") int quantidade, @Param("limite") int limite);
+
+    // Chave movida para outra conta por alteração
+    @Modifying
+    @Query("UPDATE EntidadeContaChavePix c SET c.quantidadeChaves = c.quantidadeChaves - 1, "
+            + "c.quantidadeAtivas = c.quantidadeAtivas - 1 WHERE c.numeroAgencia = :agencia AND c.numeroConta = :conta")
+    int remover(@Param("agencia") Integer agencia, @Param("conta") Integer conta);
+
+    @Modifying
+    @Query("UPDATE EntidadeContaChavePix c SET c.quantidadeAtivas = c.quantidadeAtivas - :quantidade "
+            + "WHERE c.numeroAgencia = :agencia AND c.numeroConta = :conta")
+    int inativar(@Param("agencia") Integer agencia, @Param("conta") Integer conta, @Param("quantidade") int quantidade);
+
+    // Inclusão em lote: contadores das contas informadas
+    // (o filtro por agência e conta é um superconjunto; o serviço confere o par exato)
+    @Query("SELECT c FROM EntidadeContaChavePix c WHERE c.numeroAgencia IN :agencias AND c.numeroConta IN :contas")
+    List<EntidadeContaChavePix> findByAgenciasEContas(@Param("agencias") Collection<Integer> agencias,
+            @Param("contas") Collection<Integer> contas);
+}
@@ -0,0 +1,172 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RecusaImportacaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.DTO.RespostaImportacaoChavesPixDTO;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Exportação da base inteira no FormatoBinarioChavesPix e importação de volta, para semear ambientes e
+// recuperar nós sem repetir chamadas REST nem copiar o banco
+@Component
+public class ArquivoBinarioChavesPix {
+
+    private static final Logger log = LoggerFactory.getLogger(ArquivoBinarioChavesPix.class);
+
+    private static final int MAXIMO_RECUSAS_RESPOSTA = 100;
+
+    private final ServicoChavePix servicoChavePix;
+    private final int tamanhoLote;
+    private final int paralelismo;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ArquivoBinarioChavesPix(ServicoChavePix servicoChavePix,
+            @Value("${case-pix.importacao.tamanho-lote:500}") int tamanhoLote,
+            @Value("${case-pix.importacao.paralelismo:4}") int paralelismo) {
+        this.servicoChavePix = servicoChavePix;
+        this.tamanhoLote = tamanhoLote;
+        this.paralelismo = paralelismo;
+        this.executor = Executors.newFixedThreadPool(paralelismo, ThreadsChavePix.daemon("importacao-chaves-"));
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    // Ativas e inativas juntas, pelo percurso em fluxo do serviço: a memória usada não depende do tamanho da base.
+    // Em um banco só, uma consulta única, então uma chave inativada durante a exportação sai uma vez, no estado
+    // do início da leitura
+    public void exportar(OutputStream saida) throws IOException {
+        try (FormatoBinarioChavesPix.Escritor escritor = new FormatoBinarioChavesPix.Escritor(saida)) {
+            servicoChavePix.percorrerChaves(chave -> escrever(escritor, chave));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void escrever(FormatoBinarioChavesPix.Escritor escritor, RespostaConsultaChavePixDTO chave) {
+        try {
+            escritor.escrever(chave);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // O arquivo é lido em lotes, incluídos em paralelo pela restauração em lote do serviço (mesmas validações e
+    // recusas da inclusão em lote, mantendo ids e datas). No máximo dois lotes por worker ficam em memória: a
+    // leitura espera quando os workers ficam para trás. Lotes já incluídos continuam gravados se o arquivo se
+    // revelar corrompido adiante; importar o arquivo de novo recusa essas chaves como duplicadas
+    public RespostaImportacaoChavesPixDTO importar(InputStream entrada) throws IOException {
+        long inicio = System.nanoTime();
+        Importacao importacao = new Importacao();
+        Semaphore lotesPendentes = new Semaphore(2 * paralelismo);
+        try {
+            FormatoBinarioChavesPix.Leitor leitor = new FormatoBinarioChavesPix.Leitor(entrada);
+            List<EntidadeChavePix> lote = new ArrayList<>(tamanhoLote);
+            long lidas = 0;
+            for (EntidadeChavePix chave = leitor.proxima(); chave != null && importacao.falha == null;
+                    chave = leitor.proxima()) {
+                lote.add(chave);
+                lidas++;
+                if (lote.size() == tamanhoLote) {
+                    enviar(lote, lidas - lote.size(), importacao, lotesPendentes);
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+            }
+            if (!lote.isEmpty() && importacao.falha == null) {
+                enviar(lote, lidas - lote.size(), importacao, lotesPendentes);
+            }
+            importacao.resposta.setLidas(lidas);
+        } catch (FormatoBinarioChavesPix.ArquivoInvalidoException e) {
+            throw new ExcecaoChavePix(CodigoErroChavePix.ARQUIVO_INVALIDO, e.getMessage());
+        } finally {
+            // Espera os lotes em andamento
+            lotesPendentes.acquireUninterruptibly(2 * paralelismo);
+        }
+        if (importacao.falha != null) {
+            throw importacao.falha;
+        }
+
+        RespostaImportacaoChavesPixDTO resposta = importacao.resposta;
+        resposta.setRecusas(importacao.primeirasRecusas());
+        log.info("Importação de chaves PIX em {} ms: {} lidas, {} importadas, {} recusadas",
+                (System.nanoTime() - inicio) / 1_000_000, resposta.getLidas(), resposta.getImportadas(),
+                resposta.getRecusadas());
+        return resposta;
+    }
+
+    private void enviar(List<EntidadeChavePix> lote, long posicao, Importacao importacao, Semaphore lotesPendentes) {
+        lotesPendentes.acquireUninterruptibly();
+        executor.execute(() -> {
+            try {
+                importacao.registrar(
+                        LotesChavePix.gravarRepetindoUmaVez(lote, servicoChavePix::restaurarChavesEmLote), posicao);
+            } catch (RuntimeException e) {
+                importacao.falhar(e);
+            } finally {
+                lotesPendentes.release();
+            }
+        });
+    }
+
+    private static class Importacao {
+
+        private final RespostaImportacaoChavesPixDTO resposta = new RespostaImportacaoChavesPixDTO();
+        // Os lotes terminam fora de ordem: fica o heap das recusas de menor índice, com a de maior índice no topo
+        private final PriorityQueue<RecusaImportacaoChavePixDTO> recusas = new PriorityQueue<>(
+                Comparator.comparingLong(RecusaImportacaoChavePixDTO::getIndice).reversed());
+        private volatile RuntimeException falha;
+
+        private synchronized void registrar(List<ResultadoInclusaoLoteDTO> resultados, long posicao) {
+            for (ResultadoInclusaoLoteDTO resultado : resultados) {
+                if (resultado.isIncluida()) {
+                    resposta.setImportadas(resposta.getImportadas() + 1);
+                    continue;
+                }
+                resposta.setRecusadas(resposta.getRecusadas() + 1);
+                long indice = posicao + resultado.getIndice();
+                if (recusas.size() < MAXIMO_RECUSAS_RESPOSTA) {
+                    recusas.add(new RecusaImportacaoChavePixDTO(indice, resultado.getMensagem()));
+                } else if (indice < recusas.peek().getIndice()) {
+                    recusas.poll();
+                    recusas.add(new RecusaImportacaoChavePixDTO(indice, resultado.getMensagem()));
+                }
+            }
+        }
+
+        private synchronized List<RecusaImportacaoChavePixDTO> primeirasRecusas() {
+            List<RecusaImportacaoChavePixDTO> primeiras = new ArrayList<>(recusas);
+            primeiras.sort(Comparator.comparingLong(RecusaImportacaoChavePixDTO::getIndice));
+            return primeiras;
+        }
+
+        // A primeira falha interrompe a leitura do arquivo
+        private synchronized void falhar(RuntimeException e) {
+            if (falha == null) {
+                falha = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.itau.case_pix.servico;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Histórico de auditoria das alterações e inativações (tabela historico_chave_pix), com o estado antes e depois.
+// Os registros entram numa fila limitada após o commit e uma thread própria os grava em batches JDBC, fora da
+// transação do serviço. Com a fila cheia ou o banco indisponível, os registros vão para um arquivo de
+// contingência (gravado com DSYNC), reprocessado quando a fila esvazia. Registros ainda na fila se perdem
+// só se o processo morrer sem passar pelo encerramento
+@Component
+@Profile("!log")
+@DependsOn("entityManagerFactory") // o reprocessamento da contingência na subida precisa das migrações
+public class AuditoriaChavePix {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditoriaChavePix.class);
+
+    private static final String INSERIR = "INSERT INTO historico_chave_pix (id_chave, operacao, estado_anterior, "
+            + "estado_novo, data_hora_registro) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<RegistroAuditoriaChavePix> fila;
+    private final int tamanhoLote;
+    private final Duration intervaloEscrita;
+    private final Path arquivoContingencia;
+    private final Path arquivoEmReprocessamento;
+    private final Object travaContingencia = new Object();
+    private final Counter registrosContingencia;
+
+    private volatile boolean ativo;
+    private Thread escritor;
+
+    @Autowired
+    public AuditoriaChavePix(JdbcTemplate jdbcTemplate, PlatformTransactionManager gerenciadorTransacoes,
+            ObjectMapper objectMapper, MeterRegistry registro,
+            @Value("${case-pix.auditoria.capacidade-fila:10000}") int capacidadeFila,
+            @Value("${case-pix.auditoria.tamanho-lote:500}") int tamanhoLote,
+            @Value("${case-pix.auditoria.intervalo-escrita:PT0.2S}") Duration intervaloEscrita,
+            @Value("${case-pix.auditoria.arquivo-contingencia:auditoria-contingencia.ndjson}") Path arquivoContingencia) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(gerenciadorTransacoes);
+        this.objectMapper = objectMapper;
+        this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+        this.tamanhoLote = tamanhoLote;
+        this.intervaloEscrita = intervaloEscrita;
+        this.arquivoContingencia = arquivoContingencia;
+        this.arquivoEmReprocessamento = arquivoContingencia.resolveSibling(
+                arquivoContingencia.getFileName() + ".reprocessando");
+
+        Gauge.builder("chaves.pix.auditoria.fila", fila, BlockingQueue::size)
+                .description("Registros do histórico aguardando gravação no banco").register(registro);
+        this.registrosContingencia = Counter.builder("chaves.pix.auditoria.contingencia")
+                .description("Registros do histórico desviados para o arquivo de contingência").register(registro);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        ativo = true;
+        escritor = new Thread(this::escrever, "auditoria-chaves-pix");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    // O que ainda estiver na fila é gravado antes de o pool de conexões ser fechado
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        ativo = false;
+        escritor.join();
+        List<RegistroAuditoriaChavePix> restantes = new ArrayList<>();
+        fila.drainTo(restantes);
+        gravar(restantes);
+    }
+
+    // Só mutações confirmadas entram no histórico; a inclusão já é o próprio registro da chave
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoConfirmarMutacao(EventoChavePix evento) {
+        if (evento.getOperacao() == EventoChavePix.Operacao.INCLUSAO) {
+            return;
+        }
+        EstadoChavePix estadoNovo = EstadoChavePix.de(evento.getChavePix());
+        EstadoChavePix estadoAnterior = evento.getOperacao() == EventoChavePix.Operacao.INATIVACAO
+                ? estadoNovo.ativo()
+                : evento.getEstadoAnterior();
+        registrar(new RegistroAuditoriaChavePix(evento.getChavePix().getId(), evento.getOperacao(), estadoAnterior,
+                estadoNovo, LocalDateTime.now()));
+    }
+
+    // Não espera pela fila: quando ela está cheia, quem paga a escrita no arquivo é a requisição que a encontrou
+    // cheia, e só ela
+    void registrar(RegistroAuditoriaChavePix registro) {
+        if (!fila.offer(registro)) {
+            gravarContingencia(List.of(registro));
+        }
+    }
+
+    private void escrever() {
+        List<RegistroAuditoriaChavePix> lote = new ArrayList<>(tamanhoLote);
+        while (ativo) {
+            try {
+                RegistroAuditoriaChavePix primeiro = fila.poll(intervaloEscrita.toMillis(), TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    reprocessarContingencia();
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote, tamanhoLote - 1);
+                gravar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Falha no escritor do histórico de chaves PIX", e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    // Um lote por transação; se o banco falhar, o lote vai para o arquivo de contingência
+    private void gravar(List<RegistroAuditoriaChavePix> lote) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            transacao.executeWithoutResult(status -> inserir(lote));
+        } catch (RuntimeException e) {
+            log.warn("Falha ao gravar {} registros do histórico de chaves PIX; desviados para {}", lote.size(),
+                    arquivoContingencia, e);
+            gravarContingencia(lote);
+        }
+    }
+
+    private void inserir(List<RegistroAuditoriaChavePix> registros) {
+        List<Object[]> linhas = new ArrayList<>(registros.size());
+        for (RegistroAuditoriaChavePix registro : registros) {
+            linhas.add(new Object[] { IdsChavePix.bytes(registro.idChave()), registro.operacao().name(),
+                    json(registro.estadoAnterior()), json(registro.estadoNovo()),
+                    Timestamp.valueOf(registro.dataHoraRegistro()) });
+        }
+        jdbcTemplate.batchUpdate(INSERIR, linhas);
+    }
+
+    // Uma linha JSON por registro
+    void gravarContingencia(List<RegistroAuditoriaChavePix> registros) {
+        StringBuilder linhas = new StringBuilder();
+        for (RegistroAuditoriaChavePix registro : registros) {
+            linhas.append(json(registro)).append('\n');
+        }
+        try {
+            synchronized (travaContingencia) {
+                Files.writeString(arquivoContingencia, linhas, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+            }
+            registrosContingencia.increment(registros.size());
+        } catch (IOException e) {
+            // Último recurso: o conteúdo fica no log
+            log.error("Registros do histórico de chaves PIX não gravados: {}", linhas, e);
+        }
+    }
+
+    // Devolve ao banco, numa única transação, os registros do arquivo de contingência. O arquivo é renomeado
+    // antes da leitura para que novos registros desviados não se misturem aos que estão sendo reprocessados
+    private void reprocessarContingencia() {
+        try {
+            synchronized (travaContingencia) {
+                if (!Files.exists(arquivoEmReprocessamento)) {
+                    if (!Files.exists(arquivoContingencia)) {
+                        return;
+                    }
+                    Files.move(arquivoContingencia, arquivoEmReprocessamento, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            List<RegistroAuditoriaChavePix> registros = new ArrayList<>();
+            for (String linha : Files.readAllLines(arquivoEmReprocessamento, StandardCharsets.UTF_8)) {
+                try {
+                    registros.add(objectMapper.readValue(linha, RegistroAuditoriaChavePix.class));
+                } catch (JsonProcessingException e) {
+                    // Linha incompleta de uma escrita interrompida
+                    log.warn("Linha ignorada no arquivo de contingência do histórico: {}", linha);
+                }
+            }
+            transacao.executeWithoutResult(status -> {
+                for (int inicio = 0; inicio < registros.size(); inicio += tamanhoLote) {
+                    inserir(registros.subList(inicio, Math.min(inicio + tamanhoLote, registros.size())));
+                }
+            });
+            Files.delete(arquivoEmReprocessamento);
+            log.info("{} registros do histórico de chaves PIX recuperados de {}", registros.size(),
+                    arquivoContingencia);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String json(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
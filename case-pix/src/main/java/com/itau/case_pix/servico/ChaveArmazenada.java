@@ -0,0 +1,97 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+// Estado imutável de uma chave no armazenamento em log (ServicoChavePixLog), com o formato binário usado no log
+// e no snapshot. Cada mutação grava o estado completo da chave depois da operação
+public record ChaveArmazenada(UUID id, String tipoChave, String valorChave, String tipoPessoa, String tipoConta,
+        Integer numeroAgencia, Integer numeroConta, String nomeCorrentista, String sobrenomeCorrentista,
+        LocalDateTime dataHoraInclusaoChave, LocalDateTime dataHoraInativacaoChave) {
+
+    public static ChaveArmazenada de(EntidadeChavePix chave) {
+        return new ChaveArmazenada(chave.getId(), chave.getTipoChave(), chave.getValorChave(), chave.getTipoPessoa(),
+                chave.getTipoConta(), chave.getNumeroAgencia(), chave.getNumeroConta(), chave.getNomeCorrentista(),
+                chave.getSobrenomeCorrentista(), chave.getDataHoraInclusaoChave(), chave.getDataHoraInativacaoChave());
+    }
+
+    public boolean ativa() {
+        return dataHoraInativacaoChave == null;
+    }
+
+    public ChaveArmazenada inativada(LocalDateTime agora) {
+        return new ChaveArmazenada(id, tipoChave, valorChave, tipoPessoa, tipoConta, numeroAgencia, numeroConta,
+                nomeCorrentista, sobrenomeCorrentista, dataHoraInclusaoChave, agora);
+    }
+
+    // Cópia desacoplada do armazenamento: quem recebe pode alterar a entidade à vontade
+    public EntidadeChavePix paraEntidade() {
+        EntidadeChavePix chave = new EntidadeChavePix(id, tipoChave, valorChave, tipoPessoa, tipoConta, numeroAgencia,
+                numeroConta, nomeCorrentista, sobrenomeCorrentista);
+        chave.setDataHoraInclusaoChave(dataHoraInclusaoChave);
+        chave.setDataHoraInativacaoChave(dataHoraInativacaoChave);
+        return chave;
+    }
+
+    public RespostaConsultaChavePixDTO paraConsulta() {
+        return new RespostaConsultaChavePixDTO(id, tipoChave, valorChave, tipoPessoa, tipoConta, numeroAgencia,
+                numeroConta, nomeCorrentista, sobrenomeCorrentista, dataHoraInclusaoChave, dataHoraInativacaoChave);
+    }
+
+    void escrever(DataOutput saida) throws IOException {
+        saida.writeLong(id.getMostSignificantBits());
+        saida.writeLong(id.getLeastSignificantBits());
+        saida.writeUTF(tipoChave);
+        saida.writeUTF(valorChave);
+        saida.writeUTF(tipoPessoa);
+        saida.writeUTF(tipoConta);
+        saida.writeInt(numeroAgencia);
+        saida.writeInt(numeroConta);
+        saida.writeUTF(nomeCorrentista);
+        escreverOpcional(saida, sobrenomeCorrentista);
+        escreverDataHora(saida, dataHoraInclusaoChave);
+        saida.writeBoolean(dataHoraInativacaoChave != null);
+        if (dataHoraInativacaoChave != null) {
+            escreverDataHora(saida, dataHoraInativacaoChave);
+        }
+    }
+
+    static ChaveArmazenada ler(DataInput entrada) throws IOException {
+        UUID id = new UUID(entrada.readLong(), entrada.readLong());
+        String tipoChave = entrada.readUTF();
+        String valorChave = entrada.readUTF();
+        String tipoPessoa = entrada.readUTF();
+        String tipoConta = entrada.readUTF();
+        int numeroAgencia = entrada.readInt();
+        int numeroConta = entrada.readInt();
+        String nomeCorrentista = entrada.readUTF();
+        String sobrenomeCorrentista = entrada.readBoolean() ? entrada.readUTF() : null;
+        LocalDateTime dataHoraInclusaoChave = lerDataHora(entrada);
+        LocalDateTime dataHoraInativacaoChave = entrada.readBoolean() ? lerDataHora(entrada) : null;
+        return new ChaveArmazenada(id, tipoChave, valorChave, tipoPessoa, tipoConta, numeroAgencia, numeroConta,
+                nomeCorrentista, sobrenomeCorrentista, dataHoraInclusaoChave, dataHoraInativacaoChave);
+    }
+
+    private static void escreverOpcional(DataOutput saida, String valor) throws IOException {
+        saida.writeBoolean(valor != null);
+        if (valor != null) {
+            saida.writeUTF(valor);
+        }
+    }
+
+    private static void escreverDataHora(DataOutput saida, LocalDateTime dataHora) throws IOException {
+        saida.writeLong(dataHora.toEpochSecond(ZoneOffset.UTC));
+        saida.writeInt(dataHora.getNano());
+    }
+
+    private static LocalDateTime lerDataHora(DataInput entrada) throws IOException {
+        return LocalDateTime.ofEpochSecond(entrada.readLong(), entrada.readInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,11 @@
+package com.itau.case_pix.servico;
+
+import java.util.List;
+
+// Destino dos eventos do outbox dentro da aplicação. O relay entrega cada lote em ordem de sequência a todos
+// os consumidores; se algum lançar exceção, o lote volta para o outbox e é entregue de novo (ao menos uma vez),
+// então o consumidor deve tolerar eventos repetidos (a sequência identifica o evento)
+public interface ConsumidorEventoChavePix {
+
+    void consumir(List<EventoOutboxChavePix> eventos);
+}
@@ -0,0 +1,111 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeContaChavePix;
+import com.itau.case_pix.modelo.IdContaChavePix;
+import com.itau.case_pix.repositorio.RepositorioContaChavePix;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Collection;
+import java.util.List;
+
+// Mantém a tabela de contadores por conta. Deve ser chamado dentro da transação que altera as chaves
+@Component
+@Profile("!log")
+public class ContadorChavesConta {
+
+    public enum Resultado {
+        RESERVADA,
+        TIPO_PESSOA_DIVERGENTE,
+        LIMITE_EXCEDIDO
+    }
+
+    private static final String INSERIR_CONTA = "INSERT INTO conta_chave_pix (numero_agencia, numero_conta, "
+            + "tipo_pessoa, quantidade_chaves, quantidade_ativas) VALUES (?, ?, ?, 0, 0)";
+
+    private final RepositorioContaChavePix repositorioContaChavePix;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ContadorChavesConta(RepositorioContaChavePix repositorioContaChavePix, EntityManager entityManager,
+            JdbcTemplate jdbcTemplate) {
+        this.repositorioContaChavePix = repositorioContaChavePix;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Reserva "quantidade" chaves na conta com um único UPDATE condicional
+    public Resultado reservar(Integer numeroAgencia, Integer numeroConta, String tipoPessoa, int quantidade,
+            int limite) {
+        if (repositorioContaChavePix.incrementar(numeroAgencia, numeroConta, tipoPessoa, quantidade, limite) == 1) {
+            return Resultado.RESERVADA;
+        }
+
+        // Primeira chave da conta: cria a linha do contador e tenta de novo
+        garantirConta(numeroAgencia, numeroConta, tipoPessoa);
+        if (repositorioContaChavePix.incrementar(numeroAgencia, numeroConta, tipoPessoa, quantidade, limite) == 1) {
+            return Resultado.RESERVADA;
+        }
+
+        // O UPDATE em massa não atualiza instâncias já carregadas, então a linha é relida do banco
+        EntidadeContaChavePix conta = repositorioContaChavePix
+                .findById(new IdContaChavePix(numeroAgencia, numeroConta))
+                .orElseThrow(() -> new IllegalStateException("Contador da conta não encontrado"));
+        entityManager.refresh(conta);
+        return conta.possuiOutroTipoPessoa(tipoPessoa) ? Resultado.TIPO_PESSOA_DIVERGENTE : Resultado.LIMITE_EXCEDIDO;
+    }
+
+    // Chave alterada para outra conta
+    public void remover(Integer numeroAgencia, Integer numeroConta) {
+        repositorioContaChavePix.remover(numeroAgencia, numeroConta);
+    }
+
+    public void inativar(Integer numeroAgencia, Integer numeroConta, int quantidade) {
+        if (quantidade > 0) {
+            repositorioContaChavePix.inativar(numeroAgencia, numeroConta, quantidade);
+        }
+    }
+
+    public int quantidadeAtivas(Integer numeroAgencia, Integer numeroConta) {
+        return repositorioContaChavePix.findById(new IdContaChavePix(numeroAgencia, numeroConta))
+                .map(EntidadeContaChavePix::getQuantidadeAtivas)
+                .orElse(0);
+    }
+
+    public List<EntidadeContaChavePix> buscarContas(Collection<Integer> agencias, Collection<Integer> contas) {
+        return repositorioContaChavePix.findByAgenciasEContas(agencias, contas);
+    }
+
+    // A linha é criada zerada sob um savepoint, via JDBC na mesma conexão: uma inclusão concorrente na
+    // mesma conta pode tê-la criado primeiro, e a violação da chave primária desfaz só o savepoint, sem
+    // passar pelo Hibernate (que marcaria a transação principal para rollback). Uma transação própria
+    // exigiria uma segunda conexão do pool por inclusão. Uma linha zerada não define tipo de pessoa
+    private void garantirConta(Integer numeroAgencia, Integer numeroConta, String tipoPessoa) {
+        jdbcTemplate.execute((Connection conexao) -> {
+            Savepoint savepoint = conexao.setSavepoint();
+            try (PreparedStatement comando = conexao.prepareStatement(INSERIR_CONTA)) {
+                comando.setInt(1, numeroAgencia);
+                comando.setInt(2, numeroConta);
+                comando.setString(3, tipoPessoa);
+                comando.executeUpdate();
+            } catch (SQLException e) {
+                // Classe 23 (violação de integridade): criada por outra transação
+                if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                    throw e;
+                }
+                conexao.rollback(savepoint);
+                return null;
+            }
+            conexao.releaseSavepoint(savepoint);
+            return null;
+        });
+    }
+}
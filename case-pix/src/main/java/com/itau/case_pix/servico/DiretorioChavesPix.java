@@ -0,0 +1,82 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.configuracao.RoteamentoLeitura;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.repositorio.RepositorioChavePix;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+// Diretório em memória das chaves PIX ativas, indexado por (tipoChave, valorChave)
+@Component
+@Profile("!log")
+public class DiretorioChavesPix {
+
+    private final RepositorioChavePix repositorioChavePix;
+    private final FragmentacaoChavesPix fragmentacao;
+    private final TransactionTemplate transacaoLeitura;
+    private final ConcurrentMap<String, RespostaConsultaChavePixDTO> chavesAtivas = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DiretorioChavesPix(RepositorioChavePix repositorioChavePix, FragmentacaoChavesPix fragmentacao,
+            PlatformTransactionManager gerenciadorTransacoes) {
+        this.repositorioChavePix = repositorioChavePix;
+        this.fragmentacao = fragmentacao;
+        this.transacaoLeitura = new TransactionTemplate(gerenciadorTransacoes);
+        this.transacaoLeitura.setReadOnly(true);
+    }
+
+    // Carrega as chaves ativas antes do servidor começar a receber requisições. A projeção é lida em fluxo numa
+    // transação somente leitura, sem manter as entidades no contexto de persistência; da primária, para não
+    // perder chaves recém-confirmadas que a réplica ainda não recebeu
+    @PostConstruct
+    public void carregar() {
+        chavesAtivas.clear();
+        try (RoteamentoLeitura.Escopo primaria = RoteamentoLeitura.naPrimaria()) {
+            fragmentacao.paraCadaShard(shard -> transacaoLeitura.executeWithoutResult(status -> {
+                try (Stream<RespostaConsultaChavePixDTO> chaves = repositorioChavePix.streamAllAtivas()) {
+                    chaves.forEach(chave -> chavesAtivas.put(indice(chave.getTipoChave(), chave.getValorChave()),
+                            chave));
+                }
+            }));
+        }
+    }
+
+    public Optional<RespostaConsultaChavePixDTO> buscar(String tipoChave, String valorChave) {
+        return Optional.ofNullable(chavesAtivas.get(indice(tipoChave, valorChave)));
+    }
+
+    public int tamanho() {
+        return chavesAtivas.size();
+    }
+
+    // Só aplica a mutação depois do commit, para não expor dados de transações desfeitas
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoAlterarChave(EventoChavePix evento) {
+        EntidadeChavePix chave = evento.getChavePix();
+        if (evento.getOperacao() == EventoChavePix.Operacao.INATIVACAO || !chave.isAtiva()) {
+            chavesAtivas.remove(indice(chave.getTipoChave(), chave.getValorChave()));
+        } else {
+            registrar(chave);
+        }
+    }
+
+    private void registrar(EntidadeChavePix chave) {
+        chavesAtivas.put(indice(chave.getTipoChave(), chave.getValorChave()), new RespostaConsultaChavePixDTO(chave));
+    }
+
+    private static String indice(String tipoChave, String valorChave) {
+        return tipoChave + ':' + valorChave;
+    }
+}
@@ -0,0 +1,19 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+
+import java.time.LocalDateTime;
+
+// Campos mutáveis de uma chave PIX num dado momento (antes/depois no histórico de auditoria)
+public record EstadoChavePix(String tipoConta, Integer numeroAgencia, Integer numeroConta, String nomeCorrentista,
+        String sobrenomeCorrentista, LocalDateTime dataHoraInativacaoChave) {
+
+    public static EstadoChavePix de(EntidadeChavePix chave) {
+        return new EstadoChavePix(chave.getTipoConta(), chave.getNumeroAgencia(), chave.getNumeroConta(),
+                chave.getNomeCorrentista(), chave.getSobrenomeCorrentista(), chave.getDataHoraInativacaoChave());
+    }
+
+    public EstadoChavePix ativo() {
+        return new EstadoChavePix(tipoConta, numeroAgencia, numeroConta, nomeCorrentista, sobrenomeCorrentista, null);
+    }
+}
@@ -0,0 +1,191 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RespostaEstatisticasChavePixDTO;
+import com.itau.case_pix.configuracao.RoteamentoLeitura;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.repositorio.RepositorioChavePix;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Quantidade de chaves ativas e inativas por tipo de chave, tipo de pessoa e agência, mantida em memória
+// pelo serviço a cada escrita e recalculada periodicamente a partir do banco
+@Component
+@Profile("!log")
+public class EstatisticasChavePix {
+
+    private static final Logger log = LoggerFactory.getLogger(EstatisticasChavePix.class);
+
+    private final RepositorioChavePix repositorioChavePix;
+    private final FragmentacaoChavesPix fragmentacao;
+    private final TransactionTemplate transacaoLeitura;
+
+    private volatile Contagens contagens = new Contagens(null);
+
+    @Autowired
+    public EstatisticasChavePix(RepositorioChavePix repositorioChavePix, FragmentacaoChavesPix fragmentacao,
+            PlatformTransactionManager gerenciadorTransacoes) {
+        this.repositorioChavePix = repositorioChavePix;
+        this.fragmentacao = fragmentacao;
+        this.transacaoLeitura = new TransactionTemplate(gerenciadorTransacoes);
+        this.transacaoLeitura.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void carregar() {
+        reconciliar();
+    }
+
+    // Corrige desvios dos contadores (escritas feitas fora do serviço ou confirmadas no meio de um recálculo).
+    // As variações confirmadas durante a leitura não são aplicadas às novas contagens: não há como saber se a
+    // consulta já as viu, e aplicar as duas contaria a escrita duas vezes. As que a consulta não viu ficam de fora
+    // até a próxima reconciliação
+    @Scheduled(fixedDelayString = "${case-pix.estatisticas.intervalo-reconciliacao:PT15M}",
+            initialDelayString = "${case-pix.estatisticas.intervalo-reconciliacao:PT15M}")
+    public void reconciliar() {
+        try {
+            Contagens novas = new Contagens(LocalDateTime.now());
+            // Lido da primária, a mesma base das escritas que os contadores acompanham
+            try (RoteamentoLeitura.Escopo primaria = RoteamentoLeitura.naPrimaria()) {
+                fragmentacao.paraCadaShard(shard -> transacaoLeitura.executeWithoutResult(status -> {
+                    somarGrupos(repositorioChavePix.contarAtivasPorGrupo(), novas, true);
+                    somarGrupos(repositorioChavePix.contarInativasPorGrupo(), novas, false);
+                }));
+            }
+            Contagens anteriores = contagens;
+            contagens = novas;
+            if (anteriores.dataHoraReconciliacao != null && (anteriores.total.ativas.sum() != novas.total.ativas.sum()
+                    || anteriores.total.inativas.sum() != novas.total.inativas.sum())) {
+                log.warn("Estatísticas de chaves PIX corrigidas: {}/{} ativas/inativas em memória, {}/{} no banco",
+                        anteriores.total.ativas.sum(), anteriores.total.inativas.sum(), novas.total.ativas.sum(),
+                        novas.total.inativas.sum());
+            }
+        } catch (RuntimeException e) {
+            // Mantém os contadores atuais até a próxima reconciliação
+            log.warn("Falha ao reconciliar as estatísticas de chaves PIX", e);
+        }
+    }
+
+    private static void somarGrupos(List<Object[]> grupos, Contagens destino, boolean ativas) {
+        for (Object[] grupo : grupos) {
+            long quantidade = ((Number) grupo[3]).longValue();
+            destino.somar((String) grupo[0], (String) grupo[1], (Integer) grupo[2],
+                    ativas ? quantidade : 0, ativas ? 0 : quantidade);
+        }
+    }
+
+    public void registrarInclusao(EntidadeChavePix chave) {
+        String tipoChave = chave.getTipoChave();
+        String tipoPessoa = chave.getTipoPessoa();
+        Integer agencia = chave.getNumeroAgencia();
+        aposCommit(c -> c.somar(tipoChave, tipoPessoa, agencia, 1, 0));
+    }
+
+    public void registrarInativacao(EntidadeChavePix chave) {
+        String tipoChave = chave.getTipoChave();
+        String tipoPessoa = chave.getTipoPessoa();
+        Integer agencia = chave.getNumeroAgencia();
+        aposCommit(c -> c.somar(tipoChave, tipoPessoa, agencia, -1, 1));
+    }
+
+    // Só chaves ativas podem ser alteradas
+    public void registrarMudancaAgencia(Integer agenciaAnterior, Integer agenciaNova) {
+        aposCommit(c -> {
+            c.contagem(c.porAgencia, agenciaAnterior).somar(-1, 0);
+            c.contagem(c.porAgencia, agenciaNova).somar(1, 0);
+        });
+    }
+
+    // Aplica a variação só depois do commit, para não contar escritas desfeitas
+    private void aposCommit(Consumer<Contagens> variacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            aplicar(variacao);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                aplicar(variacao);
+            }
+        });
+    }
+
+    private void aplicar(Consumer<Contagens> variacao) {
+        variacao.accept(contagens);
+    }
+
+    // Cópia das contagens atuais; o custo depende só da quantidade de tipos e agências, não de chaves
+    public RespostaEstatisticasChavePixDTO consultar() {
+        Contagens atuais = contagens;
+        RespostaEstatisticasChavePixDTO resposta = new RespostaEstatisticasChavePixDTO();
+        resposta.setDataHoraReconciliacao(atuais.dataHoraReconciliacao);
+        resposta.setTotal(atuais.total.copiar());
+        resposta.setPorTipoChave(copiar(atuais.porTipoChave));
+        resposta.setPorTipoPessoa(copiar(atuais.porTipoPessoa));
+        resposta.setPorAgencia(copiar(atuais.porAgencia));
+        return resposta;
+    }
+
+    private static <K extends Comparable<K>> Map<K, RespostaEstatisticasChavePixDTO.Contagem> copiar(
+            ConcurrentMap<K, Contagem> origem) {
+        Map<K, RespostaEstatisticasChavePixDTO.Contagem> copia = new TreeMap<>();
+        origem.forEach((chave, contagem) -> copia.put(chave, contagem.copiar()));
+        return copia;
+    }
+
+    private static final class Contagens {
+
+        private final LocalDateTime dataHoraReconciliacao;
+        private final Contagem total = new Contagem();
+        private final ConcurrentMap<String, Contagem> porTipoChave = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Contagem> porTipoPessoa = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, Contagem> porAgencia = new ConcurrentHashMap<>();
+
+        private Contagens(LocalDateTime dataHoraReconciliacao) {
+            this.dataHoraReconciliacao = dataHoraReconciliacao;
+        }
+
+        private void somar(String tipoChave, String tipoPessoa, Integer agencia, long ativas, long inativas) {
+            total.somar(ativas, inativas);
+            contagem(porTipoChave, tipoChave).somar(ativas, inativas);
+            contagem(porTipoPessoa, tipoPessoa).somar(ativas, inativas);
+            contagem(porAgencia, agencia).somar(ativas, inativas);
+        }
+
+        private <K> Contagem contagem(ConcurrentMap<K, Contagem> mapa, K chave) {
+            return mapa.computeIfAbsent(chave, k -> new Contagem());
+        }
+    }
+
+    private static final class Contagem {
+
+        private final LongAdder ativas = new LongAdder();
+        private final LongAdder inativas = new LongAdder();
+
+        private void somar(long variacaoAtivas, long variacaoInativas) {
+            ativas.add(variacaoAtivas);
+            inativas.add(variacaoInativas);
+        }
+
+        private RespostaEstatisticasChavePixDTO.Contagem copiar() {
+            return new RespostaEstatisticasChavePixDTO.Contagem(ativas.sum(), inativas.sum());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+
+import java.util.Set;
+
+// Evento publicado pelo serviço a cada mutação de chave PIX, dentro da transação
+public class EventoChavePix {
+
+    public enum Operacao {
+        INCLUSAO,
+        ALTERACAO,
+        INATIVACAO
+    }
+
+    private final Operacao operacao;
+    private final EntidadeChavePix chavePix;
+    // Campos alterados na ALTERACAO; a INATIVACAO altera só a data de inativação. Na INCLUSAO o conjunto é vazio
+    // e significa "todos os campos" (no outbox, campos_alterados fica NULL)
+    private final Set<String> camposAlterados;
+    // Estado antes da ALTERACAO (a chave publicada já tem os valores novos); nulo nas demais operações
+    private final EstadoChavePix estadoAnterior;
+
+    public EventoChavePix(Operacao operacao, EntidadeChavePix chavePix) {
+        this(operacao, chavePix, operacao == Operacao.INATIVACAO ? Set.of("dataHoraInativacaoChave") : Set.of(),
+                null);
+    }
+
+    public EventoChavePix(Operacao operacao, EntidadeChavePix chavePix, Set<String> camposAlterados,
+            EstadoChavePix estadoAnterior) {
+        this.operacao = operacao;
+        this.chavePix = chavePix;
+        this.camposAlterados = camposAlterados;
+        this.estadoAnterior = estadoAnterior;
+    }
+
+    public Operacao getOperacao() {
+        return operacao;
+    }
+
+    public EntidadeChavePix getChavePix() {
+        return chavePix;
+    }
+
+    public Set<String> getCamposAlterados() {
+        return camposAlterados;
+    }
+
+    public EstadoChavePix getEstadoAnterior() {
+        return estadoAnterior;
+    }
+}
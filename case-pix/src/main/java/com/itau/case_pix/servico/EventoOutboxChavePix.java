@@ -0,0 +1,11 @@
+package com.itau.case_pix.servico;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+// Evento lido do outbox (tabela evento_chave_pix). A sequência é crescente na ordem de gravação, mas uma
+// transação com sequência menor pode confirmar depois de outra com sequência maior
+public record EventoOutboxChavePix(long sequencia, UUID idChave, EventoChavePix.Operacao operacao,
+        Set<String> camposAlterados, LocalDateTime dataHoraEvento) {
+}
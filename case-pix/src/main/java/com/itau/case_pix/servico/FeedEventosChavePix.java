@@ -0,0 +1,51 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RespostaEventoChavePixDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Últimos eventos entregues pelo relay, em memória, para consulta incremental (/eventos?apos=). Cada evento
+// recebe uma posição própria na ordem de entrega; a sequência do outbox não serve de cursor porque uma
+// sequência menor pode ser entregue depois de uma maior. Eventos além da capacidade são descartados, e
+// quem ficar para trás recomeça pela listagem completa
+@Component
+public class FeedEventosChavePix implements ConsumidorEventoChavePix {
+
+    private final RespostaEventoChavePixDTO[] eventos;
+    // Posição do próximo evento; o evento da posição p fica em eventos[p % capacidade]
+    private long proximaPosicao = 1;
+
+    public FeedEventosChavePix(@Value("${case-pix.outbox.feed.capacidade:10000}") int capacidade) {
+        this.eventos = new RespostaEventoChavePixDTO[capacidade];
+    }
+
+    @Override
+    public synchronized void consumir(List<EventoOutboxChavePix> entregues) {
+        for (EventoOutboxChavePix evento : entregues) {
+            eventos[(int) (proximaPosicao % eventos.length)] = new RespostaEventoChavePixDTO(proximaPosicao,
+                    evento.sequencia(), evento.idChave(), evento.operacao().name(), evento.camposAlterados(),
+                    evento.dataHoraEvento());
+            proximaPosicao++;
+        }
+    }
+
+    // Eventos com posição maior que "apos", do mais antigo para o mais novo
+    public synchronized List<RespostaEventoChavePixDTO> consultar(long apos, int limite) {
+        long primeiraDisponivel = Math.max(1, proximaPosicao - eventos.length);
+        long inicio = Math.max(apos + 1, primeiraDisponivel);
+        long fim = Math.min(proximaPosicao, inicio + limite);
+        List<RespostaEventoChavePixDTO> resposta = new ArrayList<>((int) Math.max(0, fim - inicio));
+        for (long posicao = inicio; posicao < fim; posicao++) {
+            resposta.add(eventos[(int) (posicao % eventos.length)]);
+        }
+        return resposta;
+    }
+
+    // Posição mais antiga ainda em memória: um cliente com cursor anterior a ela perdeu eventos
+    public synchronized long primeiraPosicaoDisponivel() {
+        return Math.max(1, proximaPosicao - eventos.length);
+    }
+}
@@ -0,0 +1,109 @@
+package com.itau.case_pix.servico;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtro de Bloom sobre pares (tipoChave, valorChave), seguro para uso concorrente sem bloqueio.
+// "Ausente" é definitivo; "talvez presente" precisa ser confirmado no banco
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long quantidadeBits;
+    private final int quantidadeHashes;
+    private final AtomicLong bitsLigados = new AtomicLong();
+    private final AtomicLong elementos = new AtomicLong();
+
+    // Dimensionamento clássico: m = -n·ln(p) / ln(2)², k = (m/n)·ln(2)
+    public FiltroBloom(long capacidade, double taxaFalsosPositivos) {
+        if (capacidade <= 0 || taxaFalsosPositivos <= 0 || taxaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("Capacidade e taxa de falsos positivos do filtro inválidas");
+        }
+        long m = (long) Math.ceil(-capacidade * Math.log(taxaFalsosPositivos) / (Math.log(2) * Math.log(2)));
+        int palavras = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+        this.bits = new AtomicLongArray(palavras);
+        this.quantidadeBits = (long) palavras * 64;
+        this.quantidadeHashes = Math.max(1, (int) Math.round((double) quantidadeBits / capacidade * Math.log(2)));
+    }
+
+    public void adicionar(String tipoChave, String valorChave) {
+        long hash = hash(tipoChave, valorChave);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean novo = false;
+        for (int i = 0; i < quantidadeHashes; i++) {
+            novo |= ligar(posicao(h1, h2, i));
+        }
+        if (novo) {
+            elementos.incrementAndGet();
+        }
+    }
+
+    public boolean talvezContenha(String tipoChave, String valorChave) {
+        long hash = hash(tipoChave, valorChave);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < quantidadeHashes; i++) {
+            long posicao = posicao(h1, h2, i);
+            if ((bits.get((int) (posicao >>> 6)) & (1L << posicao)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Probabilidade de falso positivo com a ocupação atual: (bits ligados / m)^k
+    public double taxaFalsosPositivosEstimada() {
+        return Math.pow((double) bitsLigados.get() / quantidadeBits, quantidadeHashes);
+    }
+
+    // Aproximado: elementos cujos bits já estavam todos ligados não são contados
+    public long elementos() {
+        return elementos.get();
+    }
+
+    public long quantidadeBits() {
+        return quantidadeBits;
+    }
+
+    public int quantidadeHashes() {
+        return quantidadeHashes;
+    }
+
+    private boolean ligar(long posicao) {
+        int palavra = (int) (posicao >>> 6);
+        long mascara = 1L << posicao;
+        long atual;
+        do {
+            atual = bits.get(palavra);
+            if ((atual & mascara) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(palavra, atual, atual | mascara));
+        bitsLigados.incrementAndGet();
+        return true;
+    }
+
+    // Hashing duplo (Kirsch-Mitzenmacher): a i-ésima posição é h1 + i·h2
+    private long posicao(int h1, int h2, int i) {
+        long combinado = (h1 & 0xFFFFFFFFL) + (long) i * (h2 & 0xFFFFFFFFL);
+        return Math.floorMod(combinado, quantidadeBits);
+    }
+
+    // FNV-1a de 64 bits sobre "tipo:valor", seguido da finalização do MurmurHash3, sem concatenar as strings
+    private static long hash(String tipoChave, String valorChave) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < tipoChave.length(); i++) {
+            hash = (hash ^ tipoChave.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ ':') * 0x100000001b3L;
+        for (int i = 0; i < valorChave.length(); i++) {
+            hash = (hash ^ valorChave.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53fe1a85ec3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,161 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.configuracao.RoteamentoLeitura;
+import com.itau.case_pix.repositorio.RepositorioChavePix;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+// Filtro de Bloom de todas as chaves cadastradas (ativas e inativas, como o índice único), usado para
+// dispensar a consulta de existência quando a resposta é "ausente". Reconstruído periodicamente para
+// acompanhar o crescimento da base e descartar bits de inclusões que foram desfeitas
+@Component
+@Profile("!log")
+public class FiltroChavesPix {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroChavesPix.class);
+
+    private final RepositorioChavePix repositorioChavePix;
+    private final FragmentacaoChavesPix fragmentacao;
+    private final TransactionTemplate transacaoLeitura;
+    private final long capacidade;
+    private final double taxaFalsosPositivos;
+
+    // Nulo enquanto não houver filtro carregado: toda consulta responde "talvez presente"
+    private volatile FiltroBloom filtro;
+    // Filtro em reconstrução, que também recebe as inclusões feitas durante a carga
+    private volatile FiltroBloom filtroEmConstrucao;
+
+    private final Counter consultasAusente;
+    private final Counter consultasTalvez;
+    private final Counter falsosPositivos;
+
+    @Autowired
+    public FiltroChavesPix(RepositorioChavePix repositorioChavePix, FragmentacaoChavesPix fragmentacao,
+            PlatformTransactionManager gerenciadorTransacoes, MeterRegistry registro,
+            @Value("${case-pix.filtro-chaves.capacidade:1000000}") long capacidade,
+            @Value("${case-pix.filtro-chaves.taxa-falsos-positivos:0.01}") double taxaFalsosPositivos) {
+        this.repositorioChavePix = repositorioChavePix;
+        this.fragmentacao = fragmentacao;
+        this.transacaoLeitura = new TransactionTemplate(gerenciadorTransacoes);
+        this.transacaoLeitura.setReadOnly(true);
+        this.capacidade = capacidade;
+        this.taxaFalsosPositivos = taxaFalsosPositivos;
+
+        this.consultasAusente = Counter.builder("chaves.pix.filtro.consultas").tag("resultado", "ausente")
+                .description("Consultas ao filtro de chaves, por resultado (ausente dispensa o banco)").register(registro);
+        this.consultasTalvez = Counter.builder("chaves.pix.filtro.consultas").tag("resultado", "talvez")
+                .description("Consultas ao filtro de chaves, por resultado (ausente dispensa o banco)").register(registro);
+        this.falsosPositivos = Counter.builder("chaves.pix.filtro.falsos.positivos")
+                .description("Chaves indicadas pelo filtro que não existiam no banco").register(registro);
+        Gauge.builder("chaves.pix.filtro.taxa.falsos.positivos.estimada", this,
+                f -> f.filtro == null ? 1.0 : f.filtro.taxaFalsosPositivosEstimada())
+                .description("Probabilidade de falso positivo pela ocupação atual do filtro").register(registro);
+        Gauge.builder("chaves.pix.filtro.taxa.falsos.positivos.observada", this, FiltroChavesPix::taxaObservada)
+                .description("Falsos positivos / (falsos positivos + ausentes) desde o início").register(registro);
+        Gauge.builder("chaves.pix.filtro.elementos", this, f -> f.filtro == null ? 0 : f.filtro.elementos())
+                .register(registro);
+    }
+
+    @PostConstruct
+    public void carregar() {
+        reconstruir();
+    }
+
+    @Scheduled(fixedDelayString = "${case-pix.filtro-chaves.intervalo-reconstrucao:PT1H}",
+            initialDelayString = "${case-pix.filtro-chaves.intervalo-reconstrucao:PT1H}")
+    public void reconstruir() {
+        try {
+            // Com folga para a base atual caso ela já tenha passado da capacidade configurada
+            long quantidadeChaves = fragmentacao.emTodos(shard -> repositorioChavePix.count()).stream()
+                    .mapToLong(Long::longValue).sum();
+            long capacidadeNecessaria = Math.max(capacidade, 2 * quantidadeChaves);
+            FiltroBloom novo = new FiltroBloom(capacidadeNecessaria, taxaFalsosPositivos);
+
+            // Publicado antes da leitura, para que nenhuma inclusão concorrente fique fora do novo filtro
+            filtroEmConstrucao = novo;
+            // Lido da primária: na réplica, chaves recém-confirmadas poderiam faltar no filtro
+            try (RoteamentoLeitura.Escopo primaria = RoteamentoLeitura.naPrimaria()) {
+                fragmentacao.paraCadaShard(shard -> transacaoLeitura.executeWithoutResult(status -> {
+                    try (Stream<Object[]> chaves = repositorioChavePix.streamTiposEValores()) {
+                        chaves.forEach(chave -> novo.adicionar((String) chave[0], (String) chave[1]));
+                    }
+                }));
+            }
+            filtro = novo;
+            log.info("Filtro de chaves PIX carregado: {} chaves, {} bits, {} hashes", novo.elementos(),
+                    novo.quantidadeBits(), novo.quantidadeHashes());
+        } catch (RuntimeException e) {
+            // Mantém o filtro anterior; sem filtro, todas as verificações vão ao banco
+            log.warn("Falha ao reconstruir o filtro de chaves PIX", e);
+        } finally {
+            filtroEmConstrucao = null;
+        }
+    }
+
+    public boolean talvezContenha(String tipoChave, String valorChave) {
+        FiltroBloom atual = filtro;
+        if (atual != null && !atual.talvezContenha(tipoChave, valorChave)) {
+            consultasAusente.increment();
+            return false;
+        }
+        consultasTalvez.increment();
+        return true;
+    }
+
+    // Chamado após a confirmação no banco das chaves indicadas como "talvez presentes"
+    public void registrarConfirmacao(int consultadas, int encontradas) {
+        if (consultadas > encontradas) {
+            falsosPositivos.increment(consultadas - encontradas);
+        }
+    }
+
+    // Registrada já dentro da transação, antes que a chave fique visível para outras transações
+    @EventListener
+    public void aoIncluirChave(EventoChavePix evento) {
+        registrar(evento);
+    }
+
+    // Repetida após o commit para cobrir uma reconstrução iniciada entre a inclusão e o commit
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoConfirmarInclusao(EventoChavePix evento) {
+        registrar(evento);
+    }
+
+    private void registrar(EventoChavePix evento) {
+        if (evento.getOperacao() != EventoChavePix.Operacao.INCLUSAO) {
+            return;
+        }
+        String tipoChave = evento.getChavePix().getTipoChave();
+        String valorChave = evento.getChavePix().getValorChave();
+        FiltroBloom atual = filtro;
+        if (atual != null) {
+            atual.adicionar(tipoChave, valorChave);
+        }
+        FiltroBloom emConstrucao = filtroEmConstrucao;
+        if (emConstrucao != null) {
+            emConstrucao.adicionar(tipoChave, valorChave);
+        }
+    }
+
+    private double taxaObservada() {
+        double falsos = falsosPositivos.count();
+        double total = falsos + consultasAusente.count();
+        return total == 0 ? 0.0 : falsos / total;
+    }
+}
@@ -0,0 +1,266 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Formato da exportação binária da base de chaves (versão 1):
+//   cabeçalho: "CPXB" e a versão (1 byte)
+//   registro:  marcador (1 byte: tipo de chave nos bits 0-2, tipo de pessoa no bit 3, tipo de conta no bit 4,
+//              inativa no bit 5, sobrenome presente no bit 6), id (16 bytes), valor, agência e conta (varint),
+//              inclusão (varint zigzag, em microssegundos desde a inclusão do registro anterior), inativação
+//              (varint, em microssegundos depois da inclusão), nome e sobrenome
+//   rodapé:    marcador 0xFF, quantidade de registros (varint) e CRC32 de tudo o que vem antes (4 bytes)
+// Textos são varint com o tamanho seguido dos bytes UTF-8. Os tipos usam os dicionários fixos da versão
+final class FormatoBinarioChavesPix {
+
+    private static final byte[] ASSINATURA = { 'C', 'P', 'X', 'B' };
+    private static final int VERSAO = 1;
+    private static final int FIM = 0xFF;
+
+    private static final List<String> TIPOS_CHAVE = List.of("celular", "email", "cpf", "cnpj", "aleatoria");
+    private static final List<String> TIPOS_PESSOA = List.of("fisica", "juridica");
+    private static final List<String> TIPOS_CONTA = List.of("corrente", "poupanca");
+
+    private static final int BIT_TIPO_PESSOA = 3;
+    private static final int BIT_TIPO_CONTA = 4;
+    private static final int BIT_INATIVA = 5;
+    private static final int BIT_SOBRENOME = 6;
+
+    private FormatoBinarioChavesPix() {
+    }
+
+    static class Escritor implements AutoCloseable {
+
+        private final CheckedOutputStream saida;
+        private long quantidade;
+        private long inclusaoAnterior;
+
+        Escritor(OutputStream destino) throws IOException {
+            this.saida = new CheckedOutputStream(new BufferedOutputStream(destino), new CRC32());
+            saida.write(ASSINATURA);
+            saida.write(VERSAO);
+        }
+
+        void escrever(RespostaConsultaChavePixDTO chave) throws IOException {
+            boolean inativa = chave.getDataHoraInativacaoChave() != null;
+            boolean comSobrenome = chave.getSobrenomeCorrentista() != null;
+            saida.write(indice(TIPOS_CHAVE, chave.getTipoChave())
+                    | indice(TIPOS_PESSOA, chave.getTipoPessoa()) << BIT_TIPO_PESSOA
+                    | indice(TIPOS_CONTA, chave.getTipoConta()) << BIT_TIPO_CONTA
+                    | (inativa ? 1 << BIT_INATIVA : 0)
+                    | (comSobrenome ? 1 << BIT_SOBRENOME : 0));
+
+            escreverLong(chave.getId().getMostSignificantBits());
+            escreverLong(chave.getId().getLeastSignificantBits());
+            escreverTexto(chave.getValorChave());
+            escreverVarint(chave.getNumeroAgencia());
+            escreverVarint(chave.getNumeroConta());
+
+            // A exportação segue a ordem de inclusão, então a diferença costuma caber em poucos bytes
+            long inclusao = micros(chave.getDataHoraInclusaoChave());
+            escreverVarint(zigzag(inclusao - inclusaoAnterior));
+            inclusaoAnterior = inclusao;
+            if (inativa) {
+                escreverVarint(micros(chave.getDataHoraInativacaoChave()) - inclusao);
+            }
+
+            escreverTexto(chave.getNomeCorrentista());
+            if (comSobrenome) {
+                escreverTexto(chave.getSobrenomeCorrentista());
+            }
+            quantidade++;
+        }
+
+        // Fecha com o rodapé; sem ele a importação recusa o arquivo como incompleto
+        @Override
+        public void close() throws IOException {
+            saida.write(FIM);
+            escreverVarint(quantidade);
+            int crc = (int) saida.getChecksum().getValue();
+            for (int deslocamento = 24; deslocamento >= 0; deslocamento -= 8) {
+                saida.write(crc >>> deslocamento);
+            }
+            saida.flush();
+        }
+
+        private void escreverLong(long valor) throws IOException {
+            for (int deslocamento = 56; deslocamento >= 0; deslocamento -= 8) {
+                saida.write((int) (valor >>> deslocamento));
+            }
+        }
+
+        private void escreverVarint(long valor) throws IOException {
+            while ((valor & ~0x7FL) != 0) {
+                saida.write((int) (valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            saida.write((int) valor);
+        }
+
+        private void escreverTexto(String texto) throws IOException {
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            escreverVarint(bytes.length);
+            saida.write(bytes);
+        }
+
+        private static int indice(List<String> dicionario, String valor) {
+            int indice = dicionario.indexOf(valor);
+            if (indice < 0) {
+                throw new IllegalStateException("Valor fora do dicionário da exportação: " + valor);
+            }
+            return indice;
+        }
+    }
+
+    static class Leitor {
+
+        // Limite dos textos: bem acima dos tamanhos válidos, só para não alocar a partir de bytes corrompidos
+        private static final int TAMANHO_MAXIMO_TEXTO = 4096;
+
+        private final CheckedInputStream entrada;
+        private long quantidade;
+        private long inclusaoAnterior;
+        private boolean concluido;
+
+        Leitor(InputStream origem) throws IOException {
+            this.entrada = new CheckedInputStream(new BufferedInputStream(origem), new CRC32());
+            for (byte esperado : ASSINATURA) {
+                if (ler() != esperado) {
+                    throw new ArquivoInvalidoException("Arquivo não é uma exportação de chaves PIX");
+                }
+            }
+            int versao = ler();
+            if (versao != VERSAO) {
+                throw new ArquivoInvalidoException("Versão de exportação não suportada: " + versao);
+            }
+        }
+
+        // Próxima chave do arquivo, ou null depois do rodapé (quantidade e CRC conferidos)
+        EntidadeChavePix proxima() throws IOException {
+            if (concluido) {
+                return null;
+            }
+            int marcador = ler();
+            if (marcador == FIM) {
+                concluir();
+                return null;
+            }
+            if ((marcador & 0x80) != 0 || (marcador & 0x07) >= TIPOS_CHAVE.size()) {
+                throw new ArquivoInvalidoException("Registro inválido na posição " + quantidade);
+            }
+
+            UUID id = new UUID(lerLong(), lerLong());
+            String valor = lerTexto();
+            int agencia = (int) lerVarint();
+            int conta = (int) lerVarint();
+            long inclusao = inclusaoAnterior + desfazerZigzag(lerVarint());
+            inclusaoAnterior = inclusao;
+            LocalDateTime dataHoraInativacao = (marcador & 1 << BIT_INATIVA) != 0
+                    ? dataHora(inclusao + lerVarint()) : null;
+            String nome = lerTexto();
+            String sobrenome = (marcador & 1 << BIT_SOBRENOME) != 0 ? lerTexto() : null;
+
+            EntidadeChavePix chave = new EntidadeChavePix(id, TIPOS_CHAVE.get(marcador & 0x07), valor,
+                    TIPOS_PESSOA.get(marcador >> BIT_TIPO_PESSOA & 1), TIPOS_CONTA.get(marcador >> BIT_TIPO_CONTA & 1),
+                    agencia, conta, nome, sobrenome);
+            chave.setDataHoraInclusaoChave(dataHora(inclusao));
+            chave.setDataHoraInativacaoChave(dataHoraInativacao);
+            quantidade++;
+            return chave;
+        }
+
+        private void concluir() throws IOException {
+            long declarada = lerVarint();
+            int calculado = (int) entrada.getChecksum().getValue();
+            int gravado = 0;
+            for (int i = 0; i < 4; i++) {
+                gravado = gravado << 8 | ler();
+            }
+            if (declarada != quantidade || gravado != calculado) {
+                throw new ArquivoInvalidoException("Exportação corrompida: quantidade ou CRC não conferem");
+            }
+            concluido = true;
+        }
+
+        private int ler() throws IOException {
+            int valor = entrada.read();
+            if (valor < 0) {
+                throw new ArquivoInvalidoException("Exportação incompleta: fim do arquivo antes do rodapé");
+            }
+            return valor;
+        }
+
+        private long lerLong() throws IOException {
+            long valor = 0;
+            for (int i = 0; i < 8; i++) {
+                valor = valor << 8 | ler();
+            }
+            return valor;
+        }
+
+        private long lerVarint() throws IOException {
+            long valor = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                int parte = ler();
+                valor |= (long) (parte & 0x7F) << deslocamento;
+                if ((parte & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new ArquivoInvalidoException("Varint inválido na posição " + quantidade);
+        }
+
+        private String lerTexto() throws IOException {
+            long tamanho = lerVarint();
+            if (tamanho > TAMANHO_MAXIMO_TEXTO) {
+                throw new ArquivoInvalidoException("Texto inválido na posição " + quantidade);
+            }
+            byte[] bytes = entrada.readNBytes((int) tamanho);
+            if (bytes.length < tamanho) {
+                throw new ArquivoInvalidoException("Exportação incompleta: fim do arquivo antes do rodapé");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Conteúdo que não segue o formato (ao contrário de uma falha de leitura do arquivo)
+    static class ArquivoInvalidoException extends IOException {
+
+        ArquivoInvalidoException(String mensagem) {
+            super(mensagem);
+        }
+    }
+
+    // Precisão das colunas de data (microssegundos), em UTC como o snapshot do armazenamento em log
+    private static long micros(LocalDateTime dataHora) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, dataHora.toInstant(ZoneOffset.UTC));
+    }
+
+    private static LocalDateTime dataHora(long micros) {
+        return LocalDateTime.ofInstant(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long valor) {
+        return valor << 1 ^ valor >> 63;
+    }
+
+    private static long desfazerZigzag(long valor) {
+        return valor >>> 1 ^ -(valor & 1);
+    }
+}
@@ -0,0 +1,97 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.configuracao.RoteamentoShard;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Distribuição das chaves entre os shards pelo hash da agência: todas as chaves de uma conta ficam no mesmo
+// shard, junto com o contador de chaves da conta. Sem case-pix.shards.urls há um único shard e tudo roda
+// direto na thread chamadora
+@Component
+public class FragmentacaoChavesPix {
+
+    private final int quantidadeShards;
+    private final ExecutorService executor;
+
+    public FragmentacaoChavesPix(@Value("${case-pix.shards.urls:}") List<String> urls) {
+        this.quantidadeShards = Math.max(1, urls.size());
+        this.executor = quantidadeShards == 1 ? null
+                : Executors.newCachedThreadPool(ThreadsChavePix.daemon("consulta-shards-"));
+    }
+
+    public int quantidadeShards() {
+        return quantidadeShards;
+    }
+
+    // Mistura os bits antes do módulo: agências próximas não devem cair sempre em shards vizinhos
+    public int shardDaAgencia(Integer numeroAgencia) {
+        if (quantidadeShards == 1 || numeroAgencia == null) {
+            return 0;
+        }
+        int hash = numeroAgencia * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), quantidadeShards);
+    }
+
+    // Transações abertas dentro da operação usam o banco do shard
+    public <T> T noShard(int shard, Supplier<T> operacao) {
+        try (RoteamentoShard.Escopo escopo = RoteamentoShard.no(shard)) {
+            return operacao.get();
+        }
+    }
+
+    // Um shard de cada vez, na thread chamadora (cargas e tarefas periódicas)
+    public void paraCadaShard(IntConsumer operacao) {
+        for (int shard = 0; shard < quantidadeShards; shard++) {
+            try (RoteamentoShard.Escopo escopo = RoteamentoShard.no(shard)) {
+                operacao.accept(shard);
+            }
+        }
+    }
+
+    // Todos os shards em paralelo; devolve os resultados na ordem dos shards
+    public <T> List<T> emTodos(IntFunction<T> operacao) {
+        if (quantidadeShards == 1) {
+            return List.of(operacao.apply(0));
+        }
+        List<Future<T>> tarefas = new ArrayList<>(quantidadeShards);
+        for (int shard = 0; shard < quantidadeShards; shard++) {
+            int atual = shard;
+            tarefas.add(executor.submit(() -> noShard(atual, () -> operacao.apply(atual))));
+        }
+        List<T> resultados = new ArrayList<>(quantidadeShards);
+        try {
+            for (Future<T> tarefa : tarefas) {
+                resultados.add(tarefa.get());
+            }
+        } catch (InterruptedException e) {
+            tarefas.forEach(tarefa -> tarefa.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta aos shards interrompida", e);
+        } catch (ExecutionException e) {
+            tarefas.forEach(tarefa -> tarefa.cancel(true));
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Falha na consulta aos shards", e.getCause());
+        }
+        return resultados;
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.itau.case_pix.servico;
+
+import java.util.UUID;
+
+// Gera o id (RAW(16)) das chaves incluídas sem id informado. Implementação escolhida por case-pix.id.versao
+public interface GeradorIdChavePix {
+
+    UUID gerar();
+}
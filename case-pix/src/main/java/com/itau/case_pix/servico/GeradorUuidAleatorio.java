@@ -0,0 +1,12 @@
+package com.itau.case_pix.servico;
+
+import java.util.UUID;
+
+// UUID versão 4 (SecureRandom): ids espalhados por toda a chave primária
+public class GeradorUuidAleatorio implements GeradorIdChavePix {
+
+    @Override
+    public UUID gerar() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,52 @@
+package com.itau.case_pix.servico;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// UUID versão 7 (RFC 9562): 48 bits de milissegundos Unix, versão, 12 bits de contador (rand_a), variante
+// e 62 bits aleatórios. Os bytes mais significativos crescem com o tempo, então as inclusões vão para o fim
+// da chave primária em vez de páginas aleatórias do índice
+public class GeradorUuidV7 implements GeradorIdChavePix {
+
+    private static final int BITS_CONTADOR = 12;
+    private static final long VERSAO = 7L << 12;
+    private static final long VARIANTE = 0x8000000000000000L;
+    private static final long MASCARA_ALEATORIA = 0x3FFFFFFFFFFFFFFFL;
+
+    private final Clock relogio;
+    // Último (milissegundo << 12 | contador) emitido; avança sem bloqueio por compareAndSet
+    private final AtomicLong ultimo = new AtomicLong();
+
+    public GeradorUuidV7() {
+        this(Clock.systemUTC());
+    }
+
+    GeradorUuidV7(Clock relogio) {
+        this.relogio = relogio;
+    }
+
+    @Override
+    public UUID gerar() {
+        long instante = proximoInstante();
+        long maisSignificativos = (instante >>> BITS_CONTADOR) << 16 | VERSAO
+                | (instante & ((1L << BITS_CONTADOR) - 1));
+        // ThreadLocalRandom em vez de SecureRandom: sem disputa entre threads. O id não é segredo
+        long menosSignificativos = VARIANTE | (ThreadLocalRandom.current().nextLong() & MASCARA_ALEATORIA);
+        return new UUID(maisSignificativos, menosSignificativos);
+    }
+
+    // Novo milissegundo reinicia o contador; no mesmo milissegundo (ou com o relógio voltando) o contador
+    // avança, e ao estourar os 12 bits passa para o milissegundo seguinte. Os ids nunca decrescem
+    private long proximoInstante() {
+        long agora = relogio.millis() << BITS_CONTADOR;
+        while (true) {
+            long anterior = ultimo.get();
+            long proximo = agora > anterior ? agora : anterior + 1;
+            if (ultimo.compareAndSet(anterior, proximo)) {
+                return proximo;
+            }
+        }
+    }
+}
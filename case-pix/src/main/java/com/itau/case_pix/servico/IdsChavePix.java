@@ -0,0 +1,22 @@
+package com.itau.case_pix.servico;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+// Conversão do id da chave para a coluna RAW(16) nas consultas JDBC, na mesma representação gravada pelo
+// Hibernate (16 bytes, big-endian)
+final class IdsChavePix {
+
+    private IdsChavePix() {
+    }
+
+    static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID uuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
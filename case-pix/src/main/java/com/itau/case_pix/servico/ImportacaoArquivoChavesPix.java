@@ -0,0 +1,547 @@
+package com.itau.case_pix.servico;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.DTO.StatusImportacaoChavesPixDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Jobs de importação de arquivos CSV ou NDJSON com chaves vindas de outras instituições. O arquivo é lido em
+// blocos: a conversão, normalização e validação de cada bloco roda num ForkJoinPool enquanto o bloco anterior é
+// gravado; repetições no arquivo e o limite por conta são resolvidos em memória no bloco, e as chaves aceitas
+// vão para a inclusão em lote do serviço em lotes paralelos, cada conta inteira num único lote. Depois de cada
+// bloco o checkpoint do job é gravado, e um job interrompido (queda ou encerramento) continua dali na subida
+@Component
+public class ImportacaoArquivoChavesPix {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacaoArquivoChavesPix.class);
+
+    private static final List<String> COLUNAS_OBRIGATORIAS = List.of("tipoChave", "valorChave", "tipoPessoa",
+            "tipoConta", "numeroAgencia", "numeroConta", "nomeCorrentista");
+    private static final String CABECALHO_RECUSAS = "linha;motivo;conteudo\n";
+
+    private final ServicoChavePix servicoChavePix;
+    private final ValidadorValorChavePix validadorValorChavePix;
+    private final ObjectMapper objectMapper;
+    private final Path diretorio;
+    private final int tamanhoBloco;
+    private final int tamanhoLote;
+    private final ForkJoinPool validacao;
+    private final ExecutorService escrita;
+    private final ExecutorService execucao;
+    private final Map<UUID, JobImportacaoChavesPix> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImportacaoArquivoChavesPix(ServicoChavePix servicoChavePix, ValidadorValorChavePix validadorValorChavePix,
+            ObjectMapper objectMapper,
+            @Value("${case-pix.importacao.arquivo.diretorio:importacoes}") String diretorio,
+            @Value("${case-pix.importacao.arquivo.tamanho-bloco:10000}") int tamanhoBloco,
+            @Value("${case-pix.importacao.tamanho-lote:500}") int tamanhoLote,
+            @Value("${case-pix.importacao.paralelismo:4}") int paralelismo) {
+        this.servicoChavePix = servicoChavePix;
+        this.validadorValorChavePix = validadorValorChavePix;
+        this.objectMapper = objectMapper;
+        this.diretorio = Paths.get(diretorio);
+        this.tamanhoBloco = tamanhoBloco;
+        this.tamanhoLote = tamanhoLote;
+        this.validacao = new ForkJoinPool(paralelismo);
+        this.escrita = Executors.newFixedThreadPool(paralelismo, ThreadsChavePix.daemon("importacao-arquivo-escrita-"));
+        // Um job por vez; o paralelismo fica dentro do job
+        this.execucao = Executors.newSingleThreadExecutor(ThreadsChavePix.daemon("importacao-arquivo-job-"));
+    }
+
+
+    // Carrega os jobs do diretório e retoma os que estavam em andamento quando a aplicação parou
+    @EventListener(ApplicationReadyEvent.class)
+    public void retomarPendentes() throws IOException {
+        if (!Files.isDirectory(diretorio)) {
+            return;
+        }
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*.job")) {
+            for (Path arquivo : arquivos) {
+                JobImportacaoChavesPix job = JobImportacaoChavesPix.ler(arquivo);
+                jobs.put(job.getId(), job);
+                if (job.getEstado() == JobImportacaoChavesPix.Estado.EM_ANDAMENTO) {
+                    log.info("Retomando a importação {} na linha {}", job.getId(), job.getLinhasProcessadas());
+                    execucao.execute(() -> executar(job));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        // O job interrompido continua em andamento no checkpoint e é retomado na próxima subida
+        execucao.shutdownNow();
+        execucao.awaitTermination(10, TimeUnit.SECONDS);
+        escrita.shutdownNow();
+        validacao.shutdownNow();
+    }
+
+    // Grava o corpo no diretório de jobs (a retomada precisa do arquivo) e agenda o job
+    public StatusImportacaoChavesPixDTO criar(InputStream corpo, JobImportacaoChavesPix.Formato formato)
+            throws IOException {
+        Files.createDirectories(diretorio);
+        UUID id = UUID.randomUUID();
+        Path dados = JobImportacaoChavesPix.arquivoDados(diretorio, id);
+        Files.copy(corpo, dados);
+
+        String cabecalho = null;
+        long inicio = 0;
+        if (formato == JobImportacaoChavesPix.Formato.CSV) {
+            try (InputStream entrada = Files.newInputStream(dados)) {
+                LeitorLinhas leitor = new LeitorLinhas(entrada, 0);
+                cabecalho = leitor.proxima();
+                inicio = leitor.posicao;
+            }
+            Map<String, Integer> colunas = cabecalho != null ? CabecalhoCsv.de(cabecalho).colunas() : Map.of();
+            List<String> ausentes = COLUNAS_OBRIGATORIAS.stream().filter(coluna -> !colunas.containsKey(coluna))
+                    .toList();
+            if (!ausentes.isEmpty()) {
+                Files.delete(dados);
+                throw new ExcecaoChavePix(CodigoErroChavePix.ARQUIVO_INVALIDO,
+                        "Colunas obrigatórias ausentes no cabeçalho do CSV: " + String.join(", ", ausentes));
+            }
+        }
+
+        Files.writeString(JobImportacaoChavesPix.arquivoRecusas(diretorio, id), CABECALHO_RECUSAS);
+        JobImportacaoChavesPix job = new JobImportacaoChavesPix(id, formato, cabecalho, LocalDateTime.now());
+        // A leitura começa depois do cabeçalho, e as recusas depois do cabeçalho do arquivo de recusas
+        job.registrarBloco(inicio, 0, 0, 0, 0, CABECALHO_RECUSAS.length(), 0);
+        job.gravar(diretorio);
+        jobs.put(id, job);
+        execucao.execute(() -> executar(job));
+        return status(job);
+    }
+
+    public StatusImportacaoChavesPixDTO consultar(UUID id) {
+        return status(buscar(id));
+    }
+
+    // Recusas gravadas até o último bloco concluído, com linha, motivo e conteúdo original
+    public Path arquivoRecusas(UUID id) {
+        return JobImportacaoChavesPix.arquivoRecusas(diretorio, buscar(id).getId());
+    }
+
+    // Agenda de novo um job que falhou (banco fora do ar, por exemplo), a partir do último checkpoint
+    public StatusImportacaoChavesPixDTO retomar(UUID id) throws IOException {
+        JobImportacaoChavesPix job = buscar(id);
+        synchronized (job) {
+            if (job.getEstado() == JobImportacaoChavesPix.Estado.FALHOU) {
+                job.retomar();
+                job.gravar(diretorio);
+                execucao.execute(() -> executar(job));
+            }
+        }
+        return status(job);
+    }
+
+    private JobImportacaoChavesPix buscar(UUID id) {
+        JobImportacaoChavesPix job = jobs.get(id);
+        if (job == null) {
+            throw new ExcecaoChavePix(CodigoErroChavePix.IMPORTACAO_NAO_ENCONTRADA, "Importação não encontrada");
+        }
+        return job;
+    }
+
+    private void executar(JobImportacaoChavesPix job) {
+        Path dados = JobImportacaoChavesPix.arquivoDados(diretorio, job.getId());
+        Path recusas = JobImportacaoChavesPix.arquivoRecusas(diretorio, job.getId());
+        CabecalhoCsv cabecalho = job.getCabecalho() != null ? CabecalhoCsv.de(job.getCabecalho()) : null;
+        long marco = System.nanoTime();
+        try (InputStream entrada = Files.newInputStream(dados);
+                FileChannel saidaRecusas = FileChannel.open(recusas, StandardOpenOption.WRITE)) {
+            // Recusas de um bloco gravadas depois do último checkpoint seriam repetidas na retomada
+            saidaRecusas.truncate(job.getTamanhoRecusas());
+            saidaRecusas.position(job.getTamanhoRecusas());
+            entrada.skipNBytes(job.getPosicaoArquivo());
+            LeitorLinhas leitor = new LeitorLinhas(entrada, job.getPosicaoArquivo());
+
+            // Número da linha no arquivo, contando o cabeçalho do CSV
+            long linha = job.getLinhasProcessadas() + (cabecalho != null ? 2 : 1);
+            Bloco bloco = lerBloco(leitor, linha);
+            CompletableFuture<List<Item>> preparados = preparar(bloco, cabecalho);
+            while (!bloco.linhas().isEmpty()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                List<Item> itens = preparados.join();
+                linha += bloco.linhas().size();
+                Bloco proximo = lerBloco(leitor, linha);
+                preparados = preparar(proximo, cabecalho);
+
+                Contagem contagem = gravar(itens);
+                escrever(saidaRecusas, contagem.recusas);
+                saidaRecusas.force(false);
+
+                long agora = System.nanoTime();
+                job.registrarBloco(bloco.posicaoFim(), bloco.linhas().size(), contagem.importadas,
+                        contagem.jaExistentes, contagem.recusadas, saidaRecusas.position(),
+                        TimeUnit.NANOSECONDS.toMillis(agora - marco));
+                marco = agora;
+                job.gravar(diretorio);
+                bloco = proximo;
+            }
+
+            job.concluir(LocalDateTime.now());
+            job.gravar(diretorio);
+            log.info("Importação {} concluída: {} linhas ({} por segundo), {} importadas, {} já existentes, "
+                    + "{} recusadas", job.getId(), job.getLinhasProcessadas(), Math.round(job.linhasPorSegundo()),
+                    job.getImportadas(), job.getJaExistentes(), job.getRecusadas());
+        } catch (ClosedByInterruptException e) {
+            // Encerramento durante a escrita: o job fica no último checkpoint
+        } catch (IOException | RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Importação {} falhou na linha {}", job.getId(), job.getLinhasProcessadas(), causa);
+            job.falhar(String.valueOf(causa.getMessage()), LocalDateTime.now());
+            try {
+                job.gravar(diretorio);
+            } catch (IOException erroCheckpoint) {
+                log.error("Não foi possível gravar o checkpoint da importação {}", job.getId(), erroCheckpoint);
+            }
+        }
+    }
+
+    private Bloco lerBloco(LeitorLinhas leitor, long primeiraLinha) throws IOException {
+        List<Linha> linhas = new ArrayList<>(tamanhoBloco);
+        String texto;
+        while (linhas.size() < tamanhoBloco && (texto = leitor.proxima()) != null) {
+            linhas.add(new Linha(primeiraLinha + linhas.size(), texto));
+        }
+        return new Bloco(linhas, leitor.posicao);
+    }
+
+    // Etapa fork-join: cada linha é convertida, normalizada e validada de forma independente
+    private CompletableFuture<List<Item>> preparar(Bloco bloco, CabecalhoCsv cabecalho) {
+        return CompletableFuture.supplyAsync(
+                () -> bloco.linhas().parallelStream().map(linha -> preparar(linha, cabecalho)).toList(), validacao);
+    }
+
+    private Item preparar(Linha linha, CabecalhoCsv cabecalho) {
+        if (linha.texto().isBlank()) {
+            return new Item(linha, null, null);
+        }
+        // Qualquer falha ao ler ou normalizar a linha recusa só a linha, sem derrubar o job
+        try {
+            EntidadeChavePix chavePix = cabecalho != null
+                    ? cabecalho.ler(linha.texto())
+                    : objectMapper.readValue(linha.texto(), EntidadeChavePix.class);
+            // "null" é JSON válido, mas não é uma chave
+            if (chavePix == null) {
+                return new Item(linha, null, "Linha mal formada");
+            }
+            // Ids e datas de outra instituição não valem aqui: a chave é incluída como nova
+            chavePix.setId(null);
+            chavePix.setDataHoraInclusaoChave(null);
+            chavePix.setDataHoraInativacaoChave(null);
+            ServicoImplementacaoChavePix.normalizarDados(chavePix);
+            if (!ServicoImplementacaoChavePix.validarChave(chavePix, validadorValorChavePix)) {
+                return new Item(linha, null, "Dados da chave PIX inválidos");
+            }
+            return new Item(linha, chavePix, null);
+        } catch (JsonProcessingException | RuntimeException e) {
+            return new Item(linha, null, "Linha mal formada");
+        }
+    }
+
+    // Repetições no bloco e limite por conta resolvidos em memória, sem ida ao banco; o serviço confere de novo
+    // contra as chaves já gravadas. Cada conta vai inteira para um lote, então lotes paralelos não disputam o
+    // contador da mesma conta
+    private Contagem gravar(List<Item> itens) {
+        Contagem contagem = new Contagem();
+        String[] motivos = new String[itens.size()];
+        Map<String, Long> linhaPorValor = new HashMap<>();
+        Map<String, List<Integer>> porConta = new LinkedHashMap<>();
+        for (int i = 0; i < itens.size(); i++) {
+            Item item = itens.get(i);
+            if (item.chave() == null) {
+                motivos[i] = item.motivo();
+                continue;
+            }
+            EntidadeChavePix chavePix = item.chave();
+            String valor = chavePix.getTipoChave() + ':' + chavePix.getValorChave();
+            Long repetida = linhaPorValor.get(valor);
+            if (repetida != null) {
+                motivos[i] = "Chave PIX repetida no arquivo (linha " + repetida + ")";
+                continue;
+            }
+            List<Integer> daConta = porConta.computeIfAbsent(
+                    chavePix.getNumeroAgencia() + "/" + chavePix.getNumeroConta(), c -> new ArrayList<>());
+            if (!daConta.isEmpty()
+                    && !itens.get(daConta.get(0)).chave().getTipoPessoa().equals(chavePix.getTipoPessoa())) {
+                motivos[i] = "Inconsistência: Esta conta (agência/número) aparece no arquivo com tipos de pessoa diferentes";
+                continue;
+            }
+            if (daConta.size() >= ServicoImplementacaoChavePix.limiteChaves(chavePix.getTipoPessoa())) {
+                motivos[i] = "Limite de chaves PIX por conta excedido";
+                continue;
+            }
+            linhaPorValor.put(valor, item.linha().numero());
+            daConta.add(i);
+        }
+
+        List<List<Integer>> lotes = new ArrayList<>();
+        List<Integer> lote = new ArrayList<>();
+        for (List<Integer> daConta : porConta.values()) {
+            if (!lote.isEmpty() && lote.size() + daConta.size() > tamanhoLote) {
+                lotes.add(lote);
+                lote = new ArrayList<>();
+            }
+            lote.addAll(daConta);
+        }
+        if (!lote.isEmpty()) {
+            lotes.add(lote);
+        }
+
+        List<CompletableFuture<List<ResultadoInclusaoLoteDTO>>> gravacoes = new ArrayList<>(lotes.size());
+        for (List<Integer> indices : lotes) {
+            List<EntidadeChavePix> chaves = indices.stream().map(i -> itens.get(i).chave()).toList();
+            gravacoes.add(CompletableFuture.supplyAsync(
+                    () -> LotesChavePix.gravarRepetindoUmaVez(chaves, servicoChavePix::incluirChavesEmLote), escrita));
+        }
+        for (int n = 0; n < lotes.size(); n++) {
+            List<Integer> indices = lotes.get(n);
+            List<ResultadoInclusaoLoteDTO> resultados = gravacoes.get(n).join();
+            for (ResultadoInclusaoLoteDTO resultado : resultados) {
+                int i = indices.get(resultado.getIndice());
+                if (resultado.isIncluida()) {
+                    contagem.importadas++;
+                } else if (gravadaNaMesmaConta(itens.get(i).chave())) {
+                    contagem.jaExistentes++;
+                } else {
+                    motivos[i] = resultado.getMensagem();
+                }
+            }
+        }
+
+        StringBuilder recusas = new StringBuilder();
+        for (int i = 0; i < itens.size(); i++) {
+            if (motivos[i] != null) {
+                contagem.recusadas++;
+                Linha linha = itens.get(i).linha();
+                recusas.append(linha.numero()).append(';').append(campoCsv(motivos[i])).append(';')
+                        .append(campoCsv(linha.texto())).append('\n');
+            }
+        }
+        contagem.recusas = recusas.toString();
+        return contagem;
+    }
+
+    // Chave recusada que já está ativa na mesma conta: gravada por este job antes da queda (o bloco refeito na
+    // retomada) ou por uma importação anterior do mesmo arquivo; não é recusa
+    private boolean gravadaNaMesmaConta(EntidadeChavePix chavePix) {
+        return servicoChavePix.buscarPorValorChave(chavePix.getTipoChave(), chavePix.getValorChave())
+                .filter(existente -> existente.getDataHoraInativacaoChave() == null)
+                .filter(existente -> existente.getNumeroAgencia().equals(chavePix.getNumeroAgencia())
+                        && existente.getNumeroConta().equals(chavePix.getNumeroConta()))
+                .isPresent();
+    }
+
+    private static void escrever(FileChannel canal, String texto) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private StatusImportacaoChavesPixDTO status(JobImportacaoChavesPix job) {
+        StatusImportacaoChavesPixDTO status = new StatusImportacaoChavesPixDTO();
+        synchronized (job) {
+            status.setId(job.getId());
+            status.setFormato(job.getFormato().name());
+            status.setEstado(job.getEstado().name());
+            status.setLinhasProcessadas(job.getLinhasProcessadas());
+            status.setImportadas(job.getImportadas());
+            status.setJaExistentes(job.getJaExistentes());
+            status.setRecusadas(job.getRecusadas());
+            status.setLinhasPorSegundo(Math.round(job.linhasPorSegundo() * 10) / 10.0);
+            status.setDataHoraCriacao(job.getDataHoraCriacao());
+            status.setDataHoraConclusao(job.getDataHoraConclusao());
+            status.setMensagemErro(job.getMensagemErro());
+        }
+        return status;
+    }
+
+    // Separador ';' ou ',' conforme o cabeçalho, colunas em qualquer ordem
+    private record CabecalhoCsv(Map<String, Integer> colunas, char separador) {
+
+        private static CabecalhoCsv de(String cabecalho) {
+            char separador = cabecalho.indexOf(';') >= 0 ? ';' : ',';
+            List<String> nomes = campos(cabecalho, separador);
+            Map<String, Integer> colunas = new HashMap<>();
+            for (int i = 0; i < nomes.size(); i++) {
+                colunas.put(nomes.get(i).trim(), i);
+            }
+            return new CabecalhoCsv(colunas, separador);
+        }
+
+        private EntidadeChavePix ler(String linha) {
+            List<String> campos = campos(linha, separador);
+            if (campos.size() != colunas.size()) {
+                throw new IllegalArgumentException("Quantidade de colunas diferente do cabeçalho");
+            }
+            EntidadeChavePix chavePix = new EntidadeChavePix();
+            chavePix.setTipoChave(campo(campos, "tipoChave"));
+            chavePix.setValorChave(campo(campos, "valorChave"));
+            chavePix.setTipoPessoa(campo(campos, "tipoPessoa"));
+            chavePix.setTipoConta(campo(campos, "tipoConta"));
+            String agencia = campo(campos, "numeroAgencia");
+            chavePix.setNumeroAgencia(agencia != null ? Integer.valueOf(agencia) : null);
+            String conta = campo(campos, "numeroConta");
+            chavePix.setNumeroConta(conta != null ? Integer.valueOf(conta) : null);
+            chavePix.setNomeCorrentista(campo(campos, "nomeCorrentista"));
+            chavePix.setSobrenomeCorrentista(campo(campos, "sobrenomeCorrentista"));
+            return chavePix;
+        }
+
+        private String campo(List<String> campos, String nome) {
+            Integer indice = colunas.get(nome);
+            if (indice == null) {
+                return null;
+            }
+            String valor = campos.get(indice).trim();
+            return valor.isEmpty() ? null : valor;
+        }
+    }
+
+    // Campos entre aspas podem conter o separador; aspas duplicadas viram uma aspa. Um registro por linha
+    private static List<String> campos(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    atual.append(c);
+                } else if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    private static String campoCsv(String valor) {
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private record Linha(long numero, String texto) {
+    }
+
+    private record Bloco(List<Linha> linhas, long posicaoFim) {
+    }
+
+    // Chave pronta para gravar, ou o motivo da recusa; os dois nulos numa linha em branco, que é ignorada
+    private record Item(Linha linha, EntidadeChavePix chave, String motivo) {
+    }
+
+    private static class Contagem {
+        private long importadas;
+        private long jaExistentes;
+        private long recusadas;
+        private String recusas;
+    }
+
+    // Linhas em UTF-8 com a posição em bytes do fim da última linha lida, que vai para o checkpoint
+    private static class LeitorLinhas {
+
+        private final InputStream entrada;
+        private final byte[] buffer = new byte[64 * 1024];
+        private final ByteArrayOutputStream linha = new ByteArrayOutputStream();
+        private int inicio;
+        private int fim;
+        private long posicao;
+
+        private LeitorLinhas(InputStream entrada, long posicao) {
+            this.entrada = entrada;
+            this.posicao = posicao;
+        }
+
+        // Sem o '\n' (e o '\r' do CSV gerado no Windows); nulo no fim do arquivo
+        private String proxima() throws IOException {
+            boolean primeira = posicao == 0;
+            linha.reset();
+            while (true) {
+                if (inicio == fim) {
+                    int lidos = entrada.read(buffer);
+                    inicio = 0;
+                    fim = Math.max(lidos, 0);
+                    if (lidos <= 0) {
+                        return linha.size() == 0 ? null : texto(primeira);
+                    }
+                }
+                for (int i = inicio; i < fim; i++) {
+                    if (buffer[i] == '\n') {
+                        linha.write(buffer, inicio, i - inicio);
+                        posicao += i - inicio + 1;
+                        inicio = i + 1;
+                        return texto(primeira);
+                    }
+                }
+                linha.write(buffer, inicio, fim - inicio);
+                posicao += fim - inicio;
+                inicio = fim;
+            }
+        }
+
+        private String texto(boolean primeira) {
+            String texto = linha.toString(StandardCharsets.UTF_8);
+            if (primeira && texto.startsWith("\uFEFF")) {
+                texto = texto.substring(1);
+            }
+            return texto.endsWith("\r") ? texto.substring(0, texto.length() - 1) : texto;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.configuracao.FontesDadosShards;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+// Índice global de unicidade com a base dividida em shards (tabela indice_global_chave_pix no shard 0):
+// (tipoChave, valorChave) -> id e shard da chave. A inclusão reserva o valor antes de gravar no shard e
+// confirma depois; uma reserva sem confirmação é desfeita pela própria inclusão que falhou ou, se a aplicação
+// parou no meio, pela limpeza periódica. Também resolve o shard das operações que chegam só com o id
+@Component
+@ConditionalOnProperty("case-pix.shards.urls")
+@DependsOn("entityManagerFactory") // as migrações precisam ter rodado antes do preenchimento inicial
+public class IndiceGlobalChavesPix {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceGlobalChavesPix.class);
+
+    private static final int TAMANHO_MAXIMO_IN = 500;
+    private static final int TAMANHO_LOTE_PREENCHIMENTO = 500;
+
+    private static final String RESERVAR = "INSERT INTO indice_global_chave_pix "
+            + "(tipo_chave, valor_chave, id, shard, confirmada, data_hora_reserva) VALUES (?, ?, ?, ?, 0, ?)";
+    private static final String CONFIRMAR = "UPDATE indice_global_chave_pix SET confirmada = 1 "
+            + "WHERE tipo_chave = ? AND valor_chave = ? AND id = ?";
+    private static final String LIBERAR = "DELETE FROM indice_global_chave_pix "
+            + "WHERE tipo_chave = ? AND valor_chave = ? AND id = ? AND confirmada = 0";
+    private static final String MOVER = "UPDATE indice_global_chave_pix SET shard = ? WHERE id = ?";
+    private static final String SHARD_DO_ID = "SELECT shard FROM indice_global_chave_pix WHERE id = ?";
+    private static final String SHARDS_DOS_IDS = "SELECT id, shard FROM indice_global_chave_pix WHERE id IN ";
+    private static final String RESERVAS_ANTIGAS = "SELECT tipo_chave, valor_chave, id, shard "
+            + "FROM indice_global_chave_pix WHERE confirmada = 0 AND data_hora_reserva < ?";
+    private static final String EXISTE_NO_SHARD = "SELECT COUNT(*) FROM pix_itau_db WHERE id = ?";
+    private static final String INCLUIR_CONFIRMADA = "INSERT INTO indice_global_chave_pix "
+            + "(tipo_chave, valor_chave, id, shard, confirmada, data_hora_reserva) VALUES (?, ?, ?, ?, 1, ?)";
+    private static final String CONTAR_CONFIRMADAS = "SELECT COUNT(*) FROM indice_global_chave_pix WHERE confirmada = 1";
+    private static final String CONTAR_CHAVES = "SELECT COUNT(*) FROM pix_itau_db";
+    private static final String CHAVES_DO_SHARD = "SELECT id, tipo_chave, valor_chave FROM pix_itau_db "
+            + "WHERE id > ? ORDER BY id FETCH FIRST " + TAMANHO_LOTE_PREENCHIMENTO + " ROWS ONLY";
+
+    private final JdbcTemplate jdbcShard0;
+    private final TransactionTemplate transacaoShard0;
+    // Roteado pelo shard da thread, para conferir as reservas antigas no shard de cada chave
+    private final JdbcTemplate jdbcTemplate;
+    private final FragmentacaoChavesPix fragmentacao;
+    private final Duration idadeMinimaLimpeza;
+
+    @Autowired
+    public IndiceGlobalChavesPix(FontesDadosShards shards, JdbcTemplate jdbcTemplate,
+            FragmentacaoChavesPix fragmentacao,
+            @Value("${case-pix.shards.idade-minima-reserva:PT1M}") Duration idadeMinimaLimpeza) {
+        // Fora das transações JPA, que podem estar em qualquer shard
+        this.jdbcShard0 = new JdbcTemplate(shards.shard(0));
+        this.transacaoShard0 = new TransactionTemplate(new DataSourceTransactionManager(shards.shard(0)));
+        this.jdbcTemplate = jdbcTemplate;
+        this.fragmentacao = fragmentacao;
+        this.idadeMinimaLimpeza = idadeMinimaLimpeza;
+    }
+
+    // Chaves gravadas antes da divisão em shards (ou antes da migração V6) não estão no índice. Com tantas linhas
+    // confirmadas quanto chaves nos shards não há o que preencher e a varredura é pulada
+    @PostConstruct
+    public void preencherAusentes() {
+        long chaves = fragmentacao.emTodos(shard -> jdbcTemplate.queryForObject(CONTAR_CHAVES, Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+        Long confirmadas = jdbcShard0.queryForObject(CONTAR_CONFIRMADAS, Long.class);
+        if (confirmadas != null && confirmadas == chaves) {
+            return;
+        }
+        fragmentacao.paraCadaShard(this::preencherAusentes);
+    }
+
+    private void preencherAusentes(int shard) {
+        byte[] ultimo = new byte[16];
+        int incluidas = 0;
+        while (true) {
+            byte[] apos = ultimo;
+            List<Object[]> chaves = jdbcTemplate.query(CHAVES_DO_SHARD,
+                    (rs, linha) -> new Object[] { rs.getBytes(1), rs.getString(2), rs.getString(3) }, (Object) apos);
+            if (chaves.isEmpty()) {
+                break;
+            }
+            Map<UUID, Integer> indexadas = shardsDosIds(
+                    chaves.stream().map(chave -> IdsChavePix.uuid((byte[]) chave[0])).toList());
+            Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+            for (Object[] chave : chaves) {
+                if (indexadas.containsKey(IdsChavePix.uuid((byte[]) chave[0]))) {
+                    continue;
+                }
+                try {
+                    jdbcShard0.update(INCLUIR_CONFIRMADA, chave[1], chave[2], chave[0], shard, agora);
+                    incluidas++;
+                } catch (DuplicateKeyException e) {
+                    log.warn("Chave PIX {} {} do shard {} já está no índice global com outro id", chave[1],
+                            chave[2], shard);
+                }
+            }
+            ultimo = (byte[]) chaves.get(chaves.size() - 1)[0];
+        }
+        if (incluidas > 0) {
+            log.info("Índice global preenchido com {} chaves PIX do shard {}", incluidas, shard);
+        }
+    }
+
+    // Falso quando o valor já pertence a outra chave (ou está reservado por outra inclusão em andamento)
+    public boolean reservar(EntidadeChavePix chave, int shard) {
+        try {
+            jdbcShard0.update(RESERVAR, linhaReserva(chave, shard, LocalDateTime.now()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    // Um batch para o lote inteiro; com algum valor repetido o batch é desfeito e as reservas são feitas uma a
+    // uma. Devolve as posições de chaves que não puderam ser reservadas
+    public Set<Integer> reservar(List<EntidadeChavePix> chaves, List<Integer> shards) {
+        LocalDateTime agora = LocalDateTime.now();
+        List<Object[]> linhas = new ArrayList<>(chaves.size());
+        for (int i = 0; i < chaves.size(); i++) {
+            linhas.add(linhaReserva(chaves.get(i), shards.get(i), agora));
+        }
+        try {
+            transacaoShard0.executeWithoutResult(status -> jdbcShard0.batchUpdate(RESERVAR, linhas));
+            return Collections.emptySet();
+        } catch (DuplicateKeyException e) {
+            Set<Integer> recusadas = new HashSet<>();
+            for (int i = 0; i < linhas.size(); i++) {
+                try {
+                    jdbcShard0.update(RESERVAR, linhas.get(i));
+                } catch (DuplicateKeyException duplicada) {
+                    recusadas.add(i);
+                }
+            }
+            return recusadas;
+        }
+    }
+
+    public void confirmar(Collection<EntidadeChavePix> chaves) {
+        jdbcShard0.batchUpdate(CONFIRMAR, linhasChave(chaves));
+    }
+
+    // Só desfaz reservas ainda não confirmadas, e apenas as da própria chave
+    public void liberar(Collection<EntidadeChavePix> chaves) {
+        jdbcShard0.batchUpdate(LIBERAR, linhasChave(chaves));
+    }
+
+    public void mover(UUID id, int shard) {
+        jdbcShard0.update(MOVER, shard, IdsChavePix.bytes(id));
+    }
+
+    public Optional<Integer> shardDoId(UUID id) {
+        return jdbcShard0.queryForList(SHARD_DO_ID, Integer.class, (Object) IdsChavePix.bytes(id)).stream().findFirst();
+    }
+
+    // Ids ausentes do índice não entram no resultado
+    public Map<UUID, Integer> shardsDosIds(List<UUID> ids) {
+        Map<UUID, Integer> shards = new HashMap<>();
+        for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_MAXIMO_IN) {
+            List<UUID> parte = ids.subList(inicio, Math.min(inicio + TAMANHO_MAXIMO_IN, ids.size()));
+            String marcadores = String.join(", ", Collections.nCopies(parte.size(), "?"));
+            jdbcShard0.query(SHARDS_DOS_IDS + "(" + marcadores + ")",
+                    rs -> {
+                        shards.put(IdsChavePix.uuid(rs.getBytes(1)), rs.getInt(2));
+                    },
+                    parte.stream().map(IdsChavePix::bytes).toArray());
+        }
+        return shards;
+    }
+
+    // Reservas esquecidas por uma aplicação que parou entre a reserva e a confirmação: confirmadas se a chave
+    // chegou ao shard, desfeitas se não. A idade mínima fica bem acima da duração de uma inclusão
+    @Scheduled(fixedDelayString = "${case-pix.shards.intervalo-limpeza:PT5M}",
+            initialDelayString = "${case-pix.shards.intervalo-limpeza:PT5M}")
+    public void limparReservas() {
+        try {
+            List<Object[]> reservas = jdbcShard0.query(RESERVAS_ANTIGAS,
+                    (rs, linha) -> new Object[] { rs.getString(1), rs.getString(2), rs.getBytes(3), rs.getInt(4) },
+                    Timestamp.valueOf(LocalDateTime.now().minus(idadeMinimaLimpeza)));
+            for (Object[] reserva : reservas) {
+                Object[] chave = { reserva[0], reserva[1], reserva[2] };
+                Integer existentes = fragmentacao.noShard((Integer) reserva[3],
+                        () -> jdbcTemplate.queryForObject(EXISTE_NO_SHARD, Integer.class, reserva[2]));
+                jdbcShard0.update(existentes != null && existentes > 0 ? CONFIRMAR : LIBERAR, chave);
+            }
+            if (!reservas.isEmpty()) {
+                log.info("Índice global de chaves PIX: {} reservas sem confirmação resolvidas", reservas.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao limpar reservas do índice global de chaves PIX", e);
+        }
+    }
+
+    private static Object[] linhaReserva(EntidadeChavePix chave, int shard, LocalDateTime agora) {
+        return new Object[] { chave.getTipoChave(), chave.getValorChave(), IdsChavePix.bytes(chave.getId()), shard,
+                Timestamp.valueOf(agora) };
+    }
+
+    private static List<Object[]> linhasChave(Collection<EntidadeChavePix> chaves) {
+        List<Object[]> linhas = new ArrayList<>(chaves.size());
+        for (EntidadeChavePix chave : chaves) {
+            linhas.add(new Object[] { chave.getTipoChave(), chave.getValorChave(), IdsChavePix.bytes(chave.getId()) });
+        }
+        return linhas;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Índice de trigramas do nome normalizado do correntista (tabela nome_trigrama_chave_pix). Gravado via JDBC
+// na mesma transação que inclui ou altera a chave, como o contador de chaves por conta
+@Component
+@Profile("!log")
+@DependsOn("entityManagerFactory") // as migrações precisam ter rodado antes do preenchimento inicial
+public class IndiceNomeCorrentista {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceNomeCorrentista.class);
+
+    // Contagem de linhas por trigrama limitada: basta saber qual trigrama da consulta é o mais raro
+    private static final int LIMITE_ESTIMATIVA = 1000;
+    private static final int TAMANHO_LOTE_PREENCHIMENTO = 1000;
+
+    private static final String INSERIR = "INSERT INTO nome_trigrama_chave_pix (trigrama, id) VALUES (?, ?)";
+    private static final String REMOVER = "DELETE FROM nome_trigrama_chave_pix WHERE trigrama = ? AND id = ?";
+    private static final String CONTAR = "SELECT COUNT(*) FROM (SELECT 1 FROM nome_trigrama_chave_pix "
+            + "WHERE trigrama = ? FETCH FIRST " + LIMITE_ESTIMATIVA + " ROWS ONLY) t";
+    private static final String PENDENTES = "SELECT id, nome_correntista FROM pix_itau_db "
+            + "WHERE nome_normalizado IS NULL AND id > ? ORDER BY id FETCH FIRST " + TAMANHO_LOTE_PREENCHIMENTO
+            + " ROWS ONLY";
+    private static final String NORMALIZAR = "UPDATE pix_itau_db SET nome_normalizado = ? "
+            + "WHERE id = ? AND nome_normalizado IS NULL";
+
+    // Trigrama que conduz a busca e padrão LIKE que confirma cada candidata ("%" quando o trigrama basta)
+    public record Consulta(String trigrama, String padrao) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final FragmentacaoChavesPix fragmentacao;
+
+    @Autowired
+    public IndiceNomeCorrentista(JdbcTemplate jdbcTemplate, PlatformTransactionManager gerenciadorTransacoes,
+            FragmentacaoChavesPix fragmentacao) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(gerenciadorTransacoes);
+        this.fragmentacao = fragmentacao;
+    }
+
+    // Chaves gravadas antes da migração V3 ainda não têm nome normalizado nem trigramas
+    @PostConstruct
+    public void preencherPendentes() {
+        fragmentacao.paraCadaShard(this::preencherPendentes);
+    }
+
+    private void preencherPendentes(int shard) {
+        byte[] ultimo = new byte[16];
+        int total = 0;
+        while (true) {
+            byte[] apos = ultimo;
+            List<Object[]> pendentes = jdbcTemplate.query(PENDENTES,
+                    (rs, linha) -> new Object[] { rs.getBytes(1), rs.getString(2) }, (Object) apos);
+            if (pendentes.isEmpty()) {
+                break;
+            }
+            transacao.executeWithoutResult(status -> {
+                List<Object[]> linhas = new ArrayList<>();
+                for (Object[] pendente : pendentes) {
+                    String nomeNormalizado = EntidadeChavePix.normalizarNome((String) pendente[1]);
+                    if (jdbcTemplate.update(NORMALIZAR, nomeNormalizado, pendente[0]) == 1) {
+                        for (String trigrama : trigramas(nomeNormalizado)) {
+                            linhas.add(new Object[] { trigrama, pendente[0] });
+                        }
+                    }
+                }
+                jdbcTemplate.batchUpdate(INSERIR, linhas);
+            });
+            total += pendentes.size();
+            ultimo = (byte[]) pendentes.get(pendentes.size() - 1)[0];
+        }
+        if (total > 0) {
+            log.info("Índice de nomes preenchido para {} chaves PIX no shard {}", total, shard);
+        }
+    }
+
+    public void indexar(Collection<EntidadeChavePix> chaves) {
+        List<Object[]> linhas = new ArrayList<>();
+        for (EntidadeChavePix chave : chaves) {
+            byte[] id = IdsChavePix.bytes(chave.getId());
+            for (String trigrama : trigramas(chave.getNomeNormalizado())) {
+                linhas.add(new Object[] { trigrama, id });
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERIR, linhas);
+    }
+
+    // Troca só os trigramas que mudaram entre o nome anterior e o novo
+    public void reindexar(UUID id, String nomeAnterior, String nomeNovo) {
+        Set<String> anteriores = trigramas(EntidadeChavePix.normalizarNome(nomeAnterior));
+        Set<String> novos = trigramas(EntidadeChavePix.normalizarNome(nomeNovo));
+        byte[] bytesId = IdsChavePix.bytes(id);
+
+        List<Object[]> remover = new ArrayList<>();
+        for (String trigrama : anteriores) {
+            if (!novos.contains(trigrama)) {
+                remover.add(new Object[] { trigrama, bytesId });
+            }
+        }
+        List<Object[]> inserir = new ArrayList<>();
+        for (String trigrama : novos) {
+            if (!anteriores.contains(trigrama)) {
+                inserir.add(new Object[] { trigrama, bytesId });
+            }
+        }
+        jdbcTemplate.batchUpdate(REMOVER, remover);
+        jdbcTemplate.batchUpdate(INSERIR, inserir);
+    }
+
+    // Termo com três ou mais letras: nomes que o contêm, em qualquer posição. Termo de uma ou duas letras
+    // (sem trigrama completo): nomes com alguma palavra que começa com ele. Nulo quando não há o que buscar
+    public Consulta planejar(String nome) {
+        String termo = EntidadeChavePix.normalizarNome(nome);
+        if (termo == null || termo.isEmpty()) {
+            return null;
+        }
+        Set<String> trigramas = trigramasConsulta(termo);
+        if (trigramas.isEmpty()) {
+            return new Consulta((termo.length() == 1 ? "  " : " ") + termo, "%");
+        }
+        return new Consulta(maisSeletivo(trigramas), "%" + escaparLike(termo) + "%");
+    }
+
+    private String maisSeletivo(Set<String> trigramas) {
+        String escolhido = null;
+        int menor = Integer.MAX_VALUE;
+        for (String trigrama : trigramas) {
+            Integer quantidade = jdbcTemplate.queryForObject(CONTAR, Integer.class, trigrama);
+            if (quantidade != null && quantidade < menor) {
+                escolhido = trigrama;
+                menor = quantidade;
+            }
+        }
+        return escolhido;
+    }
+
+    // Cada palavra entra como "  PALAVRA ": o início da palavra gera "  P" e " PA", e o fim gera "RA "
+    static Set<String> trigramas(String nomeNormalizado) {
+        Set<String> trigramas = new LinkedHashSet<>();
+        if (nomeNormalizado == null) {
+            return trigramas;
+        }
+        for (String palavra : nomeNormalizado.split(" ")) {
+            if (!palavra.isEmpty()) {
+                adicionarTrigramas("  " + palavra + " ", trigramas);
+            }
+        }
+        return trigramas;
+    }
+
+    // O termo pode começar e terminar no meio de uma palavra do nome; só as bordas entre palavras do
+    // termo são inícios e fins de palavra conhecidos
+    static Set<String> trigramasConsulta(String termo) {
+        Set<String> trigramas = new LinkedHashSet<>();
+        String[] palavras = termo.split(" ");
+        for (int i = 0; i < palavras.length; i++) {
+            String inicio = i > 0 ? "  " : "";
+            String fim = i < palavras.length - 1 ? " " : "";
+            adicionarTrigramas(inicio + palavras[i] + fim, trigramas);
+        }
+        return trigramas;
+    }
+
+    private static void adicionarTrigramas(String texto, Set<String> trigramas) {
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            trigramas.add(texto.substring(i, i + 3));
+        }
+    }
+
+    private static String escaparLike(String termo) {
+        return termo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
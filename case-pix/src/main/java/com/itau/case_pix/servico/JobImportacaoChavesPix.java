@@ -0,0 +1,201 @@
+package com.itau.case_pix.servico;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.UUID;
+
+// Estado de um job de importação de arquivo, gravado no checkpoint <id>.job depois de cada bloco concluído.
+// O checkpoint guarda a posição em bytes no arquivo e o tamanho do arquivo de recusas naquele ponto: ao retomar,
+// a leitura continua da posição e as recusas gravadas depois dela são descartadas
+public class JobImportacaoChavesPix {
+
+    public enum Formato { CSV, NDJSON }
+
+    enum Estado { EM_ANDAMENTO, CONCLUIDA, FALHOU }
+
+    private final UUID id;
+    private final Formato formato;
+    private final LocalDateTime dataHoraCriacao;
+    // Cabeçalho do CSV (nulo no NDJSON), guardado porque a retomada não passa de novo pela primeira linha
+    private final String cabecalho;
+    private Estado estado = Estado.EM_ANDAMENTO;
+    private long posicaoArquivo;
+    private long linhasProcessadas;
+    private long importadas;
+    private long jaExistentes;
+    private long recusadas;
+    private long tamanhoRecusas;
+    private long tempoExecucaoMs;
+    private LocalDateTime dataHoraConclusao;
+    private String mensagemErro;
+
+    JobImportacaoChavesPix(UUID id, Formato formato, String cabecalho, LocalDateTime dataHoraCriacao) {
+        this.id = id;
+        this.formato = formato;
+        this.cabecalho = cabecalho;
+        this.dataHoraCriacao = dataHoraCriacao;
+    }
+
+    static Path arquivoCheckpoint(Path diretorio, UUID id) {
+        return diretorio.resolve(id + ".job");
+    }
+
+    static Path arquivoDados(Path diretorio, UUID id) {
+        return diretorio.resolve(id + ".dados");
+    }
+
+    static Path arquivoRecusas(Path diretorio, UUID id) {
+        return diretorio.resolve(id + ".recusas.csv");
+    }
+
+    // Temporário renomeado por cima do anterior: um checkpoint interrompido nunca substitui o último completo
+    synchronized void gravar(Path diretorio) throws IOException {
+        Properties propriedades = new Properties();
+        propriedades.setProperty("id", id.toString());
+        propriedades.setProperty("formato", formato.name());
+        propriedades.setProperty("dataHoraCriacao", dataHoraCriacao.toString());
+        if (cabecalho != null) {
+            propriedades.setProperty("cabecalho", cabecalho);
+        }
+        propriedades.setProperty("estado", estado.name());
+        propriedades.setProperty("posicaoArquivo", Long.toString(posicaoArquivo));
+        propriedades.setProperty("linhasProcessadas", Long.toString(linhasProcessadas));
+        propriedades.setProperty("importadas", Long.toString(importadas));
+        propriedades.setProperty("jaExistentes", Long.toString(jaExistentes));
+        propriedades.setProperty("recusadas", Long.toString(recusadas));
+        propriedades.setProperty("tamanhoRecusas", Long.toString(tamanhoRecusas));
+        propriedades.setProperty("tempoExecucaoMs", Long.toString(tempoExecucaoMs));
+        if (dataHoraConclusao != null) {
+            propriedades.setProperty("dataHoraConclusao", dataHoraConclusao.toString());
+        }
+        if (mensagemErro != null) {
+            propriedades.setProperty("mensagemErro", mensagemErro);
+        }
+
+        Path destino = arquivoCheckpoint(diretorio, id);
+        Path temporario = diretorio.resolve(id + ".job.tmp");
+        try (FileOutputStream saida = new FileOutputStream(temporario.toFile())) {
+            propriedades.store(saida, null);
+            saida.getChannel().force(true);
+        }
+        Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static JobImportacaoChavesPix ler(Path arquivo) throws IOException {
+        Properties propriedades = new Properties();
+        try (InputStream entrada = Files.newInputStream(arquivo)) {
+            propriedades.load(entrada);
+        }
+        JobImportacaoChavesPix job = new JobImportacaoChavesPix(UUID.fromString(propriedades.getProperty("id")),
+                Formato.valueOf(propriedades.getProperty("formato")), propriedades.getProperty("cabecalho"),
+                LocalDateTime.parse(propriedades.getProperty("dataHoraCriacao")));
+        job.estado = Estado.valueOf(propriedades.getProperty("estado"));
+        job.posicaoArquivo = Long.parseLong(propriedades.getProperty("posicaoArquivo"));
+        job.linhasProcessadas = Long.parseLong(propriedades.getProperty("linhasProcessadas"));
+        job.importadas = Long.parseLong(propriedades.getProperty("importadas"));
+        job.jaExistentes = Long.parseLong(propriedades.getProperty("jaExistentes"));
+        job.recusadas = Long.parseLong(propriedades.getProperty("recusadas"));
+        job.tamanhoRecusas = Long.parseLong(propriedades.getProperty("tamanhoRecusas"));
+        job.tempoExecucaoMs = Long.parseLong(propriedades.getProperty("tempoExecucaoMs"));
+        String conclusao = propriedades.getProperty("dataHoraConclusao");
+        job.dataHoraConclusao = conclusao != null ? LocalDateTime.parse(conclusao) : null;
+        job.mensagemErro = propriedades.getProperty("mensagemErro");
+        return job;
+    }
+
+    // Resultado de um bloco já gravado no banco e no arquivo de recusas
+    synchronized void registrarBloco(long posicaoArquivo, long linhas, long importadas, long jaExistentes,
+            long recusadas, long tamanhoRecusas, long tempoMs) {
+        this.posicaoArquivo = posicaoArquivo;
+        this.linhasProcessadas += linhas;
+        this.importadas += importadas;
+        this.jaExistentes += jaExistentes;
+        this.recusadas += recusadas;
+        this.tamanhoRecusas = tamanhoRecusas;
+        this.tempoExecucaoMs += tempoMs;
+    }
+
+    synchronized void concluir(LocalDateTime dataHora) {
+        estado = Estado.CONCLUIDA;
+        dataHoraConclusao = dataHora;
+    }
+
+    synchronized void falhar(String mensagem, LocalDateTime dataHora) {
+        estado = Estado.FALHOU;
+        mensagemErro = mensagem;
+        dataHoraConclusao = dataHora;
+    }
+
+    synchronized void retomar() {
+        estado = Estado.EM_ANDAMENTO;
+        mensagemErro = null;
+        dataHoraConclusao = null;
+    }
+
+    // Taxa sobre o tempo em que o job efetivamente rodou, somando as execuções antes de cada retomada
+    synchronized double linhasPorSegundo() {
+        return tempoExecucaoMs == 0 ? 0 : linhasProcessadas * 1000.0 / tempoExecucaoMs;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    Formato getFormato() {
+        return formato;
+    }
+
+    String getCabecalho() {
+        return cabecalho;
+    }
+
+    LocalDateTime getDataHoraCriacao() {
+        return dataHoraCriacao;
+    }
+
+    synchronized Estado getEstado() {
+        return estado;
+    }
+
+    synchronized long getPosicaoArquivo() {
+        return posicaoArquivo;
+    }
+
+    synchronized long getLinhasProcessadas() {
+        return linhasProcessadas;
+    }
+
+    synchronized long getImportadas() {
+        return importadas;
+    }
+
+    synchronized long getJaExistentes() {
+        return jaExistentes;
+    }
+
+    synchronized long getRecusadas() {
+        return recusadas;
+    }
+
+    synchronized long getTamanhoRecusas() {
+        return tamanhoRecusas;
+    }
+
+    synchronized long getTempoExecucaoMs() {
+        return tempoExecucaoMs;
+    }
+
+    synchronized LocalDateTime getDataHoraConclusao() {
+        return dataHoraConclusao;
+    }
+
+    synchronized String getMensagemErro() {
+        return mensagemErro;
+    }
+}
@@ -0,0 +1,170 @@
+package com.itau.case_pix.servico;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Log append-only das mutações (arquivos chaves-<geração>.log), escrito por uma região do arquivo mapeada em
+// memória. Cada chamada de anexar grava um quadro: tamanho (int), CRC32 (int) e os registros do lote. O tamanho
+// é escrito por último, então um quadro interrompido pela metade (tamanho zero ou CRC inválido) marca o fim do
+// log na recuperação e o lote inteiro é descartado
+class LogChavesPix implements AutoCloseable {
+
+    private static final Pattern NOME_ARQUIVO = Pattern.compile("chaves-(\\d+)\\.log");
+    private static final int CABECALHO_QUADRO = 8;
+    // Um quadro maior que isso só pode ser lixo de uma escrita interrompida
+    private static final int TAMANHO_MAXIMO_QUADRO = 64 * 1024 * 1024;
+
+    private final long geracao;
+    private final int tamanhoRegiao;
+    private final FileChannel canal;
+    private MappedByteBuffer regiao;
+    private long inicioRegiao;
+    private long posicao;
+
+    private LogChavesPix(long geracao, int tamanhoRegiao, FileChannel canal, long posicao) {
+        this.geracao = geracao;
+        this.tamanhoRegiao = tamanhoRegiao;
+        this.canal = canal;
+        this.posicao = posicao;
+    }
+
+    // Abre para escrita a partir do fim válido do arquivo (o que vier depois é descartado)
+    static LogChavesPix abrir(Path diretorio, long geracao, long posicao, int tamanhoRegiao) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo(diretorio, geracao), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        canal.truncate(posicao);
+        LogChavesPix log = new LogChavesPix(geracao, tamanhoRegiao, canal, posicao);
+        log.mapear(tamanhoRegiao);
+        return log;
+    }
+
+    long geracao() {
+        return geracao;
+    }
+
+    // Um quadro por lote, com msync só das páginas escritas: ao retornar, o lote está no disco
+    void anexar(List<RegistroLogChavePix> registros) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream saida = new DataOutputStream(bytes);
+        saida.writeInt(registros.size());
+        for (RegistroLogChavePix registro : registros) {
+            saida.writeLong(registro.sequencia());
+            saida.writeUTF(registro.operacao().name());
+            registro.chave().escrever(saida);
+        }
+        byte[] conteudo = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(conteudo);
+
+        int necessario = CABECALHO_QUADRO + conteudo.length;
+        if (posicao + necessario > inicioRegiao + regiao.capacity()) {
+            mapear(Math.max(tamanhoRegiao, necessario));
+        }
+        int inicio = (int) (posicao - inicioRegiao);
+        regiao.putInt(inicio + 4, (int) crc.getValue());
+        regiao.put(inicio + CABECALHO_QUADRO, conteudo);
+        regiao.putInt(inicio, conteudo.length);
+        regiao.force(inicio, necessario);
+        posicao += necessario;
+    }
+
+    // A nova região começa na posição atual; o arquivo cresce junto com o mapeamento
+    private void mapear(int tamanho) throws IOException {
+        if (regiao != null) {
+            regiao.force();
+        }
+        inicioRegiao = posicao;
+        regiao = canal.map(FileChannel.MapMode.READ_WRITE, inicioRegiao, tamanho);
+    }
+
+    // Remove do arquivo a parte mapeada e ainda não escrita
+    @Override
+    public void close() throws IOException {
+        regiao.force();
+        regiao = null;
+        canal.truncate(posicao);
+        canal.close();
+    }
+
+    // Reaplica os quadros íntegros do arquivo e devolve a posição do fim válido
+    static long ler(Path arquivo, Consumer<RegistroLogChavePix> consumidor) throws IOException {
+        long posicao = 0;
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+            while (true) {
+                int tamanho;
+                int crcGravado;
+                byte[] conteudo;
+                try {
+                    tamanho = entrada.readInt();
+                    if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_QUADRO) {
+                        return posicao;
+                    }
+                    crcGravado = entrada.readInt();
+                    conteudo = new byte[tamanho];
+                    entrada.readFully(conteudo);
+                } catch (EOFException e) {
+                    return posicao;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(conteudo);
+                if ((int) crc.getValue() != crcGravado) {
+                    return posicao;
+                }
+
+                DataInputStream quadro = new DataInputStream(new ByteArrayInputStream(conteudo));
+                int quantidade = quadro.readInt();
+                for (int i = 0; i < quantidade; i++) {
+                    long sequencia = quadro.readLong();
+                    EventoChavePix.Operacao operacao = EventoChavePix.Operacao.valueOf(quadro.readUTF());
+                    consumidor.accept(new RegistroLogChavePix(sequencia, operacao, ChaveArmazenada.ler(quadro)));
+                }
+                posicao += CABECALHO_QUADRO + tamanho;
+            }
+        }
+    }
+
+    static Path arquivo(Path diretorio, long geracao) {
+        return diretorio.resolve("chaves-" + geracao + ".log");
+    }
+
+    // Gerações existentes no diretório, em ordem crescente
+    static List<Long> geracoes(Path diretorio) throws IOException {
+        List<Long> geracoes = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.forEach(arquivo -> {
+                Matcher nome = NOME_ARQUIVO.matcher(arquivo.getFileName().toString());
+                if (nome.matches()) {
+                    geracoes.add(Long.parseLong(nome.group(1)));
+                }
+            });
+        }
+        geracoes.sort(null);
+        return geracoes;
+    }
+
+    // Logs já incorporados a um snapshot
+    static void removerAnteriores(Path diretorio, long geracao) throws IOException {
+        for (long anterior : geracoes(diretorio)) {
+            if (anterior < geracao) {
+                Files.deleteIfExists(arquivo(diretorio, anterior));
+            }
+        }
+    }
+}
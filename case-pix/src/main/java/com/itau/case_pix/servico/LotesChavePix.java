@@ -0,0 +1,36 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Gravação em lote das importações (arquivo NDJSON e binário)
+final class LotesChavePix {
+
+    private LotesChavePix() {
+    }
+
+    // Um lote desfeito por uma chave incluída concorrentemente (inclusive por outro lote do mesmo arquivo) é
+    // repetido uma vez; na repetição a chave já gravada é recusada individualmente. Se a repetição também
+    // falhar, todas as chaves do lote são recusadas com o motivo da falha
+    static List<ResultadoInclusaoLoteDTO> gravarRepetindoUmaVez(List<EntidadeChavePix> lote,
+            Function<List<EntidadeChavePix>, List<ResultadoInclusaoLoteDTO>> gravacao) {
+        try {
+            return gravacao.apply(lote);
+        } catch (ExcecaoChavePix primeira) {
+            try {
+                return gravacao.apply(lote);
+            } catch (ExcecaoChavePix e) {
+                List<ResultadoInclusaoLoteDTO> recusadas = new ArrayList<>(lote.size());
+                for (int i = 0; i < lote.size(); i++) {
+                    recusadas.add(new ResultadoInclusaoLoteDTO(i, e.getMessage()));
+                }
+                return recusadas;
+            }
+        }
+    }
+}
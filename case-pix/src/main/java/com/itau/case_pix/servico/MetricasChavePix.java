@@ -0,0 +1,33 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Contadores de operações recusadas, por motivo (chaves.pix.recusas{motivo=...})
+@Component
+public class MetricasChavePix {
+
+    private final Map<CodigoErroChavePix, Counter> recusas = new EnumMap<>(CodigoErroChavePix.class);
+
+    // Registrados de antemão para que todos os motivos apareçam zerados na coleta
+    @Autowired
+    public MetricasChavePix(MeterRegistry registro) {
+        for (CodigoErroChavePix motivo : CodigoErroChavePix.values()) {
+            recusas.put(motivo, Counter.builder("chaves.pix.recusas")
+                    .tag("motivo", motivo.name().toLowerCase(Locale.ROOT))
+                    .description("Operações sobre chaves PIX recusadas, por motivo")
+                    .register(registro));
+        }
+    }
+
+    public void registrarRecusa(CodigoErroChavePix motivo) {
+        recusas.get(motivo).increment();
+    }
+}
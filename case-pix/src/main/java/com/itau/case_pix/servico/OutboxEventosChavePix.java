@@ -0,0 +1,69 @@
+package com.itau.case_pix.servico;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Grava no outbox (tabela evento_chave_pix) cada inclusão, alteração e inativação publicada pelo serviço.
+// Os eventos da transação são acumulados e gravados num único batch JDBC antes do commit, então o evento
+// existe se e somente se a mutação foi confirmada
+@Component
+@Profile("!log")
+public class OutboxEventosChavePix {
+
+    private static final String INSERIR = "INSERT INTO evento_chave_pix (id_chave, operacao, campos_alterados, "
+            + "data_hora_evento) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OutboxEventosChavePix(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Chamado de forma síncrona, ainda dentro da transação que publicou o evento. Conjunto vazio (INCLUSAO, todos
+    // os campos) é gravado como NULL
+    @EventListener
+    public void aoAlterarChave(EventoChavePix evento) {
+        Object[] linha = new Object[] { IdsChavePix.bytes(evento.getChavePix().getId()), evento.getOperacao().name(),
+                evento.getCamposAlterados().isEmpty() ? null : String.join(",", evento.getCamposAlterados()),
+                Timestamp.valueOf(LocalDateTime.now()) };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            jdbcTemplate.update(INSERIR, linha);
+            return;
+        }
+        pendentesDaTransacao().add(linha);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> pendentesDaTransacao() {
+        List<Object[]> pendentes = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (pendentes != null) {
+            return pendentes;
+        }
+        List<Object[]> novos = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, novos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                TransactionSynchronizationManager.unbindResource(OutboxEventosChavePix.this);
+                jdbcTemplate.batchUpdate(INSERIR, novos);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OutboxEventosChavePix.this);
+            }
+        });
+        return novos;
+    }
+}
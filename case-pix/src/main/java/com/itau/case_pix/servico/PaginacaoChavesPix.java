@@ -0,0 +1,134 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Paginação por keyset das listagens, ordenadas por (dataHoraInclusaoChave, id)
+@Component
+public class PaginacaoChavesPix {
+
+    private static final String CAMPO_DATA = "dataHoraInclusaoChave";
+    private static final String CAMPO_ID = "id";
+
+    // Posição anterior a qualquer chave, usada na primeira página
+    private static final LocalDateTime DATA_INICIAL = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final UUID ID_INICIAL = new UUID(0L, 0L);
+
+    private final int limitePadrao;
+    private final int limiteMaximo;
+
+    public PaginacaoChavesPix(@Value("${case-pix.paginacao.limite-padrao:100}") int limitePadrao,
+            @Value("${case-pix.paginacao.limite-maximo:1000}") int limiteMaximo) {
+        this.limitePadrao = limitePadrao;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    // Tamanho de página solicitado, limitado ao máximo configurado
+    public int limite(Integer solicitado) {
+        if (solicitado == null) {
+            return limitePadrao;
+        }
+        if (solicitado <= 0) {
+            throw new ExcecaoChavePix(CodigoErroChavePix.PAGINACAO_INVALIDA,
+                    "O limite de paginação deve ser maior que zero");
+        }
+        return Math.min(solicitado, limiteMaximo);
+    }
+
+    // Converte o cursor opaco recebido do cliente na posição de keyset correspondente
+    public ScrollPosition posicao(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String conteudo = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = conteudo.indexOf('|');
+            Map<String, Object> chaves = new LinkedHashMap<>();
+            chaves.put(CAMPO_DATA, LocalDateTime.parse(conteudo.substring(0, separador)));
+            chaves.put(CAMPO_ID, UUID.fromString(conteudo.substring(separador + 1)));
+            return ScrollPosition.forward(chaves);
+        } catch (RuntimeException e) {
+            throw new ExcecaoChavePix(CodigoErroChavePix.PAGINACAO_INVALIDA, "Cursor de paginação inválido");
+        }
+    }
+
+    // Última (data de inclusão, id) já entregue ao cliente
+    static LocalDateTime dataApos(ScrollPosition posicao) {
+        Object data = posicao instanceof KeysetScrollPosition keyset ? keyset.getKeys().get(CAMPO_DATA) : null;
+        return data != null ? (LocalDateTime) data : DATA_INICIAL;
+    }
+
+    static UUID idApos(ScrollPosition posicao) {
+        Object id = posicao instanceof KeysetScrollPosition keyset ? keyset.getKeys().get(CAMPO_ID) : null;
+        return id != null ? (UUID) id : ID_INICIAL;
+    }
+
+    // Monta a janela a partir de uma consulta que buscou limite + 1 linhas (a linha extra indica a próxima página)
+    static Window<RespostaConsultaChavePixDTO> janela(List<RespostaConsultaChavePixDTO> resultado, int limite) {
+        boolean haProxima = resultado.size() > limite;
+        List<RespostaConsultaChavePixDTO> conteudo = haProxima ? resultado.subList(0, limite) : resultado;
+        return Window.from(conteudo, indice -> posicaoDe(conteudo.get(indice)), haProxima);
+    }
+
+    // Ordem das listagens, igual à do banco: RAW(16) compara os bytes sem sinal
+    static final Comparator<RespostaConsultaChavePixDTO> ORDEM_INCLUSAO = Comparator
+            .comparing(RespostaConsultaChavePixDTO::getDataHoraInclusaoChave)
+            .thenComparing(RespostaConsultaChavePixDTO::getId, PaginacaoChavesPix::compararIds);
+    static final Comparator<RespostaConsultaChavePixDTO> ORDEM_ID = Comparator
+            .comparing(RespostaConsultaChavePixDTO::getId, PaginacaoChavesPix::compararIds);
+
+    // Junta as janelas de cada shard, todas a partir do mesmo cursor, numa única janela de até limite chaves.
+    // As chaves cortadas voltam na próxima página, que parte da última chave entregue
+    static Window<RespostaConsultaChavePixDTO> mesclar(List<Window<RespostaConsultaChavePixDTO>> janelas, int limite,
+            Comparator<RespostaConsultaChavePixDTO> ordem) {
+        List<RespostaConsultaChavePixDTO> todas = new ArrayList<>();
+        boolean haProxima = false;
+        for (Window<RespostaConsultaChavePixDTO> janela : janelas) {
+            todas.addAll(janela.getContent());
+            haProxima |= janela.hasNext();
+        }
+        todas.sort(ordem);
+        haProxima |= todas.size() > limite;
+        List<RespostaConsultaChavePixDTO> conteudo = todas.size() > limite ? todas.subList(0, limite) : todas;
+        return Window.from(conteudo, indice -> posicaoDe(conteudo.get(indice)), haProxima);
+    }
+
+    static int compararIds(UUID a, UUID b) {
+        int comparacao = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return comparacao != 0 ? comparacao
+                : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    static ScrollPosition posicaoDe(RespostaConsultaChavePixDTO chave) {
+        Map<String, Object> chaves = new LinkedHashMap<>();
+        chaves.put(CAMPO_DATA, chave.getDataHoraInclusaoChave());
+        chaves.put(CAMPO_ID, chave.getId());
+        return ScrollPosition.forward(chaves);
+    }
+
+    // Cursor da próxima página, ou null quando não há mais resultados
+    public String proximoCursor(Window<RespostaConsultaChavePixDTO> pagina) {
+        if (!pagina.hasNext() || pagina.isEmpty()) {
+            return null;
+        }
+        RespostaConsultaChavePixDTO ultima = pagina.getContent().get(pagina.size() - 1);
+        String conteudo = ultima.getDataHoraInclusaoChave() + "|" + ultima.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
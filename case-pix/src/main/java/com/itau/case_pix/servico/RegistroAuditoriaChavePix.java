@@ -0,0 +1,9 @@
+package com.itau.case_pix.servico;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Uma linha do histórico de auditoria (tabela historico_chave_pix), também usada no arquivo de contingência
+public record RegistroAuditoriaChavePix(UUID idChave, EventoChavePix.Operacao operacao, EstadoChavePix estadoAnterior,
+        EstadoChavePix estadoNovo, LocalDateTime dataHoraRegistro) {
+}
@@ -0,0 +1,5 @@
+package com.itau.case_pix.servico;
+
+// Mutação gravada no log: sequência global, operação e estado da chave depois dela
+public record RegistroLogChavePix(long sequencia, EventoChavePix.Operacao operacao, ChaveArmazenada chave) {
+}
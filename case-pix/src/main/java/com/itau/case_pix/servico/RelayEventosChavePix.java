@@ -0,0 +1,101 @@
+package com.itau.case_pix.servico;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Esvazia o outbox em lotes: lê os eventos em ordem de sequência, entrega a todos os consumidores e apaga as
+// linhas entregues, tudo na mesma transação. Só uma instância da aplicação deve rodar o relay
+@Component
+@Profile("!log")
+public class RelayEventosChavePix {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayEventosChavePix.class);
+
+    private static final String PROXIMOS = "SELECT sequencia, id_chave, operacao, campos_alterados, "
+            + "data_hora_evento FROM evento_chave_pix ORDER BY sequencia FETCH FIRST ? ROWS ONLY";
+    // Apaga pela lista de sequências entregues, e não por "sequencia <= última": uma transação com sequência
+    // menor ainda não confirmada na leitura apareceria depois e seria perdida
+    private static final String REMOVER = "DELETE FROM evento_chave_pix WHERE sequencia = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final FragmentacaoChavesPix fragmentacao;
+    private final List<ConsumidorEventoChavePix> consumidores;
+    private final int tamanhoLote;
+
+    @Autowired
+    public RelayEventosChavePix(JdbcTemplate jdbcTemplate, PlatformTransactionManager gerenciadorTransacoes,
+            FragmentacaoChavesPix fragmentacao, List<ConsumidorEventoChavePix> consumidores,
+            @Value("${case-pix.outbox.tamanho-lote:500}") int tamanhoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(gerenciadorTransacoes);
+        this.fragmentacao = fragmentacao;
+        this.consumidores = consumidores;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    @Scheduled(fixedDelayString = "${case-pix.outbox.intervalo-relay:PT1S}",
+            initialDelayString = "${case-pix.outbox.intervalo-relay:PT1S}")
+    public void agendado() {
+        try {
+            drenar();
+        } catch (RuntimeException e) {
+            // Os eventos continuam no outbox e são entregues na próxima execução
+            log.warn("Falha ao entregar eventos do outbox de chaves PIX", e);
+        }
+    }
+
+    // Entrega lotes enquanto vierem cheios; devolve a quantidade de eventos entregues. Com shards, cada um tem
+    // o seu outbox, e a ordem dos eventos vale dentro do shard (todas as chaves de uma conta ficam no mesmo)
+    public synchronized int drenar() {
+        int[] total = { 0 };
+        fragmentacao.paraCadaShard(shard -> {
+            while (true) {
+                Integer entregues = transacao.execute(status -> entregarLote());
+                total[0] += entregues;
+                if (entregues < tamanhoLote) {
+                    return;
+                }
+            }
+        });
+        return total[0];
+    }
+
+    private int entregarLote() {
+        List<EventoOutboxChavePix> eventos = jdbcTemplate.query(PROXIMOS,
+                (rs, linha) -> new EventoOutboxChavePix(rs.getLong(1), IdsChavePix.uuid(rs.getBytes(2)),
+                        EventoChavePix.Operacao.valueOf(rs.getString(3)), campos(rs.getString(4)),
+                        rs.getTimestamp(5).toLocalDateTime()),
+                tamanhoLote);
+        if (eventos.isEmpty()) {
+            return 0;
+        }
+        for (ConsumidorEventoChavePix consumidor : consumidores) {
+            consumidor.consumir(eventos);
+        }
+        List<Object[]> sequencias = new ArrayList<>(eventos.size());
+        for (EventoOutboxChavePix evento : eventos) {
+            sequencias.add(new Object[] { evento.sequencia() });
+        }
+        jdbcTemplate.batchUpdate(REMOVER, sequencias);
+        return eventos.size();
+    }
+
+    private static Set<String> campos(String campos) {
+        return campos == null ? Set.of() : new LinkedHashSet<>(Arrays.asList(campos.split(",")));
+    }
+}
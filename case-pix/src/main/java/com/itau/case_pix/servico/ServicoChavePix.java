@@ -1,32 +1,71 @@
 package com.itau.case_pix.servico;
 
 import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.DTO.RespostaEstatisticasChavePixDTO;
+import com.itau.case_pix.DTO.RespostaInativacaoLoteDTO;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
 import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface ServicoChavePix {
     
     // Métodos para inclusão de chave
     EntidadeChavePix incluirChave(EntidadeChavePix chavePix);
 
+    // Método para inclusão de várias chaves com resultado individual por item
+    List<ResultadoInclusaoLoteDTO> incluirChavesEmLote(List<EntidadeChavePix> chaves);
+
+    // Inclusão em lote que mantém id e datas de inclusão e inativação (importação de uma exportação binária)
+    List<ResultadoInclusaoLoteDTO> restaurarChavesEmLote(List<EntidadeChavePix> chaves);
+
     //Método para alteração de chave com DTO
     EntidadeChavePix alterarChave(UUID id, AlteracaoChavePixDTO alteracaoDTO);
     
     // Métodos para consulta de chaves
     Optional<EntidadeChavePix> buscarPorId(UUID id);
+    Optional<RespostaConsultaChavePixDTO> buscarPorValorChave(String tipoChave, String valorChave);
     List<EntidadeChavePix> buscarPorTipoChave(String tipoChave);
     List<EntidadeChavePix> buscarPorAgenciaConta(Integer numeroAgencia, Integer numeroConta);
-    List<EntidadeChavePix> buscarPorNomeCorrentista(String nome);
     List<EntidadeChavePix> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim);
     List<EntidadeChavePix> buscarChavesAtivas();
     List<EntidadeChavePix> buscarChavesInativas();
+
+    // Métodos para consulta paginada por keyset (data de inclusão, id)
+    Window<RespostaConsultaChavePixDTO> buscarPorTipoChave(String tipoChave, ScrollPosition posicao, int limite);
+    Window<RespostaConsultaChavePixDTO> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim,
+            ScrollPosition posicao, int limite);
+    Window<RespostaConsultaChavePixDTO> buscarChavesAtivas(ScrollPosition posicao, int limite);
+    Window<RespostaConsultaChavePixDTO> buscarChavesInativas(ScrollPosition posicao, int limite);
+    boolean existeChaveComTipo(String tipoChave);
+
+    // Busca por nome (sem acentos e sem distinção de maiúsculas) paginada por id
+    Window<RespostaConsultaChavePixDTO> buscarPorNomeCorrentista(String nome, ScrollPosition posicao, int limite);
+    boolean existeChaveComNome(String nome);
+
+    // Quantidade de chaves ativas e inativas por tipo de chave, tipo de pessoa e agência, mantida em memória
+    RespostaEstatisticasChavePixDTO consultarEstatisticas();
+
+    // Métodos para leitura em fluxo de todas as chaves (memória constante)
+    void percorrerChavesAtivas(Consumer<RespostaConsultaChavePixDTO> consumidor);
+    void percorrerChavesInativas(Consumer<RespostaConsultaChavePixDTO> consumidor);
+    // Ativas e inativas juntas, cada chave uma única vez mesmo se inativada durante o percurso
+    void percorrerChaves(Consumer<RespostaConsultaChavePixDTO> consumidor);
+    boolean existeChaveNoPeriodo(LocalDateTime inicio, LocalDateTime fim);
     
     // Método para inativação de chave
     EntidadeChavePix inativarChave(UUID id);
+
+    // Métodos para inativação em lote (um UPDATE por conjunto de chaves)
+    RespostaInativacaoLoteDTO inativarChavesEmLote(List<UUID> ids);
+    RespostaInativacaoLoteDTO inativarChavesDaConta(Integer numeroAgencia, Integer numeroConta);
     
     // Métodos de validação
     boolean validarChave(EntidadeChavePix chavePix);
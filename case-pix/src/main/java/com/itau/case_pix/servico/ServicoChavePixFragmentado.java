@@ -0,0 +1,449 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.DTO.RespostaEstatisticasChavePixDTO;
+import com.itau.case_pix.DTO.RespostaInativacaoLoteDTO;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Serviço com a base dividida em shards por agência: cada operação roda no ServicoImplementacaoChavePix,
+// dentro do shard da chave. Operações por conta vão ao shard da agência; operações por id descobrem o shard
+// pelo índice global; listagens consultam todos os shards em paralelo e juntam os resultados na ordem do
+// cursor. Não é transacional: cada shard tem a sua transação
+@Service
+@Primary
+@ConditionalOnProperty("case-pix.shards.urls")
+public class ServicoChavePixFragmentado implements ServicoChavePix {
+
+    private static final int TAMANHO_PAGINA_PERCURSO = 500;
+
+    private final ServicoImplementacaoChavePix servico;
+    private final FragmentacaoChavesPix fragmentacao;
+    private final IndiceGlobalChavesPix indiceGlobal;
+    private final GeradorIdChavePix geradorIdChavePix;
+    private final MetricasChavePix metricasChavePix;
+    private final int tamanhoMaximoLote;
+
+    @Autowired
+    public ServicoChavePixFragmentado(ServicoImplementacaoChavePix servico, FragmentacaoChavesPix fragmentacao,
+            IndiceGlobalChavesPix indiceGlobal, GeradorIdChavePix geradorIdChavePix,
+            MetricasChavePix metricasChavePix,
+            @Value("${case-pix.lote.tamanho-maximo:1000}") int tamanhoMaximoLote) {
+        this.servico = servico;
+        this.fragmentacao = fragmentacao;
+        this.indiceGlobal = indiceGlobal;
+        this.geradorIdChavePix = geradorIdChavePix;
+        this.metricasChavePix = metricasChavePix;
+        this.tamanhoMaximoLote = tamanhoMaximoLote;
+    }
+
+    // O valor é reservado no índice global antes da inclusão no shard, e a reserva só é confirmada depois do
+    // commit no shard; uma inclusão recusada ou desfeita libera o valor
+    @Override
+    public EntidadeChavePix incluirChave(EntidadeChavePix chavePix) {
+        ServicoImplementacaoChavePix.normalizarDados(chavePix);
+        if (!validarChave(chavePix)) {
+            throw recusar(CodigoErroChavePix.DADOS_INVALIDOS, "Dados da chave PIX inválidos");
+        }
+        if (chavePix.getId() == null) {
+            chavePix.setId(geradorIdChavePix.gerar());
+        }
+
+        int shard = fragmentacao.shardDaAgencia(chavePix.getNumeroAgencia());
+        if (!indiceGlobal.reservar(chavePix, shard)) {
+            throw recusar(CodigoErroChavePix.CHAVE_DUPLICADA, "Já existe uma chave PIX com este valor");
+        }
+        EntidadeChavePix incluida;
+        try {
+            incluida = fragmentacao.noShard(shard, () -> servico.incluirChave(chavePix));
+        } catch (RuntimeException e) {
+            indiceGlobal.liberar(List.of(chavePix));
+            throw e;
+        }
+        // Se a confirmação falhar, a limpeza periódica encontra a chave no shard e confirma a reserva
+        indiceGlobal.confirmar(List.of(incluida));
+        return incluida;
+    }
+
+    // Reserva o lote inteiro de uma vez e inclui, shard a shard, as chaves reservadas; cada shard é uma
+    // transação, então um shard com falha não desfaz as chaves já incluídas nos outros
+    @Override
+    public List<ResultadoInclusaoLoteDTO> incluirChavesEmLote(List<EntidadeChavePix> chaves) {
+        return incluirEmLote(chaves, false);
+    }
+
+    @Override
+    public List<ResultadoInclusaoLoteDTO> restaurarChavesEmLote(List<EntidadeChavePix> chaves) {
+        return incluirEmLote(chaves, true);
+    }
+
+    private List<ResultadoInclusaoLoteDTO> incluirEmLote(List<EntidadeChavePix> chaves, boolean restauracao) {
+        if (chaves.size() > tamanhoMaximoLote) {
+            throw recusar(CodigoErroChavePix.LOTE_EXCEDIDO,
+                    "O lote excede o limite de " + tamanhoMaximoLote + " chaves PIX");
+        }
+
+        ResultadoInclusaoLoteDTO[] resultados = new ResultadoInclusaoLoteDTO[chaves.size()];
+        List<Integer> candidatos = new ArrayList<>();
+        List<EntidadeChavePix> candidatas = new ArrayList<>();
+        List<Integer> shards = new ArrayList<>();
+        for (int i = 0; i < chaves.size(); i++) {
+            EntidadeChavePix chavePix = chaves.get(i);
+            if (chavePix != null) {
+                ServicoImplementacaoChavePix.normalizarDados(chavePix);
+            }
+            if (chavePix == null || !validarChave(chavePix)
+                    || (restauracao && !ServicoImplementacaoChavePix.restauravel(chavePix))) {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.DADOS_INVALIDOS);
+                resultados[i] = new ResultadoInclusaoLoteDTO(i, "Dados da chave PIX inválidos");
+                continue;
+            }
+            if (chavePix.getId() == null) {
+                chavePix.setId(geradorIdChavePix.gerar());
+            }
+            candidatos.add(i);
+            candidatas.add(chavePix);
+            shards.add(fragmentacao.shardDaAgencia(chavePix.getNumeroAgencia()));
+        }
+
+        // Posições em candidatas, agrupadas por shard
+        Set<Integer> recusadas = indiceGlobal.reservar(candidatas, shards);
+        Map<Integer, List<Integer>> porShard = new TreeMap<>();
+        for (int n = 0; n < candidatas.size(); n++) {
+            if (recusadas.contains(n)) {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.CHAVE_DUPLICADA);
+                resultados[candidatos.get(n)] = new ResultadoInclusaoLoteDTO(candidatos.get(n),
+                        "Já existe uma chave PIX com este valor");
+            } else {
+                porShard.computeIfAbsent(shards.get(n), s -> new ArrayList<>()).add(n);
+            }
+        }
+
+        List<EntidadeChavePix> incluidas = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, List<Integer>> entrada : porShard.entrySet()) {
+                List<EntidadeChavePix> lote = entrada.getValue().stream().map(candidatas::get).toList();
+                List<ResultadoInclusaoLoteDTO> parciais;
+                try {
+                    parciais = fragmentacao.noShard(entrada.getKey(), () -> restauracao
+                            ? servico.restaurarChavesEmLote(lote) : servico.incluirChavesEmLote(lote));
+                } catch (ExcecaoChavePix e) {
+                    // Lote do shard desfeito (chave incluída concorrentemente): recusa só as chaves deste shard
+                    indiceGlobal.liberar(lote);
+                    for (int n : entrada.getValue()) {
+                        resultados[candidatos.get(n)] = new ResultadoInclusaoLoteDTO(candidatos.get(n), e.getMessage());
+                    }
+                    continue;
+                } catch (RuntimeException e) {
+                    indiceGlobal.liberar(lote);
+                    throw e;
+                }
+
+                List<EntidadeChavePix> naoIncluidas = new ArrayList<>();
+                for (int j = 0; j < parciais.size(); j++) {
+                    int indice = candidatos.get(entrada.getValue().get(j));
+                    ResultadoInclusaoLoteDTO resultado = parciais.get(j);
+                    resultado.setIndice(indice);
+                    resultados[indice] = resultado;
+                    (resultado.isIncluida() ? incluidas : naoIncluidas).add(lote.get(j));
+                }
+                indiceGlobal.liberar(naoIncluidas);
+            }
+        } finally {
+            indiceGlobal.confirmar(incluidas);
+        }
+        return List.of(resultados);
+    }
+
+    // Mudança para uma agência de outro shard: a chave é incluída no shard de destino e depois removida da
+    // origem. Se a remoção falhar, a cópia é removida do destino e a chave continua na origem, sem alteração
+    @Override
+    public EntidadeChavePix alterarChave(UUID id, AlteracaoChavePixDTO alteracaoDTO) {
+        int origem = shardDoId(id);
+        if (alteracaoDTO.getNumeroAgencia() == null
+                || fragmentacao.shardDaAgencia(alteracaoDTO.getNumeroAgencia()) == origem) {
+            return fragmentacao.noShard(origem, () -> servico.alterarChave(id, alteracaoDTO));
+        }
+
+        int destino = fragmentacao.shardDaAgencia(alteracaoDTO.getNumeroAgencia());
+        TransferenciaChavePix transferencia = fragmentacao.noShard(origem,
+                () -> servico.prepararTransferencia(id, alteracaoDTO));
+        EntidadeChavePix transferida = fragmentacao.noShard(destino,
+                () -> servico.receberTransferencia(transferencia));
+        indiceGlobal.mover(id, destino);
+        try {
+            EstadoChavePix anterior = transferencia.estadoAnterior();
+            fragmentacao.noShard(origem, () -> {
+                servico.removerTransferida(id, anterior.nomeCorrentista(), anterior.numeroAgencia(),
+                        anterior.numeroConta());
+                return null;
+            });
+        } catch (RuntimeException e) {
+            indiceGlobal.mover(id, origem);
+            fragmentacao.noShard(destino, () -> {
+                servico.removerTransferida(id, transferida.getNomeCorrentista(), transferida.getNumeroAgencia(),
+                        transferida.getNumeroConta());
+                return null;
+            });
+            throw e;
+        }
+        return transferida;
+    }
+
+    @Override
+    public Optional<EntidadeChavePix> buscarPorId(UUID id) {
+        return indiceGlobal.shardDoId(id).flatMap(shard -> fragmentacao.noShard(shard, () -> servico.buscarPorId(id)));
+    }
+
+    @Override
+    public Optional<RespostaConsultaChavePixDTO> buscarPorValorChave(String tipoChave, String valorChave) {
+        return servico.buscarPorValorChave(tipoChave, valorChave);
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarPorTipoChave(String tipoChave) {
+        return concatenar(fragmentacao.emTodos(shard -> servico.buscarPorTipoChave(tipoChave)));
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarPorAgenciaConta(Integer numeroAgencia, Integer numeroConta) {
+        return fragmentacao.noShard(fragmentacao.shardDaAgencia(numeroAgencia),
+                () -> servico.buscarPorAgenciaConta(numeroAgencia, numeroConta));
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim) {
+        return concatenar(fragmentacao.emTodos(shard -> servico.buscarPorDataInclusao(inicio, fim)));
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarChavesAtivas() {
+        return concatenar(fragmentacao.emTodos(shard -> servico.buscarChavesAtivas()));
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarChavesInativas() {
+        return concatenar(fragmentacao.emTodos(shard -> servico.buscarChavesInativas()));
+    }
+
+    // Cada shard devolve até limite chaves a partir do mesmo cursor; a página é o começo da junção ordenada
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarPorTipoChave(String tipoChave, ScrollPosition posicao,
+            int limite) {
+        return PaginacaoChavesPix.mesclar(fragmentacao.emTodos(
+                shard -> servico.buscarPorTipoChave(tipoChave, posicao, limite)), limite,
+                PaginacaoChavesPix.ORDEM_INCLUSAO);
+    }
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim,
+            ScrollPosition posicao, int limite) {
+        return PaginacaoChavesPix.mesclar(fragmentacao.emTodos(
+                shard -> servico.buscarPorDataInclusao(inicio, fim, posicao, limite)), limite,
+                PaginacaoChavesPix.ORDEM_INCLUSAO);
+    }
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarChavesAtivas(ScrollPosition posicao, int limite) {
+        return PaginacaoChavesPix.mesclar(fragmentacao.emTodos(
+                shard -> servico.buscarChavesAtivas(posicao, limite)), limite, PaginacaoChavesPix.ORDEM_INCLUSAO);
+    }
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarChavesInativas(ScrollPosition posicao, int limite) {
+        return PaginacaoChavesPix.mesclar(fragmentacao.emTodos(
+                shard -> servico.buscarChavesInativas(posicao, limite)), limite, PaginacaoChavesPix.ORDEM_INCLUSAO);
+    }
+
+    @Override
+    public boolean existeChaveComTipo(String tipoChave) {
+        return fragmentacao.emTodos(shard -> servico.existeChaveComTipo(tipoChave)).contains(true);
+    }
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarPorNomeCorrentista(String nome, ScrollPosition posicao,
+            int limite) {
+        return PaginacaoChavesPix.mesclar(fragmentacao.emTodos(
+                shard -> servico.buscarPorNomeCorrentista(nome, posicao, limite)), limite, PaginacaoChavesPix.ORDEM_ID);
+    }
+
+    @Override
+    public boolean existeChaveComNome(String nome) {
+        return fragmentacao.emTodos(shard -> servico.existeChaveComNome(nome)).contains(true);
+    }
+
+    @Override
+    public RespostaEstatisticasChavePixDTO consultarEstatisticas() {
+        return servico.consultarEstatisticas();
+    }
+
+    @Override
+    public void percorrerChavesAtivas(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        percorrer(posicao -> servico.buscarChavesAtivas(posicao, TAMANHO_PAGINA_PERCURSO), consumidor);
+    }
+
+    @Override
+    public void percorrerChavesInativas(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        percorrer(posicao -> servico.buscarChavesInativas(posicao, TAMANHO_PAGINA_PERCURSO), consumidor);
+    }
+
+    // Um shard depois do outro, cada um em uma consulta só. Uma chave que muda de shard durante o percurso
+    // pode aparecer nos dois ou em nenhum
+    @Override
+    public void percorrerChaves(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        fragmentacao.paraCadaShard(shard -> servico.percorrerChaves(consumidor));
+    }
+
+    // Junção ordenada das páginas de cada shard, uma página por shard em memória. Cada página é uma transação,
+    // então a leitura não é um retrato único da base como no percurso em fluxo de um só banco
+    private void percorrer(Function<ScrollPosition, Window<RespostaConsultaChavePixDTO>> pagina,
+            Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        List<Window<RespostaConsultaChavePixDTO>> janelas = new ArrayList<>(
+                fragmentacao.emTodos(shard -> pagina.apply(ScrollPosition.keyset())));
+        int[] posicoes = new int[janelas.size()];
+        PriorityQueue<Integer> proximos = new PriorityQueue<>((a, b) -> PaginacaoChavesPix.ORDEM_INCLUSAO.compare(
+                janelas.get(a).getContent().get(posicoes[a]), janelas.get(b).getContent().get(posicoes[b])));
+        for (int shard = 0; shard < janelas.size(); shard++) {
+            if (!janelas.get(shard).isEmpty()) {
+                proximos.add(shard);
+            }
+        }
+        while (!proximos.isEmpty()) {
+            int shard = proximos.poll();
+            Window<RespostaConsultaChavePixDTO> janela = janelas.get(shard);
+            consumidor.accept(janela.getContent().get(posicoes[shard]++));
+            if (posicoes[shard] == janela.size() && janela.hasNext()) {
+                ScrollPosition posicao = janela.positionAt(janela.size() - 1);
+                janelas.set(shard, fragmentacao.noShard(shard, () -> pagina.apply(posicao)));
+                posicoes[shard] = 0;
+            }
+            if (posicoes[shard] < janelas.get(shard).size()) {
+                proximos.add(shard);
+            }
+        }
+    }
+
+    @Override
+    public boolean existeChaveNoPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        return fragmentacao.emTodos(shard -> servico.existeChaveNoPeriodo(inicio, fim)).contains(true);
+    }
+
+    @Override
+    public EntidadeChavePix inativarChave(UUID id) {
+        return fragmentacao.noShard(shardDoId(id), () -> servico.inativarChave(id));
+    }
+
+    // Um UPDATE por shard; ids fora do índice global não existem em nenhum shard
+    @Override
+    public RespostaInativacaoLoteDTO inativarChavesEmLote(List<UUID> ids) {
+        List<UUID> idsDistintos = ids.stream().distinct().toList();
+        if (idsDistintos.size() > tamanhoMaximoLote) {
+            throw recusar(CodigoErroChavePix.LOTE_EXCEDIDO,
+                    "O lote excede o limite de " + tamanhoMaximoLote + " chaves PIX");
+        }
+
+        Map<UUID, Integer> shards = indiceGlobal.shardsDosIds(idsDistintos);
+        Map<Integer, List<UUID>> porShard = new TreeMap<>();
+        for (UUID id : idsDistintos) {
+            Integer shard = shards.get(id);
+            if (shard != null) {
+                porShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+            }
+        }
+
+        LocalDateTime dataHoraInativacao = null;
+        Set<UUID> inativadas = new HashSet<>();
+        Set<UUID> jaInativadas = new HashSet<>();
+        for (Map.Entry<Integer, List<UUID>> entrada : porShard.entrySet()) {
+            RespostaInativacaoLoteDTO parcial = fragmentacao.noShard(entrada.getKey(),
+                    () -> servico.inativarChavesEmLote(entrada.getValue()));
+            if (dataHoraInativacao == null) {
+                dataHoraInativacao = parcial.getDataHoraInativacaoChave();
+            }
+            inativadas.addAll(parcial.getInativadas());
+            jaInativadas.addAll(parcial.getJaInativadas());
+        }
+
+        // Mesma ordem da requisição, como na inativação em um único banco
+        RespostaInativacaoLoteDTO resposta = new RespostaInativacaoLoteDTO(dataHoraInativacao != null
+                ? dataHoraInativacao : LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        for (UUID id : idsDistintos) {
+            if (inativadas.contains(id)) {
+                resposta.getInativadas().add(id);
+            } else if (jaInativadas.contains(id)) {
+                resposta.getJaInativadas().add(id);
+            } else {
+                resposta.getNaoEncontradas().add(id);
+            }
+        }
+        return resposta;
+    }
+
+    @Override
+    public RespostaInativacaoLoteDTO inativarChavesDaConta(Integer numeroAgencia, Integer numeroConta) {
+        return fragmentacao.noShard(fragmentacao.shardDaAgencia(numeroAgencia),
+                () -> servico.inativarChavesDaConta(numeroAgencia, numeroConta));
+    }
+
+    @Override
+    public boolean validarChave(EntidadeChavePix chavePix) {
+        return servico.validarChave(chavePix);
+    }
+
+    @Override
+    public boolean validarTipoChave(String tipoChave) {
+        return servico.validarTipoChave(tipoChave);
+    }
+
+    @Override
+    public boolean validarValorChave(String tipoChave, String valorChave) {
+        return servico.validarValorChave(tipoChave, valorChave);
+    }
+
+    @Override
+    public boolean validarLimiteChavesPorConta(Integer numeroAgencia, Integer numeroConta, String tipoConta) {
+        return fragmentacao.noShard(fragmentacao.shardDaAgencia(numeroAgencia),
+                () -> servico.validarLimiteChavesPorConta(numeroAgencia, numeroConta, tipoConta));
+    }
+
+    // Ids fora do índice global vão ao shard 0, que responde "não encontrada"
+    private int shardDoId(UUID id) {
+        return indiceGlobal.shardDoId(id).orElse(0);
+    }
+
+    private static <T> List<T> concatenar(Collection<List<T>> listas) {
+        List<T> todas = new ArrayList<>();
+        listas.forEach(todas::addAll);
+        return todas;
+    }
+
+    private ExcecaoChavePix recusar(CodigoErroChavePix codigo, String mensagem) {
+        metricasChavePix.registrarRecusa(codigo);
+        return new ExcecaoChavePix(codigo, mensagem);
+    }
+}
@@ -0,0 +1,870 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.DTO.RespostaEstatisticasChavePixDTO;
+import com.itau.case_pix.DTO.RespostaInativacaoLoteDTO;
+import com.itau.case_pix.DTO.RespostaInclusaoChavePixDTO;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Armazenamento embarcado, sem banco (perfil "log"): cada mutação é anexada a um log append-only mapeado em
+// memória e aplicada a índices em memória (por id, por valor, por conta e por data de inclusão), que servem
+// todas as consultas. Um snapshot compactado é gravado periodicamente; na subida o estado é o snapshot mais as
+// mutações do log posteriores a ele. As regras e as recusas são as mesmas do ServicoImplementacaoChavePix
+@Service
+@Profile("log")
+@Timed(value = "chaves.pix.servico", histogram = true)
+public class ServicoChavePixLog implements ServicoChavePix {
+
+    private static final Logger log = LoggerFactory.getLogger(ServicoChavePixLog.class);
+
+    private static final UUID ID_INICIAL = new UUID(0L, 0L);
+    private static final int TAMANHO_PAGINA_PERCURSO = 500;
+
+    // Mesma ordem das listagens do banco: data de inclusão e id (bytes sem sinal)
+    private static final Comparator<ChaveArmazenada> ORDEM_INCLUSAO = Comparator
+            .comparing(ChaveArmazenada::dataHoraInclusaoChave)
+            .thenComparing(ChaveArmazenada::id, PaginacaoChavesPix::compararIds);
+
+    private final ValidadorValorChavePix validadorValorChavePix;
+    private final GeradorIdChavePix geradorIdChavePix;
+    private final MetricasChavePix metricasChavePix;
+    private final List<ConsumidorEventoChavePix> consumidores;
+    private final Path diretorio;
+    private final int tamanhoRegiao;
+    private final int tamanhoMaximoLote;
+
+    // Escritas (log e índices) com a trava de escrita; consultas com a de leitura
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private final NavigableMap<UUID, ChaveArmazenada> porId = new TreeMap<>(PaginacaoChavesPix::compararIds);
+    // "tipo:valor" de todas as chaves, ativas e inativas, como o índice único do banco
+    private final Map<String, UUID> porValor = new HashMap<>();
+    private final Map<Long, Set<UUID>> porConta = new HashMap<>();
+    private final NavigableSet<ChaveArmazenada> ativas = new TreeSet<>(ORDEM_INCLUSAO);
+    private final NavigableSet<ChaveArmazenada> inativas = new TreeSet<>(ORDEM_INCLUSAO);
+    private final Map<String, NavigableSet<ChaveArmazenada>> ativasPorTipo = new HashMap<>();
+
+    private LogChavesPix logMutacoes;
+    private long sequencia;
+    private long mutacoesDesdeSnapshot;
+
+    @Autowired
+    public ServicoChavePixLog(ValidadorValorChavePix validadorValorChavePix, GeradorIdChavePix geradorIdChavePix,
+            MetricasChavePix metricasChavePix, List<ConsumidorEventoChavePix> consumidores,
+            @Value("${case-pix.log.diretorio:dados-chaves}") String diretorio,
+            @Value("${case-pix.log.tamanho-regiao:64MB}") DataSize tamanhoRegiao,
+            @Value("${case-pix.lote.tamanho-maximo:1000}") int tamanhoMaximoLote) {
+        this.validadorValorChavePix = validadorValorChavePix;
+        this.geradorIdChavePix = geradorIdChavePix;
+        this.metricasChavePix = metricasChavePix;
+        this.consumidores = consumidores;
+        this.diretorio = Path.of(diretorio);
+        this.tamanhoRegiao = Math.toIntExact(tamanhoRegiao.toBytes());
+        this.tamanhoMaximoLote = tamanhoMaximoLote;
+    }
+
+    // Snapshot mais recente e depois os logs a partir da geração registrada nele; o fim de um log interrompido
+    // no meio de uma escrita é descartado
+    @PostConstruct
+    public void recuperar() throws IOException {
+        long inicio = System.nanoTime();
+        Files.createDirectories(diretorio);
+
+        long geracao = 0;
+        SnapshotChavesPix.Conteudo snapshot = SnapshotChavesPix.ler(diretorio);
+        if (snapshot != null) {
+            snapshot.chaves().forEach(this::indexar);
+            sequencia = snapshot.sequencia();
+            geracao = snapshot.geracaoLog();
+            // Sobras de uma compactação interrompida depois de gravar o snapshot
+            LogChavesPix.removerAnteriores(diretorio, geracao);
+        }
+
+        long posicao = 0;
+        for (long geracaoLog : LogChavesPix.geracoes(diretorio)) {
+            posicao = LogChavesPix.ler(LogChavesPix.arquivo(diretorio, geracaoLog), registro -> {
+                indexar(registro.chave());
+                sequencia = Math.max(sequencia, registro.sequencia());
+                mutacoesDesdeSnapshot++;
+            });
+            geracao = geracaoLog;
+        }
+        logMutacoes = LogChavesPix.abrir(diretorio, geracao, posicao, tamanhoRegiao);
+
+        log.info("Armazenamento em log recuperado em {} ms: {} chaves ({} do snapshot, {} mutações do log)",
+                (System.nanoTime() - inicio) / 1_000_000, porId.size(),
+                snapshot != null ? snapshot.chaves().size() : 0, mutacoesDesdeSnapshot);
+    }
+
+    // Troca o log por uma nova geração e grava o estado num snapshot; os logs anteriores deixam de ser necessários.
+    // Só a troca de geração e a cópia das referências bloqueiam as escritas
+    @Scheduled(fixedDelayString = "${case-pix.log.intervalo-snapshot:PT10M}",
+            initialDelayString = "${case-pix.log.intervalo-snapshot:PT10M}")
+    public void compactarPeriodicamente() {
+        try {
+            compactar();
+        } catch (IOException | RuntimeException e) {
+            // Os logs continuam no disco; a próxima compactação tenta de novo
+            log.warn("Falha ao gravar o snapshot das chaves PIX", e);
+        }
+    }
+
+    public synchronized void compactar() throws IOException {
+        List<ChaveArmazenada> estado;
+        long geracao;
+        long ultimaSequencia;
+        long pendentes;
+        trava.writeLock().lock();
+        try {
+            if (mutacoesDesdeSnapshot == 0) {
+                return;
+            }
+            estado = new ArrayList<>(porId.values());
+            ultimaSequencia = sequencia;
+            pendentes = mutacoesDesdeSnapshot;
+            geracao = logMutacoes.geracao() + 1;
+            LogChavesPix novo = LogChavesPix.abrir(diretorio, geracao, 0, tamanhoRegiao);
+            logMutacoes.close();
+            logMutacoes = novo;
+            mutacoesDesdeSnapshot = 0;
+        } finally {
+            trava.writeLock().unlock();
+        }
+        try {
+            SnapshotChavesPix.gravar(diretorio, geracao, ultimaSequencia, estado);
+        } catch (IOException | RuntimeException e) {
+            trava.writeLock().lock();
+            try {
+                mutacoesDesdeSnapshot += pendentes;
+            } finally {
+                trava.writeLock().unlock();
+            }
+            throw e;
+        }
+        LogChavesPix.removerAnteriores(diretorio, geracao);
+    }
+
+    // Um snapshot no encerramento deixa a próxima subida sem log para reaplicar
+    @PreDestroy
+    public void encerrar() throws IOException {
+        compactarPeriodicamente();
+        trava.writeLock().lock();
+        try {
+            logMutacoes.close();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EntidadeChavePix incluirChave(EntidadeChavePix chavePix) {
+        ServicoImplementacaoChavePix.normalizarDados(chavePix);
+        if (!validarChave(chavePix)) {
+            throw recusar(CodigoErroChavePix.DADOS_INVALIDOS, "Dados da chave PIX inválidos");
+        }
+        if (chavePix.getId() == null) {
+            chavePix.setId(geradorIdChavePix.gerar());
+        }
+        chavePix.setDataHoraInclusaoChave(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+
+        trava.writeLock().lock();
+        try {
+            if (porValor.containsKey(chaveValor(chavePix.getTipoChave(), chavePix.getValorChave()))) {
+                throw recusar(CodigoErroChavePix.CHAVE_DUPLICADA, "Já existe uma chave PIX com este valor");
+            }
+            if (contaComOutroTipoPessoa(chavePix.getNumeroAgencia(), chavePix.getNumeroConta(),
+                    chavePix.getTipoPessoa(), null)) {
+                throw recusar(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE,
+                        "Inconsistência: Esta conta (agência/número) já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+            }
+            if (ativasDaConta(chavePix.getNumeroAgencia(), chavePix.getNumeroConta())
+                    >= ServicoImplementacaoChavePix.limiteChaves(chavePix.getTipoPessoa())) {
+                throw recusar(CodigoErroChavePix.LIMITE_EXCEDIDO, "Limite de chaves PIX por conta excedido");
+            }
+            gravar(List.of(new Mutacao(EventoChavePix.Operacao.INCLUSAO, ChaveArmazenada.de(chavePix), Set.of())));
+        } finally {
+            trava.writeLock().unlock();
+        }
+        return chavePix;
+    }
+
+    // Todas as chaves aceitas do lote vão para o log numa única escrita
+    @Override
+    public List<ResultadoInclusaoLoteDTO> incluirChavesEmLote(List<EntidadeChavePix> chaves) {
+        return incluirEmLote(chaves, false);
+    }
+
+    @Override
+    public List<ResultadoInclusaoLoteDTO> restaurarChavesEmLote(List<EntidadeChavePix> chaves) {
+        return incluirEmLote(chaves, true);
+    }
+
+    private List<ResultadoInclusaoLoteDTO> incluirEmLote(List<EntidadeChavePix> chaves, boolean restauracao) {
+        if (chaves.size() > tamanhoMaximoLote) {
+            throw recusar(CodigoErroChavePix.LOTE_EXCEDIDO,
+                    "O lote excede o limite de " + tamanhoMaximoLote + " chaves PIX");
+        }
+
+        ResultadoInclusaoLoteDTO[] resultados = new ResultadoInclusaoLoteDTO[chaves.size()];
+        List<Integer> candidatos = new ArrayList<>();
+        for (int i = 0; i < chaves.size(); i++) {
+            EntidadeChavePix chavePix = chaves.get(i);
+            if (chavePix != null) {
+                ServicoImplementacaoChavePix.normalizarDados(chavePix);
+            }
+            if (chavePix == null || !validarChave(chavePix)
+                    || (restauracao && !ServicoImplementacaoChavePix.restauravel(chavePix))) {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.DADOS_INVALIDOS);
+                resultados[i] = new ResultadoInclusaoLoteDTO(i, "Dados da chave PIX inválidos");
+            } else {
+                candidatos.add(i);
+            }
+        }
+
+        List<Integer> aceitas = new ArrayList<>();
+        trava.writeLock().lock();
+        try {
+            // Chaves já aceitas neste lote contam como existentes na unicidade, no tipo de pessoa e no limite
+            Set<String> valoresDoLote = new HashSet<>();
+            Set<UUID> idsDoLote = new HashSet<>();
+            Map<Long, String> tipoPessoaDoLote = new HashMap<>();
+            Map<Long, Integer> ativasDoLote = new HashMap<>();
+            List<Mutacao> mutacoes = new ArrayList<>();
+            for (int i : candidatos) {
+                EntidadeChavePix chavePix = chaves.get(i);
+                String valor = chaveValor(chavePix.getTipoChave(), chavePix.getValorChave());
+                if (porValor.containsKey(valor) || valoresDoLote.contains(valor)) {
+                    metricasChavePix.registrarRecusa(CodigoErroChavePix.CHAVE_DUPLICADA);
+                    resultados[i] = new ResultadoInclusaoLoteDTO(i, "Já existe uma chave PIX com este valor");
+                    continue;
+                }
+                // No banco, a chave primária recusaria o id repetido; aqui ele substituiria a chave existente
+                if (chavePix.getId() != null
+                        && (porId.containsKey(chavePix.getId()) || !idsDoLote.add(chavePix.getId()))) {
+                    metricasChavePix.registrarRecusa(CodigoErroChavePix.CHAVE_DUPLICADA);
+                    resultados[i] = new ResultadoInclusaoLoteDTO(i, "Já existe uma chave PIX com este id");
+                    continue;
+                }
+
+                long conta = chaveConta(chavePix.getNumeroAgencia(), chavePix.getNumeroConta());
+                String tipoPessoaLote = tipoPessoaDoLote.get(conta);
+                if (contaComOutroTipoPessoa(chavePix.getNumeroAgencia(), chavePix.getNumeroConta(),
+                        chavePix.getTipoPessoa(), null)
+                        || (tipoPessoaLote != null && !tipoPessoaLote.equals(chavePix.getTipoPessoa()))) {
+                    metricasChavePix.registrarRecusa(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE);
+                    resultados[i] = new ResultadoInclusaoLoteDTO(i,
+                            "Inconsistência: Esta conta (agência/número) já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+                    continue;
+                }
+                // Na restauração, chaves inativas não contam para o limite
+                boolean ativa = !restauracao || chavePix.isAtiva();
+                if (ativa && ativasDaConta(chavePix.getNumeroAgencia(), chavePix.getNumeroConta())
+                        + ativasDoLote.getOrDefault(conta, 0)
+                        >= ServicoImplementacaoChavePix.limiteChaves(chavePix.getTipoPessoa())) {
+                    metricasChavePix.registrarRecusa(CodigoErroChavePix.LIMITE_EXCEDIDO);
+                    resultados[i] = new ResultadoInclusaoLoteDTO(i, "Limite de chaves PIX por conta excedido");
+                    continue;
+                }
+
+                valoresDoLote.add(valor);
+                tipoPessoaDoLote.put(conta, chavePix.getTipoPessoa());
+                if (ativa) {
+                    ativasDoLote.merge(conta, 1, Integer::sum);
+                }
+                if (chavePix.getId() == null) {
+                    chavePix.setId(geradorIdChavePix.gerar());
+                }
+                if (!restauracao) {
+                    chavePix.setDataHoraInclusaoChave(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+                }
+                mutacoes.add(new Mutacao(EventoChavePix.Operacao.INCLUSAO, ChaveArmazenada.de(chavePix), Set.of()));
+                aceitas.add(i);
+            }
+            gravar(mutacoes);
+        } finally {
+            trava.writeLock().unlock();
+        }
+
+        for (int i : aceitas) {
+            resultados[i] = new ResultadoInclusaoLoteDTO(i, new RespostaInclusaoChavePixDTO(chaves.get(i)));
+        }
+        return List.of(resultados);
+    }
+
+    @Override
+    public EntidadeChavePix alterarChave(UUID id, AlteracaoChavePixDTO alteracaoDTO) {
+        trava.writeLock().lock();
+        try {
+            ChaveArmazenada existente = porId.get(id);
+            if (existente == null) {
+                throw recusar(CodigoErroChavePix.CHAVE_NAO_ENCONTRADA, "Chave PIX não encontrada");
+            }
+            if (!existente.ativa()) {
+                throw recusar(CodigoErroChavePix.CHAVE_INATIVA, "Não é permitido alterar chaves inativadas");
+            }
+            EntidadeChavePix chave = existente.paraEntidade();
+            Set<String> camposAlterados = ServicoImplementacaoChavePix.validarAlteracao(chave, alteracaoDTO,
+                    metricasChavePix);
+
+            if (alteracaoDTO.getTipoConta() != null) {
+                chave.setTipoConta(alteracaoDTO.getTipoConta());
+            }
+            if (alteracaoDTO.getNumeroAgencia() != null) {
+                chave.setNumeroAgencia(alteracaoDTO.getNumeroAgencia());
+            }
+            if (alteracaoDTO.getNumeroConta() != null) {
+                chave.setNumeroConta(alteracaoDTO.getNumeroConta());
+            }
+            if (alteracaoDTO.getNomeCorrentista() != null) {
+                chave.setNomeCorrentista(alteracaoDTO.getNomeCorrentista());
+            }
+            if (alteracaoDTO.getSobrenomeCorrentista() != null) {
+                chave.setSobrenomeCorrentista(alteracaoDTO.getSobrenomeCorrentista());
+            }
+
+            // A alteração não está sujeita ao limite de chaves da nova conta
+            if ((camposAlterados.contains("numeroAgencia") || camposAlterados.contains("numeroConta"))
+                    && contaComOutroTipoPessoa(chave.getNumeroAgencia(), chave.getNumeroConta(),
+                            chave.getTipoPessoa(), id)) {
+                throw recusar(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE,
+                        "Inconsistência: A nova combinação de agência/conta já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+            }
+
+            gravar(List.of(new Mutacao(EventoChavePix.Operacao.ALTERACAO, ChaveArmazenada.de(chave),
+                    camposAlterados)));
+            return chave;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EntidadeChavePix inativarChave(UUID id) {
+        trava.writeLock().lock();
+        try {
+            ChaveArmazenada existente = porId.get(id);
+            if (existente == null) {
+                throw recusar(CodigoErroChavePix.CHAVE_NAO_ENCONTRADA, "Chave PIX não encontrada");
+            }
+            if (!existente.ativa()) {
+                throw recusar(CodigoErroChavePix.CHAVE_INATIVA, "Chave PIX já está inativada");
+            }
+            ChaveArmazenada inativada = existente.inativada(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+            gravar(List.of(new Mutacao(EventoChavePix.Operacao.INATIVACAO, inativada, Set.of())));
+            return inativada.paraEntidade();
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public RespostaInativacaoLoteDTO inativarChavesEmLote(List<UUID> ids) {
+        List<UUID> idsDistintos = ids.stream().distinct().toList();
+        if (idsDistintos.size() > tamanhoMaximoLote) {
+            throw recusar(CodigoErroChavePix.LOTE_EXCEDIDO,
+                    "O lote excede o limite de " + tamanhoMaximoLote + " chaves PIX");
+        }
+
+        LocalDateTime agora = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        RespostaInativacaoLoteDTO resposta = new RespostaInativacaoLoteDTO(agora);
+        trava.writeLock().lock();
+        try {
+            List<Mutacao> mutacoes = new ArrayList<>();
+            for (UUID id : idsDistintos) {
+                ChaveArmazenada chave = porId.get(id);
+                if (chave == null) {
+                    resposta.getNaoEncontradas().add(id);
+                } else if (chave.ativa()) {
+                    resposta.getInativadas().add(id);
+                    mutacoes.add(new Mutacao(EventoChavePix.Operacao.INATIVACAO, chave.inativada(agora), Set.of()));
+                } else {
+                    resposta.getJaInativadas().add(id);
+                    metricasChavePix.registrarRecusa(CodigoErroChavePix.CHAVE_INATIVA);
+                }
+            }
+            gravar(mutacoes);
+        } finally {
+            trava.writeLock().unlock();
+        }
+        return resposta;
+    }
+
+    @Override
+    public RespostaInativacaoLoteDTO inativarChavesDaConta(Integer numeroAgencia, Integer numeroConta) {
+        LocalDateTime agora = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        RespostaInativacaoLoteDTO resposta = new RespostaInativacaoLoteDTO(agora);
+        trava.writeLock().lock();
+        try {
+            List<Mutacao> mutacoes = new ArrayList<>();
+            for (UUID id : porConta.getOrDefault(chaveConta(numeroAgencia, numeroConta), Set.of())) {
+                ChaveArmazenada chave = porId.get(id);
+                if (chave.ativa()) {
+                    resposta.getInativadas().add(id);
+                    mutacoes.add(new Mutacao(EventoChavePix.Operacao.INATIVACAO, chave.inativada(agora), Set.of()));
+                } else {
+                    resposta.getJaInativadas().add(id);
+                }
+            }
+            gravar(mutacoes);
+        } finally {
+            trava.writeLock().unlock();
+        }
+        return resposta;
+    }
+
+    private record Mutacao(EventoChavePix.Operacao operacao, ChaveArmazenada chave, Set<String> camposAlterados) {
+    }
+
+    // Log primeiro (com msync), índices depois: uma mutação só fica visível depois de durável. Os eventos vão
+    // direto aos consumidores, sem outbox, já que o próprio log garante que a mutação não se perde
+    private void gravar(List<Mutacao> mutacoes) {
+        if (mutacoes.isEmpty()) {
+            return;
+        }
+        List<RegistroLogChavePix> registros = new ArrayList<>(mutacoes.size());
+        for (Mutacao mutacao : mutacoes) {
+            registros.add(new RegistroLogChavePix(sequencia + registros.size() + 1, mutacao.operacao(),
+                    mutacao.chave()));
+        }
+        try {
+            logMutacoes.anexar(registros);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar o log de chaves PIX", e);
+        }
+        sequencia += registros.size();
+        mutacoesDesdeSnapshot += registros.size();
+
+        LocalDateTime agora = LocalDateTime.now();
+        List<EventoOutboxChavePix> eventos = new ArrayList<>(mutacoes.size());
+        for (int n = 0; n < mutacoes.size(); n++) {
+            Mutacao mutacao = mutacoes.get(n);
+            indexar(mutacao.chave());
+            eventos.add(new EventoOutboxChavePix(registros.get(n).sequencia(), mutacao.chave().id(),
+                    mutacao.operacao(), mutacao.camposAlterados(), agora));
+        }
+        for (ConsumidorEventoChavePix consumidor : consumidores) {
+            try {
+                consumidor.consumir(eventos);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao entregar eventos de chaves PIX a {}", consumidor.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    // Substitui nos índices o estado anterior da chave, se houver
+    private void indexar(ChaveArmazenada chave) {
+        ChaveArmazenada anterior = porId.put(chave.id(), chave);
+        if (anterior != null) {
+            desindexar(anterior);
+        }
+        porValor.put(chaveValor(chave.tipoChave(), chave.valorChave()), chave.id());
+        porConta.computeIfAbsent(chaveConta(chave.numeroAgencia(), chave.numeroConta()), c -> new LinkedHashSet<>())
+                .add(chave.id());
+        if (chave.ativa()) {
+            ativas.add(chave);
+            ativasPorTipo.computeIfAbsent(chave.tipoChave(), t -> new TreeSet<>(ORDEM_INCLUSAO)).add(chave);
+        } else {
+            inativas.add(chave);
+        }
+    }
+
+    // Tipo e valor nunca mudam, então o índice por valor não precisa ser desfeito
+    private void desindexar(ChaveArmazenada chave) {
+        long conta = chaveConta(chave.numeroAgencia(), chave.numeroConta());
+        Set<UUID> idsDaConta = porConta.get(conta);
+        idsDaConta.remove(chave.id());
+        if (idsDaConta.isEmpty()) {
+            porConta.remove(conta);
+        }
+        if (chave.ativa()) {
+            ativas.remove(chave);
+            ativasPorTipo.get(chave.tipoChave()).remove(chave);
+        } else {
+            inativas.remove(chave);
+        }
+    }
+
+    private static String chaveValor(String tipoChave, String valorChave) {
+        return tipoChave + ':' + valorChave;
+    }
+
+    private static long chaveConta(Integer numeroAgencia, Integer numeroConta) {
+        return (long) numeroAgencia << 32 | (numeroConta & 0xFFFFFFFFL);
+    }
+
+    private boolean contaComOutroTipoPessoa(Integer numeroAgencia, Integer numeroConta, String tipoPessoa,
+            UUID ignorada) {
+        for (UUID id : porConta.getOrDefault(chaveConta(numeroAgencia, numeroConta), Set.of())) {
+            if (!id.equals(ignorada) && !porId.get(id).tipoPessoa().equals(tipoPessoa)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long ativasDaConta(Integer numeroAgencia, Integer numeroConta) {
+        return porConta.getOrDefault(chaveConta(numeroAgencia, numeroConta), Set.of()).stream()
+                .filter(id -> porId.get(id).ativa())
+                .count();
+    }
+
+    private ExcecaoChavePix recusar(CodigoErroChavePix codigo, String mensagem) {
+        return ServicoImplementacaoChavePix.recusar(metricasChavePix, codigo, mensagem);
+    }
+
+    @Override
+    public Optional<EntidadeChavePix> buscarPorId(UUID id) {
+        trava.readLock().lock();
+        try {
+            return Optional.ofNullable(porId.get(id)).map(ChaveArmazenada::paraEntidade);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<RespostaConsultaChavePixDTO> buscarPorValorChave(String tipoChave, String valorChave) {
+        trava.readLock().lock();
+        try {
+            UUID id = porValor.get(chaveValor(ServicoImplementacaoChavePix.normalizarTipoChave(tipoChave), valorChave));
+            return Optional.ofNullable(id).map(porId::get).map(ChaveArmazenada::paraConsulta);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarPorTipoChave(String tipoChave) {
+        return listar(chave -> chave.tipoChave().equals(tipoChave));
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarPorAgenciaConta(Integer numeroAgencia, Integer numeroConta) {
+        trava.readLock().lock();
+        try {
+            return porConta.getOrDefault(chaveConta(numeroAgencia, numeroConta), Set.of()).stream()
+                    .map(id -> porId.get(id).paraEntidade())
+                    .toList();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim) {
+        return listar(chave -> !chave.dataHoraInclusaoChave().isBefore(inicio)
+                && !chave.dataHoraInclusaoChave().isAfter(fim));
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarChavesAtivas() {
+        return listar(ChaveArmazenada::ativa);
+    }
+
+    @Override
+    public List<EntidadeChavePix> buscarChavesInativas() {
+        return listar(chave -> !chave.ativa());
+    }
+
+    private List<EntidadeChavePix> listar(Predicate<ChaveArmazenada> filtro) {
+        trava.readLock().lock();
+        try {
+            return porId.values().stream().filter(filtro).map(ChaveArmazenada::paraEntidade).toList();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // Consultas paginadas: a partir do cursor no índice ordenado por (data de inclusão, id), sem varrer as
+    // chaves anteriores
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarPorTipoChave(String tipoChave, ScrollPosition posicao, int limite) {
+        trava.readLock().lock();
+        try {
+            NavigableSet<ChaveArmazenada> doTipo = ativasPorTipo.getOrDefault(tipoChave, Collections.emptyNavigableSet());
+            return pagina(doTipo.tailSet(marcador(posicao), false), limite, chave -> false);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim,
+            ScrollPosition posicao, int limite) {
+        trava.readLock().lock();
+        try {
+            ChaveArmazenada cursor = marcador(posicao);
+            NavigableSet<ChaveArmazenada> aPartir = cursor.dataHoraInclusaoChave().isBefore(inicio)
+                    ? ativas.tailSet(marcador(inicio, ID_INICIAL), true)
+                    : ativas.tailSet(cursor, false);
+            return pagina(aPartir, limite, chave -> chave.dataHoraInclusaoChave().isAfter(fim));
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarChavesAtivas(ScrollPosition posicao, int limite) {
+        trava.readLock().lock();
+        try {
+            return pagina(ativas.tailSet(marcador(posicao), false), limite, chave -> false);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarChavesInativas(ScrollPosition posicao, int limite) {
+        trava.readLock().lock();
+        try {
+            return pagina(inativas.tailSet(marcador(posicao), false), limite, chave -> false);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private static Window<RespostaConsultaChavePixDTO> pagina(Iterable<ChaveArmazenada> aPartir, int limite,
+            Predicate<ChaveArmazenada> fim) {
+        List<RespostaConsultaChavePixDTO> resultado = new ArrayList<>();
+        for (ChaveArmazenada chave : aPartir) {
+            if (resultado.size() > limite || fim.test(chave)) {
+                break;
+            }
+            resultado.add(chave.paraConsulta());
+        }
+        return PaginacaoChavesPix.janela(resultado, limite);
+    }
+
+    private static ChaveArmazenada marcador(ScrollPosition posicao) {
+        return marcador(PaginacaoChavesPix.dataApos(posicao), PaginacaoChavesPix.idApos(posicao));
+    }
+
+    // Só data e id participam da ordem dos índices
+    private static ChaveArmazenada marcador(LocalDateTime dataHoraInclusao, UUID id) {
+        return new ChaveArmazenada(id, null, null, null, null, null, null, null, null, dataHoraInclusao, null);
+    }
+
+    // Sem índice de trigramas: percorre as chaves em ordem de id a partir do cursor até completar a página
+    @Override
+    public Window<RespostaConsultaChavePixDTO> buscarPorNomeCorrentista(String nome, ScrollPosition posicao,
+            int limite) {
+        Predicate<ChaveArmazenada> corresponde = filtroNome(nome);
+        if (corresponde == null) {
+            return PaginacaoChavesPix.janela(List.of(), limite);
+        }
+        trava.readLock().lock();
+        try {
+            List<RespostaConsultaChavePixDTO> resultado = new ArrayList<>();
+            for (ChaveArmazenada chave : porId.tailMap(PaginacaoChavesPix.idApos(posicao), false).values()) {
+                if (resultado.size() > limite) {
+                    break;
+                }
+                if (chave.ativa() && corresponde.test(chave)) {
+                    resultado.add(chave.paraConsulta());
+                }
+            }
+            return PaginacaoChavesPix.janela(resultado, limite);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existeChaveComNome(String nome) {
+        Predicate<ChaveArmazenada> corresponde = filtroNome(nome);
+        if (corresponde == null) {
+            return false;
+        }
+        trava.readLock().lock();
+        try {
+            return porId.values().stream().anyMatch(corresponde);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // Mesma regra do IndiceNomeCorrentista: com três ou mais letras, nomes que contêm o termo; com uma ou duas,
+    // nomes com alguma palavra que começa com ele
+    private static Predicate<ChaveArmazenada> filtroNome(String nome) {
+        String termo = EntidadeChavePix.normalizarNome(nome);
+        if (termo == null || termo.isEmpty()) {
+            return null;
+        }
+        if (termo.length() >= 3) {
+            return chave -> EntidadeChavePix.normalizarNome(chave.nomeCorrentista()).contains(termo);
+        }
+        String inicioPalavra = " " + termo;
+        return chave -> (" " + EntidadeChavePix.normalizarNome(chave.nomeCorrentista())).contains(inicioPalavra);
+    }
+
+    // Calculadas a cada consulta, numa passada pelas chaves em memória
+    @Override
+    public RespostaEstatisticasChavePixDTO consultarEstatisticas() {
+        long[] total = new long[2];
+        Map<String, long[]> porTipoChave = new TreeMap<>();
+        Map<String, long[]> porTipoPessoa = new TreeMap<>();
+        Map<Integer, long[]> porAgencia = new TreeMap<>();
+        trava.readLock().lock();
+        try {
+            for (ChaveArmazenada chave : porId.values()) {
+                int situacao = chave.ativa() ? 0 : 1;
+                total[situacao]++;
+                porTipoChave.computeIfAbsent(chave.tipoChave(), k -> new long[2])[situacao]++;
+                porTipoPessoa.computeIfAbsent(chave.tipoPessoa(), k -> new long[2])[situacao]++;
+                porAgencia.computeIfAbsent(chave.numeroAgencia(), k -> new long[2])[situacao]++;
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+
+        RespostaEstatisticasChavePixDTO resposta = new RespostaEstatisticasChavePixDTO();
+        resposta.setDataHoraReconciliacao(LocalDateTime.now());
+        resposta.setTotal(new RespostaEstatisticasChavePixDTO.Contagem(total[0], total[1]));
+        resposta.setPorTipoChave(contagens(porTipoChave));
+        resposta.setPorTipoPessoa(contagens(porTipoPessoa));
+        resposta.setPorAgencia(contagens(porAgencia));
+        return resposta;
+    }
+
+    private static <K> Map<K, RespostaEstatisticasChavePixDTO.Contagem> contagens(Map<K, long[]> origem) {
+        Map<K, RespostaEstatisticasChavePixDTO.Contagem> contagens = new TreeMap<>();
+        origem.forEach((chave, quantidade) -> contagens.put(chave,
+                new RespostaEstatisticasChavePixDTO.Contagem(quantidade[0], quantidade[1])));
+        return contagens;
+    }
+
+    @Override
+    public boolean existeChaveComTipo(String tipoChave) {
+        trava.readLock().lock();
+        try {
+            return porId.values().stream().anyMatch(chave -> chave.tipoChave().equals(tipoChave));
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existeChaveNoPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        trava.readLock().lock();
+        try {
+            return porId.values().stream().anyMatch(chave -> !chave.dataHoraInclusaoChave().isBefore(inicio)
+                    && !chave.dataHoraInclusaoChave().isAfter(fim));
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // Em páginas, soltando a trava entre elas: uma exportação lenta não bloqueia as escritas
+    @Override
+    public void percorrerChavesAtivas(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        percorrer(posicao -> buscarChavesAtivas(posicao, TAMANHO_PAGINA_PERCURSO), consumidor);
+    }
+
+    @Override
+    public void percorrerChavesInativas(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        percorrer(posicao -> buscarChavesInativas(posicao, TAMANHO_PAGINA_PERCURSO), consumidor);
+    }
+
+    // Em ordem de id, que não muda com a inativação: cada chave aparece uma vez
+    @Override
+    public void percorrerChaves(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        UUID ultimo = null;
+        while (true) {
+            List<RespostaConsultaChavePixDTO> pagina = new ArrayList<>(TAMANHO_PAGINA_PERCURSO);
+            trava.readLock().lock();
+            try {
+                for (ChaveArmazenada chave : (ultimo == null ? porId : porId.tailMap(ultimo, false)).values()) {
+                    if (pagina.size() == TAMANHO_PAGINA_PERCURSO) {
+                        break;
+                    }
+                    pagina.add(chave.paraConsulta());
+                }
+            } finally {
+                trava.readLock().unlock();
+            }
+            pagina.forEach(consumidor);
+            if (pagina.size() < TAMANHO_PAGINA_PERCURSO) {
+                return;
+            }
+            ultimo = pagina.get(pagina.size() - 1).getId();
+        }
+    }
+
+    private static void percorrer(Function<ScrollPosition, Window<RespostaConsultaChavePixDTO>> proxima,
+            Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        Window<RespostaConsultaChavePixDTO> pagina = proxima.apply(ScrollPosition.keyset());
+        pagina.forEach(consumidor);
+        while (pagina.hasNext()) {
+            pagina = proxima.apply(pagina.positionAt(pagina.size() - 1));
+            pagina.forEach(consumidor);
+        }
+    }
+
+    @Override
+    public boolean validarChave(EntidadeChavePix chavePix) {
+        return ServicoImplementacaoChavePix.validarChave(chavePix, validadorValorChavePix);
+    }
+
+    @Override
+    public boolean validarTipoChave(String tipoChave) {
+        return ServicoImplementacaoChavePix.tipoChaveValido(tipoChave);
+    }
+
+    @Override
+    public boolean validarValorChave(String tipoChave, String valorChave) {
+        return ServicoImplementacaoChavePix.validarValorChave(tipoChave, valorChave, validadorValorChavePix);
+    }
+
+    @Override
+    public boolean validarLimiteChavesPorConta(Integer numeroAgencia, Integer numeroConta, String tipoPessoa) {
+        trava.readLock().lock();
+        try {
+            return ativasDaConta(numeroAgencia, numeroConta) < ServicoImplementacaoChavePix.limiteChaves(tipoPessoa);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+}
@@ -2,26 +2,97 @@ package com.itau.case_pix.servico;
 
 import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
 
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.DTO.RespostaEstatisticasChavePixDTO;
+import com.itau.case_pix.DTO.RespostaInativacaoLoteDTO;
+import com.itau.case_pix.DTO.RespostaInclusaoChavePixDTO;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
 import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.modelo.EntidadeContaChavePix;
+import com.itau.case_pix.modelo.IdContaChavePix;
 import com.itau.case_pix.repositorio.RepositorioChavePix;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+// Cada método público gera o timer chaves.pix.servico{method=...}, com histograma para os percentis
 @Service
+@Profile("!log")
+@Timed(value = "chaves.pix.servico", histogram = true)
 public class ServicoImplementacaoChavePix implements ServicoChavePix {
 
+    private static final int LIMITE_CHAVES_PESSOA_FISICA = 5;
+    private static final int LIMITE_CHAVES_PESSOA_JURIDICA = 20;
+
+    // Tamanho máximo das listas IN (o Oracle aceita no máximo 1000 elementos)
+    private static final int TAMANHO_MAXIMO_IN = 500;
+
+    // Índice único de (tipo_chave, valor_chave), criado pela migração V1
+    private static final String INDICE_UNICIDADE_CHAVE = "UK_PIX_ITAU_DB_TIPO_VALOR";
+
     private final RepositorioChavePix repositorioChavePix;
+    private final DiretorioChavesPix diretorioChavesPix;
+    private final ContadorChavesConta contadorChavesConta;
+    private final ValidadorValorChavePix validadorValorChavePix;
+    private final FiltroChavesPix filtroChavesPix;
+    private final IndiceNomeCorrentista indiceNomeCorrentista;
+    private final EstatisticasChavePix estatisticasChavePix;
+    private final GeradorIdChavePix geradorIdChavePix;
+    private final MetricasChavePix metricasChavePix;
+    private final ApplicationEventPublisher publicadorEventos;
+    private final EntityManager entityManager;
+    private final int tamanhoMaximoLote;
+    private final int tamanhoBatchJdbc;
 
     @Autowired
-    public ServicoImplementacaoChavePix(RepositorioChavePix repositorioChavePix) {
+    public ServicoImplementacaoChavePix(RepositorioChavePix repositorioChavePix,
+            DiretorioChavesPix diretorioChavesPix, ContadorChavesConta contadorChavesConta,
+            ValidadorValorChavePix validadorValorChavePix, FiltroChavesPix filtroChavesPix,
+            IndiceNomeCorrentista indiceNomeCorrentista, EstatisticasChavePix estatisticasChavePix,
+            GeradorIdChavePix geradorIdChavePix, MetricasChavePix metricasChavePix,
+            ApplicationEventPublisher publicadorEventos, EntityManager entityManager,
+            @Value("${case-pix.lote.tamanho-maximo:1000}") int tamanhoMaximoLote,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int tamanhoBatchJdbc) {
         this.repositorioChavePix = repositorioChavePix;
+        this.diretorioChavesPix = diretorioChavesPix;
+        this.contadorChavesConta = contadorChavesConta;
+        this.validadorValorChavePix = validadorValorChavePix;
+        this.filtroChavesPix = filtroChavesPix;
+        this.indiceNomeCorrentista = indiceNomeCorrentista;
+        this.estatisticasChavePix = estatisticasChavePix;
+        this.geradorIdChavePix = geradorIdChavePix;
+        this.metricasChavePix = metricasChavePix;
+        this.publicadorEventos = publicadorEventos;
+        this.entityManager = entityManager;
+        this.tamanhoMaximoLote = tamanhoMaximoLote;
+        this.tamanhoBatchJdbc = tamanhoBatchJdbc;
     }
 
     @Override
@@ -32,50 +103,376 @@ public class ServicoImplementacaoChavePix implements ServicoChavePix {
 
         // Validar a chave antes de incluir
         if (!validarChave(chavePix)) {
-            throw new IllegalArgumentException("Dados da chave PIX inválidos");
+            throw recusar(CodigoErroChavePix.DADOS_INVALIDOS, "Dados da chave PIX inválidos");
         }
 
-        // Verificar se já existe chave com mesmo valor
-        if (repositorioChavePix.existsByTipoChaveAndValorChave(chavePix.getTipoChave(), chavePix.getValorChave())) {
-            throw new IllegalArgumentException("Já existe uma chave PIX com este valor");
+        // Gerar UUID para a nova chave se não foi informado
+        if (chavePix.getId() == null) {
+            chavePix.setId(geradorIdChavePix.gerar());
         }
 
-        if (repositorioChavePix.existsByNumeroAgenciaAndNumeroContaAndTipoPessoaNot(
-                chavePix.getNumeroAgencia(), chavePix.getNumeroConta(), chavePix.getTipoPessoa())) {
-            throw new IllegalArgumentException(
-                    "Inconsistência: Esta conta (agência/número) já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+        // Definir data e hora atual para inclusão, na precisão da coluna (a entidade devolvida bate com a gravada)
+        chavePix.setDataHoraInclusaoChave(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+
+        // Inserir sem consulta prévia: chave com mesmo valor é recusada pelo índice único do banco
+        inserir(chavePix);
+
+        // Verificar tipo de pessoa da conta e limite de chaves com um único incremento condicional do contador
+        switch (contadorChavesConta.reservar(chavePix.getNumeroAgencia(), chavePix.getNumeroConta(),
+                chavePix.getTipoPessoa(), 1, limiteChaves(chavePix.getTipoPessoa()))) {
+            case TIPO_PESSOA_DIVERGENTE:
+                throw recusar(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE,
+                        "Inconsistência: Esta conta (agência/número) já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+            case LIMITE_EXCEDIDO:
+                throw recusar(CodigoErroChavePix.LIMITE_EXCEDIDO, "Limite de chaves PIX por conta excedido");
+            default:
+                break;
         }
 
-        // Verificar limite de chaves por conta
-        if (!validarLimiteChavesPorConta(chavePix.getNumeroAgencia(), chavePix.getNumeroConta(),
-                chavePix.getTipoPessoa())) {
-            throw new IllegalArgumentException("Limite de chaves PIX por conta excedido");
+        indiceNomeCorrentista.indexar(List.of(chavePix));
+        estatisticasChavePix.registrarInclusao(chavePix);
+        publicadorEventos.publishEvent(new EventoChavePix(EventoChavePix.Operacao.INCLUSAO, chavePix));
+        return chavePix;
+    }
+
+    // Conta a recusa e devolve a exceção tipada, que o GlobalExceptionHandler converte no status do código
+    private ExcecaoChavePix recusar(CodigoErroChavePix codigo, String mensagem) {
+        return recusar(metricasChavePix, codigo, mensagem);
+    }
+
+    static ExcecaoChavePix recusar(MetricasChavePix metricas, CodigoErroChavePix codigo, String mensagem) {
+        metricas.registrarRecusa(codigo);
+        return new ExcecaoChavePix(codigo, mensagem);
+    }
+
+    // persist + flush em vez de save: o save faria um SELECT antes do INSERT, já que o id é atribuído aqui
+    private void inserir(EntidadeChavePix chavePix) {
+        try {
+            entityManager.persist(chavePix);
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            throw traduzirViolacaoUnicidade(e);
         }
+    }
 
-        // Gerar UUID para a nova chave se não foi informado
-        if (chavePix.getId() == null) {
-            chavePix.setId(UUID.randomUUID());
+    // A violação do índice único (tipo_chave, valor_chave) vira a mesma resposta da antiga verificação prévia
+    private RuntimeException traduzirViolacaoUnicidade(PersistenceException e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacao && violacao.getConstraintName() != null
+                    && violacao.getConstraintName().toUpperCase().contains(INDICE_UNICIDADE_CHAVE)) {
+                return recusar(CodigoErroChavePix.CHAVE_DUPLICADA, "Já existe uma chave PIX com este valor");
+            }
+        }
+        return e;
+    }
+
+    @Override
+    @Transactional
+    public List<ResultadoInclusaoLoteDTO> incluirChavesEmLote(List<EntidadeChavePix> chaves) {
+        return incluirEmLote(chaves, false);
+    }
+
+    // Chaves inativas entram no contador da conta já inativadas, sem contar para o limite de chaves ativas
+    @Override
+    @Transactional
+    public List<ResultadoInclusaoLoteDTO> restaurarChavesEmLote(List<EntidadeChavePix> chaves) {
+        return incluirEmLote(chaves, true);
+    }
+
+    private List<ResultadoInclusaoLoteDTO> incluirEmLote(List<EntidadeChavePix> chaves, boolean restauracao) {
+        if (chaves.size() > tamanhoMaximoLote) {
+            throw recusar(CodigoErroChavePix.LOTE_EXCEDIDO,
+                    "O lote excede o limite de " + tamanhoMaximoLote + " chaves PIX");
+        }
+
+        ResultadoInclusaoLoteDTO[] resultados = new ResultadoInclusaoLoteDTO[chaves.size()];
+
+        // Normalizar e validar todos os itens antes de qualquer acesso ao banco
+        List<Integer> candidatos = new ArrayList<>();
+        for (int i = 0; i < chaves.size(); i++) {
+            EntidadeChavePix chavePix = chaves.get(i);
+            if (chavePix != null) {
+                normalizarDados(chavePix);
+            }
+            if (chavePix == null || !validarChave(chavePix) || (restauracao && !restauravel(chavePix))) {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.DADOS_INVALIDOS);
+                resultados[i] = new ResultadoInclusaoLoteDTO(i, "Dados da chave PIX inválidos");
+            } else {
+                candidatos.add(i);
+            }
+        }
+
+        // Unicidade, tipo de pessoa e limite por conta resolvidos com consultas por conjunto
+        Set<String> chavesExistentes = buscarChavesExistentes(chaves, candidatos);
+        Map<IdContaChavePix, SituacaoConta> contas = buscarSituacaoContas(chaves, candidatos);
+
+        // Contas em ordem fixa de agência e conta: dois lotes com as mesmas contas travam os contadores na mesma
+        // ordem e não entram em deadlock
+        Map<IdContaChavePix, List<Integer>> aceitasPorConta = new TreeMap<>();
+        for (int i : candidatos) {
+            EntidadeChavePix chavePix = chaves.get(i);
+
+            // Itens já aceitos neste lote também contam como chave existente
+            String chave = chavePix.getTipoChave() + ':' + chavePix.getValorChave();
+            if (chavesExistentes.contains(chave)) {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.CHAVE_DUPLICADA);
+                resultados[i] = new ResultadoInclusaoLoteDTO(i, "Já existe uma chave PIX com este valor");
+                continue;
+            }
+
+            SituacaoConta conta = contas.computeIfAbsent(contaDe(chavePix), c -> new SituacaoConta());
+            if (conta.possuiOutroTipoPessoa(chavePix.getTipoPessoa())) {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE);
+                resultados[i] = new ResultadoInclusaoLoteDTO(i,
+                        "Inconsistência: Esta conta (agência/número) já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+                continue;
+            }
+            if (ativaNoLote(chavePix, restauracao)
+                    && excedeLimiteChaves(chavePix.getTipoPessoa(), conta.quantidadeAtivas)) {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.LIMITE_EXCEDIDO);
+                resultados[i] = new ResultadoInclusaoLoteDTO(i, "Limite de chaves PIX por conta excedido");
+                continue;
+            }
+
+            chavesExistentes.add(chave);
+            conta.tiposPessoa.add(chavePix.getTipoPessoa());
+            if (ativaNoLote(chavePix, restauracao)) {
+                conta.quantidadeAtivas++;
+            }
+            aceitasPorConta.computeIfAbsent(contaDe(chavePix), c -> new ArrayList<>()).add(i);
+        }
+
+        // Reservar no contador as chaves aceitas de cada conta; se outra transação mudou a conta desde a
+        // leitura, as chaves da conta são recusadas
+        List<EntidadeChavePix> aceitas = new ArrayList<>();
+        List<Integer> indicesAceitos = new ArrayList<>();
+        for (List<Integer> indices : aceitasPorConta.values()) {
+            EntidadeChavePix primeira = chaves.get(indices.get(0));
+            // As inativas são reservadas com as ativas e inativadas em seguida; o limite cresce com elas
+            int inativas = (int) indices.stream().filter(i -> !ativaNoLote(chaves.get(i), restauracao)).count();
+            ContadorChavesConta.Resultado resultado = contadorChavesConta.reservar(primeira.getNumeroAgencia(),
+                    primeira.getNumeroConta(), primeira.getTipoPessoa(), indices.size(),
+                    (int) Math.min(Integer.MAX_VALUE, (long) limiteChaves(primeira.getTipoPessoa()) + inativas));
+            if (resultado == ContadorChavesConta.Resultado.RESERVADA) {
+                contadorChavesConta.inativar(primeira.getNumeroAgencia(), primeira.getNumeroConta(), inativas);
+            }
+            for (int i : indices) {
+                if (resultado == ContadorChavesConta.Resultado.RESERVADA) {
+                    aceitas.add(chaves.get(i));
+                    indicesAceitos.add(i);
+                } else if (resultado == ContadorChavesConta.Resultado.TIPO_PESSOA_DIVERGENTE) {
+                    metricasChavePix.registrarRecusa(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE);
+                    resultados[i] = new ResultadoInclusaoLoteDTO(i,
+                            "Inconsistência: Esta conta (agência/número) já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+                } else {
+                    metricasChavePix.registrarRecusa(CodigoErroChavePix.LIMITE_EXCEDIDO);
+                    resultados[i] = new ResultadoInclusaoLoteDTO(i, "Limite de chaves PIX por conta excedido");
+                }
+            }
         }
 
-        // Definir data e hora atual para inclusão
-        chavePix.setDataHoraInclusaoChave(LocalDateTime.now());
+        // Inserir com persist (sem SELECT prévio do merge) para o Hibernate agrupar os INSERTs em batch JDBC.
+        // Uma chave incluída concorrentemente desde a verificação acima faz o lote inteiro ser desfeito
+        try {
+            for (int n = 0; n < aceitas.size(); n++) {
+                EntidadeChavePix chavePix = aceitas.get(n);
+                if (chavePix.getId() == null) {
+                    chavePix.setId(geradorIdChavePix.gerar());
+                }
+                if (!restauracao) {
+                    chavePix.setDataHoraInclusaoChave(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+                }
+                entityManager.persist(chavePix);
+
+                if ((n + 1) % tamanhoBatchJdbc == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            throw traduzirViolacaoUnicidade(e);
+        }
+        entityManager.clear();
+        indiceNomeCorrentista.indexar(aceitas);
+
+        for (int n = 0; n < aceitas.size(); n++) {
+            EntidadeChavePix chavePix = aceitas.get(n);
+            int indice = indicesAceitos.get(n);
+            resultados[indice] = new ResultadoInclusaoLoteDTO(indice, new RespostaInclusaoChavePixDTO(chavePix));
+            estatisticasChavePix.registrarInclusao(chavePix);
+            if (!ativaNoLote(chavePix, restauracao)) {
+                estatisticasChavePix.registrarInativacao(chavePix);
+            }
+            publicadorEventos.publishEvent(new EventoChavePix(EventoChavePix.Operacao.INCLUSAO, chavePix));
+        }
+
+        return List.of(resultados);
+    }
 
-        // Salvar a chave no repositório
-        return repositorioChavePix.save(chavePix);
+    // Na restauração o id e a data de inclusão vêm do arquivo, e a inativação não pode ser anterior à inclusão
+    static boolean restauravel(EntidadeChavePix chavePix) {
+        return chavePix.getId() != null && chavePix.getDataHoraInclusaoChave() != null
+                && (chavePix.getDataHoraInativacaoChave() == null
+                        || !chavePix.getDataHoraInativacaoChave().isBefore(chavePix.getDataHoraInclusaoChave()));
+    }
+
+    // Fora da restauração, toda chave do lote é incluída como ativa
+    private static boolean ativaNoLote(EntidadeChavePix chavePix, boolean restauracao) {
+        return !restauracao || chavePix.isAtiva();
+    }
+
+    private Set<String> buscarChavesExistentes(List<EntidadeChavePix> chaves, List<Integer> candidatos) {
+        // Só vão ao banco os valores que o filtro de chaves não descarta como ausentes.
+        // Uma consulta por tipo de chave presente no lote, para usar o índice único (tipo_chave, valor_chave)
+        Map<String, List<String>> valoresPorTipo = new HashMap<>();
+        for (int i : candidatos) {
+            EntidadeChavePix chavePix = chaves.get(i);
+            if (filtroChavesPix.talvezContenha(chavePix.getTipoChave(), chavePix.getValorChave())) {
+                valoresPorTipo.computeIfAbsent(chavePix.getTipoChave(), tipo -> new ArrayList<>())
+                        .add(chavePix.getValorChave());
+            }
+        }
+
+        Set<String> existentes = new HashSet<>();
+        for (Map.Entry<String, List<String>> entrada : valoresPorTipo.entrySet()) {
+            List<String> valores = entrada.getValue().stream().distinct().toList();
+            for (int inicio = 0; inicio < valores.size(); inicio += TAMANHO_MAXIMO_IN) {
+                List<String> parte = valores.subList(inicio, Math.min(inicio + TAMANHO_MAXIMO_IN, valores.size()));
+                List<String> encontrados = repositorioChavePix.findValoresExistentes(entrada.getKey(), parte);
+                for (String valor : encontrados) {
+                    existentes.add(entrada.getKey() + ':' + valor);
+                }
+                filtroChavesPix.registrarConfirmacao(parte.size(), encontrados.size());
+            }
+        }
+        return existentes;
+    }
+
+    private Map<IdContaChavePix, SituacaoConta> buscarSituacaoContas(List<EntidadeChavePix> chaves,
+            List<Integer> candidatos) {
+        Set<IdContaChavePix> contasDoLote = new LinkedHashSet<>();
+        for (int i : candidatos) {
+            contasDoLote.add(contaDe(chaves.get(i)));
+        }
+
+        Map<IdContaChavePix, SituacaoConta> situacoes = new HashMap<>();
+        List<IdContaChavePix> listaContas = new ArrayList<>(contasDoLote);
+        for (int inicio = 0; inicio < listaContas.size(); inicio += TAMANHO_MAXIMO_IN) {
+            Set<Integer> agencias = new HashSet<>();
+            Set<Integer> numerosConta = new HashSet<>();
+            for (IdContaChavePix conta : listaContas.subList(inicio,
+                    Math.min(inicio + TAMANHO_MAXIMO_IN, listaContas.size()))) {
+                agencias.add(conta.getNumeroAgencia());
+                numerosConta.add(conta.getNumeroConta());
+            }
+
+            for (EntidadeContaChavePix contador : contadorChavesConta.buscarContas(agencias, numerosConta)) {
+                IdContaChavePix conta = new IdContaChavePix(contador.getNumeroAgencia(), contador.getNumeroConta());
+                if (contasDoLote.contains(conta) && contador.getQuantidadeChaves() > 0) {
+                    SituacaoConta situacao = situacoes.computeIfAbsent(conta, c -> new SituacaoConta());
+                    situacao.tiposPessoa.add(contador.getTipoPessoa());
+                    situacao.quantidadeAtivas = contador.getQuantidadeAtivas();
+                }
+            }
+        }
+        return situacoes;
+    }
+
+    private static IdContaChavePix contaDe(EntidadeChavePix chavePix) {
+        return new IdContaChavePix(chavePix.getNumeroAgencia(), chavePix.getNumeroConta());
+    }
+
+    // Tipos de pessoa já registrados e chaves ativas de uma conta durante a inclusão em lote
+    private static class SituacaoConta {
+        private final Set<String> tiposPessoa = new HashSet<>();
+        private long quantidadeAtivas;
+
+        private boolean possuiOutroTipoPessoa(String tipoPessoa) {
+            return tiposPessoa.stream().anyMatch(tipo -> !tipo.equals(tipoPessoa));
+        }
     }
 
     @Override
     @Transactional
     public EntidadeChavePix alterarChave(UUID id, AlteracaoChavePixDTO alteracaoDTO) {
+        EntidadeChavePix chaveExistente = buscarParaAlteracao(id);
+        Set<String> camposAlterados = validarAlteracao(chaveExistente, alteracaoDTO, metricasChavePix);
+
+        // Validar consistência do tipoPessoa se agência ou conta foram alteradas
+        boolean agenciaOuContaMudou = (alteracaoDTO.getNumeroAgencia() != null
+                && !chaveExistente.getNumeroAgencia().equals(alteracaoDTO.getNumeroAgencia())) ||
+                (alteracaoDTO.getNumeroConta() != null
+                        && !chaveExistente.getNumeroConta().equals(alteracaoDTO.getNumeroConta()));
+
+        if (agenciaOuContaMudou) {
+            // Verifica se a *nova* conta/agência já existe com tipoPessoa diferente do
+            // tipoPessoa *original* da chave
+            Integer novaAgencia = alteracaoDTO.getNumeroAgencia() != null ? alteracaoDTO.getNumeroAgencia()
+                    : chaveExistente.getNumeroAgencia();
+            Integer novaConta = alteracaoDTO.getNumeroConta() != null ? alteracaoDTO.getNumeroConta()
+                    : chaveExistente.getNumeroConta();
+
+            // A alteração não está sujeita ao limite de chaves da nova conta
+            if (contadorChavesConta.reservar(novaAgencia, novaConta, chaveExistente.getTipoPessoa(), 1,
+                    Integer.MAX_VALUE) == ContadorChavesConta.Resultado.TIPO_PESSOA_DIVERGENTE) {
+                throw recusar(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE,
+                        "Inconsistência: A nova combinação de agência/conta já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+            }
+            contadorChavesConta.remover(chaveExistente.getNumeroAgencia(), chaveExistente.getNumeroConta());
+        }
+
+        // Atualizar apenas os campos fornecidos no DTO (o estado anterior vai para o histórico de auditoria)
+        EstadoChavePix estadoAnterior = EstadoChavePix.de(chaveExistente);
+        if (alteracaoDTO.getTipoConta() != null) {
+            chaveExistente.setTipoConta(alteracaoDTO.getTipoConta());
+        }
+
+        if (alteracaoDTO.getNumeroAgencia() != null) {
+            if (!alteracaoDTO.getNumeroAgencia().equals(chaveExistente.getNumeroAgencia())) {
+                estatisticasChavePix.registrarMudancaAgencia(chaveExistente.getNumeroAgencia(),
+                        alteracaoDTO.getNumeroAgencia());
+            }
+            chaveExistente.setNumeroAgencia(alteracaoDTO.getNumeroAgencia());
+        }
+
+        if (alteracaoDTO.getNumeroConta() != null) {
+            chaveExistente.setNumeroConta(alteracaoDTO.getNumeroConta());
+        }
+
+        if (alteracaoDTO.getNomeCorrentista() != null
+                && !alteracaoDTO.getNomeCorrentista().equals(chaveExistente.getNomeCorrentista())) {
+            indiceNomeCorrentista.reindexar(id, chaveExistente.getNomeCorrentista(),
+                    alteracaoDTO.getNomeCorrentista());
+            chaveExistente.setNomeCorrentista(alteracaoDTO.getNomeCorrentista());
+        }
+
+        if (alteracaoDTO.getSobrenomeCorrentista() != null) {
+            chaveExistente.setSobrenomeCorrentista(alteracaoDTO.getSobrenomeCorrentista());
+        }
+
+        // Salvar as alterações
+        EntidadeChavePix chaveAlterada = repositorioChavePix.save(chaveExistente);
+        publicadorEventos.publishEvent(new EventoChavePix(EventoChavePix.Operacao.ALTERACAO, chaveAlterada,
+                camposAlterados, estadoAnterior));
+        return chaveAlterada;
+    }
+
+    private EntidadeChavePix buscarParaAlteracao(UUID id) {
         // Buscar a chave existente
         EntidadeChavePix chaveExistente = repositorioChavePix.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Chave PIX não encontrada"));
+                .orElseThrow(() -> recusar(CodigoErroChavePix.CHAVE_NAO_ENCONTRADA, "Chave PIX não encontrada"));
 
         // Verificar se a chave está inativada
         if (chaveExistente.getDataHoraInativacaoChave() != null) {
-            throw new IllegalArgumentException("Não é permitido alterar chaves inativadas");
+            throw recusar(CodigoErroChavePix.CHAVE_INATIVA, "Não é permitido alterar chaves inativadas");
         }
+        return chaveExistente;
+    }
 
+    // Normaliza e valida os dados do DTO; devolve os campos alterados (vão também para o evento da alteração)
+    static Set<String> validarAlteracao(EntidadeChavePix chaveExistente, AlteracaoChavePixDTO alteracaoDTO,
+            MetricasChavePix metricas) {
         // Normalizar dados do DTO
         if (alteracaoDTO.getTipoConta() != null) {
             String tipoConta = alteracaoDTO.getTipoConta().toLowerCase()
@@ -83,182 +480,402 @@ public class ServicoImplementacaoChavePix implements ServicoChavePix {
             alteracaoDTO.setTipoConta(tipoConta);
         }
 
-        // Verificar se algum campo foi alterado
-        boolean algumCampoAlterado = false;
+        // Verificar quais campos foram alterados
+        Set<String> camposAlterados = new LinkedHashSet<>();
 
         if (alteracaoDTO.getTipoConta() != null &&
                 !alteracaoDTO.getTipoConta().equals(chaveExistente.getTipoConta())) {
-            algumCampoAlterado = true;
+            camposAlterados.add("tipoConta");
         }
 
         if (alteracaoDTO.getNumeroAgencia() != null &&
                 !alteracaoDTO.getNumeroAgencia().equals(chaveExistente.getNumeroAgencia())) {
-            algumCampoAlterado = true;
+            camposAlterados.add("numeroAgencia");
         }
 
         if (alteracaoDTO.getNumeroConta() != null &&
                 !alteracaoDTO.getNumeroConta().equals(chaveExistente.getNumeroConta())) {
-            algumCampoAlterado = true;
+            camposAlterados.add("numeroConta");
         }
 
         if (alteracaoDTO.getNomeCorrentista() != null &&
                 !alteracaoDTO.getNomeCorrentista().equals(chaveExistente.getNomeCorrentista())) {
-            algumCampoAlterado = true;
+            camposAlterados.add("nomeCorrentista");
         }
 
         if (alteracaoDTO.getSobrenomeCorrentista() != null &&
                 !alteracaoDTO.getSobrenomeCorrentista().equals(chaveExistente.getSobrenomeCorrentista())) {
-            algumCampoAlterado = true;
+            camposAlterados.add("sobrenomeCorrentista");
         }
 
         // Se nenhum campo foi alterado, lançar exceção
-        if (!algumCampoAlterado) {
-            throw new IllegalArgumentException("Nenhum campo foi alterado. A operação foi cancelada.");
+        if (camposAlterados.isEmpty()) {
+            throw recusar(metricas, CodigoErroChavePix.NENHUMA_ALTERACAO,
+                    "Nenhum campo foi alterado. A operação foi cancelada.");
         }
 
         // Validar os dados do DTO
         if (alteracaoDTO.getTipoConta() != null &&
                 !alteracaoDTO.getTipoConta().equals("corrente") &&
                 !alteracaoDTO.getTipoConta().equals("poupanca")) {
-            throw new IllegalArgumentException("Tipo de conta inválido");
+            throw recusar(metricas, CodigoErroChavePix.DADOS_INVALIDOS, "Tipo de conta inválido");
         }
 
         // Validar número de agência
         if (alteracaoDTO.getNumeroAgencia() != null &&
                 (alteracaoDTO.getNumeroAgencia() <= 0 ||
                         String.valueOf(alteracaoDTO.getNumeroAgencia()).length() > 4)) {
-            throw new IllegalArgumentException("Número da agência inválido");
+            throw recusar(metricas, CodigoErroChavePix.DADOS_INVALIDOS, "Número da agência inválido");
         }
 
         // Validar número de conta
         if (alteracaoDTO.getNumeroConta() != null &&
                 (alteracaoDTO.getNumeroConta() <= 0 ||
                         String.valueOf(alteracaoDTO.getNumeroConta()).length() > 8)) {
-            throw new IllegalArgumentException("Número da conta inválido");
+            throw recusar(metricas, CodigoErroChavePix.DADOS_INVALIDOS, "Número da conta inválido");
         }
 
         // Validar nome do correntista
         if (alteracaoDTO.getNomeCorrentista() != null &&
                 (alteracaoDTO.getNomeCorrentista().isEmpty() ||
                         alteracaoDTO.getNomeCorrentista().length() > 30)) {
-            throw new IllegalArgumentException("Nome do correntista inválido");
+            throw recusar(metricas, CodigoErroChavePix.DADOS_INVALIDOS, "Nome do correntista inválido");
         }
 
         // Validar sobrenome do correntista
         if (alteracaoDTO.getSobrenomeCorrentista() != null &&
                 alteracaoDTO.getSobrenomeCorrentista().length() > 45) {
-            throw new IllegalArgumentException("Sobrenome do correntista inválido");
-        }
-
-        // Validar consistência do tipoPessoa se agência ou conta foram alteradas
-        boolean agenciaOuContaMudou = (alteracaoDTO.getNumeroAgencia() != null
-                && !chaveExistente.getNumeroAgencia().equals(alteracaoDTO.getNumeroAgencia())) ||
-                (alteracaoDTO.getNumeroConta() != null
-                        && !chaveExistente.getNumeroConta().equals(alteracaoDTO.getNumeroConta()));
-
-        if (agenciaOuContaMudou) {
-            // Verifica se a *nova* conta/agência já existe com tipoPessoa diferente do
-            // tipoPessoa *original* da chave
-            Integer novaAgencia = alteracaoDTO.getNumeroAgencia() != null ? alteracaoDTO.getNumeroAgencia()
-                    : chaveExistente.getNumeroAgencia();
-            Integer novaConta = alteracaoDTO.getNumeroConta() != null ? alteracaoDTO.getNumeroConta()
-                    : chaveExistente.getNumeroConta();
-
-            if (repositorioChavePix.existsByNumeroAgenciaAndNumeroContaAndTipoPessoaNot(
-                    novaAgencia, novaConta, chaveExistente.getTipoPessoa())) {
-                throw new IllegalArgumentException(
-                        "Inconsistência: A nova combinação de agência/conta já está registrada com um tipo de pessoa (física/jurídica) diferente.");
-            }
+            throw recusar(metricas, CodigoErroChavePix.DADOS_INVALIDOS, "Sobrenome do correntista inválido");
         }
+        return camposAlterados;
+    }
 
-        // Atualizar apenas os campos fornecidos no DTO
+    // Mudança de agência para outro shard (ServicoChavePixFragmentado), em três transações: a chave é validada
+    // e copiada com as alterações no shard de origem, incluída no shard de destino e só então removida da origem
+    @Transactional(readOnly = true)
+    public TransferenciaChavePix prepararTransferencia(UUID id, AlteracaoChavePixDTO alteracaoDTO) {
+        EntidadeChavePix chaveExistente = buscarParaAlteracao(id);
+        Set<String> camposAlterados = validarAlteracao(chaveExistente, alteracaoDTO, metricasChavePix);
+        EstadoChavePix estadoAnterior = EstadoChavePix.de(chaveExistente);
+
+        EntidadeChavePix copia = new EntidadeChavePix(id, chaveExistente.getTipoChave(), chaveExistente.getValorChave(),
+                chaveExistente.getTipoPessoa(), chaveExistente.getTipoConta(), alteracaoDTO.getNumeroAgencia(),
+                chaveExistente.getNumeroConta(), chaveExistente.getNomeCorrentista(),
+                chaveExistente.getSobrenomeCorrentista());
+        copia.setDataHoraInclusaoChave(chaveExistente.getDataHoraInclusaoChave());
         if (alteracaoDTO.getTipoConta() != null) {
-            chaveExistente.setTipoConta(alteracaoDTO.getTipoConta());
-        }
-
-        if (alteracaoDTO.getNumeroAgencia() != null) {
-            chaveExistente.setNumeroAgencia(alteracaoDTO.getNumeroAgencia());
+            copia.setTipoConta(alteracaoDTO.getTipoConta());
         }
-
         if (alteracaoDTO.getNumeroConta() != null) {
-            chaveExistente.setNumeroConta(alteracaoDTO.getNumeroConta());
+            copia.setNumeroConta(alteracaoDTO.getNumeroConta());
         }
-
         if (alteracaoDTO.getNomeCorrentista() != null) {
-            chaveExistente.setNomeCorrentista(alteracaoDTO.getNomeCorrentista());
+            copia.setNomeCorrentista(alteracaoDTO.getNomeCorrentista());
         }
-
         if (alteracaoDTO.getSobrenomeCorrentista() != null) {
-            chaveExistente.setSobrenomeCorrentista(alteracaoDTO.getSobrenomeCorrentista());
+            copia.setSobrenomeCorrentista(alteracaoDTO.getSobrenomeCorrentista());
         }
+        // O contexto de persistência pode seguir aberto na requisição, e a cópia tem o mesmo id
+        entityManager.detach(chaveExistente);
+        return new TransferenciaChavePix(copia, estadoAnterior, camposAlterados);
+    }
 
-        // Salvar as alterações
-        return repositorioChavePix.save(chaveExistente);
+    @Transactional
+    public EntidadeChavePix receberTransferencia(TransferenciaChavePix transferencia) {
+        EntidadeChavePix chave = transferencia.chave();
+        // A alteração não está sujeita ao limite de chaves da nova conta
+        if (contadorChavesConta.reservar(chave.getNumeroAgencia(), chave.getNumeroConta(), chave.getTipoPessoa(), 1,
+                Integer.MAX_VALUE) == ContadorChavesConta.Resultado.TIPO_PESSOA_DIVERGENTE) {
+            throw recusar(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE,
+                    "Inconsistência: A nova combinação de agência/conta já está registrada com um tipo de pessoa (física/jurídica) diferente.");
+        }
+        // Com o id ainda no cache de segundo nível, o Hibernate trataria a cópia como entidade já gravada
+        entityManager.getEntityManagerFactory().getCache().evict(EntidadeChavePix.class, chave.getId());
+        inserir(chave);
+        entityManager.detach(chave);
+        indiceNomeCorrentista.indexar(List.of(chave));
+        estatisticasChavePix.registrarMudancaAgencia(transferencia.estadoAnterior().numeroAgencia(),
+                chave.getNumeroAgencia());
+        publicadorEventos.publishEvent(new EventoChavePix(EventoChavePix.Operacao.ALTERACAO, chave,
+                transferencia.camposAlterados(), transferencia.estadoAnterior()));
+        return chave;
+    }
+
+    // Remove do shard a chave transferida (ou, na compensação de uma falha, a cópia incluída no destino)
+    @Transactional
+    public void removerTransferida(UUID id, String nomeCorrentista, Integer numeroAgencia, Integer numeroConta) {
+        repositorioChavePix.deleteById(id);
+        indiceNomeCorrentista.reindexar(id, nomeCorrentista, null);
+        contadorChavesConta.remover(numeroAgencia, numeroConta);
     }
 
+    // Consultas em transações somente leitura: com a réplica de leitura habilitada, vão para a réplica
     @Override
+    @Transactional(readOnly = true)
     public Optional<EntidadeChavePix> buscarPorId(UUID id) {
         return repositorioChavePix.findById(id);
     }
 
     @Override
+    public Optional<RespostaConsultaChavePixDTO> buscarPorValorChave(String tipoChave, String valorChave) {
+        // Consulta servida pelo diretório em memória, sem acesso ao banco
+        return diretorioChavesPix.buscar(normalizarTipoChave(tipoChave), valorChave);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<EntidadeChavePix> buscarPorTipoChave(String tipoChave) {
         return repositorioChavePix.findByTipoChave(tipoChave);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<EntidadeChavePix> buscarPorAgenciaConta(Integer numeroAgencia, Integer numeroConta) {
         return repositorioChavePix.findByNumeroAgenciaAndNumeroConta(numeroAgencia, numeroConta);
     }
 
     @Override
-    public List<EntidadeChavePix> buscarPorNomeCorrentista(String nome) {
-        return repositorioChavePix.findByNomeCorrentista(nome);
-    }
-
-    @Override
+    @Transactional(readOnly = true)
     public List<EntidadeChavePix> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim) {
         return repositorioChavePix.findByDataHoraInclusaoChaveBetween(inicio, fim);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<EntidadeChavePix> buscarChavesAtivas() {
         return repositorioChavePix.findAllAtivas();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<EntidadeChavePix> buscarChavesInativas() {
         return repositorioChavePix.findAllInativas();
     }
 
+    // Consultas paginadas: por tipo, por data e por nome retornam apenas chaves ativas. Transações somente
+    // leitura: o Hibernate não faz flush (FlushMode.MANUAL) nem guarda snapshot das entidades carregadas
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<RespostaConsultaChavePixDTO> buscarPorTipoChave(String tipoChave, ScrollPosition posicao, int limite) {
+        return PaginacaoChavesPix.janela(repositorioChavePix.findAtivasPorTipoApos(tipoChave,
+                PaginacaoChavesPix.dataApos(posicao), PaginacaoChavesPix.idApos(posicao), Limit.of(limite + 1)), limite);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<RespostaConsultaChavePixDTO> buscarPorDataInclusao(LocalDateTime inicio, LocalDateTime fim,
+            ScrollPosition posicao, int limite) {
+        return PaginacaoChavesPix.janela(repositorioChavePix.findAtivasPorPeriodoApos(inicio, fim,
+                PaginacaoChavesPix.dataApos(posicao), PaginacaoChavesPix.idApos(posicao), Limit.of(limite + 1)), limite);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<RespostaConsultaChavePixDTO> buscarChavesAtivas(ScrollPosition posicao, int limite) {
+        return PaginacaoChavesPix.janela(repositorioChavePix.findAtivasApos(PaginacaoChavesPix.dataApos(posicao),
+                PaginacaoChavesPix.idApos(posicao), Limit.of(limite + 1)), limite);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<RespostaConsultaChavePixDTO> buscarChavesInativas(ScrollPosition posicao, int limite) {
+        return PaginacaoChavesPix.janela(repositorioChavePix.findInativasApos(PaginacaoChavesPix.dataApos(posicao),
+                PaginacaoChavesPix.idApos(posicao), Limit.of(limite + 1)), limite);
+    }
+
+    // Busca por nome pelo índice de trigramas, paginada por id (do cursor só o id é usado). A consulta é
+    // nativa, então carrega entidades, mas somente leitura e convertidas antes do fim da transação
+    @Override
+    @Transactional(readOnly = true)
+    public Window<RespostaConsultaChavePixDTO> buscarPorNomeCorrentista(String nome, ScrollPosition posicao,
+            int limite) {
+        IndiceNomeCorrentista.Consulta consulta = indiceNomeCorrentista.planejar(nome);
+        if (consulta == null) {
+            return PaginacaoChavesPix.janela(List.of(), limite);
+        }
+        List<RespostaConsultaChavePixDTO> chaves = repositorioChavePix.findAtivasPorNomeApos(consulta.trigrama(),
+                consulta.padrao(), PaginacaoChavesPix.idApos(posicao), Limit.of(limite + 1)).stream()
+                .map(RespostaConsultaChavePixDTO::new).toList();
+        return PaginacaoChavesPix.janela(chaves, limite);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existeChaveComNome(String nome) {
+        IndiceNomeCorrentista.Consulta consulta = indiceNomeCorrentista.planejar(nome);
+        return consulta != null
+                && !repositorioChavePix.findPorNome(consulta.trigrama(), consulta.padrao(), Limit.of(1)).isEmpty();
+    }
+
+    @Override
+    public RespostaEstatisticasChavePixDTO consultarEstatisticas() {
+        return estatisticasChavePix.consultar();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existeChaveComTipo(String tipoChave) {
+        return repositorioChavePix.existsByTipoChave(tipoChave);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existeChaveNoPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        return repositorioChavePix.existsByDataHoraInclusaoChaveBetween(inicio, fim);
+    }
+
+    // Projeções não entram no contexto de persistência, que fica do mesmo tamanho durante toda a leitura
+    @Override
+    @Transactional(readOnly = true)
+    public void percorrerChavesAtivas(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        try (Stream<RespostaConsultaChavePixDTO> chaves = repositorioChavePix.streamAllAtivas()) {
+            chaves.forEach(consumidor);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void percorrerChavesInativas(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        try (Stream<RespostaConsultaChavePixDTO> chaves = repositorioChavePix.streamAllInativas()) {
+            chaves.forEach(consumidor);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void percorrerChaves(Consumer<RespostaConsultaChavePixDTO> consumidor) {
+        try (Stream<RespostaConsultaChavePixDTO> chaves = repositorioChavePix.streamAllChaves()) {
+            chaves.forEach(consumidor);
+        }
+    }
+
     @Override
     @Transactional
     public EntidadeChavePix inativarChave(UUID id) {
         // Buscar a chave existente
         EntidadeChavePix chaveExistente = repositorioChavePix.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Chave PIX não encontrada"));
+                .orElseThrow(() -> recusar(CodigoErroChavePix.CHAVE_NAO_ENCONTRADA, "Chave PIX não encontrada"));
 
         // Verificar se a chave já está inativada
         if (chaveExistente.getDataHoraInativacaoChave() != null) {
-            throw new IllegalArgumentException("Chave PIX já está inativada");
+            throw recusar(CodigoErroChavePix.CHAVE_INATIVA, "Chave PIX já está inativada");
         }
 
         // Inativar a chave
-        chaveExistente.setDataHoraInativacaoChave(LocalDateTime.now());
+        chaveExistente.setDataHoraInativacaoChave(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        contadorChavesConta.inativar(chaveExistente.getNumeroAgencia(), chaveExistente.getNumeroConta(), 1);
 
         // Salvar as alterações
-        return repositorioChavePix.save(chaveExistente);
+        EntidadeChavePix chaveInativada = repositorioChavePix.save(chaveExistente);
+        estatisticasChavePix.registrarInativacao(chaveInativada);
+        publicadorEventos.publishEvent(new EventoChavePix(EventoChavePix.Operacao.INATIVACAO, chaveInativada));
+        return chaveInativada;
+    }
+
+    @Override
+    @Transactional
+    public RespostaInativacaoLoteDTO inativarChavesEmLote(List<UUID> ids) {
+        List<UUID> idsDistintos = ids.stream().distinct().toList();
+        if (idsDistintos.size() > tamanhoMaximoLote) {
+            throw recusar(CodigoErroChavePix.LOTE_EXCEDIDO,
+                    "O lote excede o limite de " + tamanhoMaximoLote + " chaves PIX");
+        }
+
+        // As linhas ficam travadas até o fim da transação: as que estavam ativas na leitura são exatamente as que o
+        // UPDATE inativa, sem depender do instante gravado para saber quem inativou cada uma
+        LocalDateTime agora = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Map<UUID, EntidadeChavePix> encontradas = new HashMap<>();
+        Set<UUID> inativadasAgora = new HashSet<>();
+        // Os blocos seguem a mesma ordem do ORDER BY c.id da trava: lotes concorrentes que se sobrepõem travam as
+        // linhas na mesma sequência e não entram em deadlock, mesmo com mais de um bloco
+        List<UUID> idsOrdenados = idsDistintos.stream().sorted(PaginacaoChavesPix::compararIds).toList();
+        for (int inicio = 0; inicio < idsOrdenados.size(); inicio += TAMANHO_MAXIMO_IN) {
+            List<UUID> parte = idsOrdenados.subList(inicio, Math.min(inicio + TAMANHO_MAXIMO_IN, idsOrdenados.size()));
+            List<EntidadeChavePix> travadas = repositorioChavePix.travarPorIds(parte);
+            inativadasAgora.addAll(inativar(travadas, repositorioChavePix.inativarPorIds(parte, agora), agora));
+            for (EntidadeChavePix chave : travadas) {
+                encontradas.put(chave.getId(), chave);
+            }
+        }
+
+        RespostaInativacaoLoteDTO resposta = new RespostaInativacaoLoteDTO(agora);
+        // Contadores decrementados na mesma ordem de agência e conta da inclusão em lote
+        Map<IdContaChavePix, Integer> inativadasPorConta = new TreeMap<>();
+        for (UUID id : idsDistintos) {
+            EntidadeChavePix chave = encontradas.get(id);
+            if (chave == null) {
+                resposta.getNaoEncontradas().add(id);
+            } else if (classificarInativacao(chave, inativadasAgora.contains(id), resposta)) {
+                inativadasPorConta.merge(contaDe(chave), 1, Integer::sum);
+            } else {
+                metricasChavePix.registrarRecusa(CodigoErroChavePix.CHAVE_INATIVA);
+            }
+        }
+        inativadasPorConta.forEach((conta, quantidade) -> contadorChavesConta.inativar(conta.getNumeroAgencia(),
+                conta.getNumeroConta(), quantidade));
+        return resposta;
+    }
+
+    @Override
+    @Transactional
+    public RespostaInativacaoLoteDTO inativarChavesDaConta(Integer numeroAgencia, Integer numeroConta) {
+        LocalDateTime agora = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<EntidadeChavePix> travadas = repositorioChavePix.travarPorAgenciaConta(numeroAgencia, numeroConta);
+        int inativadas = repositorioChavePix.inativarPorAgenciaConta(numeroAgencia, numeroConta, agora);
+        Set<UUID> inativadasAgora = inativar(travadas, inativadas, agora);
+        contadorChavesConta.inativar(numeroAgencia, numeroConta, inativadas);
+
+        RespostaInativacaoLoteDTO resposta = new RespostaInativacaoLoteDTO(agora);
+        for (EntidadeChavePix chave : travadas) {
+            classificarInativacao(chave, inativadasAgora.contains(chave.getId()), resposta);
+        }
+        return resposta;
+    }
+
+    // Ids que o UPDATE inativou: as chaves travadas que estavam ativas, conferidas com a quantidade de linhas
+    // alteradas. A data é copiada para as chaves travadas (já desanexadas pelo UPDATE), usadas nos eventos
+    private static Set<UUID> inativar(List<EntidadeChavePix> travadas, int linhasAlteradas, LocalDateTime agora) {
+        List<EntidadeChavePix> ativas = travadas.stream().filter(EntidadeChavePix::isAtiva).toList();
+        if (ativas.size() != linhasAlteradas) {
+            throw new IllegalStateException("Inativação em lote alterou " + linhasAlteradas
+                    + " linhas, mas " + ativas.size() + " chaves travadas estavam ativas");
+        }
+        Set<UUID> ids = new HashSet<>();
+        for (EntidadeChavePix chave : ativas) {
+            chave.setDataHoraInativacaoChave(agora);
+            ids.add(chave.getId());
+        }
+        return ids;
+    }
+
+    private boolean classificarInativacao(EntidadeChavePix chave, boolean inativadaAgora,
+            RespostaInativacaoLoteDTO resposta) {
+        if (inativadaAgora) {
+            resposta.getInativadas().add(chave.getId());
+            estatisticasChavePix.registrarInativacao(chave);
+            publicadorEventos.publishEvent(new EventoChavePix(EventoChavePix.Operacao.INATIVACAO, chave));
+            return true;
+        }
+        resposta.getJaInativadas().add(chave.getId());
+        return false;
     }
 
     @Override
     public boolean validarChave(EntidadeChavePix chavePix) {
+        return validarChave(chavePix, validadorValorChavePix);
+    }
+
+    // Regras sem estado, compartilhadas com o ServicoChavePixLog
+    static boolean validarChave(EntidadeChavePix chavePix, ValidadorValorChavePix validador) {
         // Validar tipo de chave
-        if (chavePix.getTipoChave() == null || !validarTipoChave(chavePix.getTipoChave())) {
+        if (chavePix.getTipoChave() == null || !tipoChaveValido(chavePix.getTipoChave())) {
             return false;
         }
 
         // Validar valor da chave conforme seu tipo
-        if (chavePix.getValorChave() == null || !validarValorChave(chavePix.getTipoChave(), chavePix.getValorChave())) {
+        if (chavePix.getValorChave() == null
+                || !validarValorChave(chavePix.getTipoChave(), chavePix.getValorChave(), validador)) {
             return false;
         }
 
@@ -304,10 +921,10 @@ public class ServicoImplementacaoChavePix implements ServicoChavePix {
         return true;
     }
 
-    private void normalizarDados(EntidadeChavePix chavePix) {
+    // Visível no pacote para os benchmarks JMH (módulo benchmarks)
+    static void normalizarDados(EntidadeChavePix chavePix) {
         if (chavePix.getTipoChave() != null) {
-            String tipoChave = chavePix.getTipoChave().toLowerCase().replace("-", "");
-            chavePix.setTipoChave(tipoChave);
+            chavePix.setTipoChave(normalizarTipoChave(chavePix.getTipoChave()));
         }
 
         if (chavePix.getTipoPessoa() != null) {
@@ -323,8 +940,16 @@ public class ServicoImplementacaoChavePix implements ServicoChavePix {
         }
     }
 
+    static String normalizarTipoChave(String tipoChave) {
+        return tipoChave.toLowerCase().replace("-", "");
+    }
+
     @Override
     public boolean validarTipoChave(String tipoChave) {
+        return tipoChaveValido(tipoChave);
+    }
+
+    static boolean tipoChaveValido(String tipoChave) {
         return tipoChave.equals("celular") ||
                 tipoChave.equals("email") ||
                 tipoChave.equals("cpf") ||
@@ -334,21 +959,25 @@ public class ServicoImplementacaoChavePix implements ServicoChavePix {
 
     @Override
     public boolean validarValorChave(String tipoChave, String valorChave) {
+        return validarValorChave(tipoChave, valorChave, validadorValorChavePix);
+    }
+
+    static boolean validarValorChave(String tipoChave, String valorChave, ValidadorValorChavePix validador) {
         if (valorChave == null || valorChave.isEmpty()) {
             return false;
         }
 
         switch (tipoChave) {
             case "celular":
-                return validarCelular(valorChave);
+                return validador.validarCelular(valorChave);
             case "email":
-                return validarEmail(valorChave);
+                return validador.validarEmail(valorChave);
             case "cpf":
-                return validarCPF(valorChave);
+                return validador.validarCpf(valorChave);
             case "cnpj":
-                return validarCNPJ(valorChave);
+                return validador.validarCnpj(valorChave);
             case "aleatoria":
-                return validarChaveAleatoria(valorChave);
+                return validador.validarChaveAleatoria(valorChave);
             default:
                 return false;
         }
@@ -356,152 +985,20 @@ public class ServicoImplementacaoChavePix implements ServicoChavePix {
 
     @Override
     public boolean validarLimiteChavesPorConta(Integer numeroAgencia, Integer numeroConta, String tipoPessoa) {
-        long quantidadeChaves = repositorioChavePix.countChavesAtivasByAgenciaConta(numeroAgencia, numeroConta);
-
-        // Verificar limite conforme tipo de pessoa
-        if ("fisica".equals(tipoPessoa) && quantidadeChaves >= 5) {
-            return false; // Excede limite para PF
-        } else if ("juridica".equals(tipoPessoa) && quantidadeChaves >= 20) {
-            return false; // Excede limite para PJ
-        }
-
-        return true;
+        return !excedeLimiteChaves(tipoPessoa, contadorChavesConta.quantidadeAtivas(numeroAgencia, numeroConta));
     }
 
-    // Métodos de validação específicos para cada tipo de chave
-
-    private boolean validarCelular(String celular) {
-        // Regex para validar formato: +{1-3 dígitos}{2-3 dígitos}{8-9 dígitos}
-        // Grupos: (código país)(DDD)(número)
-        String regex = "^\\+(\\d{1,3})(\\d{2,3})(\\d{8,9})$";
-
-        if (celular == null || !celular.matches(regex)) {
-            return false;
-        }
-
-        return true;
+    private static boolean excedeLimiteChaves(String tipoPessoa, long quantidadeChaves) {
+        return quantidadeChaves >= limiteChaves(tipoPessoa);
     }
 
-    private boolean validarEmail(String email) {
-        // Regra: contém "@", tamanho máximo de 77 caracteres
-        if (email == null || !email.contains("@") || email.length() > 77) {
-            return false;
-        }
-
-        // Regex de formato básico já existente
-        String regex = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
-        Pattern pattern = Pattern.compile(regex);
-        if (!pattern.matcher(email).matches()) {
-            return false;
-        }
-        return true;
-    }
-
-    private boolean validarCPF(String cpf) {
-        if (cpf == null) {
-            return false;
-        }
-
-        cpf = cpf.replaceAll("\\D", ""); // Remove não-números
-        if (cpf.length() != 11 || !cpf.matches("^\\d+$")) { // Garante 11 dígitos numéricos
-            return false;
-        }
-
-        // Verificar se todos os dígitos são iguais (caso inválido)
-        boolean todosDigitosIguais = true;
-        for (int i = 1; i < cpf.length(); i++) {
-            if (cpf.charAt(i) != cpf.charAt(0)) {
-                todosDigitosIguais = false;
-                break;
-            }
-        }
-        if (todosDigitosIguais) {
-            return false;
-        }
-
-        // Calcular e verificar primeiro dígito verificador
-        int soma = 0;
-        for (int i = 0; i < 9; i++) {
-            soma += (cpf.charAt(i) - '0') * (10 - i);
-        }
-        int resto = soma % 11;
-        int dv1 = (resto < 2) ? 0 : 11 - resto;
-        if ((cpf.charAt(9) - '0') != dv1) {
-            return false;
+    // Limite conforme tipo de pessoa (5 para PF, 20 para PJ)
+    static int limiteChaves(String tipoPessoa) {
+        if ("fisica".equals(tipoPessoa)) {
+            return LIMITE_CHAVES_PESSOA_FISICA;
+        } else if ("juridica".equals(tipoPessoa)) {
+            return LIMITE_CHAVES_PESSOA_JURIDICA;
         }
-
-        // Calcular e verificar segundo dígito verificador
-        soma = 0;
-        for (int i = 0; i < 10; i++) {
-            soma += (cpf.charAt(i) - '0') * (11 - i);
-        }
-        resto = soma % 11;
-        int dv2 = (resto < 2) ? 0 : 11 - resto;
-        if ((cpf.charAt(10) - '0') != dv2) {
-            return false;
-        }
-
-        return true;
-    }
-
-    private boolean validarCNPJ(String cnpj) {
-        if (cnpj == null) {
-            return false;
-        }
-
-        cnpj = cnpj.replaceAll("\\D", ""); // Remove não-números
-        if (cnpj.length() != 14 || !cnpj.matches("^\\d+$")) { // Garante 14 dígitos numéricos
-            return false;
-        }
-
-        // Verificar se todos os dígitos são iguais (caso inválido)
-        boolean todosDigitosIguais = true;
-        for (int i = 1; i < cnpj.length(); i++) {
-            if (cnpj.charAt(i) != cnpj.charAt(0)) {
-                todosDigitosIguais = false;
-                break;
-            }
-        }
-        if (todosDigitosIguais) {
-            return false;
-        }
-
-        // Calcular e verificar primeiro dígito verificador
-        int[] multiplicadores1 = { 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2 };
-        int soma = 0;
-        for (int i = 0; i < 12; i++) {
-            soma += (cnpj.charAt(i) - '0') * multiplicadores1[i];
-        }
-        int resto = soma % 11;
-        int dv1 = (resto < 2) ? 0 : 11 - resto;
-        if ((cnpj.charAt(12) - '0') != dv1) {
-            return false;
-        }
-
-        // Calcular e verificar segundo dígito verificador
-        int[] multiplicadores2 = { 6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2 };
-        soma = 0;
-        for (int i = 0; i < 13; i++) {
-            soma += (cnpj.charAt(i) - '0') * multiplicadores2[i];
-        }
-        resto = soma % 11;
-        int dv2 = (resto < 2) ? 0 : 11 - resto;
-        if ((cnpj.charAt(13) - '0') != dv2) {
-            return false;
-        }
-
-        return true;
-    }
-
-    private boolean validarChaveAleatoria(String chaveAleatoria) {
-        // Regra: Exatamente 36 caracteres alfanuméricos, sem pontuação.
-        if (chaveAleatoria == null || chaveAleatoria.length() != 36) { // Tamanho exato
-            return false;
-        }
-        // Verifica se contém apenas caracteres alfanuméricos
-        if (!chaveAleatoria.matches("^[a-zA-Z0-9]+$")) {
-            return false;
-        }
-        return true;
+        return Integer.MAX_VALUE;
     }
-}
\ No newline at end of file
+}
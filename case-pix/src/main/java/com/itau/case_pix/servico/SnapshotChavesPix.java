@@ -0,0 +1,80 @@
+package com.itau.case_pix.servico;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Snapshot compactado do armazenamento em log (chaves.snapshot): o estado atual de cada chave, sem o histórico
+// de mutações, e a geração do log a partir da qual as mutações ainda precisam ser reaplicadas. Gravado num
+// arquivo temporário e renomeado, então um snapshot interrompido nunca substitui o anterior
+final class SnapshotChavesPix {
+
+    private static final int FORMATO = 0x43505831;
+    private static final String ARQUIVO = "chaves.snapshot";
+
+    record Conteudo(long geracaoLog, long sequencia, List<ChaveArmazenada> chaves) {
+    }
+
+    private SnapshotChavesPix() {
+    }
+
+    static void gravar(Path diretorio, long geracaoLog, long sequencia, Collection<ChaveArmazenada> chaves)
+            throws IOException {
+        Path temporario = diretorio.resolve(ARQUIVO + ".tmp");
+        try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile())) {
+            CheckedOutputStream verificado = new CheckedOutputStream(new BufferedOutputStream(arquivo), new CRC32());
+            DataOutputStream saida = new DataOutputStream(verificado);
+            saida.writeInt(FORMATO);
+            saida.writeLong(geracaoLog);
+            saida.writeLong(sequencia);
+            saida.writeInt(chaves.size());
+            for (ChaveArmazenada chave : chaves) {
+                chave.escrever(saida);
+            }
+            saida.writeLong(verificado.getChecksum().getValue());
+            saida.flush();
+            arquivo.getChannel().force(true);
+        }
+        Files.move(temporario, diretorio.resolve(ARQUIVO), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Nulo quando ainda não há snapshot
+    static Conteudo ler(Path diretorio) throws IOException {
+        Path arquivo = diretorio.resolve(ARQUIVO);
+        if (!Files.exists(arquivo)) {
+            return null;
+        }
+        try (CheckedInputStream verificado = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(arquivo)), new CRC32())) {
+            DataInputStream entrada = new DataInputStream(verificado);
+            if (entrada.readInt() != FORMATO) {
+                throw new IOException("Formato de snapshot desconhecido: " + arquivo);
+            }
+            long geracaoLog = entrada.readLong();
+            long sequencia = entrada.readLong();
+            int quantidade = entrada.readInt();
+            List<ChaveArmazenada> chaves = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                chaves.add(ChaveArmazenada.ler(entrada));
+            }
+            long calculado = verificado.getChecksum().getValue();
+            if (entrada.readLong() != calculado) {
+                throw new IOException("Snapshot corrompido: " + arquivo);
+            }
+            return new Conteudo(geracaoLog, sequencia, chaves);
+        }
+    }
+}
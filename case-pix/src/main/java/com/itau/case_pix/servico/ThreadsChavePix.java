@@ -0,0 +1,20 @@
+package com.itau.case_pix.servico;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Threads dos pools internos: daemon, para não segurar o encerramento da JVM, e nomeadas prefixo + sequência
+final class ThreadsChavePix {
+
+    private ThreadsChavePix() {
+    }
+
+    static ThreadFactory daemon(String prefixo) {
+        AtomicInteger sequencia = new AtomicInteger();
+        return tarefa -> {
+            Thread thread = new Thread(tarefa, prefixo + sequencia.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+
+import java.util.Set;
+
+// Chave já com as alterações, a caminho do shard da nova agência, com o que o evento da alteração precisa
+public record TransferenciaChavePix(EntidadeChavePix chave, EstadoChavePix estadoAnterior,
+        Set<String> camposAlterados) {
+}
@@ -0,0 +1,153 @@
+package com.itau.case_pix.servico;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+// Validação do valor da chave PIX conforme o tipo. CPF, CNPJ, celular e chave aleatória são verificados
+// caractere a caractere, sem regex e sem alocar objetos; o e-mail usa um Pattern compilado uma única vez
+@Component
+public class ValidadorValorChavePix {
+
+    private static final Pattern EMAIL = Pattern.compile(
+            "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$");
+
+    private static final int TAMANHO_MAXIMO_EMAIL = 77;
+    private static final int TAMANHO_CHAVE_ALEATORIA = 36;
+
+    private static final int[] PESOS_CNPJ_DV1 = { 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2 };
+    private static final int[] PESOS_CNPJ_DV2 = { 6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2 };
+
+    // Formato: +{1-3 dígitos}{2-3 dígitos}{8-9 dígitos}, ou seja, "+" seguido de 11 a 15 dígitos
+    public boolean validarCelular(String celular) {
+        if (celular == null || celular.length() < 12 || celular.length() > 16 || celular.charAt(0) != '+') {
+            return false;
+        }
+        for (int i = 1; i < celular.length(); i++) {
+            if (!digito(celular.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Regra: contém "@", tamanho máximo de 77 caracteres e formato básico
+    public boolean validarEmail(String email) {
+        if (email == null || email.length() > TAMANHO_MAXIMO_EMAIL || email.indexOf('@') < 0) {
+            return false;
+        }
+        return EMAIL.matcher(email).matches();
+    }
+
+    // Caracteres que não são dígitos são ignorados (aceita CPF formatado); exige 11 dígitos
+    public boolean validarCpf(String cpf) {
+        if (cpf == null) {
+            return false;
+        }
+
+        int quantidade = 0;
+        int soma1 = 0;
+        int soma2 = 0;
+        int primeiro = -1;
+        int dv1 = 0;
+        int dv2 = 0;
+        boolean todosDigitosIguais = true;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (!digito(c)) {
+                continue;
+            }
+            int d = c - '0';
+            if (quantidade == 11) {
+                return false;
+            }
+            if (quantidade == 0) {
+                primeiro = d;
+            } else if (d != primeiro) {
+                todosDigitosIguais = false;
+            }
+            if (quantidade < 9) {
+                soma1 += d * (10 - quantidade);
+            } else if (quantidade == 9) {
+                dv1 = d;
+            } else {
+                dv2 = d;
+            }
+            if (quantidade < 10) {
+                soma2 += d * (11 - quantidade);
+            }
+            quantidade++;
+        }
+
+        return quantidade == 11 && !todosDigitosIguais
+                && dv1 == digitoVerificador(soma1) && dv2 == digitoVerificador(soma2);
+    }
+
+    // Caracteres que não são dígitos são ignorados (aceita CNPJ formatado); exige 14 dígitos
+    public boolean validarCnpj(String cnpj) {
+        if (cnpj == null) {
+            return false;
+        }
+
+        int quantidade = 0;
+        int soma1 = 0;
+        int soma2 = 0;
+        int primeiro = -1;
+        int dv1 = 0;
+        int dv2 = 0;
+        boolean todosDigitosIguais = true;
+        for (int i = 0; i < cnpj.length(); i++) {
+            char c = cnpj.charAt(i);
+            if (!digito(c)) {
+                continue;
+            }
+            int d = c - '0';
+            if (quantidade == 14) {
+                return false;
+            }
+            if (quantidade == 0) {
+                primeiro = d;
+            } else if (d != primeiro) {
+                todosDigitosIguais = false;
+            }
+            if (quantidade < 12) {
+                soma1 += d * PESOS_CNPJ_DV1[quantidade];
+            } else if (quantidade == 12) {
+                dv1 = d;
+            } else {
+                dv2 = d;
+            }
+            if (quantidade < 13) {
+                soma2 += d * PESOS_CNPJ_DV2[quantidade];
+            }
+            quantidade++;
+        }
+
+        return quantidade == 14 && !todosDigitosIguais
+                && dv1 == digitoVerificador(soma1) && dv2 == digitoVerificador(soma2);
+    }
+
+    // Regra: exatamente 36 caracteres alfanuméricos, sem pontuação
+    public boolean validarChaveAleatoria(String chaveAleatoria) {
+        if (chaveAleatoria == null || chaveAleatoria.length() != TAMANHO_CHAVE_ALEATORIA) {
+            return false;
+        }
+        for (int i = 0; i < chaveAleatoria.length(); i++) {
+            char c = chaveAleatoria.charAt(i);
+            if (!digito(c) && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Apenas dígitos ASCII, como o \d das regex anteriores
+    private static boolean digito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int digitoVerificador(int soma) {
+        int resto = soma % 11;
+        return (resto < 2) ? 0 : 11 - resto;
+    }
+}
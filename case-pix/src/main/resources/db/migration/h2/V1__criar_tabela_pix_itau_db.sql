@@ -0,0 +1,27 @@
+CREATE TABLE pix_itau_db (
+    id                          RAW(16)      NOT NULL,
+    tipo_chave                  VARCHAR(9)   NOT NULL,
+    valor_chave                 VARCHAR(77)  NOT NULL,
+    tipo_pessoa                 VARCHAR(8)   NOT NULL,
+    tipo_conta                  VARCHAR(10)  NOT NULL,
+    numero_agencia              INTEGER      NOT NULL,
+    numero_conta                INTEGER      NOT NULL,
+    nome_correntista            VARCHAR(30)  NOT NULL,
+    sobrenome_correntista       VARCHAR(45),
+    data_hora_inclusao_chave    TIMESTAMP(6),
+    data_hora_inativacao_chave  TIMESTAMP(6),
+    CONSTRAINT pk_pix_itau_db PRIMARY KEY (id)
+);
+
+-- Unicidade de (tipo, valor): existsByTipoChaveAndValorChave, findByTipoChave, findValoresExistentes
+CREATE UNIQUE INDEX uk_pix_itau_db_tipo_valor ON pix_itau_db (tipo_chave, valor_chave);
+
+-- Consultas por conta: findByNumeroAgenciaAndNumeroConta, countChavesAtivasByAgenciaConta,
+-- existsByNumeroAgenciaAndNumeroContaAndTipoPessoaNot, resumirContas, inativarPorAgenciaConta
+CREATE INDEX idx_pix_itau_db_conta ON pix_itau_db (numero_agencia, numero_conta, data_hora_inativacao_chave);
+
+-- Listagens paginadas e em fluxo ordenadas por (data_hora_inclusao_chave, id) e consultas por período
+CREATE INDEX idx_pix_itau_db_inclusao ON pix_itau_db (data_hora_inclusao_chave, id);
+
+-- Listagem paginada por tipo de chave
+CREATE INDEX idx_pix_itau_db_tipo_inclusao ON pix_itau_db (tipo_chave, data_hora_inclusao_chave, id);
@@ -0,0 +1,16 @@
+-- Contador de chaves por conta, consultado e incrementado por chave primária na inclusão
+CREATE TABLE conta_chave_pix (
+    numero_agencia     INTEGER     NOT NULL,
+    numero_conta       INTEGER     NOT NULL,
+    tipo_pessoa        VARCHAR(8)  NOT NULL,
+    quantidade_chaves  INTEGER     NOT NULL,
+    quantidade_ativas  INTEGER     NOT NULL,
+    CONSTRAINT pk_conta_chave_pix PRIMARY KEY (numero_agencia, numero_conta)
+);
+
+-- Carga inicial a partir das chaves existentes
+INSERT INTO conta_chave_pix (numero_agencia, numero_conta, tipo_pessoa, quantidade_chaves, quantidade_ativas)
+SELECT numero_agencia, numero_conta, MIN(tipo_pessoa), COUNT(*),
+       SUM(CASE WHEN data_hora_inativacao_chave IS NULL THEN 1 ELSE 0 END)
+FROM pix_itau_db
+GROUP BY numero_agencia, numero_conta;
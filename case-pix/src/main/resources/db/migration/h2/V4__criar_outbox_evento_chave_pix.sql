@@ -0,0 +1,10 @@
+-- Outbox das mutações de chaves PIX: cada inclusão, alteração e inativação grava um evento na mesma
+-- transação. O RelayEventosChavePix lê em ordem de sequência, entrega aos consumidores e apaga
+CREATE TABLE evento_chave_pix (
+    sequencia         BIGINT       GENERATED BY DEFAULT AS IDENTITY,
+    id_chave          RAW(16)      NOT NULL,
+    operacao          VARCHAR(10)  NOT NULL,
+    campos_alterados  VARCHAR(200),
+    data_hora_evento  TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_evento_chave_pix PRIMARY KEY (sequencia)
+);
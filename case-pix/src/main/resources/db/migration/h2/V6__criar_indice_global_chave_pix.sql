@@ -0,0 +1,14 @@
+-- Índice global de unicidade das chaves com a base dividida em shards por agência: (tipo_chave, valor_chave)
+-- e o shard que guarda a chave. Usado só no shard 0; a reserva é confirmada depois da inclusão no shard
+CREATE TABLE indice_global_chave_pix (
+    tipo_chave         VARCHAR(9)    NOT NULL,
+    valor_chave        VARCHAR(77)   NOT NULL,
+    id                 RAW(16)       NOT NULL,
+    shard              INTEGER       NOT NULL,
+    confirmada         SMALLINT      NOT NULL,
+    data_hora_reserva  TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT pk_indice_global_chave_pix PRIMARY KEY (tipo_chave, valor_chave),
+    CONSTRAINT uk_indice_global_chave_pix_id UNIQUE (id)
+);
+
+CREATE INDEX idx_indice_global_reserva ON indice_global_chave_pix (confirmada, data_hora_reserva);
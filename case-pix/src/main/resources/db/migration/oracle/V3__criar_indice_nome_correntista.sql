@@ -0,0 +1,12 @@
+-- Nome do correntista em maiúsculas e sem acentos, base da busca por nome.
+-- Linhas existentes ficam nulas e são preenchidas pelo IndiceNomeCorrentista na subida da aplicação
+ALTER TABLE pix_itau_db ADD (nome_normalizado VARCHAR2(60));
+
+-- Trigramas de cada palavra do nome normalizado, com o preenchimento "  palavra " (o início de palavra
+-- também vira trigrama). A busca percorre um trigrama pela chave primária, já em ordem de id.
+-- Organizada por índice: a tabela é só a chave primária
+CREATE TABLE nome_trigrama_chave_pix (
+    trigrama  VARCHAR2(3)  NOT NULL,
+    id        RAW(16)      NOT NULL,
+    CONSTRAINT pk_nome_trigrama_chave_pix PRIMARY KEY (trigrama, id)
+) ORGANIZATION INDEX;
@@ -0,0 +1,13 @@
+-- Histórico de auditoria: estado da chave antes e depois de cada alteração e inativação, em JSON.
+-- Gravado em lotes pelo AuditoriaChavePix, fora da transação que alterou a chave
+CREATE TABLE historico_chave_pix (
+    id                  NUMBER(19)      GENERATED BY DEFAULT AS IDENTITY,
+    id_chave            RAW(16)         NOT NULL,
+    operacao            VARCHAR2(10)    NOT NULL,
+    estado_anterior     VARCHAR2(1000)  NOT NULL,
+    estado_novo         VARCHAR2(1000)  NOT NULL,
+    data_hora_registro  TIMESTAMP(6)    NOT NULL,
+    CONSTRAINT pk_historico_chave_pix PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_historico_chave_pix_chave ON historico_chave_pix (id_chave, data_hora_registro);
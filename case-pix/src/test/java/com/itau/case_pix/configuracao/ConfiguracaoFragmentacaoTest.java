@@ -0,0 +1,237 @@
+package com.itau.case_pix.configuracao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaInativacaoLoteDTO;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.controlador.ControladorChavePix;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.repositorio.RepositorioChavePix;
+import com.itau.case_pix.servico.FragmentacaoChavesPix;
+import com.itau.case_pix.servico.IndiceGlobalChavesPix;
+import com.itau.case_pix.servico.ServicoChavePix;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Três shards em H2 em memória: cada chave fica só no shard da sua agência, e o serviço junta os shards nas
+// listagens, na unicidade e nas operações por id
+@SpringBootTest(properties = {
+        "case-pix.shards.urls=jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE,"
+                + "jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE,"
+                + "jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.open-in-view=false",
+        "spring.datasource.hikari.maximum-pool-size=4" })
+@AutoConfigureMockMvc
+class ConfiguracaoFragmentacaoTest {
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private FragmentacaoChavesPix fragmentacao;
+
+    @Autowired
+    private RepositorioChavePix repositorioChavePix;
+
+    @Autowired
+    private IndiceGlobalChavesPix indiceGlobal;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void chaveGravadaSoNoShardDaAgencia() {
+        for (int shard = 0; shard < 3; shard++) {
+            EntidadeChavePix chave = servicoChavePix.incluirChave(novaChave("local" + shard, agenciaDoShard(shard), 1));
+            for (int outro = 0; outro < 3; outro++) {
+                assertEquals(outro == shard, existeNoShard(outro, chave.getId()));
+            }
+            assertEquals(chave.getId(), servicoChavePix.buscarPorId(chave.getId()).orElseThrow().getId());
+        }
+    }
+
+    @Test
+    void valorDuplicadoRecusadoEmOutroShard() {
+        servicoChavePix.incluirChave(novaChave("duplicada", agenciaDoShard(0), 2));
+
+        ExcecaoChavePix recusa = assertThrows(ExcecaoChavePix.class,
+                () -> servicoChavePix.incluirChave(novaChave("duplicada", agenciaDoShard(1), 2)));
+        assertEquals(CodigoErroChavePix.CHAVE_DUPLICADA, recusa.getCodigo());
+    }
+
+    @Test
+    void listagemPaginadaJuntaOsShardsNaOrdemDoCursor() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            servicoChavePix.incluirChave(novaChave("pagina" + i, agenciaDoShard(i % 3), 3));
+        }
+
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult resultado = mockMvc.perform(get("/api/chaves-pix/ativas").param("limite", "2")
+                            .param("cursor", cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            for (JsonNode chave : objectMapper.readTree(resultado.getResponse().getContentAsString())) {
+                ids.add(chave.get("id").asText());
+            }
+            cursor = resultado.getResponse().getHeader(ControladorChavePix.CABECALHO_PROXIMO_CURSOR);
+        } while (cursor != null);
+
+        List<String> esperados = new ArrayList<>();
+        servicoChavePix.percorrerChavesAtivas(chave -> esperados.add(chave.getId().toString()));
+        assertEquals(esperados, ids);
+        assertEquals(servicoChavePix.buscarChavesAtivas().size(), ids.size());
+    }
+
+    @Test
+    void mudancaDeAgenciaMoveAChaveDeShard() {
+        EntidadeChavePix chave = servicoChavePix.incluirChave(novaChave("mudanca", agenciaDoShard(0), 4));
+        int agenciaNova = agenciaDoShard(2);
+        AlteracaoChavePixDTO alteracao = new AlteracaoChavePixDTO();
+        alteracao.setNumeroAgencia(agenciaNova);
+        alteracao.setNomeCorrentista("Transferido");
+
+        EntidadeChavePix alterada = servicoChavePix.alterarChave(chave.getId(), alteracao);
+
+        assertEquals(agenciaNova, alterada.getNumeroAgencia());
+        assertFalse(existeNoShard(0, chave.getId()));
+        assertTrue(existeNoShard(2, chave.getId()));
+        EntidadeChavePix consultada = servicoChavePix.buscarPorId(chave.getId()).orElseThrow();
+        assertEquals(agenciaNova, consultada.getNumeroAgencia());
+        assertEquals("Transferido", consultada.getNomeCorrentista());
+        assertEquals(chave.getDataHoraInclusaoChave().truncatedTo(ChronoUnit.MICROS),
+                consultada.getDataHoraInclusaoChave());
+        assertTrue(servicoChavePix.buscarPorAgenciaConta(agenciaNova, 4).stream()
+                .anyMatch(c -> c.getId().equals(chave.getId())));
+    }
+
+    @Test
+    void loteDistribuidoEntreShards() {
+        List<EntidadeChavePix> lote = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            lote.add(novaChave("lote" + i, agenciaDoShard(i % 3), 5));
+        }
+        lote.add(novaChave("lote0", agenciaDoShard(1), 6));
+
+        List<ResultadoInclusaoLoteDTO> resultados = servicoChavePix.incluirChavesEmLote(lote);
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i, resultados.get(i).getIndice());
+            assertTrue(resultados.get(i).isIncluida(), resultados.get(i).getMensagem());
+            assertTrue(existeNoShard(i % 3, lote.get(i).getId()));
+        }
+        assertEquals(6, resultados.get(6).getIndice());
+        assertFalse(resultados.get(6).isIncluida());
+
+        UUID desconhecido = UUID.randomUUID();
+        RespostaInativacaoLoteDTO inativacao = servicoChavePix.inativarChavesEmLote(
+                List.of(lote.get(2).getId(), desconhecido, lote.get(0).getId(), lote.get(1).getId()));
+        assertEquals(List.of(lote.get(2).getId(), lote.get(0).getId(), lote.get(1).getId()),
+                inativacao.getInativadas());
+        assertEquals(List.of(desconhecido), inativacao.getNaoEncontradas());
+    }
+
+    // Pela camada web: cada shard usa a sua conexão mesmo dentro de uma requisição
+    @Test
+    void loteEAlteracaoEntreShardsPelaApi() throws Exception {
+        StringBuilder lote = new StringBuilder("[");
+        for (int i = 0; i < 6; i++) {
+            lote.append(i == 0 ? "" : ",").append("{\"tipoChave\":\"email\",\"valorChave\":\"api" + i
+                    + "@fragmentacao.com\",\"tipoPessoa\":\"fisica\",\"tipoConta\":\"corrente\",\"numeroAgencia\":"
+                    + agenciaDoShard(i % 3) + ",\"numeroConta\":7,\"nomeCorrentista\":\"Teste\"}");
+        }
+        lote.append(']');
+
+        MvcResult resultado = mockMvc.perform(post("/api/chaves-pix/lote").contentType(MediaType.APPLICATION_JSON)
+                        .content(lote.toString()))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode resultados = objectMapper.readTree(resultado.getResponse().getContentAsString());
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            assertTrue(resultados.get(i).get("incluida").asBoolean(), resultados.get(i).toString());
+            ids.add(UUID.fromString(resultados.get(i).get("chave").get("id").asText()));
+            assertTrue(existeNoShard(i % 3, ids.get(i)));
+        }
+
+        int agenciaNova = agenciaDoShard(1);
+        mockMvc.perform(put("/api/chaves-pix/" + ids.get(0)).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numeroAgencia\":" + agenciaNova + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numeroAgencia").value(agenciaNova));
+        assertFalse(existeNoShard(0, ids.get(0)));
+        assertTrue(existeNoShard(1, ids.get(0)));
+        mockMvc.perform(get("/api/chaves-pix/" + ids.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numeroAgencia").value(agenciaNova));
+    }
+
+    @Test
+    void chaveGravadaAntesDaDivisaoEntraNoIndiceGlobal() {
+        // Gravada direto no shard, sem passar pelo índice, como as chaves da base anterior aos shards
+        EntidadeChavePix antiga = novaChave("antiga", agenciaDoShard(0), 8);
+        antiga.setId(UUID.randomUUID());
+        antiga.setDataHoraInclusaoChave(LocalDateTime.now());
+        try (RoteamentoShard.Escopo escopo = RoteamentoShard.no(1)) {
+            repositorioChavePix.save(antiga);
+        }
+        assertTrue(servicoChavePix.buscarPorId(antiga.getId()).isEmpty());
+
+        indiceGlobal.preencherAusentes();
+
+        assertEquals(antiga.getNumeroAgencia(), servicoChavePix.buscarPorId(antiga.getId()).orElseThrow()
+                .getNumeroAgencia());
+        ExcecaoChavePix recusa = assertThrows(ExcecaoChavePix.class,
+                () -> servicoChavePix.incluirChave(novaChave("antiga", agenciaDoShard(2), 8)));
+        assertEquals(CodigoErroChavePix.CHAVE_DUPLICADA, recusa.getCodigo());
+        servicoChavePix.inativarChave(antiga.getId());
+        assertFalse(servicoChavePix.buscarPorId(antiga.getId()).orElseThrow().isAtiva());
+    }
+
+    private int agenciaDoShard(int shard) {
+        for (int agencia = 1000; ; agencia++) {
+            if (fragmentacao.shardDaAgencia(agencia) == shard) {
+                return agencia;
+            }
+        }
+    }
+
+    private boolean existeNoShard(int shard, UUID id) {
+        try (RoteamentoShard.Escopo escopo = RoteamentoShard.no(shard)) {
+            return repositorioChavePix.existsById(id);
+        }
+    }
+
+    private static EntidadeChavePix novaChave(String nome, int agencia, int conta) {
+        return new EntidadeChavePix(null, "email", nome + "@fragmentacao.com", "fisica", "corrente", agencia, conta,
+                "Teste", "Fragmentacao");
+    }
+}
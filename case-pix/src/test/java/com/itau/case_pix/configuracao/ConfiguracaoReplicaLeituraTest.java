@@ -0,0 +1,74 @@
+package com.itau.case_pix.configuracao;
+
+import com.itau.case_pix.controlador.FiltroLeituraConsistente;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.servico.ServicoChavePix;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Primária e réplica em dois H2 em memória sem replicação entre eles: o que foi gravado só aparece nas
+// leituras que o roteamento manda para a primária
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primaria;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "case-pix.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "case-pix.replica.username=sa", "case-pix.replica.migrar-esquema=true",
+        "case-pix.replica.hikari.maximum-pool-size=2" })
+@AutoConfigureMockMvc
+class ConfiguracaoReplicaLeituraTest {
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void leiturasVaoParaAReplicaSalvoComLeituraConsistente() throws Exception {
+        EntidadeChavePix chave = servicoChavePix.incluirChave(new EntidadeChavePix(null, "email",
+                "replica@teste.com", "fisica", "corrente", 950, 1, "Teste", "Replica"));
+
+        // A réplica não recebeu a inclusão
+        mockMvc.perform(get("/api/chaves-pix/ativas"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/chaves-pix/ativas")
+                        .header(FiltroLeituraConsistente.CABECALHO_LEITURA_CONSISTENTE, "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(chave.getId().toString()));
+
+        // Escritas continuam na primária
+        servicoChavePix.inativarChave(chave.getId());
+        try (RoteamentoLeitura.Escopo primaria = RoteamentoLeitura.naPrimaria()) {
+            mockMvc.perform(get("/api/chaves-pix/inativas"))
+                    .andExpect(jsonPath("$[0].id").value(chave.getId().toString()));
+        }
+    }
+
+    @Test
+    void exportacaoNdjsonComLeituraConsistenteLeDaPrimaria() throws Exception {
+        servicoChavePix.incluirChave(new EntidadeChavePix(null, "email", "ndjson@replica.com", "fisica", "corrente",
+                951, 1, "Teste", "Replica"));
+
+        // A exportação roda em outra thread, que precisa herdar o roteamento da requisição
+        MvcResult resultado = mockMvc.perform(get("/api/chaves-pix/ativas").accept(MediaType.APPLICATION_NDJSON)
+                        .header(FiltroLeituraConsistente.CABECALHO_LEITURA_CONSISTENTE, "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"ndjson@replica.com\"")));
+    }
+}
@@ -0,0 +1,141 @@
+package com.itau.case_pix.controlador;
+
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.servico.ServicoChavePix;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:controlador;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "case-pix.exportacao.timeout=PT2M",
+        "case-pix.lote.tamanho-maximo=8" })
+@AutoConfigureMockMvc
+class ControladorChavePixTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Test
+    void loteDevolveResultadoPorItem() throws Exception {
+        StringBuilder lote = new StringBuilder("[").append(chaveJson("lote0@controlador.com", 710)).append(',')
+                .append(chaveJson("lote0@controlador.com", 711));
+        for (int i = 1; i <= 5; i++) {
+            lote.append(',').append(chaveJson("lote" + i + "@controlador.com", 710));
+        }
+        lote.append(']');
+
+        mockMvc.perform(post("/api/chaves-pix/lote").contentType(MediaType.APPLICATION_JSON).content(lote.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(7))
+                .andExpect(jsonPath("$[0].incluida").value(true))
+                .andExpect(jsonPath("$[0].chave.id").exists())
+                .andExpect(jsonPath("$[1].incluida").value(false))
+                .andExpect(jsonPath("$[1].mensagem").value("Já existe uma chave PIX com este valor"))
+                .andExpect(jsonPath("$[2].incluida").value(true))
+                .andExpect(jsonPath("$[5].incluida").value(true))
+                // A conta da agência 710 chega ao limite de pessoa física com as cinco primeiras chaves aceitas
+                .andExpect(jsonPath("$[6].incluida").value(false))
+                .andExpect(jsonPath("$[6].mensagem").value("Limite de chaves PIX por conta excedido"));
+    }
+
+    @Test
+    void loteAcimaDoTamanhoMaximoERecusadoInteiro() throws Exception {
+        StringBuilder lote = new StringBuilder("[");
+        for (int i = 0; i < 9; i++) {
+            lote.append(i == 0 ? "" : ",").append(chaveJson("excedido" + i + "@controlador.com", 720 + i));
+        }
+        lote.append(']');
+
+        mockMvc.perform(post("/api/chaves-pix/lote").contentType(MediaType.APPLICATION_JSON).content(lote.toString()))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().string("O lote excede o limite de 8 chaves PIX"));
+    }
+
+    @Test
+    void exportacaoNdjsonUsaOTimeoutProprio() throws Exception {
+        servicoChavePix.incluirChave(new EntidadeChavePix(null, "email", "ndjson@controlador.com", "fisica",
+                "corrente", 700, 1, "Teste", null));
+
+        MvcResult resultado = mockMvc.perform(get("/api/chaves-pix/ativas").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(120_000, resultado.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"ndjson@controlador.com\"")));
+    }
+
+    @Test
+    void inativacaoEmLoteSeparaInativadasJaInativadasENaoEncontradas() throws Exception {
+        EntidadeChavePix ativa = servicoChavePix.incluirChave(new EntidadeChavePix(null, "email",
+                "inativar1@controlador.com", "fisica", "corrente", 730, 1, "Teste", null));
+        EntidadeChavePix inativa = servicoChavePix.incluirChave(new EntidadeChavePix(null, "email",
+                "inativar2@controlador.com", "fisica", "corrente", 730, 1, "Teste", null));
+        servicoChavePix.inativarChave(inativa.getId());
+        UUID inexistente = UUID.randomUUID();
+
+        String corpo = "{\"ids\":[\"" + ativa.getId() + "\",\"" + inativa.getId() + "\",\"" + inexistente + "\"]}";
+        mockMvc.perform(post("/api/chaves-pix/lote/inativacao").contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inativadas").value(contains(ativa.getId().toString())))
+                .andExpect(jsonPath("$.jaInativadas").value(contains(inativa.getId().toString())))
+                .andExpect(jsonPath("$.naoEncontradas").value(contains(inexistente.toString())));
+
+        // Repetido, o mesmo lote não inativa mais nada
+        mockMvc.perform(post("/api/chaves-pix/lote/inativacao").contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inativadas").isEmpty())
+                .andExpect(jsonPath("$.jaInativadas").value(
+                        containsInAnyOrder(ativa.getId().toString(), inativa.getId().toString())))
+                .andExpect(jsonPath("$.naoEncontradas").value(contains(inexistente.toString())));
+    }
+
+    @Test
+    void inativacaoDaContaSeparaInativadasEJaInativadas() throws Exception {
+        EntidadeChavePix ativa = servicoChavePix.incluirChave(new EntidadeChavePix(null, "email",
+                "conta1@controlador.com", "fisica", "corrente", 740, 1, "Teste", null));
+        EntidadeChavePix inativa = servicoChavePix.incluirChave(new EntidadeChavePix(null, "email",
+                "conta2@controlador.com", "fisica", "corrente", 740, 1, "Teste", null));
+        servicoChavePix.inativarChave(inativa.getId());
+
+        mockMvc.perform(post("/api/chaves-pix/lote/inativacao").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numeroAgencia\":740,\"numeroConta\":1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inativadas").value(contains(ativa.getId().toString())))
+                .andExpect(jsonPath("$.jaInativadas").value(contains(inativa.getId().toString())));
+
+        mockMvc.perform(post("/api/chaves-pix/lote/inativacao").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numeroAgencia\":741,\"numeroConta\":1}"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static String chaveJson(String email, int agencia) {
+        return "{\"tipoChave\":\"email\",\"valorChave\":\"" + email + "\",\"tipoPessoa\":\"fisica\","
+                + "\"tipoConta\":\"corrente\",\"numeroAgencia\":" + agencia + ",\"numeroConta\":1,"
+                + "\"nomeCorrentista\":\"Teste\"}";
+    }
+}
@@ -0,0 +1,26 @@
+package com.itau.case_pix.repositorio;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Registra o SQL gerado pelo Hibernate para que os testes possam inspecioná-lo
+public class InspetorSqlTeste implements StatementInspector {
+
+    private static final List<String> COMANDOS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        COMANDOS.add(sql);
+        return sql;
+    }
+
+    public static void limpar() {
+        COMANDOS.clear();
+    }
+
+    public static List<String> comandos() {
+        return List.copyOf(COMANDOS);
+    }
+}
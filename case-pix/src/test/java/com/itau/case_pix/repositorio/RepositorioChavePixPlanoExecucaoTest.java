@@ -0,0 +1,163 @@
+package com.itau.case_pix.repositorio;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Confere, pelo EXPLAIN do H2, que cada consulta do repositório usa o índice esperado
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:planoexecucao;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.itau.case_pix.repositorio.InspetorSqlTeste",
+        "case-pix.cache.segundo-nivel.habilitado=false" })
+class RepositorioChavePixPlanoExecucaoTest {
+
+    private static final String PK = "PRIMARY_KEY";
+    // O H2 gera o nome do índice da chave primária composta (PRIMARY_KEY_xx); basta a condição de acesso
+    private static final String TRIGRAMA_NO_INDICE = ": TRIGRAMA = ?1";
+    private static final String UK_TIPO_VALOR = "UK_PIX_ITAU_DB_TIPO_VALOR";
+    private static final String IDX_CONTA = "IDX_PIX_ITAU_DB_CONTA";
+    private static final String IDX_INCLUSAO = "IDX_PIX_ITAU_DB_INCLUSAO";
+    private static final String IDX_TIPO_INCLUSAO = "IDX_PIX_ITAU_DB_TIPO_INCLUSAO";
+    private static final String VARREDURA = "tableScan";
+
+    private static final LocalDateTime DATA = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final UUID ID = UUID.randomUUID();
+
+    @Autowired
+    private RepositorioChavePix repositorio;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void consultasPorTipoEValorUsamIndiceUnico() {
+        assertUsaIndice(() -> repositorio.findValoresExistentes("cpf", List.of("11144477735", "52998224725")),
+                UK_TIPO_VALOR);
+        assertUsaIndice(() -> repositorio.findByTipoChave("cpf"), UK_TIPO_VALOR, IDX_TIPO_INCLUSAO);
+        assertUsaIndice(() -> repositorio.existsByTipoChave("cpf"), UK_TIPO_VALOR, IDX_TIPO_INCLUSAO);
+    }
+
+    @Test
+    void consultasPorContaUsamIndiceDeConta() {
+        assertUsaIndice(() -> repositorio.findByNumeroAgenciaAndNumeroConta(1, 2), IDX_CONTA);
+        assertUsaIndice(() -> transactionTemplate.execute(
+                status -> repositorio.inativarPorAgenciaConta(1, 2, DATA)), IDX_CONTA);
+    }
+
+    @Test
+    void consultasPorIdUsamChavePrimaria() {
+        assertUsaIndice(() -> repositorio.findById(ID), PK);
+        assertUsaIndice(() -> repositorio.findAllById(List.of(ID, UUID.randomUUID())), PK);
+        assertUsaIndice(() -> transactionTemplate.execute(
+                status -> repositorio.inativarPorIds(List.of(ID), DATA)), PK);
+    }
+
+    @Test
+    void consultasPorDataDeInclusaoUsamIndiceDeInclusao() {
+        assertUsaIndice(() -> repositorio.findByDataHoraInclusaoChaveBetween(DATA, DATA.plusDays(1)), IDX_INCLUSAO);
+        assertUsaIndice(() -> repositorio.existsByDataHoraInclusaoChaveBetween(DATA, DATA.plusDays(1)), IDX_INCLUSAO);
+        assertUsaIndice(() -> transactionTemplate.execute(status -> {
+            try (var chaves = repositorio.streamAllAtivas()) {
+                return chaves.count();
+            }
+        }), IDX_INCLUSAO);
+        assertUsaIndice(() -> transactionTemplate.execute(status -> {
+            try (var chaves = repositorio.streamAllInativas()) {
+                return chaves.count();
+            }
+        }), IDX_INCLUSAO);
+    }
+
+    @Test
+    void paginacaoPorKeysetPercorreIndiceAPartirDoCursor() {
+        // O índice deve ser usado como intervalo a partir do cursor, e não apenas para ordenar
+        assertUsaIndice(() -> repositorio.findAtivasApos(DATA, ID, Limit.of(10)),
+                IDX_INCLUSAO + ": DATA_HORA_INCLUSAO_CHAVE >=");
+        assertUsaIndice(() -> repositorio.findInativasApos(DATA, ID, Limit.of(10)),
+                IDX_INCLUSAO + ": DATA_HORA_INCLUSAO_CHAVE >=");
+        assertUsaIndice(() -> repositorio.findAtivasPorTipoApos("cpf", DATA, ID, Limit.of(10)),
+                IDX_TIPO_INCLUSAO + ": DATA_HORA_INCLUSAO_CHAVE >=");
+        assertUsaIndice(() -> repositorio.findAtivasPorPeriodoApos(DATA, DATA.plusDays(1), DATA, ID, Limit.of(10)),
+                IDX_INCLUSAO + ": DATA_HORA_INCLUSAO_CHAVE >=");
+    }
+
+    @Test
+    void cargasCompletasPercorremATabela() {
+        // Leituras integrais (carga do diretório em memória e listagens legadas) não têm filtro seletivo
+        assertUsaIndice(() -> repositorio.findAllAtivas(), VARREDURA);
+        assertUsaIndice(() -> repositorio.findAllInativas(), VARREDURA);
+    }
+
+    @Test
+    void buscaPorNomePercorreOIndiceDeTrigramas() {
+        // Intervalo do trigrama a partir do cursor na chave primária do índice, e acesso à chave pelo id
+        assertUsaIndice(() -> repositorio.findAtivasPorNomeApos("ARI", "%MARIA%", ID, Limit.of(10)),
+                TRIGRAMA_NO_INDICE);
+        assertUsaIndice(() -> repositorio.findPorNome("ARI", "%MARIA%", Limit.of(1)), TRIGRAMA_NO_INDICE);
+    }
+
+    @Test
+    void cargaDoFiltroDeChavesLeSoOIndiceUnico() {
+        // (tipo_chave, valor_chave) estão inteiros no índice único: a carga não precisa ler a tabela
+        assertUsaIndice(() -> transactionTemplate.execute(status -> {
+            try (var chaves = repositorio.streamTiposEValores()) {
+                return chaves.count();
+            }
+        }), UK_TIPO_VALOR);
+    }
+
+    private void assertUsaIndice(Runnable consulta, String... indicesAceitos) {
+        InspetorSqlTeste.limpar();
+        consulta.run();
+
+        List<String> comandos = InspetorSqlTeste.comandos();
+        assertFalse(comandos.isEmpty(), "Nenhum SQL foi executado");
+        String sql = comandos.get(comandos.size() - 1);
+        String plano = explicar(sql);
+
+        for (String indice : indicesAceitos) {
+            if (plano.contains(indice)) {
+                if (!indice.equals(VARREDURA)) {
+                    assertFalse(plano.contains(VARREDURA), "Varredura completa inesperada: " + plano);
+                }
+                return;
+            }
+        }
+        fail("Plano não usa " + String.join(" ou ", indicesAceitos) + ": " + plano);
+    }
+
+    // EXPLAIN do comando com todos os parâmetros nulos (o H2 escolhe o plano sem depender dos valores)
+    private String explicar(String sql) {
+        try (Connection conexao = dataSource.getConnection();
+                PreparedStatement comando = conexao.prepareStatement("EXPLAIN " + sql)) {
+            int parametros = comando.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parametros; i++) {
+                comando.setObject(i, null);
+            }
+            try (ResultSet resultado = comando.executeQuery()) {
+                assertTrue(resultado.next());
+                return resultado.getString(1).replace('\n', ' ');
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Falha ao obter o plano de: " + sql, e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RecusaImportacaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaImportacaoChavesPixDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Exporta a base do banco e importa em um armazenamento em log vazio: ids, datas e chaves inativas se mantêm
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:arquivo-binario;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "case-pix.importacao.tamanho-lote=2" })
+class ArquivoBinarioChavesPixTest {
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private ArquivoBinarioChavesPix arquivoBinario;
+
+    @Autowired
+    private ValidadorValorChavePix validadorValorChavePix;
+
+    @Autowired
+    private GeradorIdChavePix geradorIdChavePix;
+
+    @Autowired
+    private MetricasChavePix metricasChavePix;
+
+    @Test
+    void importacaoRestauraAExportacao(@TempDir Path diretorio) throws IOException {
+        EntidadeChavePix ativa = servicoChavePix.incluirChave(novaChave("ativa@binario.com", 1));
+        EntidadeChavePix inativa = servicoChavePix.incluirChave(novaChave("inativa@binario.com", 1));
+        servicoChavePix.incluirChave(novaChave("outra@binario.com", 2));
+        servicoChavePix.inativarChave(inativa.getId());
+        byte[] exportacao = exportar();
+
+        ServicoChavePixLog destino = new ServicoChavePixLog(validadorValorChavePix, geradorIdChavePix,
+                metricasChavePix, List.of(), diretorio.toString(), DataSize.ofKilobytes(64), 1000);
+        destino.recuperar();
+        try {
+            ArquivoBinarioChavesPix importador = new ArquivoBinarioChavesPix(destino, 2, 2);
+            RespostaImportacaoChavesPixDTO resposta = importador.importar(new ByteArrayInputStream(exportacao));
+            importador.encerrar();
+            assertEquals(resposta.getLidas(), resposta.getImportadas());
+
+            EntidadeChavePix restaurada = destino.buscarPorId(ativa.getId()).orElseThrow();
+            assertEquals(ativa.getValorChave(), restaurada.getValorChave());
+            assertEquals(ativa.getDataHoraInclusaoChave(), restaurada.getDataHoraInclusaoChave());
+            assertNotNull(destino.buscarPorId(inativa.getId()).orElseThrow().getDataHoraInativacaoChave());
+            assertEquals(Set.of(ativa.getId(), inativa.getId()), destino.buscarPorAgenciaConta(100, 1).stream()
+                    .map(EntidadeChavePix::getId).collect(Collectors.toSet()));
+        } finally {
+            destino.encerrar();
+        }
+    }
+
+    @Test
+    void reimportarNaMesmaBaseRecusaTodasComoDuplicadas() throws IOException {
+        // Mais recusas que o limite da resposta, em lotes de 2 que terminam fora de ordem
+        for (int i = 0; i < 120; i++) {
+            servicoChavePix.incluirChave(novaChave("reimportada" + i + "@binario.com", 300 + i / 5));
+        }
+        RespostaImportacaoChavesPixDTO resposta = arquivoBinario.importar(new ByteArrayInputStream(exportar()));
+
+        assertEquals(0, resposta.getImportadas());
+        assertEquals(resposta.getLidas(), resposta.getRecusadas());
+        // Sempre as 100 primeiras linhas do arquivo
+        assertEquals(LongStream.range(0, 100).boxed().toList(),
+                resposta.getRecusas().stream().map(RecusaImportacaoChavePixDTO::getIndice).toList());
+    }
+
+    @Test
+    void arquivoCorrompidoOuIncompletoERecusado() throws IOException {
+        servicoChavePix.incluirChave(novaChave("corrompida@binario.com", 4));
+        byte[] exportacao = exportar();
+
+        byte[] corrompida = exportacao.clone();
+        corrompida[corrompida.length - 1] ^= 1;
+        ExcecaoChavePix crc = assertThrows(ExcecaoChavePix.class,
+                () -> arquivoBinario.importar(new ByteArrayInputStream(corrompida)));
+        assertEquals(CodigoErroChavePix.ARQUIVO_INVALIDO, crc.getCodigo());
+
+        byte[] incompleta = Arrays.copyOf(exportacao, exportacao.length - 6);
+        ExcecaoChavePix truncada = assertThrows(ExcecaoChavePix.class,
+                () -> arquivoBinario.importar(new ByteArrayInputStream(incompleta)));
+        assertEquals(CodigoErroChavePix.ARQUIVO_INVALIDO, truncada.getCodigo());
+    }
+
+    // A exportação é um retrato do início da leitura: a chave inativada no meio sai uma vez, ainda ativa
+    @Test
+    void chaveInativadaDuranteAExportacaoSaiUmaVez() throws Exception {
+        List<EntidadeChavePix> lote = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            lote.add(new EntidadeChavePix(null, "email", "retrato" + i + "@binario.com", "fisica", "corrente", 101,
+                    i, "Teste", "Binario"));
+        }
+        servicoChavePix.incluirChavesEmLote(lote);
+        EntidadeChavePix ultima = servicoChavePix.incluirChave(novaChave("retrato@binario.com", 5));
+
+        // O escritor só repassa os bytes depois de encher o buffer, com a leitura do banco já em andamento
+        ByteArrayOutputStream exportacao = new ByteArrayOutputStream();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            arquivoBinario.exportar(new FilterOutputStream(exportacao) {
+                private boolean inativada;
+
+                @Override
+                public void write(byte[] bytes, int inicio, int tamanho) throws IOException {
+                    if (!inativada) {
+                        inativada = true;
+                        try {
+                            executor.submit(() -> servicoChavePix.inativarChave(ultima.getId())).get();
+                        } catch (InterruptedException | ExecutionException e) {
+                            throw new IOException(e);
+                        }
+                    }
+                    out.write(bytes, inicio, tamanho);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+        assertNotNull(servicoChavePix.buscarPorId(ultima.getId()).orElseThrow().getDataHoraInativacaoChave());
+
+        FormatoBinarioChavesPix.Leitor leitor = new FormatoBinarioChavesPix.Leitor(
+                new ByteArrayInputStream(exportacao.toByteArray()));
+        List<EntidadeChavePix> exportadas = new ArrayList<>();
+        for (EntidadeChavePix chave = leitor.proxima(); chave != null; chave = leitor.proxima()) {
+            exportadas.add(chave);
+        }
+        assertEquals(exportadas.size(), exportadas.stream().map(EntidadeChavePix::getId).distinct().count());
+        List<EntidadeChavePix> copias = exportadas.stream().filter(c -> c.getId().equals(ultima.getId())).toList();
+        assertEquals(1, copias.size());
+        assertNull(copias.get(0).getDataHoraInativacaoChave());
+    }
+
+    private byte[] exportar() throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        arquivoBinario.exportar(saida);
+        return saida.toByteArray();
+    }
+
+    private static EntidadeChavePix novaChave(String email, int conta) {
+        return new EntidadeChavePix(null, "email", email, "fisica", "corrente", 100, conta, "Teste", "Binario");
+    }
+}
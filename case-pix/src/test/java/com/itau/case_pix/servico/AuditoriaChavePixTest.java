@@ -0,0 +1,89 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// O histórico é gravado em segundo plano: os testes esperam a thread escritora esvaziar a fila
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auditoria;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "case-pix.auditoria.intervalo-escrita=PT0.05S" })
+class AuditoriaChavePixTest {
+
+    @TempDir
+    static Path diretorio;
+
+    @DynamicPropertySource
+    static void arquivoContingencia(DynamicPropertyRegistry registro) {
+        registro.add("case-pix.auditoria.arquivo-contingencia", () -> diretorio.resolve("contingencia.ndjson").toString());
+    }
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private AuditoriaChavePix auditoriaChavePix;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void alteracaoEInativacaoGravamEstadoAnteriorENovo() throws InterruptedException {
+        EntidadeChavePix chave = servicoChavePix.incluirChave(novaChave("auditoria1@teste.com"));
+        AlteracaoChavePixDTO alteracao = new AlteracaoChavePixDTO();
+        alteracao.setNumeroConta(2);
+        servicoChavePix.alterarChave(chave.getId(), alteracao);
+        servicoChavePix.inativarChave(chave.getId());
+
+        List<Map<String, Object>> historico = aguardarHistorico(chave.getId(), 2);
+        assertEquals("ALTERACAO", historico.get(0).get("OPERACAO"));
+        assertTrue(((String) historico.get(0).get("ESTADO_ANTERIOR")).contains("\"numeroConta\":1"));
+        assertTrue(((String) historico.get(0).get("ESTADO_NOVO")).contains("\"numeroConta\":2"));
+        assertEquals("INATIVACAO", historico.get(1).get("OPERACAO"));
+        assertTrue(((String) historico.get(1).get("ESTADO_ANTERIOR")).contains("\"dataHoraInativacaoChave\":null"));
+        assertFalse(((String) historico.get(1).get("ESTADO_NOVO")).contains("\"dataHoraInativacaoChave\":null"));
+    }
+
+    @Test
+    void registrosDesviadosParaContingenciaVoltamAoBanco() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        EstadoChavePix estado = new EstadoChavePix("corrente", 900, 1, "Teste", "Auditoria", null);
+        auditoriaChavePix.gravarContingencia(List.of(new RegistroAuditoriaChavePix(id,
+                EventoChavePix.Operacao.ALTERACAO, estado, estado, LocalDateTime.now())));
+
+        assertEquals(1, aguardarHistorico(id, 1).size());
+        assertFalse(Files.exists(diretorio.resolve("contingencia.ndjson")));
+    }
+
+    private List<Map<String, Object>> aguardarHistorico(UUID id, int quantidade) throws InterruptedException {
+        List<Map<String, Object>> historico = List.of();
+        for (int tentativa = 0; tentativa < 100 && historico.size() < quantidade; tentativa++) {
+            Thread.sleep(50);
+            historico = jdbcTemplate.queryForList("SELECT operacao, estado_anterior, estado_novo "
+                    + "FROM historico_chave_pix WHERE id_chave = ? ORDER BY id", (Object) IdsChavePix.bytes(id));
+        }
+        assertEquals(quantidade, historico.size());
+        return historico;
+    }
+
+    private static EntidadeChavePix novaChave(String valorChave) {
+        return new EntidadeChavePix(null, "email", valorChave, "fisica", "corrente", 900, 1, "Teste", "Auditoria");
+    }
+}
@@ -0,0 +1,106 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Busca por nome pelo índice de trigramas: sem acentos, sem distinção de maiúsculas e paginada por id
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:buscanome;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE" })
+class BuscaNomeCorrentistaTest {
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Test
+    void trigramasMarcamInicioEFimDasPalavras() {
+        assertEquals(Set.of("  J", " JO", "JOS", "OSE", "SE ", "  S", " SI", "SIL", "ILV", "LVA", "VA "),
+                IndiceNomeCorrentista.trigramas("JOSE SILVA"));
+        // "SE SI" só pode casar com o fim de uma palavra seguido do início da próxima
+        assertEquals(Set.of("SE ", "  S", " SI"), IndiceNomeCorrentista.trigramasConsulta("SE SI"));
+    }
+
+    @Test
+    void buscaIgnoraAcentosMaiusculasEPosicaoDoTermo() {
+        EntidadeChavePix joao = incluir("busca1@teste.com", 401, "João Antônio");
+        EntidadeChavePix joana = incluir("busca2@teste.com", 402, "JOANA");
+        incluir("busca3@teste.com", 403, "Pedro");
+
+        assertEquals(Set.of(joao.getId(), joana.getId()), ids(servicoChavePix.buscarPorNomeCorrentista("joa",
+                ScrollPosition.keyset(), 10)));
+        assertEquals(Set.of(joao.getId()), ids(servicoChavePix.buscarPorNomeCorrentista("ANTONIO",
+                ScrollPosition.keyset(), 10)));
+        assertEquals(Set.of(joao.getId()), ids(servicoChavePix.buscarPorNomeCorrentista("ão  ant",
+                ScrollPosition.keyset(), 10)));
+        // Termo curto: começo de alguma palavra do nome
+        assertEquals(Set.of(joao.getId()), ids(servicoChavePix.buscarPorNomeCorrentista("an",
+                ScrollPosition.keyset(), 10)));
+        assertFalse(servicoChavePix.existeChaveComNome("%"));
+    }
+
+    @Test
+    void paginacaoPercorreTodasAsChavesSemRepetir() {
+        Set<UUID> incluidas = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            incluidas.add(incluir("pagina" + i + "@teste.com", 500 + i, "Valdemar").getId());
+        }
+
+        List<RespostaConsultaChavePixDTO> lidas = new ArrayList<>();
+        ScrollPosition posicao = ScrollPosition.keyset();
+        Window<RespostaConsultaChavePixDTO> pagina;
+        do {
+            pagina = servicoChavePix.buscarPorNomeCorrentista("valdemar", posicao, 2);
+            lidas.addAll(pagina.getContent());
+            if (!pagina.isEmpty()) {
+                posicao = pagina.positionAt(pagina.size() - 1);
+            }
+        } while (pagina.hasNext());
+
+        assertEquals(5, lidas.size());
+        assertEquals(incluidas, ids(lidas));
+    }
+
+    @Test
+    void alteracaoEInativacaoAtualizamOResultado() {
+        EntidadeChavePix chave = incluir("alterada@teste.com", 600, "Bartolomeu");
+        assertTrue(servicoChavePix.existeChaveComNome("bartolo"));
+
+        AlteracaoChavePixDTO alteracao = new AlteracaoChavePixDTO();
+        alteracao.setNomeCorrentista("Wenceslau");
+        servicoChavePix.alterarChave(chave.getId(), alteracao);
+        assertFalse(servicoChavePix.existeChaveComNome("bartolo"));
+        assertEquals(Set.of(chave.getId()), ids(servicoChavePix.buscarPorNomeCorrentista("wences",
+                ScrollPosition.keyset(), 10)));
+
+        // Inativada continua existindo, mas sai da listagem
+        servicoChavePix.inativarChave(chave.getId());
+        assertTrue(servicoChavePix.existeChaveComNome("wences"));
+        assertTrue(servicoChavePix.buscarPorNomeCorrentista("wences", ScrollPosition.keyset(), 10).isEmpty());
+    }
+
+    private EntidadeChavePix incluir(String email, int conta, String nome) {
+        return servicoChavePix.incluirChave(new EntidadeChavePix(null, "email", email, "fisica", "corrente", 400,
+                conta, nome, "Teste"));
+    }
+
+    private static Set<UUID> ids(Iterable<RespostaConsultaChavePixDTO> chaves) {
+        Set<UUID> ids = new HashSet<>();
+        chaves.forEach(chave -> ids.add(chave.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,114 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaEstatisticasChavePixDTO;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+// Contadores mantidos a cada escrita devem coincidir com o recálculo a partir do banco
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:estatisticas;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE" })
+class EstatisticasChavePixTest {
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private EstatisticasChavePix estatisticasChavePix;
+
+    @MockitoSpyBean
+    private FragmentacaoChavesPix fragmentacao;
+
+    @Test
+    void escritasAtualizamOsContadoresComoAReconciliacao() {
+        EntidadeChavePix primeira = servicoChavePix.incluirChave(novaChave("email", "est1@teste.com", 700, 1));
+        servicoChavePix.incluirChave(novaChave("email", "est2@teste.com", 700, 1));
+        servicoChavePix.incluirChavesEmLote(List.of(novaChave("email", "est3@teste.com", 701, 1),
+                novaChave("email", "est4@teste.com", 701, 1)));
+
+        // Recusada pelo índice único: a transação é desfeita e não conta
+        assertThrows(ExcecaoChavePix.class,
+                () -> servicoChavePix.incluirChave(novaChave("email", "est1@teste.com", 702, 1)));
+
+        servicoChavePix.inativarChave(primeira.getId());
+        servicoChavePix.inativarChavesDaConta(701, 1);
+
+        EntidadeChavePix movida = servicoChavePix.incluirChave(novaChave("email", "est5@teste.com", 703, 1));
+        AlteracaoChavePixDTO alteracao = new AlteracaoChavePixDTO();
+        alteracao.setNumeroAgencia(704);
+        servicoChavePix.alterarChave(movida.getId(), alteracao);
+
+        RespostaEstatisticasChavePixDTO incremental = servicoChavePix.consultarEstatisticas();
+        assertContagem(1, 1, incremental.getPorAgencia().get(700));
+        assertContagem(0, 2, incremental.getPorAgencia().get(701));
+        assertContagem(0, 0, incremental.getPorAgencia().get(703));
+        assertContagem(1, 0, incremental.getPorAgencia().get(704));
+
+        estatisticasChavePix.reconciliar();
+        RespostaEstatisticasChavePixDTO recalculada = servicoChavePix.consultarEstatisticas();
+        assertContagem(incremental.getTotal().getAtivas(), incremental.getTotal().getInativas(),
+                recalculada.getTotal());
+        assertContagem(incremental.getPorTipoChave().get("email").getAtivas(),
+                incremental.getPorTipoChave().get("email").getInativas(), recalculada.getPorTipoChave().get("email"));
+        assertContagem(1, 0, recalculada.getPorAgencia().get(704));
+        assertNull(recalculada.getPorAgencia().get(703));
+    }
+
+    @Test
+    void escritaConfirmadaDuranteARecontagemNaoContaDuasVezes() throws Exception {
+        servicoChavePix.incluirChave(novaChave("email", "recontagem1@teste.com", 710, 1));
+        estatisticasChavePix.reconciliar();
+        long ativasAntes = servicoChavePix.consultarEstatisticas().getTotal().getAtivas();
+
+        // Inclusão confirmada por outra transação depois do início da recontagem e antes do GROUP BY
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean incluida = new AtomicBoolean();
+        try {
+            doAnswer(invocacao -> {
+                if (incluida.compareAndSet(false, true)) {
+                    executor.submit(() -> servicoChavePix.incluirChave(
+                            novaChave("email", "recontagem2@teste.com", 710, 1))).get();
+                }
+                return invocacao.callRealMethod();
+            }).when(fragmentacao).paraCadaShard(any());
+            estatisticasChavePix.reconciliar();
+        } finally {
+            reset(fragmentacao);
+            executor.shutdown();
+        }
+        assertTrue(incluida.get());
+        RespostaEstatisticasChavePixDTO durante = servicoChavePix.consultarEstatisticas();
+        assertEquals(ativasAntes + 1, durante.getTotal().getAtivas());
+        assertContagem(2, 0, durante.getPorAgencia().get(710));
+
+        estatisticasChavePix.reconciliar();
+        assertEquals(durante.getTotal().getAtivas(), servicoChavePix.consultarEstatisticas().getTotal().getAtivas());
+    }
+
+    private static void assertContagem(long ativas, long inativas, RespostaEstatisticasChavePixDTO.Contagem contagem) {
+        assertEquals(ativas, contagem.getAtivas(), "ativas");
+        assertEquals(inativas, contagem.getInativas(), "inativas");
+    }
+
+    private static EntidadeChavePix novaChave(String tipoChave, String valorChave, int agencia, int conta) {
+        return new EntidadeChavePix(null, tipoChave, valorChave, "fisica", "corrente", agencia, conta, "Teste",
+                "Estatisticas");
+    }
+}
@@ -0,0 +1,88 @@
+package com.itau.case_pix.servico;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FiltroBloomTest {
+
+    private static final int CAPACIDADE = 100_000;
+    private static final double TAXA = 0.01;
+
+    @Test
+    void naoHaFalsoNegativo() {
+        FiltroBloom filtro = new FiltroBloom(CAPACIDADE, TAXA);
+        for (int i = 0; i < CAPACIDADE; i++) {
+            filtro.adicionar("email", "cliente" + i + "@itau.com.br");
+        }
+        for (int i = 0; i < CAPACIDADE; i++) {
+            assertTrue(filtro.talvezContenha("email", "cliente" + i + "@itau.com.br"));
+        }
+    }
+
+    @Test
+    void taxaDeFalsosPositivosProximaDaConfiguradaNaCapacidade() {
+        FiltroBloom filtro = new FiltroBloom(CAPACIDADE, TAXA);
+        for (int i = 0; i < CAPACIDADE; i++) {
+            filtro.adicionar("cpf", String.format("%011d", i));
+        }
+
+        int falsosPositivos = 0;
+        for (int i = CAPACIDADE; i < 2 * CAPACIDADE; i++) {
+            if (filtro.talvezContenha("cpf", String.format("%011d", i))) {
+                falsosPositivos++;
+            }
+        }
+        double observada = (double) falsosPositivos / CAPACIDADE;
+        assertTrue(observada < 2 * TAXA, "Taxa observada: " + observada);
+        assertEquals(TAXA, filtro.taxaFalsosPositivosEstimada(), TAXA);
+    }
+
+    @Test
+    void tipoDeChaveFazParteDoElemento() {
+        FiltroBloom filtro = new FiltroBloom(1_000, TAXA);
+        filtro.adicionar("cpf", "11144477735");
+        assertTrue(filtro.talvezContenha("cpf", "11144477735"));
+        assertFalse(filtro.talvezContenha("cnpj", "11144477735"));
+    }
+
+    @Test
+    void inclusoesConcorrentesNaoPerdemBits() throws Exception {
+        FiltroBloom filtro = new FiltroBloom(CAPACIDADE, TAXA);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int inicio = t * (CAPACIDADE / 8);
+                tarefas.add(executor.submit(() -> {
+                    for (int i = inicio; i < inicio + CAPACIDADE / 8; i++) {
+                        filtro.adicionar("aleatoria", "chave" + i);
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < CAPACIDADE; i++) {
+            assertTrue(filtro.talvezContenha("aleatoria", "chave" + i));
+        }
+    }
+
+    @Test
+    void configuracaoInvalidaRecusada() {
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(0, TAXA));
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(CAPACIDADE, 1.0));
+    }
+}
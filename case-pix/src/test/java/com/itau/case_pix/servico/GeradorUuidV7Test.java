@@ -0,0 +1,75 @@
+package com.itau.case_pix.servico;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeradorUuidV7Test {
+
+    private static final Instant INSTANTE = Instant.parse("2025-06-01T12:00:00Z");
+
+    @Test
+    void camposDaVersao7() {
+        UUID id = new GeradorUuidV7(Clock.fixed(INSTANTE, ZoneOffset.UTC)).gerar();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(INSTANTE.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void idsCrescemNaOrdemDaColunaRawMesmoComRelogioParado() {
+        // Relógio parado: mais ids que os 4096 valores do contador de um milissegundo
+        GeradorUuidV7 gerador = new GeradorUuidV7(Clock.fixed(INSTANTE, ZoneOffset.UTC));
+        byte[] anterior = IdsChavePix.bytes(gerador.gerar());
+        for (int i = 0; i < 10_000; i++) {
+            byte[] atual = IdsChavePix.bytes(gerador.gerar());
+            assertTrue(Arrays.compareUnsigned(anterior, atual) < 0, "id " + i + " não é maior que o anterior");
+            anterior = atual;
+        }
+    }
+
+    @Test
+    void idsDistintosECrescentesPorThreadSobConcorrencia() throws Exception {
+        GeradorUuidV7 gerador = new GeradorUuidV7();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<UUID>>> futuros = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futuros.add(executor.submit(() -> {
+                    List<UUID> ids = new ArrayList<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        ids.add(gerador.gerar());
+                    }
+                    return ids;
+                }));
+            }
+            Set<UUID> todos = new HashSet<>();
+            for (Future<List<UUID>> futuro : futuros) {
+                List<UUID> ids = futuro.get();
+                for (int i = 1; i < ids.size(); i++) {
+                    assertTrue(Arrays.compareUnsigned(IdsChavePix.bytes(ids.get(i - 1)),
+                            IdsChavePix.bytes(ids.get(i))) < 0);
+                }
+                todos.addAll(ids);
+            }
+            assertEquals(8 * 20_000, todos.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
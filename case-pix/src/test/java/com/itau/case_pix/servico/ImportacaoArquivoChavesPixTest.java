@@ -0,0 +1,153 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.StatusImportacaoChavesPixDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Os jobs rodam em segundo plano: os testes esperam o job sair de EM_ANDAMENTO. Blocos de 3 linhas para que
+// os arquivos pequenos passem por vários checkpoints
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importacao-arquivo;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "case-pix.importacao.arquivo.tamanho-bloco=3",
+        "case-pix.importacao.tamanho-lote=10" })
+class ImportacaoArquivoChavesPixTest {
+
+    @TempDir
+    static Path diretorio;
+
+    @DynamicPropertySource
+    static void diretorioJobs(DynamicPropertyRegistry registro) {
+        registro.add("case-pix.importacao.arquivo.diretorio", diretorio::toString);
+    }
+
+    @Autowired
+    private ImportacaoArquivoChavesPix importacao;
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Test
+    void csvComRecusasPorLinha() throws Exception {
+        StringBuilder csv = new StringBuilder("tipoChave;valorChave;tipoPessoa;tipoConta;numeroAgencia;numeroConta;nomeCorrentista\n");
+        csv.append("email;primeira@csv.com;fisica;corrente;10;1;Ana\n");
+        csv.append("cpf;123;fisica;corrente;10;1;Ana\n");
+        csv.append("email;primeira@csv.com;fisica;corrente;10;2;Bia\n");
+        csv.append("email;sem-coluna@csv.com;fisica\n");
+        csv.append("\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("e-mail;limite").append(i).append("@csv.com;Física;Corrente;10;3;\"Carla; a mesma\"\n");
+        }
+
+        StatusImportacaoChavesPixDTO status = aguardar(importacao.criar(entrada(csv.toString()),
+                JobImportacaoChavesPix.Formato.CSV).getId());
+
+        assertEquals("CONCLUIDA", status.getEstado());
+        assertEquals(10, status.getLinhasProcessadas());
+        // As cinco chaves da conta 3 ficam exatamente no limite de pessoa física
+        assertEquals(6, status.getImportadas());
+        assertEquals(3, status.getRecusadas());
+        assertEquals("Carla; a mesma", servicoChavePix.buscarPorValorChave("email", "limite0@csv.com")
+                .orElseThrow().getNomeCorrentista());
+
+        List<String> recusas = Files.readAllLines(importacao.arquivoRecusas(status.getId()));
+        assertEquals(4, recusas.size());
+        assertTrue(recusas.get(1).startsWith("3;\"Dados da chave PIX inválidos\""));
+        assertTrue(recusas.get(2).startsWith("4;\"Chave PIX repetida no arquivo (linha 2)\""));
+        assertTrue(recusas.get(3).startsWith("5;\"Linha mal formada\""));
+    }
+
+    @Test
+    void csvSemColunasObrigatoriasERecusado() {
+        ExcecaoChavePix excecao = assertThrows(ExcecaoChavePix.class, () -> importacao.criar(
+                entrada("tipoChave,valorChave\nemail,x@csv.com\n"), JobImportacaoChavesPix.Formato.CSV));
+        assertEquals(CodigoErroChavePix.ARQUIVO_INVALIDO, excecao.getCodigo());
+    }
+
+    @Test
+    void ndjsonComLinhaNullRecusaSoALinha() throws Exception {
+        String arquivo = String.join("\n", ndjson(2, "antes@ndjson.com"), "null", "{\"numeroAgencia\":",
+                ndjson(2, "depois@ndjson.com")) + "\n";
+
+        StatusImportacaoChavesPixDTO status = aguardar(importacao.criar(entrada(arquivo),
+                JobImportacaoChavesPix.Formato.NDJSON).getId());
+
+        assertEquals("CONCLUIDA", status.getEstado());
+        assertEquals(4, status.getLinhasProcessadas());
+        assertEquals(2, status.getImportadas());
+        assertEquals(2, status.getRecusadas());
+        List<String> recusas = Files.readAllLines(importacao.arquivoRecusas(status.getId()));
+        assertTrue(recusas.get(1).startsWith("2;\"Linha mal formada\""));
+        assertTrue(recusas.get(2).startsWith("3;\"Linha mal formada\""));
+    }
+
+    @Test
+    void retomaDoCheckpointSemRecusarOBlocoJaGravado() throws Exception {
+        List<String> linhas = List.of(ndjson(1, "retomada0@ndjson.com"), ndjson(1, "retomada1@ndjson.com"),
+                ndjson(1, "retomada2@ndjson.com"), ndjson(1, "retomada3@ndjson.com"));
+        UUID id = UUID.randomUUID();
+        Files.writeString(JobImportacaoChavesPix.arquivoDados(diretorio, id), String.join("\n", linhas) + "\n");
+        Files.writeString(JobImportacaoChavesPix.arquivoRecusas(diretorio, id), "linha;motivo;conteudo\nlixo\n");
+
+        // Queda depois de gravar as duas primeiras linhas no banco, com o checkpoint só na primeira
+        servicoChavePix.incluirChave(chave("retomada0@ndjson.com"));
+        servicoChavePix.incluirChave(chave("retomada1@ndjson.com"));
+        JobImportacaoChavesPix job = new JobImportacaoChavesPix(id, JobImportacaoChavesPix.Formato.NDJSON, null,
+                LocalDateTime.now());
+        job.registrarBloco(linhas.get(0).length() + 1, 1, 1, 0, 0, "linha;motivo;conteudo\n".length(), 100);
+        job.gravar(diretorio);
+
+        importacao.retomarPendentes();
+        StatusImportacaoChavesPixDTO status = aguardar(id);
+
+        assertEquals("CONCLUIDA", status.getEstado());
+        assertEquals(4, status.getLinhasProcessadas());
+        assertEquals(3, status.getImportadas());
+        assertEquals(1, status.getJaExistentes());
+        assertEquals(0, status.getRecusadas());
+        assertEquals(List.of("linha;motivo;conteudo"), Files.readAllLines(importacao.arquivoRecusas(id)));
+    }
+
+    private StatusImportacaoChavesPixDTO aguardar(UUID id) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10_000;
+        StatusImportacaoChavesPixDTO status = importacao.consultar(id);
+        while ("EM_ANDAMENTO".equals(status.getEstado()) && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            status = importacao.consultar(id);
+        }
+        return status;
+    }
+
+    private static ByteArrayInputStream entrada(String conteudo) {
+        return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String ndjson(int conta, String email) {
+        return "{\"tipoChave\":\"email\",\"valorChave\":\"" + email + "\",\"tipoPessoa\":\"fisica\","
+                + "\"tipoConta\":\"corrente\",\"numeroAgencia\":20,\"numeroConta\":" + conta
+                + ",\"nomeCorrentista\":\"Davi\"}";
+    }
+
+    private static EntidadeChavePix chave(String email) {
+        return new EntidadeChavePix(null, "email", email, "fisica", "corrente", 20, 1, "Davi", null);
+    }
+}
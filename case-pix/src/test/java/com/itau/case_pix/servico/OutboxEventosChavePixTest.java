@@ -0,0 +1,68 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaEventoChavePixDTO;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Cada mutação confirmada grava exatamente um evento no outbox, e o relay o entrega em ordem e o apaga
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "case-pix.outbox.intervalo-relay=PT1H", "case-pix.outbox.tamanho-lote=2" })
+class OutboxEventosChavePixTest {
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private RelayEventosChavePix relayEventosChavePix;
+
+    @Autowired
+    private FeedEventosChavePix feedEventosChavePix;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void mutacoesConfirmadasChegamAoFeedNaOrdemDoOutbox() {
+        EntidadeChavePix chave = servicoChavePix.incluirChave(novaChave("outbox1@teste.com"));
+
+        // Recusada pelo índice único: a transação é desfeita junto com o evento
+        assertThrows(ExcecaoChavePix.class, () -> servicoChavePix.incluirChave(novaChave("outbox1@teste.com")));
+
+        AlteracaoChavePixDTO alteracao = new AlteracaoChavePixDTO();
+        alteracao.setNumeroConta(2);
+        alteracao.setNomeCorrentista("Outro");
+        servicoChavePix.alterarChave(chave.getId(), alteracao);
+        servicoChavePix.inativarChave(chave.getId());
+
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM evento_chave_pix", Integer.class));
+
+        // Lotes de dois: o relay continua enquanto os lotes vêm cheios
+        assertEquals(3, relayEventosChavePix.drenar());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM evento_chave_pix", Integer.class));
+
+        List<RespostaEventoChavePixDTO> eventos = feedEventosChavePix.consultar(0, 10);
+        assertEquals(List.of("INCLUSAO", "ALTERACAO", "INATIVACAO"),
+                eventos.stream().map(RespostaEventoChavePixDTO::getOperacao).toList());
+        eventos.forEach(evento -> assertEquals(chave.getId(), evento.getIdChave()));
+        assertEquals(Set.of(), eventos.get(0).getCamposAlterados());
+        assertEquals(Set.of("numeroConta", "nomeCorrentista"), eventos.get(1).getCamposAlterados());
+        assertEquals(Set.of("dataHoraInativacaoChave"), eventos.get(2).getCamposAlterados());
+        assertEquals(List.of(eventos.get(2)), feedEventosChavePix.consultar(eventos.get(1).getPosicao(), 10));
+    }
+
+    private static EntidadeChavePix novaChave(String valorChave) {
+        return new EntidadeChavePix(null, "email", valorChave, "fisica", "corrente", 800, 1, "Teste", "Outbox");
+    }
+}
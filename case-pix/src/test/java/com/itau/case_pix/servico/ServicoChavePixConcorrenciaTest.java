@@ -0,0 +1,187 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.RespostaInativacaoLoteDTO;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import com.itau.case_pix.modelo.IdContaChavePix;
+import com.itau.case_pix.repositorio.InspetorSqlTeste;
+import com.itau.case_pix.repositorio.RepositorioChavePix;
+import com.itau.case_pix.repositorio.RepositorioContaChavePix;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Inclusões concorrentes: unicidade garantida pelo índice único e limite garantido pelo contador por conta
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:concorrencia;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.itau.case_pix.repositorio.InspetorSqlTeste" })
+class ServicoChavePixConcorrenciaTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private RepositorioChavePix repositorioChavePix;
+
+    @Autowired
+    private RepositorioContaChavePix repositorioContaChavePix;
+
+    @Test
+    void mesmaChaveIncluidaConcorrentementeGeraUmaUnicaLinha() throws Exception {
+        String email = "concorrencia@teste.com";
+        List<String> mensagens = executarConcorrentemente(i -> novaChave("email", email, 100, 1000 + i));
+
+        assertEquals(1, mensagens.stream().filter("incluida"::equals).count());
+        assertEquals(THREADS - 1, mensagens.stream().filter("Já existe uma chave PIX com este valor"::equals).count(),
+                mensagens.toString());
+        assertEquals(1, repositorioChavePix.findValoresExistentes("email", List.of(email)).size());
+    }
+
+    @Test
+    void limiteDaContaRespeitadoSobConcorrencia() throws Exception {
+        List<String> mensagens = executarConcorrentemente(i -> novaChave("cpf", gerarCpf(500 + i), 200, 2000));
+
+        assertEquals(5, mensagens.stream().filter("incluida"::equals).count());
+        assertEquals(THREADS - 5, mensagens.stream().filter("Limite de chaves PIX por conta excedido"::equals).count(),
+                mensagens.toString());
+        assertEquals(5, repositorioChavePix.findByNumeroAgenciaAndNumeroConta(200, 2000).size());
+        assertEquals(5, repositorioContaChavePix.findById(new IdContaChavePix(200, 2000)).orElseThrow()
+                .getQuantidadeAtivas());
+    }
+
+    @Test
+    void inclusaoNaoConsultaAChaveAntesDeInserir() {
+        servicoChavePix.incluirChave(novaChave("email", "primeira@teste.com", 300, 3000));
+
+        InspetorSqlTeste.limpar();
+        servicoChavePix.incluirChave(novaChave("email", "segunda@teste.com", 300, 3000));
+
+        // Apenas o INSERT da chave e o UPDATE condicional do contador da conta
+        List<String> comandos = InspetorSqlTeste.comandos().stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT)).toList();
+        assertEquals(2, comandos.size(), comandos.toString());
+        assertTrue(comandos.get(0).startsWith("insert into pix_itau_db"), comandos.toString());
+        assertTrue(comandos.get(1).startsWith("update conta_chave_pix"), comandos.toString());
+    }
+
+    @Test
+    void lotesSobrepostosComMaisDeUmBlocoNaoEntramEmDeadlock() throws Exception {
+        // 600 chaves: mais de um bloco de 500 ids na trava, em contas diferentes para respeitar o limite por conta
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            ids.add(servicoChavePix.incluirChave(novaChave("email", "lote" + i + "@teste.com", 400, 4000 + i / 5))
+                    .getId());
+        }
+        List<UUID> invertidos = new ArrayList<>(ids);
+        Collections.reverse(invertidos);
+
+        // Os dois lotes travam as mesmas linhas em ordens de cliente opostas
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<RespostaInativacaoLoteDTO>> futuros = new ArrayList<>();
+            for (List<UUID> lote : List.of(ids, invertidos)) {
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return servicoChavePix.inativarChavesEmLote(lote);
+                }));
+            }
+            largada.countDown();
+
+            Set<UUID> inativadas = new HashSet<>();
+            int jaInativadas = 0;
+            for (Future<RespostaInativacaoLoteDTO> futuro : futuros) {
+                RespostaInativacaoLoteDTO resposta = futuro.get(60, TimeUnit.SECONDS);
+                inativadas.addAll(resposta.getInativadas());
+                jaInativadas += resposta.getJaInativadas().size();
+            }
+            assertEquals(Set.copyOf(ids), inativadas);
+            assertEquals(600, jaInativadas);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Dispara as inclusões ao mesmo tempo e devolve "incluida" ou a mensagem de recusa de cada uma
+    private List<String> executarConcorrentemente(FabricaChave fabrica) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger sequencia = new AtomicInteger();
+        try {
+            List<Future<String>> futuros = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                Callable<String> tarefa = () -> {
+                    EntidadeChavePix chave = fabrica.criar(sequencia.getAndIncrement());
+                    largada.await();
+                    try {
+                        servicoChavePix.incluirChave(chave);
+                        return "incluida";
+                    } catch (ExcecaoChavePix e) {
+                        return e.getMessage();
+                    }
+                };
+                futuros.add(executor.submit(tarefa));
+            }
+            largada.countDown();
+
+            List<String> mensagens = new ArrayList<>();
+            for (Future<String> futuro : futuros) {
+                mensagens.add(futuro.get(30, TimeUnit.SECONDS));
+            }
+            return mensagens;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface FabricaChave {
+        EntidadeChavePix criar(int indice);
+    }
+
+    private static EntidadeChavePix novaChave(String tipoChave, String valorChave, int agencia, int conta) {
+        return new EntidadeChavePix(null, tipoChave, valorChave, "fisica", "corrente", agencia, conta, "Teste",
+                "Concorrencia");
+    }
+
+    // CPF válido com base de 9 dígitos derivada de n
+    private static String gerarCpf(int n) {
+        String base = String.format("%09d", 100000000 + n);
+        int[] digitos = new int[11];
+        for (int i = 0; i < 9; i++) {
+            digitos[i] = base.charAt(i) - '0';
+        }
+        for (int dv = 9; dv < 11; dv++) {
+            int soma = 0;
+            for (int i = 0; i < dv; i++) {
+                soma += digitos[i] * (dv + 1 - i);
+            }
+            int resto = soma % 11;
+            digitos[dv] = resto < 2 ? 0 : 11 - resto;
+        }
+        StringBuilder cpf = new StringBuilder();
+        for (int digito : digitos) {
+            cpf.append(digito);
+        }
+        return cpf.toString();
+    }
+}
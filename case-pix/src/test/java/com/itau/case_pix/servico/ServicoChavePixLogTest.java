@@ -0,0 +1,170 @@
+package com.itau.case_pix.servico;
+
+import com.itau.case_pix.DTO.AlteracaoChavePixDTO;
+import com.itau.case_pix.DTO.RespostaConsultaChavePixDTO;
+import com.itau.case_pix.DTO.ResultadoInclusaoLoteDTO;
+import com.itau.case_pix.exception.CodigoErroChavePix;
+import com.itau.case_pix.exception.ExcecaoChavePix;
+import com.itau.case_pix.modelo.EntidadeChavePix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Perfil log: a aplicação sobe sem banco, as regras do serviço valem também para o armazenamento em log, e o
+// estado sobrevive a um reinício (snapshot mais as mutações do log posteriores a ele)
+@SpringBootTest
+@ActiveProfiles("log")
+class ServicoChavePixLogTest {
+
+    @TempDir
+    static Path diretorioContexto;
+
+    @DynamicPropertySource
+    static void propriedades(DynamicPropertyRegistry registro) {
+        registro.add("case-pix.log.diretorio", diretorioContexto::toString);
+    }
+
+    @Autowired
+    private ServicoChavePix servicoChavePix;
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Autowired
+    private ValidadorValorChavePix validadorValorChavePix;
+
+    @Autowired
+    private GeradorIdChavePix geradorIdChavePix;
+
+    @Autowired
+    private MetricasChavePix metricasChavePix;
+
+    @Test
+    void sobeSemBancoComOServicoEmLog() {
+        assertTrue(servicoChavePix instanceof ServicoChavePixLog);
+        assertTrue(contexto.getBeanNamesForType(DataSource.class).length == 0);
+    }
+
+    @Test
+    void aplicaAsRegrasDeInclusao() {
+        EntidadeChavePix chave = servicoChavePix.incluirChave(novaChave("regras@log.com", 100, 1));
+        assertEquals(chave.getId(), servicoChavePix.buscarPorValorChave("e-mail", "regras@log.com")
+                .orElseThrow().getId());
+
+        ExcecaoChavePix duplicada = assertThrows(ExcecaoChavePix.class,
+                () -> servicoChavePix.incluirChave(novaChave("regras@log.com", 100, 2)));
+        assertEquals(CodigoErroChavePix.CHAVE_DUPLICADA, duplicada.getCodigo());
+
+        EntidadeChavePix outraPessoa = novaChave("juridica@log.com", 100, 1);
+        outraPessoa.setTipoPessoa("juridica");
+        ExcecaoChavePix divergente = assertThrows(ExcecaoChavePix.class,
+                () -> servicoChavePix.incluirChave(outraPessoa));
+        assertEquals(CodigoErroChavePix.TIPO_PESSOA_DIVERGENTE, divergente.getCodigo());
+
+        List<EntidadeChavePix> lote = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lote.add(novaChave("limite" + i + "@log.com", 100, 1));
+        }
+        List<ResultadoInclusaoLoteDTO> resultados = servicoChavePix.incluirChavesEmLote(lote);
+        assertEquals(4, resultados.stream().filter(ResultadoInclusaoLoteDTO::isIncluida).count());
+        assertFalse(resultados.get(4).isIncluida());
+        assertEquals(5, servicoChavePix.buscarPorAgenciaConta(100, 1).size());
+    }
+
+    @Test
+    void paginaAsAtivasNaOrdemDeInclusao() {
+        List<UUID> incluidas = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            incluidas.add(servicoChavePix.incluirChave(novaChave("pagina" + i + "@log.com", 200, i + 1)).getId());
+        }
+        servicoChavePix.inativarChave(incluidas.get(2));
+
+        List<UUID> paginadas = new ArrayList<>();
+        Window<RespostaConsultaChavePixDTO> pagina = servicoChavePix.buscarPorTipoChave("email",
+                ScrollPosition.keyset(), 2);
+        while (true) {
+            pagina.forEach(chave -> {
+                if (incluidas.contains(chave.getId())) {
+                    paginadas.add(chave.getId());
+                }
+            });
+            if (!pagina.hasNext()) {
+                break;
+            }
+            pagina = servicoChavePix.buscarPorTipoChave("email", pagina.positionAt(pagina.size() - 1), 2);
+        }
+        assertEquals(List.of(incluidas.get(0), incluidas.get(1), incluidas.get(3), incluidas.get(4)), paginadas);
+
+        // O percurso completo traz também a inativa, uma vez só
+        List<UUID> percorridas = new ArrayList<>();
+        servicoChavePix.percorrerChaves(chave -> percorridas.add(chave.getId()));
+        assertTrue(percorridas.containsAll(incluidas));
+        assertEquals(percorridas.size(), percorridas.stream().distinct().count());
+    }
+
+    @Test
+    void recuperaSnapshotEMutacoesPosteriores(@TempDir Path diretorio) throws IOException {
+        ServicoChavePixLog antes = novoServico(diretorio);
+        EntidadeChavePix alterada = antes.incluirChave(novaChave("alterada@log.com", 300, 1));
+        EntidadeChavePix inativada = antes.incluirChave(novaChave("inativada@log.com", 300, 1));
+        antes.compactar();
+
+        AlteracaoChavePixDTO alteracao = new AlteracaoChavePixDTO();
+        alteracao.setNumeroAgencia(301);
+        alteracao.setNomeCorrentista("Depois");
+        antes.alterarChave(alterada.getId(), alteracao);
+        antes.inativarChave(inativada.getId());
+        EntidadeChavePix incluida = antes.incluirChave(novaChave("depois@log.com", 302, 1));
+
+        // Sem encerrar o primeiro: a subida não conta com o snapshot do encerramento
+        ServicoChavePixLog depois = novoServico(diretorio);
+        try {
+            EntidadeChavePix recuperada = depois.buscarPorId(alterada.getId()).orElseThrow();
+            assertEquals(301, recuperada.getNumeroAgencia());
+            assertEquals("Depois", recuperada.getNomeCorrentista());
+            assertNotNull(depois.buscarPorId(inativada.getId()).orElseThrow().getDataHoraInativacaoChave());
+            assertEquals(incluida.getDataHoraInclusaoChave(),
+                    depois.buscarPorId(incluida.getId()).orElseThrow().getDataHoraInclusaoChave());
+            assertEquals(2, depois.buscarChavesAtivas().size());
+            assertTrue(depois.buscarPorAgenciaConta(300, 1).stream().noneMatch(c -> c.getId().equals(alterada.getId())));
+
+            ExcecaoChavePix duplicada = assertThrows(ExcecaoChavePix.class,
+                    () -> depois.incluirChave(novaChave("inativada@log.com", 303, 1)));
+            assertEquals(CodigoErroChavePix.CHAVE_DUPLICADA, duplicada.getCodigo());
+        } finally {
+            depois.encerrar();
+        }
+    }
+
+    private ServicoChavePixLog novoServico(Path diretorio) throws IOException {
+        ServicoChavePixLog servico = new ServicoChavePixLog(validadorValorChavePix, geradorIdChavePix,
+                metricasChavePix, List.of(), diretorio.toString(), DataSize.ofKilobytes(64), 1000);
+        servico.recuperar();
+        return servico;
+    }
+
+    private static EntidadeChavePix novaChave(String email, int agencia, int conta) {
+        return new EntidadeChavePix(null, "email", email, "fisica", "corrente", agencia, conta, "Teste", "Log");
+    }
+}
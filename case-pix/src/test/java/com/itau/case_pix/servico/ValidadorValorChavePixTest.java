@@ -0,0 +1,320 @@
+package com.itau.case_pix.servico;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compara o validador com a implementação anterior (baseada em regex) sobre espaços de entrada exaustivos
+class ValidadorValorChavePixTest {
+
+    // Caracteres de fronteira: dígitos, letras, pontuação aceita e recusada, dígito não ASCII, quebra de linha
+    private static final char[] ESPECIAIS = { '0', '5', '9', 'a', 'z', 'A', 'Z', '+', '-', '_', '.', '@', '&', '*',
+            ' ', '/', '\n', '٣', 'ç', '!' };
+
+    private final ValidadorValorChavePix validador = new ValidadorValorChavePix();
+    private final Random aleatorio = new Random(20240517L);
+
+    @Test
+    void celularEquivalenteAImplementacaoAnterior() {
+        List<String> casos = new ArrayList<>();
+        for (int tamanho = 0; tamanho <= 18; tamanho++) {
+            String digitos = "9".repeat(tamanho);
+            for (String prefixo : new String[] { "", "+", "++", "0", " +" }) {
+                casos.addAll(comSubstituicoes(prefixo + digitos));
+            }
+        }
+        casos.addAll(aleatorias("+0123456789a ", 0, 18, 200_000));
+
+        assertEquivalente(casos, validador::validarCelular, Legado::validarCelular);
+    }
+
+    @Test
+    void emailEquivalenteAImplementacaoAnterior() {
+        List<String> casos = new ArrayList<>();
+        // Todas as cadeias de até 6 caracteres sobre um alfabeto que exercita cada ramo da regex
+        todasAsCadeias("a1-.@_", 6, casos);
+        casos.addAll(aleatorias("aZ09-_.@+&*!", 0, 20, 200_000));
+        for (String base : new String[] { "joao.silva@itau.com.br", "a@b.co", "a+b&c*d-e_f@x-y.z.abcdefg",
+                "x@y.abcdefgh", "x@1.com", "x@y.c0m", ".a@b.com", "a.@b.com", "a..b@c.com", "a@b..com", "a@@b.com" }) {
+            casos.addAll(comSubstituicoes(base));
+        }
+        String dominio = "@itau.com.br";
+        for (int tamanho = 70; tamanho <= 80; tamanho++) {
+            casos.add("a".repeat(tamanho - dominio.length()) + dominio);
+        }
+
+        assertEquivalente(casos, validador::validarEmail, Legado::validarEmail);
+    }
+
+    @Test
+    void cpfEquivalenteAImplementacaoAnterior() {
+        List<String> casos = new ArrayList<>();
+        // Todas as 100 combinações de dígitos verificadores para bases aleatórias e repetidas
+        for (int n = 0; n < 20_000; n++) {
+            String base = String.format("%09d", aleatorio.nextInt(1_000_000_000));
+            for (int dv = 0; dv < 100; dv++) {
+                casos.add(base + String.format("%02d", dv));
+            }
+        }
+        for (char d = '0'; d <= '9'; d++) {
+            casos.add(String.valueOf(d).repeat(11));
+        }
+        String valido = "11144477735";
+        casos.addAll(comSubstituicoes(valido));
+        casos.addAll(comInsercoes(valido));
+        casos.add("111.444.777-35");
+        casos.add("111.444.777-3");
+        casos.add("111.444.777-355");
+        casos.addAll(aleatorias("0123456789.-a", 0, 16, 100_000));
+
+        assertEquivalente(casos, validador::validarCpf, Legado::validarCPF);
+    }
+
+    @Test
+    void cnpjEquivalenteAImplementacaoAnterior() {
+        List<String> casos = new ArrayList<>();
+        for (int n = 0; n < 5_000; n++) {
+            String base = String.format("%06d%06d", aleatorio.nextInt(1_000_000), aleatorio.nextInt(1_000_000));
+            for (int dv = 0; dv < 100; dv++) {
+                casos.add(base + String.format("%02d", dv));
+            }
+        }
+        for (char d = '0'; d <= '9'; d++) {
+            casos.add(String.valueOf(d).repeat(14));
+        }
+        String valido = "11222333000181";
+        casos.addAll(comSubstituicoes(valido));
+        casos.addAll(comInsercoes(valido));
+        casos.add("11.222.333/0001-81");
+        casos.add("11.222.333/0001-8");
+        casos.add("11.222.333/0001-811");
+        casos.addAll(aleatorias("0123456789./-a", 0, 20, 100_000));
+
+        assertEquivalente(casos, validador::validarCnpj, Legado::validarCNPJ);
+    }
+
+    @Test
+    void chaveAleatoriaEquivalenteAImplementacaoAnterior() {
+        List<String> casos = new ArrayList<>();
+        for (int tamanho = 0; tamanho <= 40; tamanho++) {
+            casos.add("a1B2".repeat(10).substring(0, tamanho));
+        }
+        // Cada caractere de 0 a 0x17F em cada posição de uma chave válida
+        String valida = "a1B2c3D4e5F6g7H8i9J0k1L2m3N4o5P6q7R8";
+        for (int posicao = 0; posicao < valida.length(); posicao++) {
+            for (char c = 0; c <= 0x17F; c++) {
+                casos.add(valida.substring(0, posicao) + c + valida.substring(posicao + 1));
+            }
+        }
+        casos.add(valida.substring(0, 35) + "\uD83D");
+        casos.add(valida.substring(0, 34) + "😀");
+
+        assertEquivalente(casos, validador::validarChaveAleatoria, Legado::validarChaveAleatoria);
+    }
+
+    @Test
+    void nuloERecusado() {
+        assertFalse(validador.validarCelular(null));
+        assertFalse(validador.validarEmail(null));
+        assertFalse(validador.validarCpf(null));
+        assertFalse(validador.validarCnpj(null));
+        assertFalse(validador.validarChaveAleatoria(null));
+    }
+
+    @Test
+    void caminhoFelizNaoAlocaMemoria() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Aquecimento para que a medição não inclua carga de classes
+        boolean resultado = validarCaminhoFeliz(1_000);
+        long antes = threads.getThreadAllocatedBytes(threadId);
+        resultado &= validarCaminhoFeliz(100_000);
+        long alocado = threads.getThreadAllocatedBytes(threadId) - antes;
+
+        assertTrue(resultado);
+        // Tolerância para a própria chamada de medição
+        assertTrue(alocado < 1024, "Bytes alocados: " + alocado);
+    }
+
+    private boolean validarCaminhoFeliz(int repeticoes) {
+        boolean resultado = true;
+        for (int i = 0; i < repeticoes; i++) {
+            resultado &= validador.validarCpf("111.444.777-35");
+            resultado &= validador.validarCnpj("11222333000181");
+            resultado &= validador.validarCelular("+5511987654321");
+            resultado &= validador.validarChaveAleatoria("a1B2c3D4e5F6g7H8i9J0k1L2m3N4o5P6q7R8");
+        }
+        return resultado;
+    }
+
+    private static void assertEquivalente(List<String> casos, Predicate<String> atual, Predicate<String> anterior) {
+        int aceitos = 0;
+        for (String caso : casos) {
+            boolean esperado = anterior.test(caso);
+            assertEquals(esperado, atual.test(caso), () -> "Divergência para \"" + caso + "\"");
+            if (esperado) {
+                aceitos++;
+            }
+        }
+        // Garante que o espaço de entrada cobre tanto aceitação quanto recusa
+        assertTrue(aceitos > 0 && aceitos < casos.size(), "Aceitos: " + aceitos + " de " + casos.size());
+    }
+
+    // A própria cadeia e ela com cada posição trocada por cada caractere especial
+    private static List<String> comSubstituicoes(String base) {
+        List<String> casos = new ArrayList<>();
+        casos.add(base);
+        for (int posicao = 0; posicao < base.length(); posicao++) {
+            for (char c : ESPECIAIS) {
+                casos.add(base.substring(0, posicao) + c + base.substring(posicao + 1));
+            }
+        }
+        return casos;
+    }
+
+    // A cadeia com cada caractere especial inserido em cada posição
+    private static List<String> comInsercoes(String base) {
+        List<String> casos = new ArrayList<>();
+        for (int posicao = 0; posicao <= base.length(); posicao++) {
+            for (char c : ESPECIAIS) {
+                casos.add(base.substring(0, posicao) + c + base.substring(posicao));
+            }
+        }
+        return casos;
+    }
+
+    private static void todasAsCadeias(String alfabeto, int tamanhoMaximo, List<String> casos) {
+        List<String> atuais = List.of("");
+        casos.add("");
+        for (int tamanho = 1; tamanho <= tamanhoMaximo; tamanho++) {
+            List<String> proximas = new ArrayList<>();
+            for (String prefixo : atuais) {
+                for (int i = 0; i < alfabeto.length(); i++) {
+                    proximas.add(prefixo + alfabeto.charAt(i));
+                }
+            }
+            casos.addAll(proximas);
+            atuais = proximas;
+        }
+    }
+
+    private List<String> aleatorias(String alfabeto, int tamanhoMinimo, int tamanhoMaximo, int quantidade) {
+        List<String> casos = new ArrayList<>(quantidade);
+        for (int n = 0; n < quantidade; n++) {
+            int tamanho = tamanhoMinimo + aleatorio.nextInt(tamanhoMaximo - tamanhoMinimo + 1);
+            StringBuilder cadeia = new StringBuilder(tamanho);
+            for (int i = 0; i < tamanho; i++) {
+                cadeia.append(alfabeto.charAt(aleatorio.nextInt(alfabeto.length())));
+            }
+            casos.add(cadeia.toString());
+        }
+        return casos;
+    }
+
+    // Implementação anterior de ServicoImplementacaoChavePix, mantida como referência de comportamento
+    private static class Legado {
+
+        static boolean validarCelular(String celular) {
+            String regex = "^\\+(\\d{1,3})(\\d{2,3})(\\d{8,9})$";
+            return celular != null && celular.matches(regex);
+        }
+
+        static boolean validarEmail(String email) {
+            if (email == null || !email.contains("@") || email.length() > 77) {
+                return false;
+            }
+            String regex = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
+            return java.util.regex.Pattern.compile(regex).matcher(email).matches();
+        }
+
+        static boolean validarCPF(String cpf) {
+            if (cpf == null) {
+                return false;
+            }
+            cpf = cpf.replaceAll("\\D", "");
+            if (cpf.length() != 11 || !cpf.matches("^\\d+$")) {
+                return false;
+            }
+            boolean todosDigitosIguais = true;
+            for (int i = 1; i < cpf.length(); i++) {
+                if (cpf.charAt(i) != cpf.charAt(0)) {
+                    todosDigitosIguais = false;
+                    break;
+                }
+            }
+            if (todosDigitosIguais) {
+                return false;
+            }
+            int soma = 0;
+            for (int i = 0; i < 9; i++) {
+                soma += (cpf.charAt(i) - '0') * (10 - i);
+            }
+            int resto = soma % 11;
+            int dv1 = (resto < 2) ? 0 : 11 - resto;
+            if ((cpf.charAt(9) - '0') != dv1) {
+                return false;
+            }
+            soma = 0;
+            for (int i = 0; i < 10; i++) {
+                soma += (cpf.charAt(i) - '0') * (11 - i);
+            }
+            resto = soma % 11;
+            int dv2 = (resto < 2) ? 0 : 11 - resto;
+            return (cpf.charAt(10) - '0') == dv2;
+        }
+
+        static boolean validarCNPJ(String cnpj) {
+            if (cnpj == null) {
+                return false;
+            }
+            cnpj = cnpj.replaceAll("\\D", "");
+            if (cnpj.length() != 14 || !cnpj.matches("^\\d+$")) {
+                return false;
+            }
+            boolean todosDigitosIguais = true;
+            for (int i = 1; i < cnpj.length(); i++) {
+                if (cnpj.charAt(i) != cnpj.charAt(0)) {
+                    todosDigitosIguais = false;
+                    break;
+                }
+            }
+            if (todosDigitosIguais) {
+                return false;
+            }
+            int[] multiplicadores1 = { 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2 };
+            int soma = 0;
+            for (int i = 0; i < 12; i++) {
+                soma += (cnpj.charAt(i) - '0') * multiplicadores1[i];
+            }
+            int resto = soma % 11;
+            int dv1 = (resto < 2) ? 0 : 11 - resto;
+            if ((cnpj.charAt(12) - '0') != dv1) {
+                return false;
+            }
+            int[] multiplicadores2 = { 6, 5, 4, 3, 2, 9, 8, 7, 6, 5, 4, 3, 2 };
+            soma = 0;
+            for (int i = 0; i < 13; i++) {
+                soma += (cnpj.charAt(i) - '0') * multiplicadores2[i];
+            }
+            resto = soma % 11;
+            int dv2 = (resto < 2) ? 0 : 11 - resto;
+            return (cnpj.charAt(13) - '0') == dv2;
+        }
+
+        static boolean validarChaveAleatoria(String chaveAleatoria) {
+            if (chaveAleatoria == null || chaveAleatoria.length() != 36) {
+                return false;
+            }
+            return chaveAleatoria.matches("^[a-zA-Z0-9]+$");
+        }
+    }
+}